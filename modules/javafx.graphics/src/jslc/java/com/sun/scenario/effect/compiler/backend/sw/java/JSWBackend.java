@@ -72,6 +72,7 @@ public class JSWBackend extends TreeScanner {
         StringBuilder constants = new StringBuilder();
         StringBuilder samplers = new StringBuilder();
         StringBuilder cleanup = new StringBuilder();
+        StringBuilder rangeDecls = new StringBuilder();
         StringBuilder srcRects = new StringBuilder();
         StringBuilder posDecls = new StringBuilder();
         StringBuilder pixInitY = new StringBuilder();
@@ -146,7 +147,7 @@ public class JSWBackend extends TreeScanner {
                     samplers.append("int src" + i + "h = src" + i + ".getHeight();\n");
                     samplers.append("int src" + i + "scan = src" + i + ".getWidth();\n");
                     samplers.append("float[] " + v.getName() + " = src" + i + ".getData();\n");
-                    samplers.append("float " + v.getName() + "_vals[] = new float[4];\n");
+                    rangeDecls.append("float " + v.getName() + "_vals[] = new float[4];\n");
 
                     // TODO: for now, assume [0,0,1,1]
                     srcRects.append("float[] src" + i + "Rect = new float[] {0,0,1,1};\n");
@@ -181,7 +182,8 @@ public class JSWBackend extends TreeScanner {
                     samplers.append("setInputNativeBounds(" + i + ", src" + i + "Bounds);\n");
 
                     if (t == Type.LSAMPLER) {
-                        samplers.append("float " + v.getName() + "_vals[] = new float[4];\n");
+                        // each range of rows needs its own sample buffer
+                        rangeDecls.append("float " + v.getName() + "_vals[] = new float[4];\n");
                     }
 
                     // the source rect decls need to come after all calls to
@@ -229,6 +231,7 @@ public class JSWBackend extends TreeScanner {
         glue.setAttribute("usercode", usercode.toString());
         glue.setAttribute("samplers", samplers.toString());
         glue.setAttribute("cleanup", cleanup.toString());
+        glue.setAttribute("rangeDecls", rangeDecls.toString());
         glue.setAttribute("srcRects", srcRects.toString());
         glue.setAttribute("constants", constants.toString());
         glue.setAttribute("posDecls", posDecls.toString());
@@ -99,7 +99,7 @@ public class CompositeStrike implements FontStrike {
         return transform;
     }
 
-    public FontStrike getStrikeSlot(int slot) {
+    public synchronized FontStrike getStrikeSlot(int slot) {
         if (slot == 0) {
             if (slot0Strike == null) {
                 FontResource slot0Resource = fontResource.getSlotResource(0);
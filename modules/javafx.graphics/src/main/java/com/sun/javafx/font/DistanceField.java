@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.font;
+
+import com.sun.javafx.geom.PathIterator;
+import com.sun.javafx.geom.RectBounds;
+import com.sun.javafx.geom.Shape;
+import com.sun.javafx.geom.transform.BaseTransform;
+import java.util.Arrays;
+
+/**
+ * The signed distance field of a glyph: an alpha image of the outline at
+ * {@link #REFERENCE_SIZE} where each pixel holds the distance from its
+ * center to the closest edge, 0.5 on the edge, increasing inside the glyph
+ * and decreasing outside of it, reaching 0 and 1 at {@link #SPREAD}
+ * pixels from the edge.
+ *
+ * Since the distance varies linearly across the edge, the image can be
+ * sampled with linear filtering at any scale or rotation and thresholded
+ * around 0.5 to get the coverage of the glyph, so one image serves all the
+ * sizes of the font. Small sizes look better with hinted glyph images.
+ */
+public final class DistanceField {
+
+    /**
+     * The size in pixels the outline of the glyph is sampled at.
+     */
+    public static final int REFERENCE_SIZE = 48;
+
+    /**
+     * The distance in pixels at the reference size covered by the field
+     * on each side of the edge, which is also the padding of the image.
+     */
+    public static final int SPREAD = 6;
+
+    private static final float FLATNESS = 0.1f;
+
+    private final int originX;
+    private final int originY;
+    private final int width;
+    private final int height;
+    private final byte[] pixels;
+
+    private DistanceField(int originX, int originY, int width, int height,
+                          byte[] pixels) {
+        this.originX = originX;
+        this.originY = originY;
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    /**
+     * Returns the distance field of the glyph of the font, or null if the
+     * glyph has no outline.
+     */
+    public static DistanceField create(FontResource font, int glyphCode) {
+        FontStrike strike = font.getStrike(REFERENCE_SIZE,
+                                           BaseTransform.IDENTITY_TRANSFORM,
+                                           FontResource.AA_GREYSCALE);
+        Glyph glyph = strike.getGlyph(glyphCode);
+        if (glyph == null) {
+            return null;
+        }
+        return create(glyph.getShape());
+    }
+
+    /**
+     * Returns the distance field of an outline given in pixels at the
+     * reference size, with the baseline at y = 0, or null if the outline
+     * is empty.
+     */
+    public static DistanceField create(Shape outline) {
+        if (outline == null) {
+            return null;
+        }
+        RectBounds bounds = outline.getBounds();
+        if (bounds.isEmpty()) {
+            return null;
+        }
+        PathIterator pi = outline.getPathIterator(null, FLATNESS);
+        boolean nonZero = pi.getWindingRule() == PathIterator.WIND_NON_ZERO;
+        float[] segs = flatten(pi);
+        int numSegs = segs.length / 4;
+        if (numSegs == 0) {
+            return null;
+        }
+
+        int x0 = (int) Math.floor(bounds.getMinX()) - SPREAD;
+        int y0 = (int) Math.floor(bounds.getMinY()) - SPREAD;
+        int x1 = (int) Math.ceil(bounds.getMaxX()) + SPREAD;
+        int y1 = (int) Math.ceil(bounds.getMaxY()) + SPREAD;
+        int w = x1 - x0;
+        int h = y1 - y0;
+        // From here on the segments are in the coordinates of the image,
+        // where the center of pixel (i, j) is at (i + 0.5, j + 0.5)
+        for (int s = 0; s < segs.length; s += 2) {
+            segs[s] -= x0;
+            segs[s + 1] -= y0;
+        }
+
+        // The generation is linear in the number of pixels and in the
+        // length of the outline: the exact distances are computed next to
+        // the outline, and the closest points are then propagated to the
+        // rest of the image in two passes (8SSEDT).
+        float[] nearX = new float[w * h];
+        float[] nearY = new float[w * h];
+        float[] dist2 = new float[w * h];
+        Arrays.fill(dist2, Float.MAX_VALUE);
+        for (int s = 0; s < segs.length; s += 4) {
+            seed(segs[s], segs[s + 1], segs[s + 2], segs[s + 3],
+                 w, h, nearX, nearY, dist2);
+        }
+        for (int j = 0; j < h; j++) {
+            for (int i = 0; i < w; i++) {
+                int k = j * w + i;
+                if (i > 0) propagate(k, k - 1, i, j, nearX, nearY, dist2);
+                if (j > 0) {
+                    if (i > 0) propagate(k, k - w - 1, i, j, nearX, nearY, dist2);
+                    propagate(k, k - w, i, j, nearX, nearY, dist2);
+                    if (i < w - 1) propagate(k, k - w + 1, i, j, nearX, nearY, dist2);
+                }
+            }
+            for (int i = w - 2; i >= 0; i--) {
+                int k = j * w + i;
+                propagate(k, k + 1, i, j, nearX, nearY, dist2);
+            }
+        }
+        for (int j = h - 1; j >= 0; j--) {
+            for (int i = w - 1; i >= 0; i--) {
+                int k = j * w + i;
+                if (i < w - 1) propagate(k, k + 1, i, j, nearX, nearY, dist2);
+                if (j < h - 1) {
+                    if (i < w - 1) propagate(k, k + w + 1, i, j, nearX, nearY, dist2);
+                    propagate(k, k + w, i, j, nearX, nearY, dist2);
+                    if (i > 0) propagate(k, k + w - 1, i, j, nearX, nearY, dist2);
+                }
+            }
+            for (int i = 1; i < w; i++) {
+                int k = j * w + i;
+                propagate(k, k - 1, i, j, nearX, nearY, dist2);
+            }
+        }
+
+        boolean[] inside = fill(segs, w, h, nonZero);
+        byte[] pixels = new byte[w * h];
+        float scale = 0.5f / SPREAD;
+        for (int k = 0; k < pixels.length; k++) {
+            float dist = (float) Math.sqrt(dist2[k]);
+            float a = 0.5f + (inside[k] ? dist : -dist) * scale;
+            if (a < 0f) a = 0f;
+            if (a > 1f) a = 1f;
+            pixels[k] = (byte) Math.round(a * 255f);
+        }
+        return new DistanceField(x0, y0, w, h, pixels);
+    }
+
+    /* The band around the outline where the distances are exact */
+    private static final float SEED_RADIUS = 1.5f;
+
+    /* Sets the distance of the pixels close to the segment to the distance
+     * to the segment, when it is closer than any other segment seen so far.
+     */
+    private static void seed(float ax, float ay, float bx, float by,
+                             int w, int h,
+                             float[] nearX, float[] nearY, float[] dist2) {
+        float dx = bx - ax;
+        float dy = by - ay;
+        float len2 = dx * dx + dy * dy;
+        int j0 = Math.max(0, (int) Math.floor(Math.min(ay, by) - SEED_RADIUS));
+        int j1 = Math.min(h - 1, (int) Math.ceil(Math.max(ay, by) + SEED_RADIUS));
+        for (int j = j0; j <= j1; j++) {
+            float py = j + 0.5f;
+            // the x range of the part of the segment close to the row
+            float sx0, sx1;
+            if (dy == 0f) {
+                sx0 = Math.min(ax, bx);
+                sx1 = Math.max(ax, bx);
+            } else {
+                float t0 = clamp((py - SEED_RADIUS - ay) / dy);
+                float t1 = clamp((py + SEED_RADIUS - ay) / dy);
+                sx0 = Math.min(ax + t0 * dx, ax + t1 * dx);
+                sx1 = Math.max(ax + t0 * dx, ax + t1 * dx);
+            }
+            int i0 = Math.max(0, (int) Math.floor(sx0 - SEED_RADIUS));
+            int i1 = Math.min(w - 1, (int) Math.ceil(sx1 + SEED_RADIUS));
+            for (int i = i0; i <= i1; i++) {
+                float px = i + 0.5f;
+                float t = len2 > 0f ? clamp(((px - ax) * dx + (py - ay) * dy) / len2) : 0f;
+                float nx = ax + t * dx;
+                float ny = ay + t * dy;
+                float d2 = (nx - px) * (nx - px) + (ny - py) * (ny - py);
+                int k = j * w + i;
+                if (d2 < dist2[k]) {
+                    dist2[k] = d2;
+                    nearX[k] = nx;
+                    nearY[k] = ny;
+                }
+            }
+        }
+    }
+
+    /* Takes the closest point of the neighbor q of pixel k = (i, j) when
+     * it is closer to k than its own closest point.
+     */
+    private static void propagate(int k, int q, int i, int j,
+                                  float[] nearX, float[] nearY, float[] dist2) {
+        if (dist2[q] == Float.MAX_VALUE) {
+            return;
+        }
+        float ex = nearX[q] - (i + 0.5f);
+        float ey = nearY[q] - (j + 0.5f);
+        float d2 = ex * ex + ey * ey;
+        if (d2 < dist2[k]) {
+            dist2[k] = d2;
+            nearX[k] = nearX[q];
+            nearY[k] = nearY[q];
+        }
+    }
+
+    private static float clamp(float t) {
+        return t < 0f ? 0f : (t > 1f ? 1f : t);
+    }
+
+    /* Returns which pixel centers are inside the outline, from the
+     * crossings of the outline with each row of pixel centers.
+     */
+    private static boolean[] fill(float[] segs, int w, int h, boolean nonZero) {
+        // Bucket the crossings by row
+        int[] rowStart = new int[h + 1];
+        for (int s = 0; s < segs.length; s += 4) {
+            int[] rows = crossedRows(segs[s + 1], segs[s + 3], h);
+            for (int j = rows[0]; j <= rows[1]; j++) {
+                rowStart[j + 1]++;
+            }
+        }
+        for (int j = 0; j < h; j++) {
+            rowStart[j + 1] += rowStart[j];
+        }
+        float[] crossX = new float[rowStart[h]];
+        int[] crossDir = new int[rowStart[h]];
+        int[] rowEnd = new int[h];
+        System.arraycopy(rowStart, 0, rowEnd, 0, h);
+        for (int s = 0; s < segs.length; s += 4) {
+            float ax = segs[s],     ay = segs[s + 1];
+            float bx = segs[s + 2], by = segs[s + 3];
+            int[] rows = crossedRows(ay, by, h);
+            for (int j = rows[0]; j <= rows[1]; j++) {
+                float py = j + 0.5f;
+                int n = rowEnd[j]++;
+                crossX[n] = ax + (py - ay) * (bx - ax) / (by - ay);
+                crossDir[n] = (by > ay) ? 1 : -1;
+            }
+        }
+
+        boolean[] inside = new boolean[w * h];
+        for (int j = 0; j < h; j++) {
+            int start = rowStart[j];
+            int end = rowStart[j + 1];
+            // insertion sort, rows cross the outline only a few times
+            for (int n = start + 1; n < end; n++) {
+                float x = crossX[n];
+                int dir = crossDir[n];
+                int m = n - 1;
+                while (m >= start && crossX[m] > x) {
+                    crossX[m + 1] = crossX[m];
+                    crossDir[m + 1] = crossDir[m];
+                    m--;
+                }
+                crossX[m + 1] = x;
+                crossDir[m + 1] = dir;
+            }
+            // the winding of a pixel counts the crossings to its right
+            int winding = 0;
+            for (int n = start; n < end; n++) {
+                winding += crossDir[n];
+            }
+            int n = start;
+            for (int i = 0; i < w; i++) {
+                float px = i + 0.5f;
+                while (n < end && crossX[n] <= px) {
+                    winding -= crossDir[n++];
+                }
+                inside[j * w + i] = nonZero ? winding != 0 : (winding & 1) != 0;
+            }
+        }
+        return inside;
+    }
+
+    /* Returns the first and last rows whose center line crosses the
+     * segment from y = ay to y = by, the last is before the first when
+     * there are none.
+     */
+    private static int[] crossedRows(float ay, float by, int h) {
+        // a row crosses when (ay <= py) != (by <= py)
+        float lo = Math.min(ay, by);
+        float hi = Math.max(ay, by);
+        int j0 = Math.max(0, (int) Math.ceil(lo - 0.5f));
+        int j1 = Math.min(h - 1, (int) Math.ceil(hi - 0.5f) - 1);
+        while (j0 <= j1 && !(lo <= j0 + 0.5f)) j0++;
+        while (j1 >= j0 && !(j1 + 0.5f < hi)) j1--;
+        return new int[] { j0, j1 };
+    }
+
+    /* Returns the line segments of the flattened path, as consecutive
+     * x0, y0, x1, y1 quadruples, closing every subpath.
+     */
+    private static float[] flatten(PathIterator pi) {
+        float[] segs = new float[64];
+        int n = 0;
+        float[] coords = new float[6];
+        float mx = 0f, my = 0f, cx = 0f, cy = 0f;
+        while (!pi.isDone()) {
+            int type = pi.currentSegment(coords);
+            float nx, ny;
+            switch (type) {
+                case PathIterator.SEG_MOVETO:
+                    if (cx != mx || cy != my) {
+                        segs = add(segs, n, cx, cy, mx, my);
+                        n += 4;
+                    }
+                    mx = cx = coords[0];
+                    my = cy = coords[1];
+                    pi.next();
+                    continue;
+                case PathIterator.SEG_LINETO:
+                    nx = coords[0];
+                    ny = coords[1];
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    nx = mx;
+                    ny = my;
+                    break;
+                default:
+                    // the iterator is flattened
+                    throw new InternalError("Unexpected segment type " + type);
+            }
+            if (nx != cx || ny != cy) {
+                segs = add(segs, n, cx, cy, nx, ny);
+                n += 4;
+            }
+            cx = nx;
+            cy = ny;
+            pi.next();
+        }
+        if (cx != mx || cy != my) {
+            segs = add(segs, n, cx, cy, mx, my);
+            n += 4;
+        }
+        float[] result = new float[n];
+        System.arraycopy(segs, 0, result, 0, n);
+        return result;
+    }
+
+    private static float[] add(float[] segs, int n,
+                               float x0, float y0, float x1, float y1) {
+        if (n + 4 > segs.length) {
+            float[] tmp = new float[segs.length * 2];
+            System.arraycopy(segs, 0, tmp, 0, n);
+            segs = tmp;
+        }
+        segs[n] = x0;
+        segs[n + 1] = y0;
+        segs[n + 2] = x1;
+        segs[n + 3] = y1;
+        return segs;
+    }
+
+    /**
+     * Returns the x offset of the left edge of the image from the origin
+     * of the glyph, in pixels at the reference size.
+     */
+    public int getOriginX() {
+        return originX;
+    }
+
+    /**
+     * Returns the y offset of the top edge of the image from the baseline,
+     * in pixels at the reference size.
+     */
+    public int getOriginY() {
+        return originY;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the distance of each pixel, one byte per pixel with no
+     * padding between rows.
+     */
+    public byte[] getPixels() {
+        return pixels;
+    }
+}
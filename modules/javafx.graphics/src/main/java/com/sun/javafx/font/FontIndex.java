@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.font;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * The font name maps built by enumerating the platform fonts, and a
+ * persistent copy of them.
+ *
+ * Enumerating thousands of installed fonts through the platform APIs is slow,
+ * so the maps can be saved to disk and read back on the next run. The index
+ * records the modification time of every font file and of the directories
+ * holding them, as well as of everything below the platform font directories
+ * and configuration files the enumeration depends on; if any of them changed
+ * (a font was added, removed or updated, a font directory was added or the
+ * configuration changed) the index is stale and the fonts have to be
+ * enumerated again.
+ */
+final class FontIndex {
+
+    private static final int MAGIC = 0x4A464649; /* JFFI */
+    private static final int VERSION = 2;
+
+    /* Lower-case font full name to font file */
+    final HashMap<String,String> fontToFileMap;
+
+    /* Lower-case font full name to the name of its family */
+    final HashMap<String,String> fontToFamilyNameMap;
+
+    /* Lower-case family name to the full names of its member fonts */
+    final HashMap<String,ArrayList<String>> familyToFontListMap;
+
+    FontIndex() {
+        fontToFileMap = new HashMap<String,String>(100);
+        fontToFamilyNameMap = new HashMap<String,String>(100);
+        familyToFontListMap = new HashMap<String,ArrayList<String>>(50);
+    }
+
+    /**
+     * Reads an index written by {@link #write}.
+     *
+     * @param file the index file
+     * @param key identifies the platform and settings the index was built
+     * for, an index written with a different key is ignored
+     * @return the index, or null if it does not exist, cannot be read, was
+     * written for another key or any of the font files changed since
+     */
+    static FontIndex read(File file, String key) {
+        if (!file.isFile()) return null;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            if (!key.equals(in.readUTF())) return null;
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long stamp = in.readLong();
+                if (new File(path).lastModified() != stamp) {
+                    return null;
+                }
+            }
+
+            FontIndex index = new FontIndex();
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                index.fontToFileMap.put(in.readUTF(), in.readUTF());
+            }
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                index.fontToFamilyNameMap.put(in.readUTF(), in.readUTF());
+            }
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String family = in.readUTF();
+                int size = in.readInt();
+                ArrayList<String> fonts = new ArrayList<String>(size);
+                for (int j = 0; j < size; j++) {
+                    fonts.add(in.readUTF());
+                }
+                index.familyToFontListMap.put(family, fonts);
+            }
+            return index;
+        } catch (IOException | RuntimeException e) {
+            if (PrismFontFactory.debugFonts) {
+                System.err.println("Cannot read font index " + file + ": " + e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Writes the index to disk.
+     *
+     * @param file the index file, replaced atomically
+     * @param key identifies the platform and settings the index was built for
+     * @param pathResolver maps the file names in the maps to absolute paths
+     * @param roots the font directories and configuration files the
+     * enumeration depends on, everything below them is recorded as well.
+     * Missing ones are recorded too, creating them makes the index stale.
+     * @return true if the index was written
+     */
+    boolean write(File file, String key, Function<String,String> pathResolver,
+                  List<String> roots) {
+        /* Sorted so the same fonts always produce the same file */
+        TreeMap<String,Long> stamps = new TreeMap<String,Long>();
+        for (String root : roots) {
+            stampTree(new File(root), stamps);
+        }
+        for (String name : fontToFileMap.values()) {
+            String path = pathResolver.apply(name);
+            if (path == null) continue;
+            File f = new File(path);
+            stamps.put(f.getPath(), f.lastModified());
+            File dir = f.getParentFile();
+            if (dir != null) {
+                stamps.put(dir.getPath(), dir.lastModified());
+            }
+        }
+
+        File tmp = null;
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) return false;
+            tmp = File.createTempFile("fontindex", null, dir);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(key);
+                out.writeInt(stamps.size());
+                for (Map.Entry<String,Long> e : stamps.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeLong(e.getValue());
+                }
+                out.writeInt(fontToFileMap.size());
+                for (Map.Entry<String,String> e : fontToFileMap.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeUTF(e.getValue());
+                }
+                out.writeInt(fontToFamilyNameMap.size());
+                for (Map.Entry<String,String> e : fontToFamilyNameMap.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeUTF(e.getValue());
+                }
+                out.writeInt(familyToFontListMap.size());
+                for (Map.Entry<String,ArrayList<String>> e : familyToFontListMap.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeInt(e.getValue().size());
+                    for (String font : e.getValue()) {
+                        out.writeUTF(font);
+                    }
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            if (PrismFontFactory.debugFonts) {
+                System.err.println("Cannot write font index " + file + ": " + e);
+            }
+            if (tmp != null) {
+                tmp.delete();
+            }
+            return false;
+        }
+    }
+
+    /* Records the file and, for a directory, everything below it. Linked
+     * directories are recorded but not followed, they may form cycles. */
+    private static void stampTree(File f, TreeMap<String,Long> stamps) {
+        if (stamps.put(f.getPath(), f.lastModified()) != null) return;
+        File[] files = f.listFiles();
+        if (files == null) return;
+        for (File child : files) {
+            if (child.isDirectory() && Files.isSymbolicLink(child.toPath())) {
+                stamps.put(child.getPath(), child.lastModified());
+            } else {
+                stampTree(child, stamps);
+            }
+        }
+    }
+}
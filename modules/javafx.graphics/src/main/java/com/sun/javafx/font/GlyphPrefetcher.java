@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.font;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import com.sun.javafx.geom.transform.BaseTransform;
+
+/**
+ * Rasterizes glyphs in the background as soon as text is laid out, so that
+ * the render thread finds their images ready when the glyphs are first
+ * added to the glyph cache.
+ *
+ * The glyph images are kept by the glyph objects of the strike. The native
+ * rasterizers share state between glyphs (FreeType faces, the cached
+ * DirectWrite render target), so all the glyph images are produced under
+ * a single lock, and by a single worker thread. Callers rasterizing
+ * glyphs on other threads must hold the lock returned by
+ * {@link #getRasterizerLock()}.
+ *
+ * Text is drawn with the strike of the screen scale, so the glyphs are
+ * prefetched from the strike at the render scale last reported with
+ * {@link #setRenderScale(float, float)}. With windows on screens of
+ * different scales the glyphs for the other screens are rasterized
+ * on the render thread as before.
+ */
+public final class GlyphPrefetcher {
+
+    /* Pending glyph lists, new requests are dropped when it is full */
+    private static final int MAX_PENDING = 1024;
+
+    private static final Object rasterizerLock = new Object();
+    private static ThreadPoolExecutor executor;
+    private static volatile float renderScaleX = 1f;
+    private static volatile float renderScaleY = 1f;
+
+    private GlyphPrefetcher() {
+    }
+
+    /**
+     * Returns the lock held while getting the image of a glyph.
+     */
+    public static Object getRasterizerLock() {
+        return rasterizerLock;
+    }
+
+    /**
+     * Returns true if glyphs should be prefetched. CoreText glyphs do not
+     * keep their images, so there is nothing to prefetch on Mac.
+     */
+    public static boolean isEnabled() {
+        return PrismFontFactory.glyphPrefetch && !PrismFontFactory.isMacOSX;
+    }
+
+    /**
+     * Sets the pixel scale of the scene being rendered.
+     */
+    public static void setRenderScale(float scaleX, float scaleY) {
+        renderScaleX = scaleX;
+        renderScaleY = scaleY;
+    }
+
+    /**
+     * Requests the images of the glyphs at subpixel position zero, in the
+     * strike of the font at the render scale.
+     */
+    public static void prefetch(PGFont font, int aaMode, int[] glyphCodes) {
+        if (font == null || glyphCodes.length == 0) return;
+        float scaleX = renderScaleX;
+        float scaleY = renderScaleY;
+        getExecutor().execute(() -> {
+            rasterize(getRenderStrike(font, aaMode, scaleX, scaleY), glyphCodes);
+        });
+    }
+
+    static FontStrike getRenderStrike(PGFont font, int aaMode,
+                                      float scaleX, float scaleY) {
+        BaseTransform tx = BaseTransform.IDENTITY_TRANSFORM;
+        if (scaleX != 1f || scaleY != 1f) {
+            tx = BaseTransform.getScaleInstance(scaleX, scaleY);
+        }
+        return font.getStrike(tx, aaMode);
+    }
+
+    private static synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(MAX_PENDING),
+                    r -> AccessController.doPrivileged((PrivilegedAction<Thread>) () -> {
+                        Thread t = new Thread(r, "Prism Glyph Prefetcher");
+                        t.setContextClassLoader(null);
+                        t.setDaemon(true);
+                        t.setPriority(Thread.NORM_PRIORITY - 1);
+                        return t;
+                    }),
+                    new ThreadPoolExecutor.DiscardPolicy());
+        }
+        return executor;
+    }
+
+    static void rasterize(FontStrike strike, int[] glyphCodes) {
+        for (int gc : glyphCodes) {
+            if ((gc & CompositeGlyphMapper.GLYPHMASK) == CharToGlyphMapper.INVISIBLE_GLYPH_ID) {
+                continue;
+            }
+            /* Lock each glyph so the render thread is not held for long */
+            synchronized (rasterizerLock) {
+                Glyph glyph = strike.getGlyph(gc);
+                if (glyph != null) {
+                    glyph.getPixelData(0);
+                }
+            }
+        }
+    }
+}
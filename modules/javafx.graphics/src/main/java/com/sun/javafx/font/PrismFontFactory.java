@@ -39,6 +39,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Locale;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
 
 import com.sun.glass.ui.Screen;
 import com.sun.glass.utils.NativeLibLoader;
@@ -56,6 +60,10 @@ public abstract class PrismFontFactory implements FontFactory {
     public static final boolean isAndroid;
     public static final boolean isEmbedded;
     public static final int cacheLayoutSize;
+    public static final int shapingCacheSize;
+    public static final boolean glyphPrefetch;
+    private static boolean preloadFonts;
+    private static File fontIndexFile;
     private static int subPixelMode;
     public static final int SUB_PIXEL_ON = 1;
     public static final int SUB_PIXEL_Y = 2;
@@ -92,6 +100,8 @@ public abstract class PrismFontFactory implements FontFactory {
         isAndroid = PlatformUtil.isAndroid();
         isEmbedded = PlatformUtil.isEmbedded();
         int[] tempCacheLayoutSize = {0x10000};
+        int[] tempShapingCacheSize = {0};
+        boolean[] tempGlyphPrefetch = {false};
 
         debugFonts = AccessController.doPrivileged(
                 (PrivilegedAction<Boolean>) () -> {
@@ -150,10 +160,45 @@ public abstract class PrismFontFactory implements FontFactory {
                         }
                     }
 
+                    /* Enumerate the platform fonts on a background thread
+                     * as soon as the factory is created. */
+                    preloadFonts = "true".equals(System.getProperty("prism.fontPreload"));
+
+                    /* Keep the enumerated platform fonts in an index file,
+                     * either the given path or a default one with "true". */
+                    s = System.getProperty("prism.fontIndex");
+                    if ("true".equals(s)) {
+                        fontIndexFile = new File(System.getProperty("user.home"),
+                                ".openjfx" + File.separator + "cache" +
+                                File.separator + "fontindex");
+                    } else if (s != null && !s.isEmpty() && !"false".equals(s)) {
+                        fontIndexFile = new File(s);
+                    }
+
+                    /* Rasterize the glyphs of laid out text in the background */
+                    tempGlyphPrefetch[0] = "true".equals(System.getProperty("prism.glyphPrefetch"));
+
+                    /* Number of glyphs kept by the shaping cache shared by
+                     * all text layouts, zero disables the cache. */
+                    s = System.getProperty("prism.shapingCacheSize");
+                    if (s != null) {
+                        try {
+                            tempShapingCacheSize[0] = Integer.parseInt(s);
+                            if (tempShapingCacheSize[0] < 0) {
+                                tempShapingCacheSize[0] = 0;
+                            }
+                        } catch (NumberFormatException nfe) {
+                            System.err.println("Cannot parse shaping cache size '"
+                                    + s + "'");
+                        }
+                    }
+
                     return debug;
                 }
         );
         cacheLayoutSize = tempCacheLayoutSize[0];
+        shapingCacheSize = tempShapingCacheSize[0];
+        glyphPrefetch = tempGlyphPrefetch[0];
     }
 
     private static String getJDKFontDir() {
@@ -210,6 +255,9 @@ public abstract class PrismFontFactory implements FontFactory {
         if (theFontFactory == null) {
             throw new InternalError("cannot load font factory: "+ factoryClass);
         }
+        if (preloadFonts) {
+            theFontFactory.startPlatformFontEnumeration();
+        }
         return theFontFactory;
     }
 
@@ -1741,30 +1789,180 @@ public abstract class PrismFontFactory implements FontFactory {
         }
     }
 
+    /* Platform font enumeration started by getFontFactory() */
+    private FutureTask<FontIndex> platformFontsTask;
+
+    private synchronized void startPlatformFontEnumeration() {
+        final FutureTask<FontIndex> task =
+            new FutureTask<FontIndex>(() -> loadPlatformFonts());
+        platformFontsTask = task;
+        AccessController.doPrivileged((PrivilegedAction<Void>) () -> {
+            Thread t = new Thread(task, "Prism Font Enumerator");
+            t.setContextClassLoader(null);
+            t.setDaemon(true);
+            t.start();
+            return null;
+        });
+    }
+
+    /**
+     * Enumerates the platform fonts, reading them from the font index when
+     * it is enabled and up to date. This does not touch the factory state
+     * so it can run on any thread.
+     * Returns null on an unrecognised platform.
+     */
+    private FontIndex loadPlatformFonts() {
+        if (!isWindows && !isMacOSX && !isIOS && !isLinux && !isAndroid) {
+            return null;
+        }
+        if (isWindows) {
+            getPlatformFontDirs();
+        }
+
+        final File indexFile = fontIndexFile;
+        final String indexKey = System.getProperty("os.name") + ":" +
+                                System.getProperty("os.version") + ":" +
+                                Locale.getDefault();
+        if (indexFile != null) {
+            FontIndex index = AccessController.doPrivileged(
+                (PrivilegedAction<FontIndex>) () -> FontIndex.read(indexFile, indexKey)
+            );
+            if (index != null) {
+                if (debugFonts) {
+                    System.err.println("Read font index " + indexFile);
+                }
+                return index;
+            }
+        }
+
+        final FontIndex index = new FontIndex();
+        if (isWindows) {
+            populateFontFileNameMap(index.fontToFileMap,
+                                    index.fontToFamilyNameMap,
+                                    index.familyToFontListMap,
+                                    Locale.ENGLISH);
+
+            if (debugFonts) {
+                System.err.println("Windows Locale ID=" + getSystemLCID());
+                logFontInfo(" *** WINDOWS FONTS BEFORE RESOLVING",
+                            index.fontToFileMap,
+                            index.fontToFamilyNameMap,
+                            index.familyToFontListMap);
+            }
+
+        } else if (isMacOSX || isIOS) {
+            MacFontFinder.populateFontFileNameMap(index.fontToFileMap,
+                                                  index.fontToFamilyNameMap,
+                                                  index.familyToFontListMap,
+                                                  Locale.ENGLISH);
+
+        } else if (isLinux) {
+            FontConfigManager.populateMaps(index.fontToFileMap,
+                                           index.fontToFamilyNameMap,
+                                           index.familyToFontListMap,
+                                           Locale.getDefault());
+            if (debugFonts) {
+                logFontInfo(" *** FONTCONFIG LOCATED FONTS:",
+                            index.fontToFileMap,
+                            index.fontToFamilyNameMap,
+                            index.familyToFontListMap);
+            }
+        } else if (isAndroid) {
+           AndroidFontFinder.populateFontFileNameMap(index.fontToFileMap,
+                    index.fontToFamilyNameMap,
+                    index.familyToFontListMap,
+                    Locale.ENGLISH);
+        }
+
+        if (indexFile != null) {
+            /* Windows reports the base name of the font files */
+            final Function<String,String> resolver = isWindows ?
+                PrismFontFactory::getPathNameWindows : f -> f;
+            AccessController.doPrivileged(
+                (PrivilegedAction<Boolean>) () ->
+                    index.write(indexFile, indexKey, resolver, getFontIndexRoots())
+            );
+        }
+        return index;
+    }
+
+    /**
+     * Returns the font directories and configuration files the platform
+     * font enumeration depends on. The font index is stale as soon as any
+     * of them, or anything below them, changes.
+     */
+    private static List<String> getFontIndexRoots() {
+        final String home = System.getProperty("user.home");
+        final ArrayList<String> roots = new ArrayList<String>();
+        if (isWindows) {
+            if (sysFontDir != null) roots.add(sysFontDir);
+            if (userFontDir != null) roots.add(userFontDir);
+        } else if (isMacOSX || isIOS) {
+            roots.add("/System/Library/Fonts");
+            roots.add("/Library/Fonts");
+            roots.add(home + "/Library/Fonts");
+        } else if (isLinux) {
+            String dataHome = System.getenv("XDG_DATA_HOME");
+            if (dataHome == null) dataHome = home + "/.local/share";
+            String configHome = System.getenv("XDG_CONFIG_HOME");
+            if (configHome == null) configHome = home + "/.config";
+            String cacheHome = System.getenv("XDG_CACHE_HOME");
+            if (cacheHome == null) cacheHome = home + "/.cache";
+            /* The default fontconfig font directories. Its configuration
+             * may name others; fontconfig rewrites its caches when they
+             * change, so the caches are recorded as well. */
+            roots.add("/usr/share/fonts");
+            roots.add("/usr/local/share/fonts");
+            roots.add(dataHome + "/fonts");
+            roots.add(home + "/.fonts");
+            roots.add("/etc/fonts");
+            roots.add(configHome + "/fontconfig");
+            roots.add(home + "/.fonts.conf");
+            roots.add("/var/cache/fontconfig");
+            roots.add(cacheHome + "/fontconfig");
+            String fontDir = System.getProperty("prism.fontdir");
+            if (fontDir != null) roots.add(fontDir);
+        } else if (isAndroid) {
+            roots.add(AndroidFontFinder.systemFontsDir);
+        }
+        return roots;
+    }
+
     private synchronized HashMap<String,String> getFullNameToFileMap() {
         if (fontToFileMap == null) {
 
-            HashMap<String, String>
-                tmpFontToFileMap = new HashMap<String,String>(100);
-            fontToFamilyNameMap = new HashMap<String,String>(100);
-            familyToFontListMap = new HashMap<String,ArrayList<String>>(50);
-            fileToFontMap = new HashMap<String,String>(100);
+            FontIndex index = null;
+            boolean loaded = false;
+            if (platformFontsTask != null) {
+                /* Wait for the background enumeration, it never needs
+                 * the factory lock so this can not deadlock. */
+                try {
+                    index = platformFontsTask.get();
+                    loaded = true;
+                } catch (InterruptedException | ExecutionException e) {
+                    if (debugFonts) {
+                        e.printStackTrace();
+                    }
+                }
+                platformFontsTask = null;
+            }
+            if (!loaded) {
+                index = loadPlatformFonts();
+            }
 
-            if (isWindows) {
-                getPlatformFontDirs();
-                populateFontFileNameMap(tmpFontToFileMap,
-                                        fontToFamilyNameMap,
-                                        familyToFontListMap,
-                                        Locale.ENGLISH);
+            fileToFontMap = new HashMap<String,String>(100);
+            if (index == null) { /* unrecognised OS */
+                fontToFamilyNameMap = new HashMap<String,String>(100);
+                familyToFontListMap = new HashMap<String,ArrayList<String>>(50);
+                fontToFileMap = new HashMap<String,String>(100);
+                return fontToFileMap;
+            }
 
-                if (debugFonts) {
-                    System.err.println("Windows Locale ID=" + getSystemLCID());
-                    logFontInfo(" *** WINDOWS FONTS BEFORE RESOLVING",
-                                tmpFontToFileMap,
-                                fontToFamilyNameMap,
-                                familyToFontListMap);
-                }
+            HashMap<String, String> tmpFontToFileMap = index.fontToFileMap;
+            fontToFamilyNameMap = index.fontToFamilyNameMap;
+            familyToFontListMap = index.familyToFontListMap;
 
+            if (isWindows) {
                 resolveWindowsFonts(tmpFontToFileMap,
                                     fontToFamilyNameMap,
                                     familyToFontListMap);
@@ -1775,32 +1973,6 @@ public abstract class PrismFontFactory implements FontFactory {
                                 fontToFamilyNameMap,
                                 familyToFontListMap);
                 }
-
-            } else if (isMacOSX || isIOS) {
-                MacFontFinder.populateFontFileNameMap(tmpFontToFileMap,
-                                                      fontToFamilyNameMap,
-                                                      familyToFontListMap,
-                                                      Locale.ENGLISH);
-
-            } else if (isLinux) {
-                FontConfigManager.populateMaps(tmpFontToFileMap,
-                                               fontToFamilyNameMap,
-                                               familyToFontListMap,
-                                               Locale.getDefault());
-                if (debugFonts) {
-                    logFontInfo(" *** FONTCONFIG LOCATED FONTS:",
-                                tmpFontToFileMap,
-                                fontToFamilyNameMap,
-                                familyToFontListMap);
-                }
-            } else if (isAndroid) {
-               AndroidFontFinder.populateFontFileNameMap(tmpFontToFileMap,
-                        fontToFamilyNameMap,
-                        familyToFontListMap,
-                        Locale.ENGLISH);
-           } else { /* unrecognised OS */
-                fontToFileMap = tmpFontToFileMap;
-                return fontToFileMap;
             }
 
             /* Reverse map from file to font. file name is base name
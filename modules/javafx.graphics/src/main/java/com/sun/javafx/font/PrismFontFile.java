@@ -330,7 +330,7 @@ public abstract class PrismFontFile implements FontResource, FontConstants {
                                                     int aaMode,
                                                     FontStrikeDesc desc);
 
-    public FontStrike getStrike(float size, BaseTransform transform,
+    public synchronized FontStrike getStrike(float size, BaseTransform transform,
                                 int aaMode) {
         FontStrikeDesc desc = new FontStrikeDesc(size, transform, aaMode);
         WeakReference<PrismFontStrike> ref = strikeMap.get(desc);
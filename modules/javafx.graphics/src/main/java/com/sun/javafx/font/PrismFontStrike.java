@@ -165,7 +165,7 @@ public abstract class PrismFontStrike<T extends PrismFontFile> implements FontSt
 
     protected abstract Glyph createGlyph(int glyphCode);
 
-    public Glyph getGlyph(int glyphCode) {
+    public synchronized Glyph getGlyph(int glyphCode) {
         Glyph glyph = glyphMap.get(glyphCode);
         if (glyph == null) {
             glyph = createGlyph(glyphCode);
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.geom;
+
+import java.util.Arrays;
+
+/**
+ * A balanced binary tree of the union of the bounds of a list of items,
+ * used to keep the overall bounds of a large number of items up to date
+ * when only a few of them change. Items are identified by an index in the
+ * range [0, size), typically the position of a child in its parent.
+ * Changing the bounds of a single item updates the union in O(log n) time,
+ * regardless of whether the item forms an edge of the overall bounds.
+ * <p>
+ * The interior of the tree is computed lazily on the first call to
+ * {@link #getBounds(BaseBounds)} following a {@link #reset(int)}, so that
+ * filling in all of the items after a reset costs O(n) rather than
+ * O(n log n).
+ */
+public final class BoundsTree {
+
+    // minX, minY, minZ, maxX, maxY, maxZ for each tree node
+    private static final int STRIDE = 6;
+
+    private int size;
+    // number of leaves, always a power of two; node 1 is the root and the
+    // leaves occupy nodes [capacity, 2 * capacity)
+    private int capacity = 1;
+    private float[] nodes = new float[2 * STRIDE];
+    private boolean built;
+
+    public BoundsTree() {
+        reset(0);
+    }
+
+    /**
+     * Resets the tree to hold {@code size} items, all with empty bounds.
+     */
+    public void reset(int size) {
+        this.size = size;
+        int cap = 1;
+        while (cap < size) {
+            cap <<= 1;
+        }
+        if (cap != capacity || nodes.length != 2 * cap * STRIDE) {
+            capacity = cap;
+            nodes = new float[2 * cap * STRIDE];
+        }
+        for (int i = 0; i < 2 * cap; i++) {
+            clear(i);
+        }
+        built = false;
+    }
+
+    /**
+     * Grows the tree to hold {@code size} items, keeping the bounds of the
+     * existing items. The new items have empty bounds.
+     */
+    public void grow(int size) {
+        if (size <= this.size) {
+            return;
+        }
+        if (size > capacity) {
+            int cap = capacity;
+            while (cap < size) {
+                cap <<= 1;
+            }
+            final float[] old = nodes;
+            final int oldCapacity = capacity;
+            capacity = cap;
+            nodes = new float[2 * cap * STRIDE];
+            for (int i = 0; i < 2 * cap; i++) {
+                clear(i);
+            }
+            System.arraycopy(old, oldCapacity * STRIDE,
+                             nodes, cap * STRIDE, this.size * STRIDE);
+            built = false;
+        }
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void set(int index, BaseBounds b) {
+        if (b.isEmpty()) {
+            setEmpty(index);
+        } else {
+            set(index, b.getMinX(), b.getMinY(), b.getMinZ(),
+                       b.getMaxX(), b.getMaxY(), b.getMaxZ());
+        }
+    }
+
+    public void set(int index, float minX, float minY, float minZ,
+                    float maxX, float maxY, float maxZ)
+    {
+        checkIndex(index);
+        int node = capacity + index;
+        final int off = node * STRIDE;
+        nodes[off    ] = minX;
+        nodes[off + 1] = minY;
+        nodes[off + 2] = minZ;
+        nodes[off + 3] = maxX;
+        nodes[off + 4] = maxY;
+        nodes[off + 5] = maxZ;
+        propagate(node);
+    }
+
+    public void setEmpty(int index) {
+        checkIndex(index);
+        int node = capacity + index;
+        clear(node);
+        propagate(node);
+    }
+
+    /**
+     * Returns the union of the bounds of all of the items, or an empty
+     * bounds if every item is empty.
+     */
+    public BaseBounds getBounds(BaseBounds result) {
+        if (!built) {
+            for (int node = capacity - 1; node > 0; node--) {
+                union(node);
+            }
+            built = true;
+        }
+        if (nodes[STRIDE] > nodes[STRIDE + 3]) {
+            return result.makeEmpty();
+        }
+        return result.deriveWithNewBounds(nodes[STRIDE],
+                                          nodes[STRIDE + 1],
+                                          nodes[STRIDE + 2],
+                                          nodes[STRIDE + 3],
+                                          nodes[STRIDE + 4],
+                                          nodes[STRIDE + 5]);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+
+    private void propagate(int node) {
+        if (!built) {
+            return;
+        }
+        for (node >>= 1; node > 0; node >>= 1) {
+            union(node);
+        }
+    }
+
+    private void clear(int node) {
+        final int off = node * STRIDE;
+        Arrays.fill(nodes, off, off + 3, Float.POSITIVE_INFINITY);
+        Arrays.fill(nodes, off + 3, off + 6, Float.NEGATIVE_INFINITY);
+    }
+
+    private void union(int node) {
+        final float[] n = nodes;
+        final int off = node * STRIDE;
+        final int l = 2 * off;
+        final int r = l + STRIDE;
+        n[off    ] = Math.min(n[l    ], n[r    ]);
+        n[off + 1] = Math.min(n[l + 1], n[r + 1]);
+        n[off + 2] = Math.min(n[l + 2], n[r + 2]);
+        n[off + 3] = Math.max(n[l + 3], n[r + 3]);
+        n[off + 4] = Math.max(n[l + 4], n[r + 4]);
+        n[off + 5] = Math.max(n[l + 5], n[r + 5]);
+    }
+}
@@ -40,6 +40,7 @@ public final class DirtyRegionContainer {
 
     private RectBounds[] dirtyRegions;
     private int emptyIndex;
+    private DirtyTileGrid tileGrid;
 
     public DirtyRegionContainer(int count) {
         initDirtyRegions(count);
@@ -138,6 +139,17 @@ public final class DirtyRegionContainer {
         dirtyRegions[index] = region;
     }
 
+    /**
+     * Sets the tile grid that collects the dirty regions added to this
+     * container instead of the array. While a grid is set, this container
+     * stays empty; the regions can be obtained afterwards from
+     * {@link DirtyTileGrid#getRegions(DirtyRegionContainer)}.
+     * @param grid the tile grid, or null to collect regions in the array
+     */
+    public void setTileGrid(DirtyTileGrid grid) {
+        tileGrid = grid;
+    }
+
     /**
      * Adds new dirty region to the array.
      * @param region the dirty region.
@@ -146,6 +158,11 @@ public final class DirtyRegionContainer {
             if (region.isEmpty())
                 return;
 
+            if (tileGrid != null) {
+                tileGrid.markDirty(region);
+                return;
+            }
+
             RectBounds dr, tmp;
             int tempIndex = 0;
             int regionCount = emptyIndex;
@@ -176,6 +193,14 @@ public final class DirtyRegionContainer {
                 compress(region);
     }
 
+    /**
+     * Adds a region known not to overlap any region in the array, without
+     * merging. The caller must ensure there is space left.
+     */
+    void appendRegion(final RectBounds region) {
+        dirtyRegions[emptyIndex++].deriveWithNewBounds(region);
+    }
+
     public void merge(DirtyRegionContainer other) {
         int otherSize = other.size();
         for(int i = 0; i < otherSize; i++) {
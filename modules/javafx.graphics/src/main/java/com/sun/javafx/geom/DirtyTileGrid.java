@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.geom;
+
+import java.util.Arrays;
+
+/**
+ * A grid of square tiles covering the scene, tracking which tiles are dirty
+ * with one bit per tile. Unlike {@link DirtyRegionContainer}, marking a
+ * region never grows any other region, so a few small dirty areas that are
+ * far apart stay small no matter how many of them there are. Once all the
+ * dirty regions of a frame have been marked, the dirty tiles are turned
+ * back into a small number of rectangles with {@link #getRegions}.
+ */
+public final class DirtyTileGrid {
+
+    private final int tileSize;
+    private int width;
+    private int height;
+    private int cols;
+    private int rows;
+    private int wordsPerRow;
+    private long[] bits = new long[0];
+    private int dirtyTileCount;
+
+    // column span and row span (c0, c1, r0, r1, end exclusive) of each
+    // rectangle produced by getRegions
+    private int[] rects = new int[64];
+    private int[] prevOpen = new int[0];
+    private int[] curOpen = new int[0];
+
+    public DirtyTileGrid(int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("tileSize: " + tileSize);
+        }
+        this.tileSize = tileSize;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Clears all the tiles and resizes the grid to cover an area of the
+     * given size.
+     */
+    public void reset(int width, int height) {
+        this.width = Math.max(0, width);
+        this.height = Math.max(0, height);
+        cols = (this.width + tileSize - 1) / tileSize;
+        rows = (this.height + tileSize - 1) / tileSize;
+        wordsPerRow = (cols + 63) >> 6;
+        final int len = wordsPerRow * rows;
+        if (bits.length < len) {
+            bits = new long[len];
+        } else {
+            Arrays.fill(bits, 0, len, 0L);
+        }
+        dirtyTileCount = 0;
+    }
+
+    public int getTileCount() {
+        return cols * rows;
+    }
+
+    public int getDirtyTileCount() {
+        return dirtyTileCount;
+    }
+
+    public boolean isEmpty() {
+        return dirtyTileCount == 0;
+    }
+
+    /**
+     * Marks every tile touched by the given region as dirty. The parts of
+     * the region outside of the grid are ignored.
+     */
+    public void markDirty(RectBounds region) {
+        if (!region.isEmpty()) {
+            markDirty(region.getMinX(), region.getMinY(),
+                      region.getMaxX(), region.getMaxY());
+        }
+    }
+
+    public void markDirty(float minX, float minY, float maxX, float maxY) {
+        if (!(minX < maxX && minY < maxY) ||
+                maxX <= 0 || maxY <= 0 || minX >= width || minY >= height) {
+            return;
+        }
+        final int c0 = Math.max(0, (int) Math.floor(minX / tileSize));
+        final int r0 = Math.max(0, (int) Math.floor(minY / tileSize));
+        final int c1 = Math.min(cols, (int) Math.ceil(maxX / tileSize));
+        final int r1 = Math.min(rows, (int) Math.ceil(maxY / tileSize));
+        for (int r = r0; r < r1; r++) {
+            final int row = r * wordsPerRow;
+            for (int c = c0; c < c1; c++) {
+                final int word = row + (c >> 6);
+                final long bit = 1L << c;
+                if ((bits[word] & bit) == 0) {
+                    bits[word] |= bit;
+                    dirtyTileCount++;
+                }
+            }
+        }
+    }
+
+    public boolean isDirty(int col, int row) {
+        return (bits[row * wordsPerRow + (col >> 6)] & (1L << col)) != 0;
+    }
+
+    /**
+     * Replaces the regions in the container with rectangles covering
+     * exactly the dirty tiles, clipped to the area of the grid. Runs of
+     * dirty tiles in a row are combined with identical runs in the rows
+     * below. If that yields more rectangles than the container can hold,
+     * they are merged by the container.
+     */
+    public void getRegions(DirtyRegionContainer drc) {
+        drc.reset();
+        if (dirtyTileCount == 0) {
+            return;
+        }
+
+        if (prevOpen.length < cols) {
+            prevOpen = new int[cols];
+            curOpen = new int[cols];
+        }
+        int count = 0;
+        // indices of the rectangles ending on the previous row, in
+        // increasing column order
+        int prevCount = 0;
+        for (int r = 0; r < rows; r++) {
+            int curCount = 0;
+            int p = 0;
+            int c = 0;
+            while (c < cols) {
+                if (!isDirty(c, r)) {
+                    c++;
+                    continue;
+                }
+                final int c0 = c;
+                while (c < cols && isDirty(c, r)) {
+                    c++;
+                }
+                while (p < prevCount && rects[4 * prevOpen[p]] < c0) {
+                    p++;
+                }
+                int rect;
+                if (p < prevCount && rects[4 * prevOpen[p]] == c0
+                        && rects[4 * prevOpen[p] + 1] == c) {
+                    rect = prevOpen[p++];
+                    rects[4 * rect + 3] = r + 1;
+                } else {
+                    if (4 * count + 4 > rects.length) {
+                        rects = Arrays.copyOf(rects, rects.length * 2);
+                    }
+                    rect = count++;
+                    rects[4 * rect    ] = c0;
+                    rects[4 * rect + 1] = c;
+                    rects[4 * rect + 2] = r;
+                    rects[4 * rect + 3] = r + 1;
+                }
+                curOpen[curCount++] = rect;
+            }
+            final int[] t = prevOpen;
+            prevOpen = curOpen;
+            curOpen = t;
+            prevCount = curCount;
+        }
+
+        final RectBounds region = new RectBounds();
+        for (int i = 0; i < count; i++) {
+            region.setBounds(rects[4 * i] * tileSize,
+                             rects[4 * i + 2] * tileSize,
+                             Math.min(width, rects[4 * i + 1] * tileSize),
+                             Math.min(height, rects[4 * i + 3] * tileSize));
+            if (count <= drc.maxSpace()) {
+                drc.appendRegion(region);
+            } else {
+                drc.addDirtyRegion(region);
+            }
+        }
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.geom;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid over a set of axis aligned rectangles, used to quickly find
+ * which of a large number of items contain a point or intersect a rectangle.
+ * Items are identified by an index in the range [0, size), typically the
+ * position of a child in its parent, and queries report the matching items
+ * in increasing index order so that callers can preserve the rendering or
+ * picking order of the children.
+ * <p>
+ * The grid layout is computed lazily on the first query following a
+ * {@link #reset(int)}. Items that later move outside of the area covered by
+ * the grid are clamped into the border cells, and the layout is recomputed
+ * once too many items have done so. Items spanning many cells are kept in a
+ * separate list which is checked by every query.
+ */
+public final class SpatialGrid {
+
+    private static final int ITEMS_PER_CELL = 4;
+    private static final int MAX_CELLS = 256 * 256;
+    private static final int MAX_CELLS_PER_ITEM = 64;
+
+    // Marks an item that is not stored in any cell (empty bounds)
+    private static final int NOT_IN_GRID = -1;
+    // Marks an item that is stored in the large item list
+    private static final int LARGE = -2;
+
+    private int size;
+
+    // minX, minY, maxX, maxY for each item
+    private float[] bounds = new float[0];
+    // first column, first row, last column, last row for each item, or one
+    // of NOT_IN_GRID or LARGE in the first slot
+    private int[] itemCells = new int[0];
+    private boolean[] clamped = new boolean[0];
+    private int clampedCount;
+
+    private boolean layoutValid;
+    private int cols;
+    private int rows;
+    private float originX;
+    private float originY;
+    private float extentX;
+    private float extentY;
+    private float invCellWidth;
+    private float invCellHeight;
+    private int[][] cells;
+    private int[] cellSizes;
+
+    private int[] large = new int[8];
+    private int largeCount;
+
+    private int[] stamps = new int[0];
+    private int stamp;
+    private int[] results = new int[16];
+
+    /**
+     * Discards the current content and prepares the grid to hold the given
+     * number of items, all of them initially empty.
+     *
+     * @param size the number of items
+     */
+    public void reset(int size) {
+        if (bounds.length < size * 4) {
+            bounds = new float[size * 4];
+            itemCells = new int[size * 4];
+            clamped = new boolean[size];
+            stamps = new int[size];
+            stamp = 0;
+        }
+        this.size = size;
+        for (int i = 0; i < size; i++) {
+            itemCells[i * 4] = NOT_IN_GRID;
+            clamped[i] = false;
+        }
+        clampedCount = 0;
+        largeCount = 0;
+        layoutValid = false;
+        cells = null;
+        cellSizes = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sets the bounds of an item. If the given bounds are empty the item will
+     * not be reported by any query.
+     *
+     * @param item the item index
+     * @param b the new bounds of the item
+     */
+    public void set(int item, BaseBounds b) {
+        if (b == null || b.isEmpty()) {
+            setEmpty(item);
+        } else {
+            set(item, b.getMinX(), b.getMinY(), b.getMaxX(), b.getMaxY());
+        }
+    }
+
+    /**
+     * Sets the bounds of an item.
+     */
+    public void set(int item, float minX, float minY, float maxX, float maxY) {
+        checkIndex(item);
+        if (layoutValid) {
+            removeFromCells(item);
+        }
+        final int i = item * 4;
+        bounds[i]     = minX;
+        bounds[i + 1] = minY;
+        bounds[i + 2] = maxX;
+        bounds[i + 3] = maxY;
+        itemCells[i] = 0;
+        if (layoutValid) {
+            addToCells(item);
+        }
+    }
+
+    /**
+     * Marks an item as empty, such that it will not be reported by any query.
+     */
+    public void setEmpty(int item) {
+        checkIndex(item);
+        if (layoutValid) {
+            removeFromCells(item);
+        }
+        itemCells[item * 4] = NOT_IN_GRID;
+    }
+
+    /**
+     * Finds all non-empty items whose bounds intersect the given rectangle.
+     * The edges are inclusive, so that a point query can be done by passing
+     * the same coordinates for the minimum and maximum.
+     *
+     * @return the number of items found, which are available in increasing
+     * order in the array returned by {@link #getResults()}
+     */
+    public int query(float minX, float minY, float maxX, float maxY) {
+        if (!layoutValid || clampedCount > (size >> 2) + ITEMS_PER_CELL) {
+            layout();
+        }
+        if (++stamp == 0) {
+            Arrays.fill(stamps, 0, size, 0);
+            stamp = 1;
+        }
+        int count = 0;
+        for (int l = 0; l < largeCount; l++) {
+            count = offer(large[l], count, minX, minY, maxX, maxY);
+        }
+        if (cols > 0) {
+            // Items which moved out of the grid area were clamped into the
+            // border cells, so the query range is clamped the same way.
+            final int c0 = col(minX);
+            final int c1 = col(maxX);
+            final int r0 = row(minY);
+            final int r1 = row(maxY);
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    final int cell = r * cols + c;
+                    final int[] items = cells[cell];
+                    for (int k = 0, n = cellSizes[cell]; k < n; k++) {
+                        count = offer(items[k], count, minX, minY, maxX, maxY);
+                    }
+                }
+            }
+        }
+        if (count > 1) {
+            Arrays.sort(results, 0, count);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the results of the last query. The array is reused and only
+     * valid until the next call to {@link #query}.
+     */
+    public int[] getResults() {
+        return results;
+    }
+
+    private int offer(int item, int count,
+                      float minX, float minY, float maxX, float maxY) {
+        if (stamps[item] == stamp) {
+            return count;
+        }
+        stamps[item] = stamp;
+        final int i = item * 4;
+        if (bounds[i] > maxX || bounds[i + 2] < minX ||
+                bounds[i + 1] > maxY || bounds[i + 3] < minY) {
+            return count;
+        }
+        if (count == results.length) {
+            results = Arrays.copyOf(results, count * 2);
+        }
+        results[count] = item;
+        return count + 1;
+    }
+
+    private void checkIndex(int item) {
+        if (item < 0 || item >= size) {
+            throw new IndexOutOfBoundsException("invalid item: " + item);
+        }
+    }
+
+    private int col(float x) {
+        final int c = (int) ((x - originX) * invCellWidth);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    private int row(float y) {
+        final int r = (int) ((y - originY) * invCellHeight);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    /**
+     * Computes the grid layout from the bounds of all non-empty items and
+     * inserts every item into its cells.
+     */
+    private void layout() {
+        float x0 = Float.POSITIVE_INFINITY, y0 = Float.POSITIVE_INFINITY;
+        float x1 = Float.NEGATIVE_INFINITY, y1 = Float.NEGATIVE_INFINITY;
+        int count = 0;
+        for (int item = 0; item < size; item++) {
+            final int i = item * 4;
+            if (itemCells[i] != NOT_IN_GRID) {
+                x0 = Math.min(x0, bounds[i]);
+                y0 = Math.min(y0, bounds[i + 1]);
+                x1 = Math.max(x1, bounds[i + 2]);
+                y1 = Math.max(y1, bounds[i + 3]);
+                count++;
+            }
+        }
+
+        largeCount = 0;
+        clampedCount = 0;
+        if (count == 0) {
+            cols = rows = 0;
+            cells = null;
+            cellSizes = null;
+            layoutValid = true;
+            return;
+        }
+
+        originX = x0;
+        originY = y0;
+        extentX = Math.max(x1 - x0, 1f);
+        extentY = Math.max(y1 - y0, 1f);
+        final int cellCount = Math.min(Math.max(count / ITEMS_PER_CELL, 1), MAX_CELLS);
+        final double aspect = extentX / extentY;
+        cols = (int) Math.max(1, Math.min(Math.round(Math.sqrt(cellCount * aspect)), cellCount));
+        rows = Math.max(1, Math.min(cellCount / cols, MAX_CELLS / cols));
+        invCellWidth = cols / extentX;
+        invCellHeight = rows / extentY;
+        cells = new int[cols * rows][];
+        cellSizes = new int[cols * rows];
+        layoutValid = true;
+
+        for (int item = 0; item < size; item++) {
+            clamped[item] = false;
+            if (itemCells[item * 4] != NOT_IN_GRID) {
+                addToCells(item);
+            }
+        }
+    }
+
+    private void addToCells(int item) {
+        final int i = item * 4;
+        if (cols == 0) {
+            // The grid had no items when it was laid out
+            layoutValid = false;
+            return;
+        }
+        final float minX = bounds[i], minY = bounds[i + 1];
+        final float maxX = bounds[i + 2], maxY = bounds[i + 3];
+        if (minX < originX || minY < originY ||
+                maxX > originX + extentX || maxY > originY + extentY) {
+            clamped[item] = true;
+            clampedCount++;
+        }
+        final int c0 = col(minX), c1 = col(maxX);
+        final int r0 = row(minY), r1 = row(maxY);
+        if ((c1 - c0 + 1) * (r1 - r0 + 1) > MAX_CELLS_PER_ITEM) {
+            if (largeCount == large.length) {
+                large = Arrays.copyOf(large, largeCount * 2);
+            }
+            large[largeCount++] = item;
+            itemCells[i] = LARGE;
+            return;
+        }
+        itemCells[i]     = c0;
+        itemCells[i + 1] = r0;
+        itemCells[i + 2] = c1;
+        itemCells[i + 3] = r1;
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                final int cell = r * cols + c;
+                int[] items = cells[cell];
+                final int n = cellSizes[cell];
+                if (items == null) {
+                    items = cells[cell] = new int[ITEMS_PER_CELL];
+                } else if (n == items.length) {
+                    items = cells[cell] = Arrays.copyOf(items, n * 2);
+                }
+                items[n] = item;
+                cellSizes[cell] = n + 1;
+            }
+        }
+    }
+
+    private void removeFromCells(int item) {
+        final int i = item * 4;
+        if (clamped[item]) {
+            clamped[item] = false;
+            clampedCount--;
+        }
+        final int c0 = itemCells[i];
+        if (c0 == NOT_IN_GRID) {
+            return;
+        }
+        if (c0 == LARGE) {
+            for (int l = 0; l < largeCount; l++) {
+                if (large[l] == item) {
+                    large[l] = large[--largeCount];
+                    break;
+                }
+            }
+            return;
+        }
+        final int r0 = itemCells[i + 1], c1 = itemCells[i + 2], r1 = itemCells[i + 3];
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                final int cell = r * cols + c;
+                final int[] items = cells[cell];
+                final int n = cellSizes[cell] - 1;
+                for (int k = n; k >= 0; k--) {
+                    if (items[k] == item) {
+                        items[k] = items[n];
+                        cellSizes[cell] = n;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.iio;
+
+import com.sun.javafx.PlatformUtil;
+import com.sun.javafx.iio.ImageFormatDescription.Signature;
+import com.sun.javafx.iio.common.ImageTools;
+import com.sun.javafx.iio.gif.GIFDescriptor;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads the frames of an animated image without keeping all of them in
+ * memory. The image is decoded once to find its frames and their metadata.
+ * If it has no more than a given number of frames they are all kept, as
+ * {@link ImageStorage#loadAll} does; otherwise only the first frame is kept
+ * and the other frames are decoded again from the compressed data when
+ * they are asked for. Frames are cheapest to get in increasing order, the
+ * order in which an animation shows them, since the decoder then only has
+ * to continue from where it stopped; going back to an earlier frame makes
+ * it start again from the beginning of the image.
+ *
+ * Only GIF images can be animated, the images of the other formats are
+ * loaded with {@link ImageStorage#loadAll} without buffering their data.
+ * The next frame of an animation can be decoded in the background with
+ * {@link #prefetch(int)} while the current one is shown.
+ */
+public final class AnimatedImageDecoder {
+
+    private final byte[] data;
+    private final int width;
+    private final int height;
+    private final boolean preserveAspectRatio;
+    private final float pixelScale;
+    private final boolean smooth;
+
+    private final ImageMetadata[] metadata;
+    private final ImageFrame[] frames;
+    private final ImageFrame firstFrame;
+
+    // the frames decoded on demand
+    private ImageLoader loader;
+    private int nextIndex;
+    private ImageFrame lastFrame;
+    private int lastIndex = -1;
+
+    private static ExecutorService prefetchExecutor;
+
+    private AnimatedImageDecoder(ImageFrame[] frames) {
+        this.data = null;
+        this.width = 0;
+        this.height = 0;
+        this.preserveAspectRatio = false;
+        this.pixelScale = 1.0f;
+        this.smooth = false;
+        this.frames = frames;
+        this.firstFrame = frames[0];
+        this.metadata = new ImageMetadata[frames.length];
+        for (int i = 0; i < frames.length; i++) {
+            metadata[i] = frames[i].getMetadata();
+        }
+    }
+
+    private AnimatedImageDecoder(byte[] data, ImageLoadListener listener,
+            int width, int height, boolean preserveAspectRatio,
+            float pixelScale, boolean smooth, int maxFrames)
+            throws ImageStorageException
+    {
+        this.data = data;
+        this.width = width;
+        this.height = height;
+        this.preserveAspectRatio = preserveAspectRatio;
+        this.pixelScale = pixelScale;
+        this.smooth = smooth;
+
+        ImageLoader scanLoader = createLoader(listener);
+        ArrayList<ImageMetadata> metadataList = new ArrayList<ImageMetadata>();
+        ArrayList<ImageFrame> frameList = new ArrayList<ImageFrame>();
+        ImageFrame first = null;
+        try {
+            while (true) {
+                ImageFrame frame;
+                try {
+                    frame = scanLoader.load(metadataList.size(), width, height,
+                                            preserveAspectRatio, smooth);
+                } catch (Exception e) {
+                    // allow partially loaded animated images
+                    if (metadataList.isEmpty()) {
+                        throw new ImageStorageException(e.getMessage(), e);
+                    }
+                    break;
+                }
+                if (frame == null) {
+                    break;
+                }
+                frame.setPixelScale(pixelScale);
+                if (first == null) {
+                    first = frame;
+                }
+                metadataList.add(frame.getMetadata());
+                if (frameList != null) {
+                    frameList.add(frame);
+                    if (frameList.size() > maxFrames) {
+                        frameList = null;
+                    }
+                }
+            }
+        } finally {
+            scanLoader.dispose();
+        }
+        if (first == null) {
+            throw new ImageStorageException("No image data");
+        }
+
+        this.firstFrame = first;
+        this.metadata = metadataList.toArray(new ImageMetadata[metadataList.size()]);
+        this.frames = frameList == null
+                ? null
+                : frameList.toArray(new ImageFrame[frameList.size()]);
+    }
+
+    /**
+     * Reads the image from the given stream and decodes it once, see
+     * {@link ImageStorage#loadAll(java.io.InputStream, com.sun.javafx.iio.ImageLoadListener, double, double, boolean, float, boolean)}
+     * for the meaning of the parameters.
+     *
+     * @param maxFrames the largest number of frames which are all kept in
+     * memory, the frames of images with more frames are decoded on demand.
+     */
+    public static AnimatedImageDecoder load(InputStream input,
+            ImageLoadListener listener, double width, double height,
+            boolean preserveAspectRatio, float pixelScale, boolean smooth,
+            int maxFrames) throws ImageStorageException
+    {
+        byte[] data;
+        try {
+            if (PlatformUtil.isIOS()) {
+                // keep the native loader
+                return loadAll(input, listener, width, height,
+                        preserveAspectRatio, pixelScale, smooth);
+            }
+            PushbackInputStream pushback =
+                    new PushbackInputStream(input, SIGNATURE_LENGTH);
+            if (!isAnimatedFormat(pushback)) {
+                return loadAll(pushback, listener, width, height,
+                        preserveAspectRatio, pixelScale, smooth);
+            }
+            data = readAll(pushback);
+        } catch (IOException e) {
+            throw new ImageStorageException(e.getMessage(), e);
+        }
+        int imgw = (int) Math.round(width * pixelScale);
+        int imgh = (int) Math.round(height * pixelScale);
+        return new AnimatedImageDecoder(data, listener, imgw, imgh,
+                preserveAspectRatio, pixelScale, smooth, maxFrames);
+    }
+
+    /**
+     * Reads the image from the given URL or file and decodes it once,
+     * looking for a @2x version of the image on high density screens as
+     * {@link ImageStorage#loadAll(java.lang.String, com.sun.javafx.iio.ImageLoadListener, double, double, boolean, float, boolean)}
+     * does.
+     *
+     * @param maxFrames the largest number of frames which are all kept in
+     * memory, the frames of images with more frames are decoded on demand.
+     */
+    public static AnimatedImageDecoder load(String input,
+            ImageLoadListener listener, double width, double height,
+            boolean preserveAspectRatio, float devPixelScale, boolean smooth,
+            int maxFrames) throws ImageStorageException
+    {
+        if (input == null || input.isEmpty()) {
+            throw new ImageStorageException("URL can't be null or empty");
+        }
+
+        InputStream theStream = null;
+        float imgPixelScale = 1.0f;
+        try {
+            try {
+                if (devPixelScale >= 1.5f) {
+                    // Use Mac Retina conventions for >= 1.5f
+                    try {
+                        String name2x = ImageTools.getScaledImageName(input);
+                        theStream = ImageTools.createInputStream(name2x);
+                        imgPixelScale = 2.0f;
+                    } catch (IOException e) {
+                    }
+                }
+                if (theStream == null) {
+                    theStream = ImageTools.createInputStream(input);
+                }
+            } catch (IOException e) {
+                throw new ImageStorageException(e.getMessage(), e);
+            }
+            return load(theStream, listener, width, height,
+                        preserveAspectRatio, imgPixelScale, smooth, maxFrames);
+        } finally {
+            try {
+                if (theStream != null) {
+                    theStream.close();
+                }
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    private static final int SIGNATURE_LENGTH = 6;
+
+    private static AnimatedImageDecoder loadAll(InputStream input,
+            ImageLoadListener listener, double width, double height,
+            boolean preserveAspectRatio, float pixelScale, boolean smooth)
+            throws ImageStorageException
+    {
+        ImageFrame[] frames = ImageStorage.loadAll(input, listener, width,
+                height, preserveAspectRatio, pixelScale, smooth);
+        if (frames == null) {
+            throw new ImageStorageException("No image data");
+        }
+        return new AnimatedImageDecoder(frames);
+    }
+
+    /*
+     * Returns whether the stream holds a GIF image, leaving the stream at
+     * the same position.
+     */
+    private static boolean isAnimatedFormat(PushbackInputStream input)
+            throws IOException
+    {
+        byte[] header = new byte[SIGNATURE_LENGTH];
+        int n = 0;
+        while (n < header.length) {
+            int count = input.read(header, n, header.length - n);
+            if (count < 0) {
+                break;
+            }
+            n += count;
+        }
+        input.unread(header, 0, n);
+        if (n < header.length) {
+            return false;
+        }
+        for (Signature signature : GIFDescriptor.getInstance().getSignatures()) {
+            if (signature.matches(header)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        for (int n = input.read(buf); n != -1; n = input.read(buf)) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private ImageLoader createLoader(ImageLoadListener listener)
+            throws ImageStorageException
+    {
+        ImageLoader newLoader;
+        try {
+            newLoader = ImageStorage.createLoader(
+                    new ByteArrayInputStream(data), listener);
+        } catch (IOException e) {
+            throw new ImageStorageException(e.getMessage(), e);
+        }
+        if (newLoader == null) {
+            throw new ImageStorageException("No loader for image data");
+        }
+        return newLoader;
+    }
+
+    public int getFrameCount() {
+        return metadata.length;
+    }
+
+    /**
+     * Returns whether the frames other than the first one are decoded each
+     * time they are asked for.
+     */
+    public boolean isDecodedOnDemand() {
+        return frames == null;
+    }
+
+    /**
+     * Returns all the frames, or null if they are decoded on demand.
+     */
+    public ImageFrame[] getFrames() {
+        return frames;
+    }
+
+    public ImageMetadata getMetadata(int index) {
+        return metadata[index];
+    }
+
+    /**
+     * Returns the frame with the given index, decoding it if it is not kept
+     * in memory.
+     */
+    public synchronized ImageFrame getFrame(int index) throws ImageStorageException {
+        if (index < 0 || index >= metadata.length) {
+            throw new IndexOutOfBoundsException("frame " + index);
+        }
+        if (frames != null) {
+            return frames[index];
+        }
+        if (index == 0) {
+            return firstFrame;
+        }
+        if (index == lastIndex) {
+            return lastFrame;
+        }
+        if (loader == null || index < nextIndex) {
+            // frames are composed over the previous ones, so the decoding
+            // has to start again from the first frame
+            if (loader != null) {
+                loader.dispose();
+            }
+            loader = createLoader(null);
+            nextIndex = 0;
+        }
+        try {
+            ImageFrame frame = null;
+            while (nextIndex <= index) {
+                frame = loader.load(nextIndex++, width, height,
+                                    preserveAspectRatio, smooth);
+                if (frame == null) {
+                    throw new IOException("Missing frame " + index);
+                }
+            }
+            frame.setPixelScale(pixelScale);
+            lastFrame = frame;
+            lastIndex = index;
+            return frame;
+        } catch (IOException e) {
+            loader.dispose();
+            loader = null;
+            throw new ImageStorageException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decodes the frame with the given index in the background, so that
+     * asking for it next does not have to wait for its decoding. Does
+     * nothing if the frames are all kept in memory.
+     */
+    public void prefetch(int index) {
+        if (frames != null || index <= 0 || index >= metadata.length) {
+            return;
+        }
+        getPrefetchExecutor().execute(() -> {
+            synchronized (this) {
+                if (index == lastIndex) {
+                    return;
+                }
+                try {
+                    getFrame(index);
+                } catch (ImageStorageException e) {
+                    // decoded again when it is asked for
+                }
+            }
+        });
+    }
+
+    /*
+     * Returns whether getting the frame with the given index does not need
+     * to decode it.
+     */
+    synchronized boolean isDecoded(int index) {
+        return frames != null || index == 0 || index == lastIndex;
+    }
+
+    private static synchronized ExecutorService getPrefetchExecutor() {
+        if (prefetchExecutor == null) {
+            prefetchExecutor = Executors.newSingleThreadExecutor(
+                    r -> AccessController.doPrivileged((PrivilegedAction<Thread>) () -> {
+                        Thread t = new Thread(r, "Animated Image Decoder");
+                        t.setContextClassLoader(null);
+                        t.setDaemon(true);
+                        t.setPriority(Thread.MIN_PRIORITY);
+                        return t;
+                    }));
+        }
+        return prefetchExecutor;
+    }
+
+    /**
+     * Releases the decoder of the frames decoded on demand.
+     */
+    public synchronized void dispose() {
+        if (loader != null) {
+            loader.dispose();
+            loader = null;
+        }
+        lastFrame = null;
+        lastIndex = -1;
+    }
+}
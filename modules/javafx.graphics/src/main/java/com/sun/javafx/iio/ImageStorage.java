@@ -409,6 +409,13 @@ public class ImageStorage {
 //        return loader;
 //    }
 
+    static ImageLoader createLoader(InputStream stream, ImageLoadListener listener) throws IOException {
+        if (isIOS) {
+            return IosImageLoaderFactory.getInstance().createImageLoader(stream);
+        }
+        return getLoaderBySignature(stream, listener);
+    }
+
     private static ImageLoader getLoaderBySignature(InputStream stream, ImageLoadListener listener) throws IOException {
         byte[] header = new byte[getMaxSignatureLength()];
         ImageTools.readFully(stream, header);
@@ -62,6 +62,9 @@ public final class PNGImageLoader2 extends ImageLoaderImpl {
     static final int PNG_FILTER_UP = 2;
     static final int PNG_FILTER_AVERAGE = 3;
     static final int PNG_FILTER_PAETH = 4;
+
+    // size of the buffer of compressed IDAT data handed to the Inflater
+    private static final int INFLATER_BUFFER_SIZE = 8192;
     // data stream
     private final DataInputStream stream;
     private int width, height, bitDepth, colorType;
@@ -316,67 +319,83 @@ public final class PNGImageLoader2 extends ImageLoaderImpl {
         }
     }
 
-    private void doSubFilter(byte line[], int bpp) {
-        int l = line.length;
-        for (int i = bpp; i != l; ++i) {
+    private static void doSubFilter(byte line[], int off, int len, int bpp) {
+        for (int i = off + bpp, l = off + len; i < l; ++i) {
             line[i] = (byte) (line[i] + line[i - bpp]);
         }
     }
 
-    private void doUpFilter(byte line[], byte pline[]) {
-        int l = line.length;
-        for (int i = 0; i != l; ++i) {
-            line[i] = (byte) (line[i] + pline[i]);
+    private static void doUpFilter(byte line[], int off, byte pline[], int poff, int len) {
+        for (int i = 0; i != len; ++i) {
+            line[off + i] = (byte) (line[off + i] + pline[poff + i]);
         }
     }
 
-    private void doAvrgFilter(byte line[], byte pline[], int bpp) {
-        int l = line.length;
+    private static void doAvrgFilter(byte line[], int off, byte pline[], int poff,
+                                     int len, int bpp) {
         for (int i = 0; i != bpp; ++i) {
-            line[i] = (byte) (line[i] + (pline[i] & 0xFF) / 2);
+            line[off + i] = (byte) (line[off + i] + ((pline[poff + i] & 0xFF) >> 1));
         }
-        for (int i = bpp; i != l; ++i) {
-            line[i] = (byte) (line[i]
-                    + (((line[i - bpp] & 0xFF) + (pline[i] & 0xFF))) / 2);
+        for (int i = bpp; i < len; ++i) {
+            line[off + i] = (byte) (line[off + i]
+                    + (((line[off + i - bpp] & 0xFF) + (pline[poff + i] & 0xFF)) >> 1));
         }
     }
 
-    private static int paethPr(int a, int b, int c) {
-        // int p = a + b - c
-        int pa = Math.abs(b - c);      // p-a
-        int pb = Math.abs(a - c);      // p-b
-        int pc = Math.abs(b - c + a - c);  // p-c
-        return (pa <= pb && pa <= pc) ? a : (pb <= pc) ? b : c;
-    }
-
-    private void doPaethFilter(byte line[], byte pline[], int bpp) {
-        int l = line.length;
+    private static void doPaethFilter(byte line[], int off, byte pline[], int poff,
+                                      int len, int bpp) {
         for (int i = 0; i != bpp; ++i) {
-            line[i] = (byte) (line[i] + pline[i]);
+            line[off + i] = (byte) (line[off + i] + pline[poff + i]);
         }
-        for (int i = bpp; i != l; ++i) {
-            line[i] = (byte) (line[i]
-                    + paethPr(line[i - bpp] & 0xFF, pline[i] & 0xFF, pline[i - bpp] & 0xFF));
+        // Paeth predictor, with p = a + b - c
+        for (int i = bpp; i < len; ++i) {
+            int a = line[off + i - bpp] & 0xFF;
+            int b = pline[poff + i] & 0xFF;
+            int c = pline[poff + i - bpp] & 0xFF;
+            int pa = b - c;                // p-a
+            int pb = a - c;                // p-b
+            int pc = pa + pb;              // p-c
+            if (pa < 0) pa = -pa;
+            if (pb < 0) pb = -pb;
+            if (pc < 0) pc = -pc;
+            int pr = (pa <= pb && pa <= pc) ? a : (pb <= pc) ? b : c;
+            line[off + i] = (byte) (line[off + i] + pr);
         }
     }
 
-    private void doFilter(byte line[], byte pline[], int fType, int bpp) {
+    private static void doFilter(byte line[], byte pline[], int fType, int bpp) {
+        doFilter(line, 0, pline, 0, line.length, fType, bpp);
+    }
+
+    private static void doFilter(byte line[], int off, byte pline[], int poff,
+                                 int len, int fType, int bpp) {
         switch (fType) {
             case PNG_FILTER_SUB:
-                doSubFilter(line, bpp);
+                doSubFilter(line, off, len, bpp);
                 break;
             case PNG_FILTER_UP:
-                doUpFilter(line, pline);
+                doUpFilter(line, off, pline, poff, len);
                 break;
             case PNG_FILTER_AVERAGE:
-                doAvrgFilter(line, pline, bpp);
+                doAvrgFilter(line, off, pline, poff, len, bpp);
                 break;
             case PNG_FILTER_PAETH:
-                doPaethFilter(line, pline, bpp);
+                doPaethFilter(line, off, pline, poff, len, bpp);
                 break;
         }
     }
 
+    private static void readFully(InputStream data, byte b[], int off, int len) throws IOException {
+        while (len > 0) {
+            int n = data.read(b, off, len);
+            if (n == -1) {
+                throw new EOFException();
+            }
+            off += n;
+            len -= n;
+        }
+    }
+
     private void downsample16to8trns_gray(byte line[], byte image[], int pos, int step) {
         int l = line.length / 2;
         for (int i = 0, oPos = pos; i < l; oPos += step * 2, ++i) {
@@ -542,15 +561,33 @@ public final class PNGImageLoader2 extends ImageLoaderImpl {
         // to support tRNS
         int resultBpp = bpp(), srcBpp = numBandsPerColorType[colorType] * bytesPerColor();
 
+        if (mip == 7 && bitDepth == 8 && !tRNS_GRAY_RGB) {
+            // The scanlines are the rows of the image as they are, so they
+            // are inflated and unfiltered in place in the image
+            for (int y = 0, pos = 0; y != mipHeight; ++y, pos += scanLineSize) {
+                int filterByte = data.read();
+                if (filterByte == -1) {
+                    throw new EOFException();
+                }
+
+                readFully(data, image, pos, scanLineSize);
+
+                if (y == 0) {
+                    doFilter(image, pos, scanLine1, 0, scanLineSize, filterByte, srcBpp);
+                } else {
+                    doFilter(image, pos, image, pos - scanLineSize, scanLineSize, filterByte, srcBpp);
+                }
+            }
+            return;
+        }
+
         for (int y = 0; y != mipHeight; ++y) {
             int filterByte = data.read();
             if (filterByte == -1) {
                 throw new EOFException();
             }
 
-            if (data.read(scanLine0) != scanLineSize) {
-                throw new EOFException();
-            }
+            readFully(data, scanLine0, 0, scanLineSize);
 
             doFilter(scanLine0, scanLine1, filterByte, srcBpp);
 
@@ -583,11 +620,7 @@ public final class PNGImageLoader2 extends ImageLoaderImpl {
         }
     }
 
-    private ImageFrame decodePalette(byte srcImage[], ImageMetadata metadata) {
-        int bpp = tRNS_present ? 4 : 3;
-        byte newImage[] = new byte[width * height * bpp];
-        int l = width * height;
-
+    private void decodePalette(byte srcImage[], byte newImage[], int l) {
         if (tRNS_present) {
             for (int i = 0, j = 0; i != l; j += 4, i++) {
                 int index = 0xFF & srcImage[i];
@@ -604,13 +637,75 @@ public final class PNGImageLoader2 extends ImageLoaderImpl {
                 newImage[j + 2] = palette[2][index];
             }
         }
+    }
+
+    private ImageFrame decodePalette(byte srcImage[], ImageMetadata metadata) {
+        int bpp = paletteBpp();
+        byte newImage[] = new byte[width * height * bpp];
+        decodePalette(srcImage, newImage, width * height);
 
-        ImageStorage.ImageType type = tRNS_present
+        return new ImageFrame(getPaletteType(), ByteBuffer.wrap(newImage), width, height,
+                width * bpp, null, metadata);
+    }
+
+    private int paletteBpp() {
+        return tRNS_present ? 4 : 3;
+    }
+
+    private ImageStorage.ImageType getPaletteType() {
+        return tRNS_present
                 ? ImageStorage.ImageType.RGBA
                 : ImageStorage.ImageType.RGB;
+    }
 
-        return new ImageFrame(type, ByteBuffer.wrap(newImage), width, height,
-                width * bpp, null, metadata);
+    /*
+     * Decodes a non interlaced image one scanline at a time straight into
+     * the scaler, so that only a couple of source scanlines are held in
+     * memory instead of the whole full size image.
+     */
+    private void loadScaled(PushbroomScaler scaler, InputStream data) throws IOException {
+        int scanLineSize = (width * bitDepth * numBandsPerColorType[colorType] + 7) / 8;
+        byte scanLine0[] = new byte[scanLineSize];
+        byte scanLine1[] = new byte[scanLineSize];
+
+        int resultBpp = bpp(), srcBpp = numBandsPerColorType[colorType] * bytesPerColor();
+        byte row[] = bitDepth == 8 && !tRNS_GRAY_RGB ? null : new byte[width * resultBpp];
+        byte paletteRow[] = colorType == PNG_COLOR_PALETTE
+                ? new byte[width * paletteBpp()]
+                : null;
+
+        for (int y = 0; y != height; ++y) {
+            int filterByte = data.read();
+            if (filterByte == -1) {
+                throw new EOFException();
+            }
+
+            readFully(data, scanLine0, 0, scanLineSize);
+
+            doFilter(scanLine0, scanLine1, filterByte, srcBpp);
+
+            if (bitDepth == 16) {
+                downsample16to8(scanLine0, row, 0, 1, resultBpp);
+            } else if (bitDepth < 8) {
+                upsampleTo8(scanLine0, row, 0, width, 1, resultBpp);
+            } else if (tRNS_GRAY_RGB) {
+                copy(scanLine0, row, 0, 1, resultBpp);
+            } else {
+                // the scanline already is the row of the image
+                row = scanLine0;
+            }
+
+            if (paletteRow != null) {
+                decodePalette(row, paletteRow, width);
+                scaler.putSourceScanline(paletteRow, 0);
+            } else {
+                scaler.putSourceScanline(row, 0);
+            }
+
+            byte scanLineSwp[] = scanLine0;
+            scanLine0 = scanLine1;
+            scanLine1 = scanLineSwp;
+        }
     }
 
     // we won`t decode palette on fly, we will do it later
@@ -648,12 +743,32 @@ public final class PNGImageLoader2 extends ImageLoaderImpl {
                 null, null, null, null, null, rWidth, rHeight, null, null, null);
         updateImageMetadata(metaData);
 
-        int bpp = bpp();
-        ByteBuffer bb = ByteBuffer.allocate(bpp * width * height);
-
         PNGIDATChunkInputStream iDat = new PNGIDATChunkInputStream(stream, dataSize);
         Inflater inf = new Inflater();
-        InputStream data = new BufferedInputStream(new InflaterInputStream(iDat, inf));
+        InputStream data = new BufferedInputStream(new InflaterInputStream(iDat, inf, INFLATER_BUFFER_SIZE));
+
+        boolean scaled = width != rWidth || height != rHeight;
+        if (scaled && !isInterlaced) {
+            // Interlaced images spread every row over all the passes and
+            // still have to be fully decoded before they can be scaled
+            int bands = colorType == PNG_COLOR_PALETTE ? paletteBpp() : bpp();
+            PushbroomScaler scaler = ScalerFactory.createScaler(
+                    width, height, bands, rWidth, rHeight, smooth);
+            try {
+                loadScaled(scaler, data);
+            } finally {
+                inf.end();
+            }
+
+            ImageStorage.ImageType type = colorType == PNG_COLOR_PALETTE
+                    ? getPaletteType()
+                    : getType();
+            return new ImageFrame(type, scaler.getDestination(), rWidth, rHeight,
+                    rWidth * bands, null, metaData);
+        }
+
+        int bpp = bpp();
+        ByteBuffer bb = ByteBuffer.allocate(bpp * width * height);
 
         try {
             load(bb.array(), data);
@@ -669,7 +784,7 @@ public final class PNGImageLoader2 extends ImageLoaderImpl {
                 ? decodePalette(bb.array(), metaData)
                 : new ImageFrame(getType(), bb, width, height, bpp * width, palette, metaData);
 
-        if (width != rWidth || height != rHeight) {
+        if (scaled) {
             imgPNG = ImageTools.scaleImageFrame(imgPNG, rWidth, rHeight, smooth);
         }
 
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.sg.prism;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.prism.BandGraphics;
+import com.sun.prism.Graphics;
+import com.sun.prism.RenderTarget;
+import com.sun.prism.impl.PrismSettings;
+import com.sun.javafx.logging.PulseLogger;
+import static com.sun.javafx.logging.PulseLogger.PULSE_LOGGING_ENABLED;
+
+/**
+ * Renders a scene graph into horizontal bands of the render target on
+ * several threads. The scene graph is still traversed on the render thread,
+ * into a deferred {@link DisplayList}, which is then replayed once per band
+ * with the clip of that band, each band using its own {@link Graphics}
+ * created by the {@link BandGraphics} being rendered to. The render thread
+ * renders the first band itself and waits for the others.
+ * <p>
+ * This is only used with {@code -Dprism.sw.bands}, for the software pipeline
+ * with one of the Marlin rasterizers, which are the ones that can rasterize
+ * on several threads at once. Frames that cannot be deferred, for instance
+ * because they render effects or caches into intermediate render targets,
+ * are rendered on the render thread as usual.
+ */
+public final class BandRenderer {
+
+    // Bands lower than this are not worth a thread of their own
+    private static final int MIN_BAND_HEIGHT = 32;
+
+    // The glyph caches are shared by all the bands
+    private static final Object TEXT_LOCK = new Object();
+
+    private static ExecutorService executor;
+
+    private BandRenderer() {
+    }
+
+    private static ExecutorService getExecutor() {
+        if (executor == null) {
+            final ThreadFactory threadFactory =
+                    runnable -> AccessController.doPrivileged(
+                            (PrivilegedAction<Thread>) () -> {
+                                final Thread newThread =
+                                        new Thread(runnable, "Prism Band Renderer");
+                                newThread.setDaemon(true);
+                                return newThread;
+                            }
+                    );
+            executor = Executors.newFixedThreadPool(PrismSettings.swRenderBands - 1,
+                                                    threadFactory);
+        }
+        return executor;
+    }
+
+    /**
+     * Renders the given root into the given graphics, in bands if possible.
+     * Returns false, without having rendered anything, when the graphics or
+     * the area being rendered is not suitable for banding, in which case the
+     * caller should render the root itself.
+     *
+     * @param root the root of the scene graph to render
+     * @param g the graphics to render to
+     * @return whether the root has been rendered
+     */
+    public static boolean render(NGNode root, Graphics g) {
+        if (PrismSettings.swRenderBands < 2 || !(g instanceof BandGraphics) ||
+            g.isState3D() || g.isDepthBuffer())
+        {
+            return false;
+        }
+        switch (PrismSettings.rasterizerSpec) {
+            case FloatMarlin:
+            case DoubleMarlin:
+                break;
+            default:
+                return false;
+        }
+
+        final RenderTarget target = g.getRenderTarget();
+        final Rectangle area = new Rectangle(0, 0, target.getContentWidth(),
+                                             target.getContentHeight());
+        final Rectangle clip = g.getClipRect();
+        if (clip != null) {
+            area.intersectWith(clip);
+        }
+        final int bandCount = Math.min(PrismSettings.swRenderBands,
+                                       area.height / MIN_BAND_HEIGHT);
+        if (bandCount < 2) {
+            return false;
+        }
+
+        final DisplayList.Recorder recorder = DisplayList.startDeferring(g);
+        root.render(recorder);
+        final DisplayList list = recorder.finish();
+        if (list == null) {
+            // The recording failed and rendered directly
+            return true;
+        }
+
+        try {
+            if (PULSE_LOGGING_ENABLED) {
+                PulseLogger.incrementCounter("Frames rendered in bands");
+            }
+            list.prepareBands(bandCount);
+            final Future<?>[] futures = new Future<?>[bandCount];
+            for (int i = 1; i < bandCount; i++) {
+                final int band = i;
+                final Rectangle bandClip = getBand(area, bandCount, band);
+                final Graphics bandGraphics = ((BandGraphics) g).createBandGraphics(band);
+                bandGraphics.setPixelScaleFactors(g.getPixelScaleFactorX(),
+                                                  g.getPixelScaleFactorY());
+                futures[i] = getExecutor().submit(
+                        () -> list.replayBand(band, bandGraphics, bandClip, TEXT_LOCK));
+            }
+
+            Throwable error = null;
+            try {
+                list.replayBand(0, g, getBand(area, bandCount, 0), TEXT_LOCK);
+            } catch (RuntimeException | Error e) {
+                error = e;
+            }
+            // The other bands must complete before the list can be disposed
+            boolean interrupted = false;
+            for (int i = 1; i < bandCount; i++) {
+                while (true) {
+                    try {
+                        futures[i].get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        if (error == null) {
+                            error = e.getCause();
+                        }
+                        break;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            g.setClipRect(clip);
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            } else if (error instanceof Error) {
+                throw (Error) error;
+            } else if (error != null) {
+                throw new RuntimeException(error);
+            }
+        } finally {
+            list.dispose();
+        }
+        return true;
+    }
+
+    private static Rectangle getBand(Rectangle area, int bandCount, int band) {
+        final int y0 = area.y + (int) ((long) area.height * band / bandCount);
+        final int y1 = area.y + (int) ((long) area.height * (band + 1) / bandCount);
+        return new Rectangle(area.x, y0, area.width, y1 - y0);
+    }
+}
@@ -0,0 +1,1047 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.sg.prism;
+
+import com.sun.glass.ui.Screen;
+import com.sun.javafx.font.FontStrike;
+import com.sun.javafx.geom.RectBounds;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.javafx.geom.Shape;
+import com.sun.javafx.geom.transform.BaseTransform;
+import com.sun.javafx.scene.text.GlyphList;
+import java.util.ArrayList;
+import java.util.List;
+import com.sun.prism.BasicStroke;
+import com.sun.prism.CompositeMode;
+import com.sun.prism.Graphics;
+import com.sun.prism.PrinterGraphics;
+import com.sun.prism.RTTexture;
+import com.sun.prism.ReadbackGraphics;
+import com.sun.prism.RectShadowGraphics;
+import com.sun.prism.RenderTarget;
+import com.sun.prism.ResourceFactory;
+import com.sun.prism.Texture;
+import com.sun.prism.paint.Color;
+import com.sun.prism.paint.Paint;
+
+/**
+ * A retained list of the Prism {@code Graphics} commands issued while
+ * rendering the children of an NGGroup, so that a subtree which has not
+ * changed can be drawn again without walking it. The commands are encoded in
+ * a {@link GrowableDataBuffer}, the same way {@link NGCanvas} encodes its
+ * rendering stream.
+ * <p>
+ * Only commands which are fully described by their arguments are recorded:
+ * transforms, rendering state, shapes and text. Anything that depends on the
+ * contents of a texture, on the clip, or on 3D state makes the recording
+ * fail, in which case the subtree is simply rendered the normal way. A list
+ * can be replayed as long as the rendering state at the point of replay
+ * matches the state it was recorded with, apart from the translation, so a
+ * recorded subtree can be scrolled without being recorded again.
+ * <p>
+ * A list can also be recorded in deferred mode, see {@link BandRenderer},
+ * where the drawing commands are only recorded and rendered later by
+ * replaying the list, possibly several times for disjoint areas of the
+ * render target on different threads. Deferred lists additionally record
+ * clips and textures which are not render targets. When a deferred recording
+ * fails the commands recorded so far are rendered at once, and the rest of
+ * the traversal renders directly.
+ */
+final class DisplayList {
+
+    private static final byte SET_TRANSFORM   =  1;
+    private static final byte TRANSFORM       =  2;
+    private static final byte TRANSLATE       =  3;
+    private static final byte SCALE           =  4;
+    private static final byte SET_DEPTH_TEST  =  5;
+    private static final byte SET_ANTIALIASED =  6;
+    private static final byte SET_EXTRA_ALPHA =  7;
+    private static final byte SET_PAINT       =  8;
+    private static final byte SET_STROKE      =  9;
+    private static final byte SET_COMPOSITE   = 10;
+    private static final byte SET_NODE_BOUNDS = 11;
+    private static final byte FILL            = 12;
+    private static final byte DRAW            = 13;
+    private static final byte FILL_QUAD       = 14;
+    private static final byte FILL_RECT       = 15;
+    private static final byte FILL_ROUND_RECT = 16;
+    private static final byte FILL_ELLIPSE    = 17;
+    private static final byte DRAW_LINE       = 18;
+    private static final byte DRAW_RECT       = 19;
+    private static final byte DRAW_ROUND_RECT = 20;
+    private static final byte DRAW_ELLIPSE    = 21;
+    private static final byte DRAW_STRING     = 22;
+    private static final byte SET_CLIP        = 23;
+    private static final byte SET_CLIP_INDEX  = 24;
+    private static final byte DRAW_TEXTURE    = 25;
+    private static final byte DRAW_TEXTURE_3SLICE_H = 26;
+    private static final byte DRAW_TEXTURE_3SLICE_V = 27;
+    private static final byte DRAW_TEXTURE_9SLICE   = 28;
+
+    // Recordings which grow beyond this many commands are abandoned, the
+    // subtree is then too big for replaying to be worth the memory.
+    private static final int MAX_COMMANDS = 100000;
+
+    private final GrowableDataBuffer buf;
+    private int commandCount;
+    // Copies of the commands for each band of a deferred list but the first,
+    // the read positions of a buffer cannot be shared between threads
+    private GrowableDataBuffer[] bandBuffers;
+    // The textures drawn by a deferred list, locked until it is disposed
+    private List<Texture> textures;
+
+    // The state of the graphics when the recording started
+    private final double mxx, mxy, mxt, myx, myy, myt;
+    private final float extraAlpha;
+    private final CompositeMode compositeMode;
+    private final boolean depthTest;
+    private final boolean antialiased;
+    private final Paint paint;
+    private final BasicStroke stroke;
+    private final float pixelScaleX, pixelScaleY;
+    private final Rectangle clip;
+    private final int clipIndex;
+
+    private DisplayList(Graphics g, boolean deferred) {
+        buf = GrowableDataBuffer.getBuffer(1024, 64);
+        BaseTransform tx = g.getTransformNoClone();
+        mxx = tx.getMxx();
+        mxy = tx.getMxy();
+        mxt = tx.getMxt();
+        myx = tx.getMyx();
+        myy = tx.getMyy();
+        myt = tx.getMyt();
+        extraAlpha = g.getExtraAlpha();
+        compositeMode = g.getCompositeMode();
+        depthTest = g.isDepthTest();
+        antialiased = g.isAntialiasedShape();
+        paint = g.getPaint();
+        stroke = g.getStroke();
+        pixelScaleX = g.getPixelScaleFactorX();
+        pixelScaleY = g.getPixelScaleFactorY();
+        if (deferred) {
+            Rectangle r = g.getClipRectNoClone();
+            clip = r == null ? null : new Rectangle(r);
+            clipIndex = g.getClipRectIndex();
+        } else {
+            clip = null;
+            clipIndex = 0;
+        }
+    }
+
+    /**
+     * Returns whether a recording can be started on the given graphics.
+     * Only 2D rendering to the screen or to a texture is recorded. The caller
+     * has to turn off the pre-culling bits while recording, so that the list
+     * covers the whole subtree and not just the part of it inside the dirty
+     * region being rendered.
+     */
+    static boolean canRecord(Graphics g) {
+        return g instanceof ReadbackGraphics &&
+               !(g instanceof PrinterGraphics) &&
+               !(g instanceof Recorder) &&
+               !g.isState3D() &&
+               !g.isDepthBuffer() &&
+               g.getTransformNoClone().is2D();
+    }
+
+    static Recorder startRecording(Graphics g) {
+        return Recorder.create(g, new DisplayList(g, false), false);
+    }
+
+    /**
+     * Starts a deferred recording on the given graphics. Unlike
+     * {@link #startRecording}, the draw commands are not rendered to the
+     * graphics while recording.
+     */
+    static Recorder startDeferring(Graphics g) {
+        return Recorder.create(g, new DisplayList(g, true), true);
+    }
+
+    /**
+     * Returns whether the given graphics defers its rendering, in which case
+     * anything drawn to it is only rendered after the traversal completes.
+     */
+    static boolean isDeferring(Graphics g) {
+        return g instanceof Recorder && ((Recorder) g).deferred;
+    }
+
+    /**
+     * Returns whether the given graphics records a display list which is
+     * going to be replayed in later frames. Nothing rendered to it may be
+     * left out because of the current clip, which can differ when the list
+     * is replayed.
+     */
+    static boolean isRecording(Graphics g) {
+        return g instanceof Recorder &&
+               !((Recorder) g).deferred && !((Recorder) g).isFailed();
+    }
+
+    int getCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * Returns whether this list renders the same pixels on the given graphics
+     * as the recorded subtree would. The transform may differ only in its
+     * translation. A list is not replayed while pre-culling bits are in use,
+     * that is when the recorded group is only partly inside the dirty region
+     * being rendered; culling its subtree is then cheaper than replaying all
+     * of it.
+     */
+    boolean canReplay(Graphics g) {
+        if (g.hasPreCullingBits() || g.isState3D()) {
+            return false;
+        }
+        BaseTransform tx = g.getTransformNoClone();
+        return tx.is2D() &&
+               tx.getMxx() == mxx && tx.getMxy() == mxy &&
+               tx.getMyx() == myx && tx.getMyy() == myy &&
+               g.getExtraAlpha() == extraAlpha &&
+               g.getCompositeMode() == compositeMode &&
+               g.isDepthTest() == depthTest &&
+               g.getPixelScaleFactorX() == pixelScaleX &&
+               g.getPixelScaleFactorY() == pixelScaleY;
+    }
+
+    void replay(Graphics g) {
+        BaseTransform tx = g.getTransformNoClone();
+        buf.restore();
+        execute(g, buf, tx.getMxt() - mxt, tx.getMyt() - myt, null, null);
+    }
+
+    /**
+     * Makes copies of the commands of a deferred list so that it can be
+     * replayed concurrently for the given number of bands.
+     */
+    void prepareBands(int bandCount) {
+        bandBuffers = new GrowableDataBuffer[bandCount];
+        bandBuffers[0] = buf;
+        for (int i = 1; i < bandCount; i++) {
+            bandBuffers[i] = GrowableDataBuffer.getBuffer(buf.writeValuePosition(),
+                                                          buf.writeObjectPosition());
+            bandBuffers[i].append(buf);
+        }
+    }
+
+    /**
+     * Renders the part of a deferred list which falls within the given clip
+     * to a graphics in its default state. Each band must be replayed with
+     * its own graphics, and the text of all bands is rendered under the
+     * given lock since the glyph caches are shared.
+     */
+    void replayBand(int band, Graphics g, Rectangle bandClip, Object textLock) {
+        GrowableDataBuffer bandBuf = bandBuffers[band];
+        bandBuf.restore();
+        replayDeferred(g, bandBuf, bandClip, textLock);
+    }
+
+    private void replayDeferred(Graphics g, GrowableDataBuffer buf,
+                                Rectangle bandClip, Object textLock)
+    {
+        g.setTransform(mxx, myx, mxy, myy, mxt, myt);
+        g.setExtraAlpha(extraAlpha);
+        g.setCompositeMode(compositeMode);
+        g.setDepthTest(depthTest);
+        g.setClipRectIndex(clipIndex);
+        g.setClipRect(intersect(clip, bandClip, new Rectangle()));
+        execute(g, buf, 0, 0, bandClip, textLock);
+    }
+
+    private static Rectangle intersect(Rectangle clip, Rectangle bandClip, Rectangle result) {
+        if (bandClip == null) {
+            return clip;
+        }
+        if (clip == null) {
+            return bandClip;
+        }
+        result.setBounds(clip);
+        result.intersectWith(bandClip);
+        return result;
+    }
+
+    private void execute(Graphics g, GrowableDataBuffer buf,
+                         final double dx, final double dy,
+                         Rectangle bandClip, Object textLock)
+    {
+        Rectangle tmpClip = null;
+        if (paint != null) {
+            g.setPaint(paint);
+        }
+        if (stroke != null) {
+            g.setStroke(stroke);
+        }
+        g.setAntialiasedShape(antialiased);
+
+        while (buf.hasValues()) {
+            switch (buf.getByte()) {
+                case SET_TRANSFORM:
+                    g.setTransform3D(buf.getDouble(), buf.getDouble(), 0, buf.getDouble() + dx,
+                                     buf.getDouble(), buf.getDouble(), 0, buf.getDouble() + dy,
+                                     0, 0, 1, 0);
+                    break;
+                case TRANSFORM:
+                    g.transform((BaseTransform) buf.getObject());
+                    break;
+                case TRANSLATE:
+                    g.translate(buf.getFloat(), buf.getFloat());
+                    break;
+                case SCALE:
+                    g.scale(buf.getFloat(), buf.getFloat());
+                    break;
+                case SET_DEPTH_TEST:
+                    g.setDepthTest(buf.getBoolean());
+                    break;
+                case SET_ANTIALIASED:
+                    g.setAntialiasedShape(buf.getBoolean());
+                    break;
+                case SET_EXTRA_ALPHA:
+                    g.setExtraAlpha(buf.getFloat());
+                    break;
+                case SET_PAINT:
+                    g.setPaint((Paint) buf.getObject());
+                    break;
+                case SET_STROKE:
+                    g.setStroke((BasicStroke) buf.getObject());
+                    break;
+                case SET_COMPOSITE:
+                    g.setCompositeMode((CompositeMode) buf.getObject());
+                    break;
+                case SET_NODE_BOUNDS:
+                    g.setNodeBounds((RectBounds) buf.getObject());
+                    break;
+                case FILL:
+                    g.fill((Shape) buf.getObject());
+                    break;
+                case DRAW:
+                    g.draw((Shape) buf.getObject());
+                    break;
+                case FILL_QUAD:
+                    g.fillQuad(buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+                    break;
+                case FILL_RECT:
+                    g.fillRect(buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+                    break;
+                case FILL_ROUND_RECT:
+                    g.fillRoundRect(buf.getFloat(), buf.getFloat(), buf.getFloat(),
+                                    buf.getFloat(), buf.getFloat(), buf.getFloat());
+                    break;
+                case FILL_ELLIPSE:
+                    g.fillEllipse(buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+                    break;
+                case DRAW_LINE:
+                    g.drawLine(buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+                    break;
+                case DRAW_RECT:
+                    g.drawRect(buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+                    break;
+                case DRAW_ROUND_RECT:
+                    g.drawRoundRect(buf.getFloat(), buf.getFloat(), buf.getFloat(),
+                                    buf.getFloat(), buf.getFloat(), buf.getFloat());
+                    break;
+                case DRAW_ELLIPSE:
+                    g.drawEllipse(buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+                    break;
+                case DRAW_STRING:
+                    if (textLock == null) {
+                        g.drawString((GlyphList) buf.getObject(), (FontStrike) buf.getObject(),
+                                     buf.getFloat(), buf.getFloat(),
+                                     (Color) buf.getObject(), buf.getInt(), buf.getInt());
+                    } else {
+                        GlyphList gl = (GlyphList) buf.getObject();
+                        FontStrike strike = (FontStrike) buf.getObject();
+                        float x = buf.getFloat();
+                        float y = buf.getFloat();
+                        Color selectColor = (Color) buf.getObject();
+                        int selectStart = buf.getInt();
+                        int selectEnd = buf.getInt();
+                        synchronized (textLock) {
+                            g.drawString(gl, strike, x, y, selectColor, selectStart, selectEnd);
+                        }
+                    }
+                    break;
+                case SET_CLIP:
+                    if (tmpClip == null) {
+                        tmpClip = new Rectangle();
+                    }
+                    g.setClipRect(intersect((Rectangle) buf.getObject(), bandClip, tmpClip));
+                    break;
+                case SET_CLIP_INDEX:
+                    g.setClipRectIndex(buf.getInt());
+                    break;
+                case DRAW_TEXTURE:
+                    g.drawTexture((Texture) buf.getObject(),
+                                  buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(),
+                                  buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+                    break;
+                case DRAW_TEXTURE_3SLICE_H:
+                    g.drawTexture3SliceH((Texture) buf.getObject(),
+                                         buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(),
+                                         buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(),
+                                         buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+                    break;
+                case DRAW_TEXTURE_3SLICE_V:
+                    g.drawTexture3SliceV((Texture) buf.getObject(),
+                                         buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(),
+                                         buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(),
+                                         buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+                    break;
+                case DRAW_TEXTURE_9SLICE:
+                    g.drawTexture9Slice((Texture) buf.getObject(),
+                                        buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(),
+                                        buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(),
+                                        buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(),
+                                        buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+                    break;
+                default:
+                    throw new InternalError("Unrecognized display list command");
+            }
+        }
+    }
+
+    void dispose() {
+        GrowableDataBuffer.returnBuffer(buf);
+        if (bandBuffers != null) {
+            for (int i = 1; i < bandBuffers.length; i++) {
+                GrowableDataBuffer.returnBuffer(bandBuffers[i]);
+            }
+            bandBuffers = null;
+        }
+        if (textures != null) {
+            for (Texture tex : textures) {
+                tex.unlock();
+            }
+            textures = null;
+        }
+    }
+
+    /**
+     * A graphics which forwards every call to the graphics being rendered to,
+     * recording the supported commands into a display list on the way.
+     * <p>
+     * Nodes choose how to render depending on the marker interfaces of the
+     * graphics, so a recorder implements {@link ReadbackGraphics} and
+     * {@link RectShadowGraphics} only if the graphics it forwards to does,
+     * see {@link #create}.
+     */
+    static class Recorder implements Graphics {
+
+        final Graphics g;
+        private DisplayList list;
+        private boolean deferred;
+
+        private Recorder(Graphics g, DisplayList list, boolean deferred) {
+            this.g = g;
+            this.list = list;
+            this.deferred = deferred;
+        }
+
+        private static Recorder create(Graphics g, DisplayList list, boolean deferred) {
+            if (g instanceof ReadbackGraphics) {
+                if (g instanceof RectShadowGraphics) {
+                    return new ReadbackRectShadowRecorder(g, list, deferred);
+                }
+                return new ReadbackRecorder(g, list, deferred);
+            }
+            if (g instanceof RectShadowGraphics) {
+                return new RectShadowRecorder(g, list, deferred);
+            }
+            return new Recorder(g, list, deferred);
+        }
+
+        /**
+         * Returns the recorded display list, or null if some command
+         * could not be recorded.
+         */
+        DisplayList finish() {
+            DisplayList result = list;
+            list = null;
+            if (result != null) {
+                result.buf.save();
+            }
+            return result;
+        }
+
+        boolean isFailed() {
+            return list == null;
+        }
+
+        /**
+         * Abandons the recording. This must be called before forwarding the
+         * failing call, a deferred recording first renders what it has
+         * recorded so far and the state of the graphics has to match the
+         * recorded state at that point.
+         */
+        void fail() {
+            if (list != null) {
+                if (deferred) {
+                    list.buf.restore();
+                    list.replayDeferred(g, list.buf, null, null);
+                    deferred = false;
+                }
+                list.dispose();
+                list = null;
+            }
+        }
+
+        /**
+         * Returns whether the given texture can be drawn in deferred mode.
+         * Render targets are not since they are usually rendered to again
+         * later in the same frame.
+         */
+        private boolean deferTexture(Texture tex) {
+            if (tex instanceof RTTexture) {
+                fail();
+                return false;
+            }
+            if (list == null) {
+                return false;
+            }
+            if (list.textures == null) {
+                list.textures = new ArrayList<Texture>();
+            }
+            tex.lock();
+            list.textures.add(tex);
+            return true;
+        }
+
+        private GrowableDataBuffer command(byte op) {
+            if (list == null) {
+                return null;
+            }
+            if (++list.commandCount > MAX_COMMANDS) {
+                fail();
+                return null;
+            }
+            list.buf.putByte(op);
+            return list.buf;
+        }
+
+        private void recordTransform() {
+            BaseTransform tx = g.getTransformNoClone();
+            if (!tx.is2D()) {
+                if (deferred) {
+                    // Rendering the deferred commands resets the transform
+                    tx = tx.copy();
+                    fail();
+                    g.setTransform(tx);
+                } else {
+                    fail();
+                }
+                return;
+            }
+            GrowableDataBuffer buf = command(SET_TRANSFORM);
+            if (buf != null) {
+                buf.putDouble(tx.getMxx());
+                buf.putDouble(tx.getMxy());
+                buf.putDouble(tx.getMxt());
+                buf.putDouble(tx.getMyx());
+                buf.putDouble(tx.getMyy());
+                buf.putDouble(tx.getMyt());
+            }
+        }
+
+        private void record(byte op, Object o) {
+            GrowableDataBuffer buf = command(op);
+            if (buf != null) {
+                buf.putObject(o);
+            }
+        }
+
+        private void record(byte op, float a, float b, float c, float d) {
+            GrowableDataBuffer buf = command(op);
+            if (buf != null) {
+                putFloats(buf, a, b, c, d);
+            }
+        }
+
+        private static void putFloats(GrowableDataBuffer buf, float a, float b, float c, float d) {
+            buf.putFloat(a);
+            buf.putFloat(b);
+            buf.putFloat(c);
+            buf.putFloat(d);
+        }
+
+        private void record(byte op, float a, float b, float c, float d, float e, float f) {
+            GrowableDataBuffer buf = command(op);
+            if (buf != null) {
+                buf.putFloat(a);
+                buf.putFloat(b);
+                buf.putFloat(c);
+                buf.putFloat(d);
+                buf.putFloat(e);
+                buf.putFloat(f);
+            }
+        }
+
+        // Transform and state
+
+        @Override public BaseTransform getTransformNoClone() { return g.getTransformNoClone(); }
+
+        @Override public void setTransform(BaseTransform xform) {
+            g.setTransform(xform);
+            recordTransform();
+        }
+
+        @Override public void setTransform(double m00, double m10,
+                                           double m01, double m11,
+                                           double m02, double m12) {
+            g.setTransform(m00, m10, m01, m11, m02, m12);
+            recordTransform();
+        }
+
+        @Override public void setTransform3D(double mxx, double mxy, double mxz, double mxt,
+                                             double myx, double myy, double myz, double myt,
+                                             double mzx, double mzy, double mzz, double mzt) {
+            g.setTransform3D(mxx, mxy, mxz, mxt, myx, myy, myz, myt, mzx, mzy, mzz, mzt);
+            recordTransform();
+        }
+
+        @Override public void transform(BaseTransform xform) {
+            if (!xform.is2D()) {
+                fail();
+                g.transform(xform);
+                return;
+            }
+            g.transform(xform);
+            record(TRANSFORM, xform.copy());
+        }
+
+        @Override public void translate(float tx, float ty) {
+            g.translate(tx, ty);
+            GrowableDataBuffer buf = command(TRANSLATE);
+            if (buf != null) {
+                buf.putFloat(tx);
+                buf.putFloat(ty);
+            }
+        }
+
+        @Override public void translate(float tx, float ty, float tz) {
+            if (tz == 0f) {
+                translate(tx, ty);
+            } else {
+                fail();
+                g.translate(tx, ty, tz);
+            }
+        }
+
+        @Override public void scale(float sx, float sy) {
+            g.scale(sx, sy);
+            GrowableDataBuffer buf = command(SCALE);
+            if (buf != null) {
+                buf.putFloat(sx);
+                buf.putFloat(sy);
+            }
+        }
+
+        @Override public void scale(float sx, float sy, float sz) {
+            if (sz == 1f) {
+                scale(sx, sy);
+            } else {
+                fail();
+                g.scale(sx, sy, sz);
+            }
+        }
+
+        @Override public void setCamera(NGCamera camera) { fail(); g.setCamera(camera); }
+        @Override public NGCamera getCameraNoClone() { return g.getCameraNoClone(); }
+
+        @Override public void setDepthTest(boolean depthTest) {
+            g.setDepthTest(depthTest);
+            GrowableDataBuffer buf = command(SET_DEPTH_TEST);
+            if (buf != null) {
+                buf.putBoolean(depthTest);
+            }
+        }
+
+        @Override public boolean isDepthTest() { return g.isDepthTest(); }
+        @Override public void setDepthBuffer(boolean depthBuffer) { fail(); g.setDepthBuffer(depthBuffer); }
+        @Override public boolean isDepthBuffer() { return g.isDepthBuffer(); }
+        @Override public boolean isAlphaTestShader() { return g.isAlphaTestShader(); }
+
+        @Override public void setAntialiasedShape(boolean aa) {
+            g.setAntialiasedShape(aa);
+            GrowableDataBuffer buf = command(SET_ANTIALIASED);
+            if (buf != null) {
+                buf.putBoolean(aa);
+            }
+        }
+
+        @Override public boolean isAntialiasedShape() { return g.isAntialiasedShape(); }
+        @Override public RectBounds getFinalClipNoClone() { return g.getFinalClipNoClone(); }
+        @Override public Rectangle getClipRect() { return g.getClipRect(); }
+        @Override public Rectangle getClipRectNoClone() { return g.getClipRectNoClone(); }
+
+        @Override public void setHasPreCullingBits(boolean hasBits) {
+            if (hasBits && !deferred) {
+                fail();
+            }
+            g.setHasPreCullingBits(hasBits);
+        }
+
+        @Override public boolean hasPreCullingBits() { return g.hasPreCullingBits(); }
+
+        @Override public void setClipRect(Rectangle clipRect) {
+            if (!deferred) {
+                fail();
+            }
+            g.setClipRect(clipRect);
+            record(SET_CLIP, clipRect == null ? null : new Rectangle(clipRect));
+        }
+
+        @Override public void setClipRectIndex(int index) {
+            if (!deferred) {
+                fail();
+            }
+            g.setClipRectIndex(index);
+            GrowableDataBuffer buf = command(SET_CLIP_INDEX);
+            if (buf != null) {
+                buf.putInt(index);
+            }
+        }
+
+        @Override public int getClipRectIndex() { return g.getClipRectIndex(); }
+        @Override public float getExtraAlpha() { return g.getExtraAlpha(); }
+
+        @Override public void setExtraAlpha(float extraAlpha) {
+            g.setExtraAlpha(extraAlpha);
+            GrowableDataBuffer buf = command(SET_EXTRA_ALPHA);
+            if (buf != null) {
+                buf.putFloat(extraAlpha);
+            }
+        }
+
+        @Override public void setLights(NGLightBase[] lights) { fail(); g.setLights(lights); }
+        @Override public NGLightBase[] getLights() { return g.getLights(); }
+        @Override public Paint getPaint() { return g.getPaint(); }
+
+        @Override public void setPaint(Paint paint) {
+            if (deferred && paint.getType().isImagePattern()) {
+                // Image patterns are rendered through the texture caches
+                fail();
+            }
+            g.setPaint(paint);
+            record(SET_PAINT, paint);
+        }
+
+        @Override public BasicStroke getStroke() { return g.getStroke(); }
+
+        @Override public void setStroke(BasicStroke stroke) {
+            g.setStroke(stroke);
+            record(SET_STROKE, stroke == null ? null : stroke.copy());
+        }
+
+        @Override public void setCompositeMode(CompositeMode mode) {
+            g.setCompositeMode(mode);
+            record(SET_COMPOSITE, mode);
+        }
+
+        @Override public CompositeMode getCompositeMode() { return g.getCompositeMode(); }
+
+        // Rendering
+
+        @Override public void clear() { fail(); g.clear(); }
+        @Override public void clear(Color color) { fail(); g.clear(color); }
+        @Override public void clearQuad(float x1, float y1, float x2, float y2) { fail(); g.clearQuad(x1, y1, x2, y2); }
+
+        @Override public void fill(Shape shape) {
+            record(FILL, shape.copy());
+            if (!deferred) {
+                g.fill(shape);
+            }
+        }
+
+        @Override public void fillQuad(float x1, float y1, float x2, float y2) {
+            record(FILL_QUAD, x1, y1, x2, y2);
+            if (!deferred) {
+                g.fillQuad(x1, y1, x2, y2);
+            }
+        }
+
+        @Override public void fillRect(float x, float y, float width, float height) {
+            record(FILL_RECT, x, y, width, height);
+            if (!deferred) {
+                g.fillRect(x, y, width, height);
+            }
+        }
+
+        @Override public void fillRoundRect(float x, float y, float width, float height, float arcw, float arch) {
+            record(FILL_ROUND_RECT, x, y, width, height, arcw, arch);
+            if (!deferred) {
+                g.fillRoundRect(x, y, width, height, arcw, arch);
+            }
+        }
+
+        @Override public void fillEllipse(float x, float y, float width, float height) {
+            record(FILL_ELLIPSE, x, y, width, height);
+            if (!deferred) {
+                g.fillEllipse(x, y, width, height);
+            }
+        }
+
+        @Override public void draw(Shape shape) {
+            record(DRAW, shape.copy());
+            if (!deferred) {
+                g.draw(shape);
+            }
+        }
+
+        @Override public void drawLine(float x1, float y1, float x2, float y2) {
+            record(DRAW_LINE, x1, y1, x2, y2);
+            if (!deferred) {
+                g.drawLine(x1, y1, x2, y2);
+            }
+        }
+
+        @Override public void drawRect(float x, float y, float width, float height) {
+            record(DRAW_RECT, x, y, width, height);
+            if (!deferred) {
+                g.drawRect(x, y, width, height);
+            }
+        }
+
+        @Override public void drawRoundRect(float x, float y, float width, float height, float arcw, float arch) {
+            record(DRAW_ROUND_RECT, x, y, width, height, arcw, arch);
+            if (!deferred) {
+                g.drawRoundRect(x, y, width, height, arcw, arch);
+            }
+        }
+
+        @Override public void drawEllipse(float x, float y, float width, float height) {
+            record(DRAW_ELLIPSE, x, y, width, height);
+            if (!deferred) {
+                g.drawEllipse(x, y, width, height);
+            }
+        }
+
+        @Override public void setNodeBounds(RectBounds bounds) {
+            g.setNodeBounds(bounds);
+            record(SET_NODE_BOUNDS, bounds == null ? null : new RectBounds(bounds));
+        }
+
+        @Override public void drawString(GlyphList gl, FontStrike strike, float x, float y,
+                                         Color selectColor, int selectStart, int selectEnd) {
+            GrowableDataBuffer buf = command(DRAW_STRING);
+            if (buf != null) {
+                buf.putObject(gl);
+                buf.putObject(strike);
+                buf.putFloat(x);
+                buf.putFloat(y);
+                buf.putObject(selectColor);
+                buf.putInt(selectStart);
+                buf.putInt(selectEnd);
+            }
+            if (!deferred) {
+                g.drawString(gl, strike, x, y, selectColor, selectStart, selectEnd);
+            }
+        }
+
+        // Texture based rendering depends on the contents of the texture at
+        // the time of the call, which cannot be retained. Deferred lists are
+        // rendered within the same frame, and hold a lock on the textures
+        // which are not render targets until then.
+
+        @Override public void blit(RTTexture srcTex, RTTexture dstTex,
+                                   int srcX0, int srcY0, int srcX1, int srcY1,
+                                   int dstX0, int dstY0, int dstX1, int dstY1) {
+            fail();
+            g.blit(srcTex, dstTex, srcX0, srcY0, srcX1, srcY1, dstX0, dstY0, dstX1, dstY1);
+        }
+
+        @Override public void drawTexture(Texture tex, float x, float y, float w, float h) {
+            drawTexture(tex, x, y, x + w, y + h, 0, 0, w, h);
+        }
+
+        @Override public void drawTexture(Texture tex,
+                                          float dx1, float dy1, float dx2, float dy2,
+                                          float sx1, float sy1, float sx2, float sy2) {
+            if (deferred && deferTexture(tex)) {
+                GrowableDataBuffer buf = command(DRAW_TEXTURE);
+                if (buf != null) {
+                    buf.putObject(tex);
+                    putFloats(buf, dx1, dy1, dx2, dy2);
+                    putFloats(buf, sx1, sy1, sx2, sy2);
+                    return;
+                }
+            }
+            fail();
+            g.drawTexture(tex, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2);
+        }
+
+        @Override public void drawTexture3SliceH(Texture tex,
+                                                 float dx1, float dy1, float dx2, float dy2,
+                                                 float sx1, float sy1, float sx2, float sy2,
+                                                 float dh1, float dh2, float sh1, float sh2) {
+            if (deferred && deferTexture(tex)) {
+                GrowableDataBuffer buf = command(DRAW_TEXTURE_3SLICE_H);
+                if (buf != null) {
+                    buf.putObject(tex);
+                    putFloats(buf, dx1, dy1, dx2, dy2);
+                    putFloats(buf, sx1, sy1, sx2, sy2);
+                    putFloats(buf, dh1, dh2, sh1, sh2);
+                    return;
+                }
+            }
+            fail();
+            g.drawTexture3SliceH(tex, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, dh1, dh2, sh1, sh2);
+        }
+
+        @Override public void drawTexture3SliceV(Texture tex,
+                                                 float dx1, float dy1, float dx2, float dy2,
+                                                 float sx1, float sy1, float sx2, float sy2,
+                                                 float dv1, float dv2, float sv1, float sv2) {
+            if (deferred && deferTexture(tex)) {
+                GrowableDataBuffer buf = command(DRAW_TEXTURE_3SLICE_V);
+                if (buf != null) {
+                    buf.putObject(tex);
+                    putFloats(buf, dx1, dy1, dx2, dy2);
+                    putFloats(buf, sx1, sy1, sx2, sy2);
+                    putFloats(buf, dv1, dv2, sv1, sv2);
+                    return;
+                }
+            }
+            fail();
+            g.drawTexture3SliceV(tex, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, dv1, dv2, sv1, sv2);
+        }
+
+        @Override public void drawTexture9Slice(Texture tex,
+                                                float dx1, float dy1, float dx2, float dy2,
+                                                float sx1, float sy1, float sx2, float sy2,
+                                                float dh1, float dv1, float dh2, float dv2,
+                                                float sh1, float sv1, float sh2, float sv2) {
+            if (deferred && deferTexture(tex)) {
+                GrowableDataBuffer buf = command(DRAW_TEXTURE_9SLICE);
+                if (buf != null) {
+                    buf.putObject(tex);
+                    putFloats(buf, dx1, dy1, dx2, dy2);
+                    putFloats(buf, sx1, sy1, sx2, sy2);
+                    putFloats(buf, dh1, dv1, dh2, dv2);
+                    putFloats(buf, sh1, sv1, sh2, sv2);
+                    return;
+                }
+            }
+            fail();
+            g.drawTexture9Slice(tex, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2,
+                                dh1, dv1, dh2, dv2, sh1, sv1, sh2, sv2);
+        }
+
+        @Override public void drawTextureVO(Texture tex,
+                                            float topopacity, float botopacity,
+                                            float dx1, float dy1, float dx2, float dy2,
+                                            float sx1, float sy1, float sx2, float sy2) {
+            fail();
+            g.drawTextureVO(tex, topopacity, botopacity, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2);
+        }
+
+        @Override public void drawTextureRaw(Texture tex,
+                                             float dx1, float dy1, float dx2, float dy2,
+                                             float tx1, float ty1, float tx2, float ty2) {
+            fail();
+            g.drawTextureRaw(tex, dx1, dy1, dx2, dy2, tx1, ty1, tx2, ty2);
+        }
+
+        @Override public void drawMappedTextureRaw(Texture tex,
+                                                   float dx1, float dy1, float dx2, float dy2,
+                                                   float tx11, float ty11, float tx21, float ty21,
+                                                   float tx12, float ty12, float tx22, float ty22) {
+            fail();
+            g.drawMappedTextureRaw(tex, dx1, dy1, dx2, dy2,
+                                   tx11, ty11, tx21, ty21, tx12, ty12, tx22, ty22);
+        }
+
+        @Override public void sync() { fail(); g.sync(); }
+
+        @Override public Screen getAssociatedScreen() { return g.getAssociatedScreen(); }
+        @Override public ResourceFactory getResourceFactory() { return g.getResourceFactory(); }
+        @Override public RenderTarget getRenderTarget() { return g.getRenderTarget(); }
+
+        @Override public void setRenderRoot(NodePath root) {
+            if (root != null && !deferred) {
+                fail();
+            }
+            g.setRenderRoot(root);
+        }
+
+        @Override public NodePath getRenderRoot() { return g.getRenderRoot(); }
+
+        @Override public void setState3D(boolean flag) {
+            if (flag) {
+                fail();
+            }
+            g.setState3D(flag);
+        }
+
+        @Override public boolean isState3D() { return g.isState3D(); }
+        @Override public void setup3DRendering() { fail(); g.setup3DRendering(); }
+
+        @Override public void setPixelScaleFactors(float pixelScaleX, float pixelScaleY) {
+            fail();
+            g.setPixelScaleFactors(pixelScaleX, pixelScaleY);
+        }
+
+        @Override public float getPixelScaleFactorX() { return g.getPixelScaleFactorX(); }
+        @Override public float getPixelScaleFactorY() { return g.getPixelScaleFactorY(); }
+    }
+
+    private static class ReadbackRecorder extends Recorder implements ReadbackGraphics {
+
+        private ReadbackRecorder(Graphics g, DisplayList list, boolean deferred) {
+            super(g, list, deferred);
+        }
+
+        // Reading back the destination makes the result depend on whatever
+        // was rendered below the subtree
+
+        @Override public boolean canReadBack() {
+            fail();
+            return ((ReadbackGraphics) g).canReadBack();
+        }
+
+        @Override public RTTexture readBack(Rectangle view) {
+            fail();
+            return ((ReadbackGraphics) g).readBack(view);
+        }
+
+        @Override public void releaseReadBackBuffer(RTTexture view) {
+            ((ReadbackGraphics) g).releaseReadBackBuffer(view);
+        }
+    }
+
+    private static final class ReadbackRectShadowRecorder extends ReadbackRecorder
+            implements RectShadowGraphics {
+
+        private ReadbackRectShadowRecorder(Graphics g, DisplayList list, boolean deferred) {
+            super(g, list, deferred);
+        }
+    }
+
+    private static final class RectShadowRecorder extends Recorder implements RectShadowGraphics {
+
+        private RectShadowRecorder(Graphics g, DisplayList list, boolean deferred) {
+            super(g, list, deferred);
+        }
+    }
+}
@@ -36,6 +36,8 @@ import com.sun.scenario.effect.impl.prism.PrEffectHelper;
 public class EffectFilter {
     private Effect effect;
     private NodeEffectInput nodeInput;
+    private EffectOutputCache.Entry cacheEntry;
+    private int renderedRevision = -1;
 
     EffectFilter(Effect effect, NGNode node) {
         this.effect = effect;
@@ -45,7 +47,16 @@ public class EffectFilter {
     Effect getEffect() { return effect; }
     NodeEffectInput getNodeInput() { return nodeInput; }
 
+    EffectOutputCache.Entry getCacheEntry() { return cacheEntry; }
+    void setCacheEntry(EffectOutputCache.Entry entry) { cacheEntry = entry; }
+    int getRenderedRevision() { return renderedRevision; }
+    void setRenderedRevision(int revision) { renderedRevision = revision; }
+
     void dispose() {
+        EffectOutputCache cache = EffectOutputCache.getInstance();
+        if (cache != null) {
+            cache.remove(this);
+        }
         effect = null;
         nodeInput.setNode(null);
         nodeInput = null;
@@ -58,7 +69,10 @@ public class EffectFilter {
 
     void render(Graphics g) {
         NodeEffectInput nodeInput = getNodeInput();
-        PrEffectHelper.render(getEffect(), g, 0, 0, nodeInput);
+        EffectOutputCache cache = EffectOutputCache.getInstance();
+        if (cache == null || !cache.render(this, g)) {
+            PrEffectHelper.render(getEffect(), g, 0, 0, nodeInput);
+        }
         nodeInput.flush();
     }
 }
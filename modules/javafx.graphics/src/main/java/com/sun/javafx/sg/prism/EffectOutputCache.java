@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.sg.prism;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import com.sun.javafx.geom.BaseBounds;
+import com.sun.javafx.geom.RectBounds;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.javafx.geom.transform.Affine2D;
+import com.sun.javafx.geom.transform.BaseTransform;
+import com.sun.javafx.logging.PulseLogger;
+import com.sun.prism.Graphics;
+import com.sun.prism.RenderTarget;
+import com.sun.prism.Texture;
+import com.sun.prism.impl.PrismSettings;
+import com.sun.scenario.effect.Filterable;
+import com.sun.scenario.effect.FilterContext;
+import com.sun.scenario.effect.ImageData;
+import com.sun.scenario.effect.impl.prism.PrEffectHelper;
+import com.sun.scenario.effect.impl.prism.PrTexture;
+
+import static com.sun.javafx.logging.PulseLogger.PULSE_LOGGING_ENABLED;
+
+/**
+ * Keeps the outputs of the effects of nodes, so that a node rendered again
+ * while neither its content, its effect nor the linear part of its
+ * transform has changed draws its previous effect output instead of
+ * filtering its content again. This typically happens when the node lies
+ * in the dirty region of an unrelated animation, or when it is scrolled by
+ * whole pixels.
+ * <p>
+ * The content of a node is considered unchanged for as long as the render
+ * revision of the node is the same, since it changes whenever the cache of
+ * the node is invalidated. The output of an effect is only kept once the
+ * node has been rendered twice with the same revision, so that the effects
+ * of animated content are never filtered for nothing.
+ * <p>
+ * The outputs are images of the ImagePool, which stay checked out while
+ * they are cached. The total size of the outputs is bounded by
+ * {@link PrismSettings#effectCacheSize}, the outputs used the least
+ * recently being released first.
+ * <p>
+ * This class is used on the render thread, except for {@link #remove} which
+ * is also called on the FX thread when the effect of a node is replaced
+ * while the scene graph is synchronized. The render lock is held during the
+ * synchronization, so that nothing is rendered concurrently.
+ */
+final class EffectOutputCache {
+
+    private static EffectOutputCache instance;
+
+    private final long maxSize;
+    private final LinkedHashMap<Entry, Entry> entries =
+        new LinkedHashMap<Entry, Entry>(16, 0.75f, true);
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * The effect output cached for an effect filter.
+     */
+    static final class Entry {
+        private final ImageData output;
+        private final int revision;
+        private final FilterContext fctx;
+        private final BaseTransform transform;
+        // The device area of the output, or null if it holds the whole output
+        private final Rectangle coverage;
+        private final long size;
+        private boolean released;
+
+        Entry(ImageData output, int revision, FilterContext fctx,
+              BaseTransform transform, Rectangle coverage)
+        {
+            this.output = output;
+            this.revision = revision;
+            this.fctx = fctx;
+            this.transform = transform;
+            this.coverage = coverage;
+            Filterable image = output.getUntransformedImage();
+            this.size = 4L * image.getPhysicalWidth() * image.getPhysicalHeight();
+        }
+
+        /**
+         * Returns whether the output can be drawn for the given revision with
+         * the given transform in the given device clip.
+         */
+        boolean matches(int revision, FilterContext fctx, BaseTransform tx,
+                        Rectangle clip)
+        {
+            if (released || revision != this.revision || !fctx.equals(this.fctx) ||
+                tx.getMxx() != transform.getMxx() ||
+                tx.getMxy() != transform.getMxy() ||
+                tx.getMyx() != transform.getMyx() ||
+                tx.getMyy() != transform.getMyy())
+            {
+                return false;
+            }
+            double dx = tx.getMxt() - transform.getMxt();
+            double dy = tx.getMyt() - transform.getMyt();
+            if (dx != Math.rint(dx) || dy != Math.rint(dy)) {
+                return false;
+            }
+            if (coverage != null) {
+                Rectangle r = new Rectangle(coverage);
+                r.translate((int) dx, (int) dy);
+                if (!r.contains(clip)) {
+                    return false;
+                }
+            }
+            return output.validate(fctx) &&
+                   !output.getUntransformedImage().isLost();
+        }
+
+        void release() {
+            released = true;
+            output.unref();
+        }
+
+        void draw(Graphics g) {
+            BaseTransform tx = g.getTransformNoClone();
+            BaseTransform origtx = tx.copy();
+            Rectangle r = output.getUntransformedBounds();
+            Texture tex = ((PrTexture) output.getUntransformedImage()).getTextureObject();
+            g.setTransform(BaseTransform.getTranslateInstance(
+                    tx.getMxt() - transform.getMxt(),
+                    tx.getMyt() - transform.getMyt()));
+            g.transform(output.getTransform());
+            g.drawTexture(tex, r.x, r.y, r.width, r.height);
+            g.setTransform(origtx);
+        }
+    }
+
+    EffectOutputCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the effect output cache, or null if it is disabled.
+     */
+    static EffectOutputCache getInstance() {
+        if (PrismSettings.effectCacheSize <= 0) {
+            return null;
+        }
+        if (instance == null) {
+            instance = new EffectOutputCache(PrismSettings.effectCacheSize * 1024L * 1024L);
+        }
+        return instance;
+    }
+
+    /**
+     * Renders the effect of the given filter with its cached output, or with
+     * a new output which is then cached. Returns false, without having
+     * rendered anything, when the output cannot be cached for now, in which
+     * case the caller should render the effect itself.
+     */
+    boolean render(EffectFilter filter, Graphics g) {
+        NGNode node = filter.getNodeInput().getNode();
+        BaseTransform tx = g.getTransformNoClone();
+        if (node == null || node.getCacheFilter() != null || !tx.is2D() ||
+            (g.isDepthBuffer() && g.isDepthTest()))
+        {
+            remove(filter);
+            return false;
+        }
+        FilterContext fctx = NGNode.getFilterContext(g);
+        int revision = node.getRenderRevision();
+        Entry entry = filter.getCacheEntry();
+        if (entry != null) {
+            if (entry.matches(revision, fctx, tx, PrEffectHelper.getGraphicsClipNoClone(g))) {
+                entries.get(entry);
+                hitCount++;
+                if (PULSE_LOGGING_ENABLED) {
+                    PulseLogger.incrementCounter("Effect output cache hit");
+                }
+                entry.draw(g);
+                return true;
+            }
+            remove(filter);
+        }
+        if (filter.getRenderedRevision() != revision) {
+            // Wait for the content to be rendered twice unchanged
+            filter.setRenderedRevision(revision);
+            return false;
+        }
+
+        missCount++;
+        entry = createEntry(filter, g, fctx, revision);
+        if (entry == null) {
+            return false;
+        }
+        entry.draw(g);
+        if (entry.size > maxSize) {
+            entry.release();
+            return true;
+        }
+        while (size + entry.size > maxSize) {
+            evict();
+        }
+        entries.put(entry, entry);
+        size += entry.size;
+        filter.setCacheEntry(entry);
+        return true;
+    }
+
+    /**
+     * Filters the content of the node of the given filter for the whole
+     * render target of the given graphics, without rendering it directly
+     * to the graphics, so that the output can be drawn again later.
+     */
+    private static Entry createEntry(EffectFilter filter, Graphics g,
+                                     FilterContext fctx, int revision)
+    {
+        BaseTransform tx = g.getTransformNoClone();
+        BaseTransform transform = tx.isIdentity()
+                ? BaseTransform.IDENTITY_TRANSFORM
+                : new Affine2D(tx);
+        RenderTarget rt = g.getRenderTarget();
+        Rectangle clip = new Rectangle(rt.getContentWidth(), rt.getContentHeight());
+        ImageData output = filter.getEffect().filter(fctx, transform, clip,
+                                                     null, filter.getNodeInput());
+        if (output == null) {
+            return null;
+        }
+        if (!output.validate(fctx)) {
+            output.unref();
+            return null;
+        }
+        BaseBounds bounds = filter.getBounds(new RectBounds(), transform);
+        Rectangle coverage = clip.contains(new Rectangle(bounds)) ? null : clip;
+        return new Entry(output, revision, fctx, transform.copy(), coverage);
+    }
+
+    /**
+     * Releases the output cached for the given filter, if any.
+     */
+    void remove(EffectFilter filter) {
+        Entry entry = filter.getCacheEntry();
+        if (entry != null) {
+            filter.setCacheEntry(null);
+            if (entries.remove(entry) != null) {
+                size -= entry.size;
+                entry.release();
+            }
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> it = entries.keySet().iterator();
+        Entry entry = it.next();
+        it.remove();
+        size -= entry.size;
+        entry.release();
+        evictionCount++;
+        if (PULSE_LOGGING_ENABLED) {
+            PulseLogger.incrementCounter("Effect output evicted");
+        }
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    int getEntryCount() {
+        return entries.size();
+    }
+
+    long getHitCount() {
+        return hitCount;
+    }
+
+    long getMissCount() {
+        return missCount;
+    }
+
+    long getEvictionCount() {
+        return evictionCount;
+    }
+}
@@ -26,15 +26,24 @@
 package com.sun.javafx.sg.prism;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import com.sun.javafx.geom.BaseBounds;
 import com.sun.javafx.geom.DirtyRegionContainer;
 import com.sun.javafx.geom.RectBounds;
 import com.sun.javafx.geom.Rectangle;
+import com.sun.javafx.geom.SpatialGrid;
+import com.sun.javafx.geom.transform.Affine3D;
 import com.sun.javafx.geom.transform.BaseTransform;
 import com.sun.javafx.geom.transform.GeneralTransform3D;
+import com.sun.javafx.geom.transform.NoninvertibleTransformException;
+import com.sun.javafx.logging.PulseLogger;
 import com.sun.javafx.scene.NodeHelper;
 import com.sun.prism.Graphics;
+import com.sun.prism.impl.PrismSettings;
+import com.sun.prism.impl.ps.DrawReorderer;
 import com.sun.scenario.effect.Blend;
 import com.sun.scenario.effect.Blend.Mode;
 import com.sun.scenario.effect.FilterContext;
@@ -42,6 +51,7 @@ import com.sun.scenario.effect.ImageData;
 import com.sun.scenario.effect.impl.prism.PrDrawable;
 import com.sun.scenario.effect.impl.prism.PrEffectHelper;
 import javafx.scene.Node;
+import static com.sun.javafx.logging.PulseLogger.PULSE_LOGGING_ENABLED;
 
 /**
  */
@@ -74,6 +84,63 @@ public class NGGroup extends NGNode {
      */
     private static final int REGION_INTERSECTS_MASK = 0x15555555;
 
+    private static final RectBounds TEMP_QUERY_BOUNDS = new RectBounds();
+
+    /**
+     * Spatial index of the transformed bounds of the ordered children. It is
+     * only maintained when this group has at least
+     * PrismSettings.spatialIndexThreshold children, and is used by
+     * markCullRegions and renderContent to visit only the children which
+     * intersect a dirty region instead of every child.
+     */
+    private SpatialGrid cullIndex;
+    private IdentityHashMap<NGNode, Integer> cullIndexPositions;
+    private List<NGNode> cullIndexUpdates;
+    private boolean cullIndexInvalid;
+
+    /**
+     * The ordered children found by the last call to markCullRegions to
+     * intersect any of the dirty regions. Only valid if cullCandidatesValid
+     * is true, in which case the culling bits of every other child are stale
+     * and such children must not be rendered while pre-culling bits are used.
+     */
+    private BitSet cullCandidates;
+    private boolean cullCandidatesValid;
+
+    /**
+     * The number of consecutive renders of unchanged content after which the
+     * children of this group are recorded into a display list.
+     */
+    private static final int DISPLAY_LIST_RECORD_THRESHOLD = 2;
+
+    /**
+     * The retained rendering commands of the children of this group. Only
+     * used if PrismSettings.displayListsEnabled is true. The list is discarded
+     * whenever the cache of this group is invalidated, which happens for any
+     * change to this group or to any of its descendants.
+     */
+    private DisplayList displayList;
+    private int displayListCleanRenders;
+    private boolean displayListFailed;
+
+    /**
+     * Computes the order in which to render the children when siblings are
+     * batched, see PrismSettings.batchSiblings.
+     */
+    private DrawReorderer reorderer;
+    private static final RectBounds TEMP_BATCH_BOUNDS = new RectBounds();
+
+    /**
+     * The children found to be hidden behind opaque siblings during the
+     * current render, see PrismSettings.siblingOcclusion. Only the opaque
+     * regions of the MAX_OCCLUDERS front most siblings are considered.
+     */
+    private BitSet occludedChildren;
+    private static final int MAX_OCCLUDERS = 8;
+    private static final RectBounds[] TEMP_OCCLUDERS = new RectBounds[MAX_OCCLUDERS];
+    private static final RectBounds TEMP_OCCLUSION_BOUNDS = new RectBounds();
+    private static final Affine3D TEMP_OCCLUSION_TX = new Affine3D();
+
     /***************************************************************************
      *                                                                         *
      * Implementation of the PGGroup interface                                 *
@@ -122,12 +189,14 @@ public class NGGroup extends NGNode {
         child.markDirty();
         markTreeDirtyNoIncrement();
         geometryChanged();
+        invalidateCullIndex();
     }
 
     public void clearFrom(int fromIndex) {
         if (fromIndex < children.size()) {
             children.subList(fromIndex, children.size()).clear();
             geometryChanged();
+            invalidateCullIndex();
             childDirty = true;
             markTreeDirtyNoIncrement();
         }
@@ -165,6 +234,7 @@ public class NGGroup extends NGNode {
         // Scenario, mostly because it was hard to optimize correctly).
         children.remove(node);
         geometryChanged();
+        invalidateCullIndex();
         childDirty = true;
         markTreeDirtyNoIncrement();
     }
@@ -172,6 +242,7 @@ public class NGGroup extends NGNode {
     public void remove(int index) {
         children.remove(index);
         geometryChanged();
+        invalidateCullIndex();
         childDirty = true;
         markTreeDirtyNoIncrement();
     }
@@ -180,6 +251,7 @@ public class NGGroup extends NGNode {
         children.clear();
         childDirty = false;
         geometryChanged();
+        invalidateCullIndex();
         markTreeDirtyNoIncrement();
     }
 
@@ -200,6 +272,7 @@ public class NGGroup extends NGNode {
             NGNode childPeer = NodeHelper.getPeer(child);
             viewOrderChildren.add(childPeer);
         }
+        invalidateCullIndex();
 
         // Mark visual dirty
         visualsChanged();
@@ -258,6 +331,39 @@ public class NGGroup extends NGNode {
         if (blendMode == Blend.Mode.SRC_OVER ||
                 orderedChildren.size() < 2) {  // Blend modes only work "between" siblings
 
+            BitSet occluded = null;
+            if (PrismSettings.siblingOcclusion) {
+                occluded = findOccludedChildren(g, orderedChildren, startPos);
+            }
+
+            if (PrismSettings.displayListsEnabled && startPos == 0 &&
+                    occluded == null &&
+                    !PrismSettings.showOverdraw &&
+                    renderDisplayList(g, orderedChildren)) {
+                return;
+            }
+
+            if (cullCandidatesValid && g.hasPreCullingBits()) {
+                // Only the children found by markCullRegions can intersect
+                // the dirty region being rendered
+                for (int i = cullCandidates.nextSetBit(startPos); i >= 0;
+                         i = cullCandidates.nextSetBit(i + 1)) {
+                    if (occluded != null && occluded.get(i)) {
+                        orderedChildren.get(i).clearDirtyTree();
+                    } else {
+                        orderedChildren.get(i).render(g);
+                    }
+                }
+                return;
+            }
+
+            if (PrismSettings.batchSiblings && startPos == 0 &&
+                    occluded == null &&
+                    !PrismSettings.showOverdraw &&
+                    renderBatched(g, orderedChildren)) {
+                return;
+            }
+
             for (int i = startPos; i < orderedChildren.size(); i++) {
                 NGNode child;
                 try {
@@ -267,7 +373,11 @@ public class NGGroup extends NGNode {
                 }
                 // minimal protection against concurrent update of the list.
                 if (child != null) {
-                    child.render(g);
+                    if (occluded != null && occluded.get(i)) {
+                        child.clearDirtyTree();
+                    } else {
+                        child.render(g);
+                    }
                 }
             }
             return;
@@ -314,6 +424,210 @@ public class NGGroup extends NGNode {
         }
     }
 
+    /**
+     * Renders the children of this group by replaying the retained display
+     * list, or records a new one once the content has been rendered unchanged
+     * for DISPLAY_LIST_RECORD_THRESHOLD times.
+     *
+     * @return true if the children have been rendered, false if the caller
+     * must render them as usual
+     */
+    private boolean renderDisplayList(Graphics g, List<NGNode> orderedChildren) {
+        if (displayList != null) {
+            if (displayList.canReplay(g)) {
+                // All children are rendered, which consumes the render root
+                g.setRenderRoot(null);
+                displayList.replay(g);
+                if (PULSE_LOGGING_ENABLED) {
+                    PulseLogger.incrementCounter("Display lists replayed");
+                }
+                return true;
+            }
+            if (g.hasPreCullingBits()) {
+                // Only part of this group is inside the dirty region, keep
+                // the list for when all of it is
+                return false;
+            }
+            // The transform or the state of the graphics differs from the
+            // one used for recording, start counting again
+            displayList.dispose();
+            displayList = null;
+            displayListCleanRenders = 0;
+        }
+        if (displayListFailed ||
+                ++displayListCleanRenders <= DISPLAY_LIST_RECORD_THRESHOLD ||
+                !DisplayList.canRecord(g)) {
+            return false;
+        }
+
+        // The list must cover the whole subtree, not only the part of it
+        // which is inside the dirty region being rendered
+        final boolean preCulling = g.hasPreCullingBits();
+        if (preCulling) {
+            g.setHasPreCullingBits(false);
+        }
+        g.setRenderRoot(null);
+        DisplayList.Recorder recorder = DisplayList.startRecording(g);
+        for (int i = 0; i < orderedChildren.size(); i++) {
+            orderedChildren.get(i).render(recorder);
+        }
+        displayList = recorder.finish();
+        if (preCulling) {
+            g.setHasPreCullingBits(true);
+        }
+        if (displayList == null) {
+            // Some child uses commands which cannot be retained, don't try
+            // again until the content changes
+            displayListFailed = true;
+        } else if (PULSE_LOGGING_ENABLED) {
+            PulseLogger.incrementCounter("Display lists recorded");
+        }
+        return true;
+    }
+
+    /**
+     * Renders the children in an order which keeps siblings that overlap in
+     * their relative order, but moves siblings which would render with the
+     * same state next to each other, so that they share a batch.
+     *
+     * @return true if the children have been rendered, false if the caller
+     * must render them in their order
+     */
+    private boolean renderBatched(Graphics g, List<NGNode> orderedChildren) {
+        final int size = orderedChildren.size();
+        final BaseTransform tx = g.getTransformNoClone();
+        if (size < 3 || !tx.is2D() || g.isDepthBuffer()) {
+            return false;
+        }
+        if (reorderer == null) {
+            reorderer = new DrawReorderer();
+        }
+        reorderer.reset();
+        for (int i = 0; i < size; i++) {
+            final NGNode child = orderedChildren.get(i);
+            final BaseBounds bounds = child.getCompleteBounds(TEMP_BATCH_BOUNDS, tx);
+            // Pad the device bounds by a pixel, since siblings which only
+            // touch may still blend into the same pixels along the edge
+            reorderer.add(child.getSiblingBatchKey(),
+                          bounds.getMinX() - 1, bounds.getMinY() - 1,
+                          bounds.getMaxX() + 1, bounds.getMaxY() + 1);
+        }
+        if (reorderer.getMovedCount() == 0) {
+            return false;
+        }
+        if (PULSE_LOGGING_ENABLED) {
+            PulseLogger.incrementCounter("Groups rendered with batched siblings");
+        }
+        for (int i = 0; i < size; i++) {
+            orderedChildren.get(reorderer.get(i)).render(g);
+        }
+        return true;
+    }
+
+    /**
+     * Finds the children which do not need to be rendered because the part
+     * of them within the clip is entirely covered by the opaque region of a
+     * sibling rendered after them. The siblings are visited front to back,
+     * collecting the opaque regions in device space, rounded inwards to whole
+     * pixels so that the anti-aliased edges of an opaque region never count
+     * as covering. Only opaque regions which stay axis aligned under the
+     * current transform are used.
+     *
+     * @return the indices of the occluded children, or null if there are none
+     */
+    BitSet findOccludedChildren(Graphics g, List<NGNode> orderedChildren, int startPos) {
+        final BaseTransform tx = g.getTransformNoClone();
+        if (orderedChildren.size() - startPos < 2 || !tx.is2D() || g.isDepthBuffer()) {
+            return null;
+        }
+        // A child occluded only within the current clip may be visible when
+        // a recorded display list is replayed under another clip
+        final Rectangle clip = DisplayList.isRecording(g) ? null : g.getClipRectNoClone();
+        final RectBounds[] occluders = TEMP_OCCLUDERS;
+        int occluderCount = 0;
+        BitSet occluded = null;
+        for (int i = orderedChildren.size() - 1; i >= startPos; i--) {
+            final NGNode child = orderedChildren.get(i);
+            if (occluderCount > 0 && child.isVisible()) {
+                final BaseBounds b = child.getCompleteBounds(TEMP_OCCLUSION_BOUNDS, tx);
+                // Pad by a pixel for the anti-aliasing along the edges
+                float x0 = b.getMinX() - 1;
+                float y0 = b.getMinY() - 1;
+                float x1 = b.getMaxX() + 1;
+                float y1 = b.getMaxY() + 1;
+                if (clip != null) {
+                    x0 = Math.max(x0, clip.x);
+                    y0 = Math.max(y0, clip.y);
+                    x1 = Math.min(x1, clip.x + clip.width);
+                    y1 = Math.min(y1, clip.y + clip.height);
+                }
+                if (x0 < x1 && y0 < y1 && isOccluded(occluders, occluderCount, x0, y0, x1, y1)) {
+                    if (occluded == null) {
+                        if (occludedChildren == null) {
+                            occludedChildren = new BitSet(orderedChildren.size());
+                        } else {
+                            occludedChildren.clear();
+                        }
+                        occluded = occludedChildren;
+                    }
+                    occluded.set(i);
+                    // Its opaque region, if any, is covered as well
+                    continue;
+                }
+            }
+            if (occluderCount < MAX_OCCLUDERS && child.isVisible() && !child.isShape3D()) {
+                final RectBounds opaqueRegion = child.getOpaqueRegion();
+                if (opaqueRegion == null) {
+                    continue;
+                }
+                final BaseTransform childTx = TEMP_OCCLUSION_TX.deriveWithNewTransform(tx)
+                        .deriveWithConcatenation(child.getTransform());
+                if ((childTx.getType() & ~(BaseTransform.TYPE_TRANSLATION |
+                                           BaseTransform.TYPE_QUADRANT_ROTATION |
+                                           BaseTransform.TYPE_MASK_SCALE)) != 0) {
+                    continue;
+                }
+                final BaseBounds b = childTx.transform(opaqueRegion, TEMP_OCCLUSION_BOUNDS);
+                final float x0 = (float) Math.ceil(b.getMinX());
+                final float y0 = (float) Math.ceil(b.getMinY());
+                final float x1 = (float) Math.floor(b.getMaxX());
+                final float y1 = (float) Math.floor(b.getMaxY());
+                if (x0 < x1 && y0 < y1) {
+                    if (occluders[occluderCount] == null) {
+                        occluders[occluderCount] = new RectBounds();
+                    }
+                    occluders[occluderCount++].setBounds(x0, y0, x1, y1);
+                }
+            }
+        }
+        if (occluded != null && PULSE_LOGGING_ENABLED) {
+            PulseLogger.incrementCounter("Groups with occluded children skipped");
+        }
+        return occluded;
+    }
+
+    private static boolean isOccluded(RectBounds[] occluders, int count,
+                                      float x0, float y0, float x1, float y1) {
+        for (int i = 0; i < count; i++) {
+            final RectBounds o = occluders[i];
+            if (o.getMinX() <= x0 && o.getMinY() <= y0 &&
+                o.getMaxX() >= x1 && o.getMaxY() >= y1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    void invalidateDisplayList() {
+        if (displayList != null) {
+            displayList.dispose();
+            displayList = null;
+        }
+        displayListCleanRenders = 0;
+        displayListFailed = false;
+    }
+
     @Override
     protected boolean hasOverlappingContents() {
         if (blendMode != Mode.SRC_OVER) {
@@ -449,6 +763,8 @@ public class NGGroup extends NGNode {
             BaseTransform tx,
             GeneralTransform3D pvTx) {
 
+        cullCandidatesValid = false;
+
         //set culling bits for this group first.
         super.markCullRegions(drc, cullingRegionsBitsOfParent, tx, pvTx);
 
@@ -475,19 +791,157 @@ public class NGGroup extends NGNode {
 
             NGNode child;
             List<NGNode> orderedChildren = getOrderedChildren();
-            for (int chldIdx = 0; chldIdx < orderedChildren.size(); chldIdx++) {
-                child = orderedChildren.get(chldIdx);
-                child.markCullRegions(
-                        drc,
-                        cullingBits,
-                        chTx,
-                        pvTx);
+            if (queryCullIndex(drc, chTx, pvTx, orderedChildren)) {
+                for (int chldIdx = cullCandidates.nextSetBit(0); chldIdx >= 0;
+                         chldIdx = cullCandidates.nextSetBit(chldIdx + 1)) {
+                    child = orderedChildren.get(chldIdx);
+                    child.markCullRegions(
+                            drc,
+                            cullingBits,
+                            chTx,
+                            pvTx);
+                }
+            } else {
+                for (int chldIdx = 0; chldIdx < orderedChildren.size(); chldIdx++) {
+                    child = orderedChildren.get(chldIdx);
+                    child.markCullRegions(
+                            drc,
+                            cullingBits,
+                            chTx,
+                            pvTx);
+                }
             }
             // restore previous transform state
             tx.restoreTransform(mxx, mxy, mxz, mxt, myx, myy, myz, myt, mzx, mzy, mzz, mzt);
         }
     }
 
+    private void invalidateCullIndex() {
+        if (cullIndex != null) {
+            cullIndexInvalid = true;
+            cullIndexUpdates.clear();
+        }
+        cullCandidatesValid = false;
+    }
+
+    /**
+     * Called by a child whenever its transformed bounds have changed.
+     */
+    void childTransformedBoundsChanged(NGNode child) {
+        if (cullIndex != null && !cullIndexInvalid) {
+            if (cullIndexUpdates.size() > (cullIndex.size() >> 2)) {
+                // Cheaper to rebuild than to move that many children
+                invalidateCullIndex();
+            } else {
+                cullIndexUpdates.add(child);
+            }
+        }
+    }
+
+    /**
+     * Brings the spatial index of the children up to date, creating or
+     * discarding it depending on the number of children.
+     *
+     * @return whether the index can be used
+     */
+    private boolean updateCullIndex(List<NGNode> orderedChildren) {
+        final int size = orderedChildren.size();
+        if (PrismSettings.spatialIndexThreshold <= 0 ||
+                size < PrismSettings.spatialIndexThreshold) {
+            cullIndex = null;
+            cullIndexPositions = null;
+            cullIndexUpdates = null;
+            return false;
+        }
+        if (cullIndex == null) {
+            cullIndex = new SpatialGrid();
+            cullIndexUpdates = new ArrayList<>();
+            cullIndexInvalid = true;
+        }
+        if (cullIndexInvalid) {
+            cullIndexPositions = new IdentityHashMap<>(size);
+            cullIndex.reset(size);
+            for (int i = 0; i < size; i++) {
+                final NGNode child = orderedChildren.get(i);
+                cullIndexPositions.put(child, i);
+                cullIndex.set(i, child.transformedBounds);
+            }
+            cullIndexInvalid = false;
+        } else {
+            for (int i = 0, max = cullIndexUpdates.size(); i < max; i++) {
+                final NGNode child = cullIndexUpdates.get(i);
+                final Integer index = cullIndexPositions.get(child);
+                if (index != null) {
+                    cullIndex.set(index, child.transformedBounds);
+                }
+            }
+        }
+        cullIndexUpdates.clear();
+        return true;
+    }
+
+    /**
+     * Uses the spatial index to find the children which intersect any of the
+     * dirty regions this group intersects, storing them in cullCandidates.
+     * The children which are not candidates are not visited by
+     * markCullRegions, so any dirty flags they have are cleared here.
+     *
+     * @return false if the index cannot be used and every child needs to be
+     * visited
+     */
+    private boolean queryCullIndex(DirtyRegionContainer drc, BaseTransform chTx,
+                                   GeneralTransform3D pvTx, List<NGNode> orderedChildren) {
+        if (!pvTx.isIdentity() || !chTx.is2D() || !updateCullIndex(orderedChildren)) {
+            return false;
+        }
+        final int size = orderedChildren.size();
+        if (cullCandidates == null) {
+            cullCandidates = new BitSet(size);
+        } else {
+            cullCandidates.clear();
+        }
+
+        int mask = 0x1;
+        for (int i = 0; i < drc.size(); i++) {
+            final RectBounds region = drc.getDirtyRegion(i);
+            if (region == null || region.isEmpty()) {
+                break;
+            }
+            if (cullingBits == -1 || (cullingBits & mask) != 0) {
+                // Map the dirty region into the coordinate space of the
+                // children, growing it a little to be robust against
+                // rounding differences with the tests done by the children
+                TEMP_QUERY_BOUNDS.setBounds(region.getMinX() - 1, region.getMinY() - 1,
+                                            region.getMaxX() + 1, region.getMaxY() + 1);
+                final BaseBounds local;
+                try {
+                    local = chTx.inverseTransform(TEMP_QUERY_BOUNDS, TEMP_QUERY_BOUNDS);
+                } catch (NoninvertibleTransformException e) {
+                    return false;
+                }
+                final int count = cullIndex.query(local.getMinX(), local.getMinY(),
+                                                  local.getMaxX(), local.getMaxY());
+                final int[] results = cullIndex.getResults();
+                for (int k = 0; k < count; k++) {
+                    cullCandidates.set(results[k]);
+                }
+            }
+            mask = mask << 2;
+        }
+
+        if (childDirty) {
+            for (int i = cullCandidates.nextClearBit(0); i < size;
+                     i = cullCandidates.nextClearBit(i + 1)) {
+                final NGNode child = orderedChildren.get(i);
+                if (child.dirty != DirtyFlag.CLEAN || child.childDirty) {
+                    child.clearDirtyTree();
+                }
+            }
+        }
+        cullCandidatesValid = true;
+        return true;
+    }
+
     @Override
     public void drawDirtyOpts(final BaseTransform tx, final GeneralTransform3D pvTx,
                               Rectangle clipBounds, int[] countBuffer, int dirtyRegionIndex) {
@@ -26,6 +26,7 @@
 package com.sun.javafx.sg.prism;
 
 import com.sun.javafx.geom.RectBounds;
+import com.sun.javafx.geom.Rectangle;
 import com.sun.prism.Graphics;
 import com.sun.prism.Image;
 import com.sun.prism.ResourceFactory;
@@ -34,12 +35,16 @@ import com.sun.prism.image.CachingCompoundImage;
 import com.sun.prism.image.CompoundCoords;
 import com.sun.prism.image.Coords;
 import com.sun.prism.image.ViewPort;
+import com.sun.prism.impl.ImageAtlas;
+import com.sun.prism.impl.PrismSettings;
 
 /**
  */
 
 public class NGImageView extends NGNode {
 
+    private static final Rectangle TEMP_TEXTURE_LOCATION = new Rectangle();
+
     private Image image;
     private CachingCompoundImage compoundImage;
     private CompoundCoords compoundCoords;
@@ -118,11 +123,21 @@ public class NGImageView extends NGNode {
         ResourceFactory factory = g.getResourceFactory();
         int maxSize = maxSizeWrapper(factory);
         if (imgW <= maxSize && imgH <= maxSize) {
-            Texture texture = factory.getCachedTexture(image, Texture.WrapMode.CLAMP_TO_EDGE);
+            Texture texture;
+            Rectangle loc = TEMP_TEXTURE_LOCATION;
+            if (coords == null || coords.isInside(imgW, imgH)) {
+                texture = ImageAtlas.getCachedTexture(factory, image, loc);
+            } else {
+                // The viewport relies on the clamping of the texture edges,
+                // which a shared texture does not provide
+                texture = factory.getCachedTexture(image, Texture.WrapMode.CLAMP_TO_EDGE);
+                loc.setBounds(0, 0, imgW, imgH);
+            }
             if (coords == null) {
-                g.drawTexture(texture, x, y, x + w, y + h, 0, 0, imgW, imgH);
+                g.drawTexture(texture, x, y, x + w, y + h,
+                              loc.x, loc.y, loc.x + imgW, loc.y + imgH);
             } else {
-                coords.draw(texture, g, x, y);
+                coords.draw(texture, g, x, y, loc.x, loc.y);
             }
             texture.unlock();
         } else {
@@ -140,6 +155,16 @@ public class NGImageView extends NGNode {
         return false;
     }
 
+    @Override
+    protected Object getBatchKey() {
+        if (image == null) {
+            return null;
+        }
+        // Small images likely share a page of the image atlas
+        return PrismSettings.imageAtlasSize > 0 && ImageAtlas.isCandidate(image)
+                ? ImageAtlas.class : image;
+    }
+
     public void setImage(Object img) {
         Image newImage = (Image)img;
 
@@ -221,6 +221,13 @@ public abstract class NGNode {
      */
     private EffectFilter effectFilter;
 
+    /**
+     * Incremented each time the cache of this node is invalidated, so that
+     * the output of the effect of this node can be reused for as long as it
+     * does not change.
+     */
+    private int renderRevision;
+
     /**
      * If this node is an NGGroup, then this flag will be used to indicate
      * whether one or more of its children is dirty. While it would seem this
@@ -340,6 +347,9 @@ public abstract class NGNode {
         if (hasVisuals() && !byTransformChangeOnly) {
             markDirty();
         }
+        if (parent instanceof NGGroup && !isClip) {
+            ((NGGroup) parent).childTransformedBoundsChanged(this);
+        }
     }
 
     /**
@@ -945,6 +955,8 @@ public abstract class NGNode {
         if (cacheFilter != null) {
             cacheFilter.invalidate();
         }
+        renderRevision++;
+        invalidateDisplayList();
     }
 
     /**
@@ -955,6 +967,24 @@ public abstract class NGNode {
         if (cacheFilter != null) {
             cacheFilter.invalidateByTranslation(hint.translateXDelta, hint.translateYDelta);
         }
+        renderRevision++;
+        invalidateDisplayList();
+    }
+
+    /**
+     * Returns a number which changes whenever the cache of this node is
+     * invalidated, that is whenever the content of this node or of any of
+     * its descendants may render differently.
+     */
+    final int getRenderRevision() {
+        return renderRevision;
+    }
+
+    /**
+     * Discards the retained display list of the content of this node, if it
+     * has one. Called whenever the cache is invalidated.
+     */
+    void invalidateDisplayList() {
     }
 
     /***************************************************************************
@@ -2388,6 +2418,28 @@ public abstract class NGNode {
 
     protected abstract boolean hasOverlappingContents();
 
+    /**
+     * Returns an object identifying the graphics state with which this node
+     * renders its content, such that siblings returning equal keys are likely
+     * to be drawn in the same batch, or null if unknown. Used by NGGroup to
+     * reorder the rendering of siblings which do not overlap.
+     */
+    protected Object getBatchKey() {
+        return null;
+    }
+
+    /**
+     * Returns the batch key of this node if its content is rendered directly,
+     * that is without an effect, a clip, a cache, a blend mode or an opacity.
+     */
+    final Object getSiblingBatchKey() {
+        if (effectFilter != null || cacheFilter != null || clipNode != null ||
+                nodeBlendMode != null || opacity < 1f) {
+            return null;
+        }
+        return getBatchKey();
+    }
+
     /***************************************************************************
      *                                                                         *
      *                       Static Helper Methods.                            *
@@ -69,6 +69,7 @@ import com.sun.prism.Graphics;
 import com.sun.prism.Image;
 import com.sun.prism.RTTexture;
 import com.sun.prism.Texture;
+import com.sun.prism.impl.ImageAtlas;
 import com.sun.prism.impl.PrismSettings;
 import com.sun.prism.paint.ImagePattern;
 import com.sun.prism.paint.Paint;
@@ -93,6 +94,7 @@ public class NGRegion extends NGGroup {
      * in this case.
      */
     private static final Rectangle TEMP_RECT = new Rectangle();
+    private static final Rectangle TEMP_TEXTURE_LOCATION = new Rectangle();
 
     /**
      * Screen to RegionImageCache mapping. This mapping is required as textures
@@ -612,7 +614,9 @@ public class NGRegion extends NGGroup {
             Rectangle rect = null;
             // RT-25013: We need to make sure that we do not use a cached image in the case of a
             // scaled region, or things won't look right (they'll looked scaled instead of vector-resized).
-            if (cacheMode != 0 && g.getTransformNoClone().isTranslateOrIdentity()) {
+            // The cache is rendered to when it is drawn, which cannot be deferred
+            if (cacheMode != 0 && g.getTransformNoClone().isTranslateOrIdentity() &&
+                    !DisplayList.isDeferring(g)) {
                 final RegionImageCache imageCache = getImageCache(g);
                 if (imageCache.isImageCachable(textureWidth, textureHeight)) {
                     final Integer key = getCacheKey(textureWidth, textureHeight);
@@ -805,7 +809,8 @@ public class NGRegion extends NGGroup {
         final boolean cache =
                 background.getFills().size() > 1 && // Not worth the overhead otherwise
                 cacheMode != 0 &&
-                g.getTransformNoClone().isTranslateOrIdentity();
+                g.getTransformNoClone().isTranslateOrIdentity() &&
+                !DisplayList.isDeferring(g);
         final int border = 1;
         RTTexture cached = null;
         Rectangle rect = null;
@@ -874,11 +879,12 @@ public class NGRegion extends NGGroup {
                     // fill the entire space, there is no need to know the repeat or position or
                     // size width / height.
                     final float scale = Math.max(width / imgWidth,height / imgHeight);
+                    final Rectangle loc = TEMP_TEXTURE_LOCATION;
                     final Texture texture =
-                        g.getResourceFactory().getCachedTexture(prismImage, Texture.WrapMode.CLAMP_TO_EDGE);
+                        ImageAtlas.getCachedTexture(g.getResourceFactory(), prismImage, loc);
                     g.drawTexture(texture,
                             0, 0, width, height,
-                            0, 0, width/scale, height/scale
+                            loc.x, loc.y, loc.x + width/scale, loc.y + height/scale
                     );
                     texture.unlock();
                 } else {
@@ -1970,8 +1976,9 @@ public class NGRegion extends NGGroup {
             }
 
             // paint loop
+            final Rectangle loc = TEMP_TEXTURE_LOCATION;
             final Texture texture =
-                g.getResourceFactory().getCachedTexture(img, Texture.WrapMode.CLAMP_TO_EDGE);
+                ImageAtlas.getCachedTexture(g.getResourceFactory(), img, loc);
             final int srcX2 = srcX + srcW;
             final int srcY2 = srcY + srcH;
             final float regionX2 = regionX + regionWidth;
@@ -2002,7 +2009,8 @@ public class NGRegion extends NGGroup {
                         float sx2 = dstX2 > regionX2 ? srcX2 - srcW * ((dstX2 - regionX2) / tileWidth) : srcX2;
                         float sy2 = dstY2 > regionY2 ? srcY2 - srcH * ((dstY2 - regionY2) / tileHeight) : srcY2;
 //                        System.out.println("g.drawTexture(texture, " + dx1 + ", " + dy1 + ", " + dx2 + ", " + dy2 + ", " + sx1 + ", " + sy1 + ", " + sx2 + ", " + sy2 + ")");
-                        g.drawTexture(texture, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2);
+                        g.drawTexture(texture, dx1, dy1, dx2, dy2,
+                                      loc.x + sx1, loc.y + sy1, loc.x + sx2, loc.y + sy2);
                     }
                     dstX += xIncrement;
                 }
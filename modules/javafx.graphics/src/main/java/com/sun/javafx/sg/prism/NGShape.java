@@ -36,6 +36,7 @@ import com.sun.prism.PrinterGraphics;
 import com.sun.prism.RTTexture;
 import com.sun.prism.Texture;
 import com.sun.prism.impl.PrismSettings;
+import com.sun.prism.paint.Color;
 import com.sun.prism.paint.Paint;
 import com.sun.prism.shape.ShapeRep;
 import static com.sun.prism.shape.ShapeRep.InvalidationType.LOCATION_AND_GEOMETRY;
@@ -306,6 +307,16 @@ public abstract class NGShape extends NGNode {
         return mode == Mode.STROKE_FILL;
     }
 
+    @Override
+    protected Object getBatchKey() {
+        // Solid colors are passed per vertex, so fills of the same kind of
+        // shape share their state whatever their color
+        if (mode == Mode.FILL && fillPaint instanceof Color) {
+            return getClass();
+        }
+        return null;
+    }
+
     protected Shape getStrokeShape() {
         return drawStroke.createStrokedShape(getShape());
     }
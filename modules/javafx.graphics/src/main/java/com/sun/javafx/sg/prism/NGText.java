@@ -224,6 +224,12 @@ public class NGText extends NGShape {
         }
     }
 
+    @Override
+    protected Object getBatchKey() {
+        // LCD text is composited through the LCD buffer one run at a time
+        return fontSmoothingType == FontResource.AA_LCD ? null : super.getBatchKey();
+    }
+
     private static int FILL        = 1 << 1;
     private static int SHAPE_FILL  = 1 << 2;
     private static int TEXT        = 1 << 3;
@@ -32,6 +32,7 @@ import javafx.scene.shape.PathElement;
 import com.sun.javafx.font.CharToGlyphMapper;
 import com.sun.javafx.font.FontResource;
 import com.sun.javafx.font.FontStrike;
+import com.sun.javafx.font.GlyphPrefetcher;
 import com.sun.javafx.font.Metrics;
 import com.sun.javafx.font.PGFont;
 import com.sun.javafx.font.PrismFontFactory;
@@ -64,6 +65,9 @@ public class PrismTextLayout implements TextLayout {
     private static int cacheSize = 0;
     private static final int MAX_STRING_SIZE = 256;
     private static final int MAX_CACHE_SIZE = PrismFontFactory.cacheLayoutSize;
+    private static final ShapingCache shapingCache =
+            PrismFontFactory.shapingCacheSize > 0 ?
+            new ShapingCache(PrismFontFactory.shapingCacheSize) : null;
 
     private char[] text;
     private TextSpan[] spans;   /* Rich text  (null for single font text) */
@@ -81,6 +85,32 @@ public class PrismTextLayout implements TextLayout {
     private Shape shape;
     private int flags;
 
+    /* The char offset up to which the text was read to break each line */
+    private int[] lineReach;
+
+    /* The range of chars mapped to glyphs when shaping into layoutCache,
+     * the other glyphs were copied from the layout of the previous text.
+     */
+    private int shapeStart, shapeEnd;
+    private Edit edit;
+
+    /* Keeps the layout of the previous text of a single font layout when
+     * setContent() changes only a part of it, so that layout() only
+     * shapes the edited range and breaks the lines from the first line
+     * affected by the edit.
+     */
+    private static final class Edit {
+        LayoutCache cache;  /* glyphs and advances of the previous text */
+        int start;          /* length of the common prefix */
+        int oldEnd;         /* start of the common suffix in the previous text */
+        int newEnd;         /* start of the common suffix in the new text */
+        TextLine[] lines;   /* null if the lines cannot be reused */
+        int[] lineReach;
+        float wrapWidth;
+        float spacing;
+        int breakFlags;     /* complex and CJK flags of the previous text */
+    }
+
     public PrismTextLayout() {
         logicalBounds = new RectBounds();
         flags = ALIGN_LEFT;
@@ -88,6 +118,7 @@ public class PrismTextLayout implements TextLayout {
 
     private void reset() {
         layoutCache = null;
+        edit = null;
         runs = null;
         flags &= ~ANALYSIS_MASK;
         relayout();
@@ -99,6 +130,7 @@ public class PrismTextLayout implements TextLayout {
         layoutWidth = layoutHeight = 0;
         flags &= ~(FLAGS_WRAPPED | FLAGS_CACHED_UNDERLINE | FLAGS_CACHED_STRIKETHROUGH);
         lines = null;
+        lineReach = null;
         shape = null;
     }
 
@@ -131,11 +163,13 @@ public class PrismTextLayout implements TextLayout {
     }
 
     public boolean setContent(String text, Object font) {
+        Edit edit = createEdit(text, (PGFont)font);
         reset();
         this.spans = null;
         this.font = (PGFont)font;
         this.strike = ((PGFont)font).getStrike(IDENTITY);
         this.text = text.toCharArray();
+        this.edit = edit;
         if (MAX_CACHE_SIZE > 0) {
             int length = text.length();
             if (0 < length && length <= MAX_STRING_SIZE) {
@@ -145,6 +179,55 @@ public class PrismTextLayout implements TextLayout {
         return true;
     }
 
+    private Edit createEdit(String newText, PGFont newFont) {
+        /* Only the simple layout of single font text keeps the glyphs */
+        LayoutCache cache = layoutCache;
+        if (spans != null || font == null || !font.equals(newFont)) return null;
+        if (cache == null || !cache.valid || text == null) return null;
+
+        char[] oldText = text;
+        int oldLength = oldText.length;
+        int newLength = newText.length();
+        int max = Math.min(oldLength, newLength);
+        int start = 0;
+        while (start < max && oldText[start] == newText.charAt(start)) {
+            start++;
+        }
+        int suffix = 0;
+        while (suffix < max - start &&
+               oldText[oldLength - 1 - suffix] == newText.charAt(newLength - 1 - suffix)) {
+            suffix++;
+        }
+        /* The glyph of a surrogate pair is mapped from both chars */
+        if (start > 0 && Character.isHighSurrogate(oldText[start - 1])) {
+            start--;
+        }
+        if (suffix > 0 && Character.isLowSurrogate(oldText[oldLength - suffix])) {
+            suffix--;
+        }
+        if (start == 0 && suffix == 0) return null;
+
+        Edit edit = new Edit();
+        edit.cache = cache;
+        edit.start = start;
+        edit.oldEnd = oldLength - suffix;
+        edit.newEnd = newLength - suffix;
+
+        /* The runs of the lines are rebound to the new glyphs, which is
+         * not possible when the layout is shared through the string cache.
+         * Only left aligned lines stay in place when other lines change.
+         */
+        if (lines != null && lineReach != null && cache.text == null &&
+            (flags & ALIGN_MASK) == ALIGN_LEFT && !isMirrored()) {
+            edit.lines = lines;
+            edit.lineReach = lineReach;
+            edit.wrapWidth = wrapWidth;
+            edit.spacing = spacing;
+            edit.breakFlags = flags & (FLAGS_HAS_COMPLEX | FLAGS_HAS_CJK);
+        }
+        return edit;
+    }
+
     public boolean setDirection(int direction) {
         if ((flags & DIRECTION_MASK) == direction) return false;
         flags &= ~DIRECTION_MASK;
@@ -832,7 +915,12 @@ public class PrismTextLayout implements TextLayout {
         if (run.getGlyphCount() > 0) return;
         if (run.isComplex()) {
             /* Use GlyphLayout to shape complex text */
-            layout.layout(run, font, strike, chars);
+            if (shapingCache == null || !shapingCache.shape(run, font, chars)) {
+                layout.layout(run, font, strike, chars);
+                if (shapingCache != null) {
+                    shapingCache.put(run, font, chars);
+                }
+            }
         } else {
             FontResource fr = strike.getFontResource();
             int start = run.getStart();
@@ -840,6 +928,9 @@ public class PrismTextLayout implements TextLayout {
 
             /* No glyph layout required */
             if (layoutCache == null) {
+                if (shapingCache != null && shapingCache.shape(run, font, chars)) {
+                    return;
+                }
                 float fontSize = strike.getSize();
                 CharToGlyphMapper mapper  = fr.getGlyphMapper();
 
@@ -856,6 +947,9 @@ public class PrismTextLayout implements TextLayout {
                 }
                 positions[length<<1] = xadvance;
                 run.shape(length, glyphs, positions, null);
+                if (shapingCache != null) {
+                    shapingCache.put(run, font, chars);
+                }
             } else {
 
                 /* The text only contains non-complex runs, all the glyphs and
@@ -863,13 +957,20 @@ public class PrismTextLayout implements TextLayout {
                 if (!layoutCache.valid) {
                     float fontSize = strike.getSize();
                     CharToGlyphMapper mapper  = fr.getGlyphMapper();
-                    mapper.charsToGlyphs(start, length, chars, layoutCache.glyphs, start);
                     int end = start + length;
+                    int mapStart = Math.max(start, shapeStart);
+                    int mapEnd = Math.min(end, shapeEnd);
+                    if (mapStart < mapEnd) {
+                        mapper.charsToGlyphs(mapStart, mapEnd - mapStart, chars,
+                                             layoutCache.glyphs, mapStart);
+                        for (int i = mapStart; i < mapEnd; i++) {
+                            layoutCache.advances[i] =
+                                fr.getAdvance(layoutCache.glyphs[i], fontSize);
+                        }
+                    }
                     float width = 0;
                     for (int i = start; i < end; i++) {
-                        float adv = fr.getAdvance(layoutCache.glyphs[i], fontSize);
-                        layoutCache.advances[i] = adv;
-                        width += adv;
+                        width += layoutCache.advances[i];
                     }
                     run.setWidth(width);
                 }
@@ -1007,7 +1108,93 @@ public class PrismTextLayout implements TextLayout {
         return 8 * spaceAdvance;
     }
 
+    /* Copies the glyphs and advances of the text outside of the edited
+     * range from the layout of the previous text.
+     */
+    private void reuseGlyphs(Edit edit, int length) {
+        LayoutCache old = edit.cache;
+        int suffix = length - edit.newEnd;
+        System.arraycopy(old.glyphs, 0, layoutCache.glyphs, 0, edit.start);
+        System.arraycopy(old.advances, 0, layoutCache.advances, 0, edit.start);
+        System.arraycopy(old.glyphs, edit.oldEnd, layoutCache.glyphs, edit.newEnd, suffix);
+        System.arraycopy(old.advances, edit.oldEnd, layoutCache.advances, edit.newEnd, suffix);
+        shapeStart = edit.start;
+        shapeEnd = edit.newEnd;
+    }
+
+    /* Puts the lines of the previous text which do not depend on the
+     * edited range in front of the new lines, and their runs in front of
+     * the runs of the text following them. Returns the number of lines
+     * reused.
+     */
+    private int reuseLines(Edit edit, char[] chars, ArrayList<TextLine> linesList) {
+        if (edit.lines == null) return 0;
+        if (wrapWidth != edit.wrapWidth || spacing != edit.spacing) return 0;
+        if ((flags & ALIGN_MASK) != ALIGN_LEFT || isMirrored()) return 0;
+        /* The break iterator may look at any char of the text, and breaks
+         * the lines elsewhere than at whitespace.
+         */
+        if ((flags & FLAGS_HAS_CJK) != 0 || edit.breakFlags != 0) return 0;
+
+        TextLine[] oldLines = edit.lines;
+        int count = 0;
+        /* The last line is always laid out again */
+        while (count < oldLines.length - 1 && edit.lineReach[count] <= edit.start) {
+            count++;
+        }
+        if (count == 0) return 0;
+        TextLine lastLine = oldLines[count - 1];
+        int resumeOffset = lastLine.getStart() + lastLine.getLength();
+
+        int first = 0;
+        while (first < runCount && runs[first].getEnd() <= resumeOffset) {
+            first++;
+        }
+        if (first == runCount) return 0;
+        TextRun run = runs[first];
+        if (run.getStart() < resumeOffset) {
+            if (run.isTab() || run.isLinebreak()) return 0;
+            /* The previous layout had wrapped the run there */
+            shape(run, chars, null);
+            run = run.split(resumeOffset - run.getStart());
+        }
+
+        int reusedRuns = 0;
+        for (int i = 0; i < count; i++) {
+            reusedRuns += oldLines[i].getRuns().length;
+        }
+        TextRun[] newRuns = new TextRun[reusedRuns + runCount - first];
+        int index = 0;
+        for (int i = 0; i < count; i++) {
+            TextLine line = oldLines[i];
+            TextRun[] lineRuns = line.getRuns();
+            for (int j = 0; j < lineRuns.length; j++) {
+                TextRun lineRun = lineRuns[j];
+                int glyphCount = lineRun.getGlyphCount();
+                if (glyphCount > 0) {
+                    /* Same glyphs, in the arrays of the new text */
+                    lineRun.shape(glyphCount, layoutCache.glyphs, layoutCache.advances);
+                }
+                newRuns[index++] = lineRun;
+            }
+            if (lineRuns.length > 0 && lineRuns[lineRuns.length - 1].isSoftbreak()) {
+                flags |= FLAGS_WRAPPED;
+            }
+            float width = line.getBounds().getWidth();
+            if (width > layoutWidth) layoutWidth = width;
+            linesList.add(line);
+        }
+        newRuns[index++] = run;
+        System.arraycopy(runs, first + 1, newRuns, index, runCount - first - 1);
+        runs = newRuns;
+        runCount = newRuns.length;
+        return count;
+    }
+
     private void layout() {
+        Edit edit = this.edit;
+        this.edit = null;
+
         /* Try the cache */
         initCache();
 
@@ -1046,11 +1233,24 @@ public class PrismTextLayout implements TextLayout {
          * The simple case is no bidi, no complex, no justify, no features.
          */
 
+        int reusedLines = 0;
+        int[] reach = new int[16];
+        ArrayList<TextLine> linesList = new ArrayList<TextLine>();
         if (isSimpleLayout()) {
             if (layoutCache == null) {
                 layoutCache = new LayoutCache();
                 layoutCache.glyphs = new int[chars.length];
                 layoutCache.advances = new float[chars.length];
+                shapeStart = 0;
+                shapeEnd = chars.length;
+                if (edit != null) {
+                    reuseGlyphs(edit, chars.length);
+                    reusedLines = reuseLines(edit, chars, linesList);
+                    if (reusedLines > reach.length) {
+                        reach = new int[reusedLines + 16];
+                    }
+                    System.arraycopy(edit.lineReach, 0, reach, 0, reusedLines);
+                }
             }
         } else {
             layoutCache = null;
@@ -1059,8 +1259,13 @@ public class PrismTextLayout implements TextLayout {
         float lineWidth = 0;
         int startIndex = 0;
         int startOffset = 0;
-        ArrayList<TextLine> linesList = new ArrayList<TextLine>();
-        for (int i = 0; i < runCount; i++) {
+        int lineReachOffset = 0;
+        for (int i = 0; i < reusedLines; i++) {
+            TextLine line = linesList.get(i);
+            startIndex += line.getRuns().length;
+            startOffset += line.getLength();
+        }
+        for (int i = startIndex; i < runCount; i++) {
             TextRun run = runs[i];
             shape(run, chars, layout);
             if (run.isTab()) {
@@ -1074,6 +1279,11 @@ public class PrismTextLayout implements TextLayout {
                 /* Find offset of the first character that does not fit on the line */
                 int hitOffset = run.getStart() + run.getWrapIndex(wrapWidth - lineWidth);
 
+                /* The chars up to the one after the hit offset are read
+                 * to find the break (see reuseLines()).
+                 */
+                lineReachOffset = Math.max(lineReachOffset, hitOffset + 2);
+
                 /* Only keep whitespaces (not tabs) in the current run to avoid
                  * dealing with unshaped runs.
                  */
@@ -1182,14 +1392,24 @@ public class PrismTextLayout implements TextLayout {
             lineWidth += runWidth;
             if (run.isBreak()) {
                 TextLine line = createLine(startIndex, i, startOffset);
+                if (linesList.size() == reach.length) {
+                    reach = Arrays.copyOf(reach, reach.length * 2);
+                }
+                reach[linesList.size()] = Math.max(lineReachOffset,
+                                                   startOffset + line.getLength());
                 linesList.add(line);
                 startIndex = i + 1;
                 startOffset += line.getLength();
                 lineWidth = 0;
+                lineReachOffset = 0;
             }
         }
         if (layout != null) layout.dispose();
 
+        if (linesList.size() == reach.length) {
+            reach = Arrays.copyOf(reach, reach.length + 1);
+        }
+        reach[linesList.size()] = chars.length;
         linesList.add(createLine(startIndex, runCount - 1, startOffset));
         lines = new TextLine[linesList.size()];
         linesList.toArray(lines);
@@ -1210,6 +1430,12 @@ public class PrismTextLayout implements TextLayout {
             int lineStart = line.getStart();
             RectBounds bounds = line.getBounds();
 
+            /* Reused lines are left aligned and never the last line */
+            if (i < reusedLines) {
+                lineY = Math.max(lineY, lineY + bounds.getHeight() + spacing);
+                continue;
+            }
+
             /* Center and right alignment */
             float lineX = (fullWidth - bounds.getWidth()) * align;
             line.setAlignment(lineX);
@@ -1304,6 +1530,32 @@ public class PrismTextLayout implements TextLayout {
             }
             layoutCache.valid = true;
         }
+        lineReach = reach;
+
+        if (GlyphPrefetcher.isEnabled()) {
+            prefetchGlyphs();
+        }
+    }
+
+    private void prefetchGlyphs() {
+        for (int i = 0; i < runCount; i++) {
+            TextRun run = runs[i];
+            int count = run.getGlyphCount();
+            if (count == 0 || run.isTab() || run.isLinebreak()) continue;
+            PGFont runFont = font;
+            int aaMode = FontResource.AA_GREYSCALE;
+            if (spans != null) {
+                runFont = (PGFont)run.getTextSpan().getFont();
+                if (runFont == null) continue;
+            } else {
+                aaMode = strike.getAAMode();
+            }
+            int[] glyphs = new int[count];
+            for (int j = 0; j < count; j++) {
+                glyphs[j] = run.getGlyphCode(j);
+            }
+            GlyphPrefetcher.prefetch(runFont, aaMode, glyphs);
+        }
     }
 
     @Override
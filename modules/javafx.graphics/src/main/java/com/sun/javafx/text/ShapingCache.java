@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.text;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import com.sun.javafx.font.PGFont;
+import com.sun.javafx.logging.PulseLogger;
+import static com.sun.javafx.logging.PulseLogger.PULSE_LOGGING_ENABLED;
+
+/**
+ * A bounded cache of shaping results shared by all text layouts.
+ *
+ * Many text nodes (table cells, labels) show the same strings in the same
+ * font over and over, and every layout would otherwise run the glyph layout
+ * engine again for each of its runs. This cache keeps the glyphs, positions
+ * and char indices produced for a run keyed by the run text, font, font
+ * features, bidi level, script and font slot, and hands them to other runs
+ * with the same key.
+ *
+ * The cache is bounded by the total number of glyphs it holds and evicts the
+ * least recently used runs first. It is safe to use from multiple threads.
+ */
+public final class ShapingCache {
+
+    /* Runs longer than this are not worth caching */
+    static final int MAX_RUN_LENGTH = 256;
+
+    private static final class Key {
+        final char[] text;
+        final PGFont font;
+        final int features;
+        final byte level;
+        final int script;
+        final int slot;
+        final int hash;
+
+        Key(TextRun run, PGFont font, char[] chars) {
+            int start = run.getStart();
+            this.text = Arrays.copyOfRange(chars, start, start + run.getLength());
+            this.font = font;
+            this.features = font.getFeatures();
+            this.level = run.getLevel();
+            this.script = run.getScript();
+            this.slot = run.getSlot();
+            int h = Arrays.hashCode(text);
+            h = 31 * h + font.hashCode();
+            h = 31 * h + features;
+            h = 31 * h + level;
+            h = 31 * h + script;
+            h = 31 * h + slot;
+            this.hash = h;
+        }
+
+        @Override public int hashCode() {
+            return hash;
+        }
+
+        @Override public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key)obj;
+            return hash == other.hash &&
+                   level == other.level &&
+                   script == other.script &&
+                   slot == other.slot &&
+                   features == other.features &&
+                   font.equals(other.font) &&
+                   Arrays.equals(text, other.text);
+        }
+    }
+
+    /* All the arrays are immutable once the entry is in the cache */
+    private static final class Entry {
+        final int glyphCount;
+        final int[] glyphs;
+        final float[] positions;
+        final int[] indices;
+
+        Entry(int glyphCount, int[] glyphs, float[] positions, int[] indices) {
+            this.glyphCount = glyphCount;
+            this.glyphs = glyphs;
+            this.positions = positions;
+            this.indices = indices;
+        }
+    }
+
+    private final int maxGlyphs;
+    private final LinkedHashMap<Key, Entry> map =
+            new LinkedHashMap<>(64, 0.75f, true);
+    private int glyphCount;
+    private long hits, misses;
+
+    public ShapingCache(int maxGlyphs) {
+        this.maxGlyphs = maxGlyphs;
+    }
+
+    private static boolean isCacheable(TextRun run, PGFont font) {
+        return font != null && run.getLength() > 0 &&
+               run.getLength() <= MAX_RUN_LENGTH;
+    }
+
+    /**
+     * Shapes the run using a cached result.
+     *
+     * @return true if the run was shaped, false if the caller needs to shape
+     * the run and offer the result with {@link #put}
+     */
+    public boolean shape(TextRun run, PGFont font, char[] chars) {
+        if (!isCacheable(run, font)) return false;
+        Key key = new Key(run, font, chars);
+        Entry entry;
+        synchronized (this) {
+            entry = map.get(key);
+            if (entry != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        if (PULSE_LOGGING_ENABLED) {
+            PulseLogger.incrementCounter(entry != null ? "Text shaping cache hit"
+                                                       : "Text shaping cache miss");
+        }
+        if (entry == null) return false;
+
+        /* The positions are modified in place by justify */
+        run.shape(entry.glyphCount, entry.glyphs, entry.positions.clone(),
+                  entry.indices);
+        return true;
+    }
+
+    /**
+     * Stores the glyphs and positions of a freshly shaped run.
+     */
+    public void put(TextRun run, PGFont font, char[] chars) {
+        if (!isCacheable(run, font)) return;
+        if (run.positions == null || (run.flags & TextRun.FLAGS_COMPACT) != 0) {
+            /* Not shaped, or shaped into arrays shared with other runs */
+            return;
+        }
+        int count = run.getGlyphCount();
+        if (count > maxGlyphs) return;
+        Entry entry = new Entry(count, run.gids, run.positions.clone(),
+                                run.charIndices);
+        Key key = new Key(run, font, chars);
+        synchronized (this) {
+            Entry old = map.put(key, entry);
+            if (old != null) {
+                glyphCount -= old.glyphCount;
+            }
+            glyphCount += count;
+            Iterator<Entry> it = map.values().iterator();
+            while (glyphCount > maxGlyphs && it.hasNext()) {
+                glyphCount -= it.next().glyphCount;
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        glyphCount = 0;
+    }
+
+    /**
+     * Returns the number of runs in the cache.
+     */
+    public synchronized int size() {
+        return map.size();
+    }
+
+    /**
+     * Returns the number of glyphs held by all the runs in the cache.
+     */
+    public synchronized int getGlyphCount() {
+        return glyphCount;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the fraction of lookups that were served by the cache.
+     */
+    public synchronized float getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (float)hits / total;
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.tk.quantum;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import com.sun.javafx.logging.PulseLogger;
+import com.sun.prism.impl.PrismSettings;
+
+import static com.sun.javafx.logging.PulseLogger.PULSE_LOGGING_ENABLED;
+
+/**
+ * Keeps the images decoded from a URL, so that an image loaded again with
+ * the same URL and loading parameters reuses the decoded frames instead of
+ * decoding the file again. The cache is bounded by the number of bytes of
+ * the decoded frames and evicts the least recently used images first.
+ *
+ * Only images loaded from files, directly or from a jar file, are cached,
+ * keyed by the modification time of the file so that a file rewritten
+ * in place is decoded again. The content behind other URLs can change
+ * without notice, so they are always loaded.
+ */
+final class DecodedImageCache {
+
+    private static DecodedImageCache instance;
+
+    private final long maxSize;
+    private final LinkedHashMap<Key, PrismImageLoader2> loaders =
+        new LinkedHashMap<Key, PrismImageLoader2>(16, 0.75f, true);
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    static final class Key {
+        private final String url;
+        private final long lastModified;
+        private final double width;
+        private final double height;
+        private final boolean preserveRatio;
+        private final float pixelScale;
+        private final boolean smooth;
+
+        private Key(String url, long lastModified, double width, double height,
+                    boolean preserveRatio, float pixelScale, boolean smooth)
+        {
+            this.url = url;
+            this.lastModified = lastModified;
+            this.width = width;
+            this.height = height;
+            this.preserveRatio = preserveRatio;
+            this.pixelScale = pixelScale;
+            this.smooth = smooth;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return url.equals(other.url) &&
+                   lastModified == other.lastModified &&
+                   width == other.width &&
+                   height == other.height &&
+                   preserveRatio == other.preserveRatio &&
+                   pixelScale == other.pixelScale &&
+                   smooth == other.smooth;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = url.hashCode();
+            hash = 31 * hash + Long.hashCode(lastModified);
+            hash = 31 * hash + Double.hashCode(width);
+            hash = 31 * hash + Double.hashCode(height);
+            hash = 31 * hash + Float.hashCode(pixelScale);
+            hash = 31 * hash + (preserveRatio ? 1 : 0);
+            hash = 31 * hash + (smooth ? 1 : 0);
+            return hash;
+        }
+    }
+
+    /**
+     * Returns the key of the images loaded from the given URL with the
+     * given parameters, or null if the images of the URL are not cached.
+     */
+    static Key createKey(String url, double width, double height,
+                         boolean preserveRatio, float pixelScale,
+                         boolean smooth)
+    {
+        long lastModified = getLastModified(url);
+        if (lastModified < 0) {
+            return null;
+        }
+        return new Key(url, lastModified, width, height, preserveRatio,
+                       pixelScale, smooth);
+    }
+
+    /*
+     * Returns the modification time of the file the URL is read from, or -1
+     * if the URL is not a file: URL or a jar: URL of an entry of a file.
+     */
+    private static long getLastModified(String url) {
+        if (url.startsWith("jar:")) {
+            int sep = url.indexOf("!/");
+            if (sep < 0) {
+                return -1;
+            }
+            url = url.substring(4, sep);
+        }
+        if (!url.startsWith("file:")) {
+            return -1;
+        }
+        try {
+            return new File(new URI(url)).lastModified();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    DecodedImageCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cache shared by all the images, or null if the cache is
+     * disabled. The cache is not used under a security manager, since a hit
+     * would hand out the pixels without the URL being accessed by the
+     * caller.
+     */
+    static synchronized DecodedImageCache getInstance() {
+        if (PrismSettings.decodedImageCacheSize <= 0 ||
+            System.getSecurityManager() != null)
+        {
+            return null;
+        }
+        if (instance == null) {
+            instance = new DecodedImageCache(
+                    PrismSettings.decodedImageCacheSize * 1024L * 1024L);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the loader of the given URL, from the cache if the same URL
+     * was already loaded with the same parameters and has not changed.
+     */
+    PrismImageLoader2 load(String url, double width, double height,
+                           boolean preserveRatio, float pixelScale,
+                           boolean smooth)
+    {
+        Key key = createKey(url, width, height, preserveRatio, pixelScale,
+                            smooth);
+        if (key == null) {
+            return new PrismImageLoader2(url, width, height, preserveRatio,
+                                         pixelScale, smooth);
+        }
+        PrismImageLoader2 loader = get(key);
+        if (loader == null) {
+            loader = new PrismImageLoader2(url, width, height, preserveRatio,
+                                           pixelScale, smooth);
+            put(key, loader);
+        }
+        return loader;
+    }
+
+    /**
+     * Returns the loader holding the images decoded for the given key, or
+     * null if they are not in the cache.
+     */
+    synchronized PrismImageLoader2 get(Key key) {
+        PrismImageLoader2 loader = loaders.get(key);
+        if (loader != null) {
+            hitCount++;
+            if (PULSE_LOGGING_ENABLED) {
+                PulseLogger.incrementCounter("Decoded image cache hit");
+            }
+        } else {
+            missCount++;
+            if (PULSE_LOGGING_ENABLED) {
+                PulseLogger.incrementCounter("Decoded image cache miss");
+            }
+        }
+        return loader;
+    }
+
+    /**
+     * Adds the images of a loader to the cache, evicting the least recently
+     * used ones to make room. Loaders which failed, animations decoded on
+     * demand and images larger than the whole cache are not kept.
+     */
+    synchronized void put(Key key, PrismImageLoader2 loader) {
+        if (loader.getException() != null || loader.getFrameCount() == 0 ||
+            loader.isDecodedOnDemand())
+        {
+            // loaders decoding frames on demand cannot be shared
+            return;
+        }
+        long loaderSize = loader.getByteSize();
+        if (loaderSize > maxSize) {
+            return;
+        }
+        PrismImageLoader2 old = loaders.put(key, loader);
+        if (old != null) {
+            size -= old.getByteSize();
+        }
+        size += loaderSize;
+        Iterator<Map.Entry<Key, PrismImageLoader2>> it =
+            loaders.entrySet().iterator();
+        while (size > maxSize && it.hasNext()) {
+            Map.Entry<Key, PrismImageLoader2> eldest = it.next();
+            if (eldest.getValue() == loader) {
+                continue;
+            }
+            size -= eldest.getValue().getByteSize();
+            it.remove();
+            evictionCount++;
+        }
+    }
+
+    synchronized void clear() {
+        loaders.clear();
+        size = 0;
+    }
+
+    synchronized long getSize() {
+        return size;
+    }
+
+    synchronized int getImageCount() {
+        return loaders.size();
+    }
+
+    synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    synchronized long getMissCount() {
+        return missCount;
+    }
+
+    synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+}
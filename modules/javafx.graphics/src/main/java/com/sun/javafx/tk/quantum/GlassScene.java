@@ -35,6 +35,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import com.sun.glass.ui.Clipboard;
 import com.sun.glass.ui.ClipboardAssistance;
 import com.sun.glass.ui.View;
+import com.sun.javafx.logging.PulseLogger;
 import com.sun.javafx.sg.prism.NGCamera;
 import com.sun.javafx.sg.prism.NGLightBase;
 import com.sun.javafx.sg.prism.NGNode;
@@ -49,6 +50,8 @@ import com.sun.prism.impl.PrismSettings;
 import com.sun.prism.paint.Color;
 import com.sun.prism.paint.Paint;
 
+import static com.sun.javafx.logging.PulseLogger.PULSE_LOGGING_ENABLED;
+
 abstract class GlassScene implements TKScene {
 
     private GlassStage stage;
@@ -119,12 +122,23 @@ abstract class GlassScene implements TKScene {
     }
 
     public void waitForRenderingToComplete() {
-        PaintCollector.getInstance().waitForRenderingToComplete();
+        // When synchronizing concurrently, the render lock acquired in
+        // waitForSynchronization is all that is needed to keep the render
+        // graph consistent. The previous frame may still be presenting;
+        // PaintCollector.renderAll waits for it before scheduling a new one.
+        if (!QuantumToolkit.concurrentSync) {
+            PaintCollector.getInstance().waitForRenderingToComplete();
+        }
     }
 
     @Override
     public void waitForSynchronization() {
         ViewPainter.renderLock.lock();
+        if (PULSE_LOGGING_ENABLED && QuantumToolkit.concurrentSync) {
+            if (PaintCollector.getInstance().isRendering()) {
+                PulseLogger.incrementCounter("Synchronized while rendering previous frame");
+            }
+        }
     }
 
     @Override
@@ -274,7 +288,11 @@ abstract class GlassScene implements TKScene {
 
     final void updateSceneState() {
         // should only be called on the event thread
-        sceneState.update();
+        if (QuantumToolkit.concurrentSync) {
+            ViewPainter.runWithPresentLock(sceneState::update);
+        } else {
+            sceneState.update();
+        }
     }
 
     protected View getPlatformView() {
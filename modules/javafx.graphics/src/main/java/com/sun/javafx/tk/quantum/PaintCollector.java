@@ -168,6 +168,16 @@ final class PaintCollector implements CompletionListener {
         }
     }
 
+    /**
+     * Gets whether any scene submitted by the last call to renderAll is still
+     * being rendered or presented. May be called from any thread.
+     *
+     * @return Whether rendering of the previous frame is still in progress.
+     */
+    final boolean isRendering() {
+        return allWorkCompletedLatch.getCount() > 0;
+    }
+
     /**
      * Gets whether there are any dirty scenes that need to be rendered. If
      * true, then a subsequent pulse event and renderAll call is required.
@@ -360,6 +370,16 @@ final class PaintCollector implements CompletionListener {
         // then we want to process them first.
         Collections.sort(dirtyScenes, DIRTY_SCENE_SORTER);
 
+        // When scenes are synchronized concurrently with rendering, the
+        // previous frame may still be presenting. It must be finished before
+        // the completion latch is replaced below.
+        if (QuantumToolkit.concurrentSync) {
+            if (PULSE_LOGGING_ENABLED) {
+                PulseLogger.newPhase("Waiting for previous presentation");
+            }
+            waitForRenderingToComplete();
+        }
+
         // Reset the fields
         hasDirty = false;
         needsHint = false;
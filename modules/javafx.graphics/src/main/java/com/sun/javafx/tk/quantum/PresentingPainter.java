@@ -44,6 +44,8 @@ final class PresentingPainter extends ViewPainter {
     @Override public void run() {
         renderLock.lock();
 
+        boolean renderLocked = true;
+        boolean presentLocked = false;
         boolean locked = false;
         boolean valid = false;
         boolean errored = false;
@@ -101,6 +103,24 @@ final class PresentingPainter extends ViewPainter {
                     return;
                 }
 
+                /*
+                 * The render graph is no longer accessed past this point, so
+                 * the FX thread may start synchronizing the next pulse while
+                 * this frame is presented (and possibly blocks on vsync).
+                 * From here on only the presentable, which belongs to this
+                 * painter, the scene state and the view are used; the present
+                 * lock keeps the FX thread from updating the scene state or
+                 * closing the view until the view is unlocked below. What
+                 * remains in the finally block is either thread safe
+                 * (entireSceneNeedsRepaint, setPainting) or only ever used on
+                 * the render thread (Disposer, the texture resource pool).
+                 */
+                if (QuantumToolkit.concurrentSync) {
+                    releaseRenderLockForPresent();
+                    renderLocked = false;
+                    presentLocked = true;
+                }
+
                 /* present for vsync buffer swap */
                 if (vs.getDoPresent()) {
                     if (!presentable.present()) {
@@ -118,6 +138,9 @@ final class PresentingPainter extends ViewPainter {
             if (locked) {
                 sceneState.unlock();
             }
+            if (presentLocked) {
+                presentCompleted();
+            }
 
             ViewScene viewScene = (ViewScene)sceneState.getScene();
             viewScene.setPainting(false);
@@ -126,7 +149,9 @@ final class PresentingPainter extends ViewPainter {
                 factory.getTextureResourcePool().freeDisposalRequestedAndCheckResources(errored);
             }
 
-            renderLock.unlock();
+            if (renderLocked) {
+                renderLock.unlock();
+            }
         }
     }
 }
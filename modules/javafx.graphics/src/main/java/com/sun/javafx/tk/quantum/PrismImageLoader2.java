@@ -28,6 +28,7 @@ package com.sun.javafx.tk.quantum;
 import java.io.IOException;
 import java.io.InputStream;
 
+import com.sun.javafx.iio.AnimatedImageDecoder;
 import com.sun.javafx.iio.ImageFrame;
 import com.sun.javafx.iio.ImageLoadListener;
 import com.sun.javafx.iio.ImageLoader;
@@ -63,6 +64,11 @@ class PrismImageLoader2 implements com.sun.javafx.tk.ImageLoader {
     private double height;
     private float pixelScale;
     private Exception exception;
+    // decodes the frames of long animations on demand, only the first frame
+    // and the last one asked for are kept in images, the frame after the
+    // last one is decoded in the background
+    private AnimatedImageDecoder decoder;
+    private int decodedIndex;
 
     public PrismImageLoader2(String url, double width, double height,
                              boolean preserveRatio, float pixelScale,
@@ -77,6 +83,23 @@ class PrismImageLoader2 implements com.sun.javafx.tk.ImageLoader {
         loadAll(stream, width, height, preserveRatio, smooth);
     }
 
+    /**
+     * Returns the loader of the given URL, reusing the images decoded by an
+     * earlier load with the same parameters when the decoded image cache
+     * is enabled.
+     */
+    static PrismImageLoader2 load(String url, double width, double height,
+                                  boolean preserveRatio, float pixelScale,
+                                  boolean smooth)
+    {
+        DecodedImageCache cache = DecodedImageCache.getInstance();
+        if (cache == null) {
+            return new PrismImageLoader2(url, width, height, preserveRatio,
+                                         pixelScale, smooth);
+        }
+        return cache.load(url, width, height, preserveRatio, pixelScale, smooth);
+    }
+
     public double getWidth() {
         return width;
     }
@@ -96,9 +119,40 @@ class PrismImageLoader2 implements com.sun.javafx.tk.ImageLoader {
         if (images == null) {
             return null;
         }
+        if (images[index] == null) {
+            decodeFrame(index);
+            // decode the next frame while this one is shown
+            decoder.prefetch(index + 1);
+        }
         return images[index];
     }
 
+    private void decodeFrame(int index) {
+        Image image;
+        try {
+            image = Image.convertImageFrame(decoder.getFrame(index));
+        } catch (ImageStorageException e) {
+            if (PrismSettings.verbose) {
+                e.printStackTrace(System.err);
+            }
+            // keep showing the previous frame
+            image = images[decodedIndex];
+        }
+        if (decodedIndex != 0) {
+            images[decodedIndex] = null;
+        }
+        images[index] = image;
+        decodedIndex = index;
+    }
+
+    /**
+     * Returns whether the frames of this animated image are decoded when
+     * they are shown rather than all kept in memory.
+     */
+    boolean isDecodedOnDemand() {
+        return decoder != null;
+    }
+
     public int getFrameDelay(int index) {
         if (images == null) {
             return 0;
@@ -117,12 +171,33 @@ class PrismImageLoader2 implements com.sun.javafx.tk.ImageLoader {
         return exception;
     }
 
+    /**
+     * Returns the number of bytes of the pixels of all the frames.
+     */
+    long getByteSize() {
+        long byteSize = 0;
+        if (images != null) {
+            for (Image image : images) {
+                if (image != null) {
+                    byteSize += (long) image.getScanlineStride() * image.getHeight();
+                }
+            }
+        }
+        return byteSize;
+    }
+
     private void loadAll(String url, double w, double h,
                          boolean preserveRatio, float pixelScale,
                          boolean smooth)
     {
         ImageLoadListener listener = new PrismLoadListener();
         try {
+            if (PrismSettings.animatedImageFrames > 0) {
+                initialize(AnimatedImageDecoder.load(url, listener, w, h,
+                        preserveRatio, pixelScale, smooth,
+                        PrismSettings.animatedImageFrames));
+                return;
+            }
             ImageFrame[] imgFrames =
                 ImageStorage.loadAll(url, listener, w, h, preserveRatio, pixelScale, smooth);
             convertAll(imgFrames);
@@ -138,6 +213,12 @@ class PrismImageLoader2 implements com.sun.javafx.tk.ImageLoader {
     {
         ImageLoadListener listener = new PrismLoadListener();
         try {
+            if (PrismSettings.animatedImageFrames > 0) {
+                initialize(AnimatedImageDecoder.load(stream, listener, w, h,
+                        preserveRatio, 1.0f, smooth,
+                        PrismSettings.animatedImageFrames));
+                return;
+            }
             ImageFrame[] imgFrames =
                 ImageStorage.loadAll(stream, listener, w, h, preserveRatio, 1.0f, smooth);
             convertAll(imgFrames);
@@ -165,6 +246,27 @@ class PrismImageLoader2 implements com.sun.javafx.tk.ImageLoader {
         this.exception = exception;
     }
 
+    private void initialize(AnimatedImageDecoder imgDecoder)
+            throws ImageStorageException
+    {
+        if (!imgDecoder.isDecodedOnDemand()) {
+            convertAll(imgDecoder.getFrames());
+            return;
+        }
+        int numFrames = imgDecoder.getFrameCount();
+        images = new Image[numFrames];
+        delayTimes = new int[numFrames];
+        for (int i = 0; i < numFrames; i++) {
+            setMetadata(i, imgDecoder.getMetadata(i));
+        }
+        ImageFrame frame = imgDecoder.getFrame(0);
+        images[0] = com.sun.prism.Image.convertImageFrame(frame);
+        width = frame.getWidth();
+        height = frame.getHeight();
+        decoder = imgDecoder;
+        decoder.prefetch(1);
+    }
+
     private void convertAll(ImageFrame[] imgFrames) {
         int numFrames = imgFrames.length;
         images = new Image[numFrames];
@@ -172,17 +274,7 @@ class PrismImageLoader2 implements com.sun.javafx.tk.ImageLoader {
         for (int i = 0; i < numFrames; i++) {
             ImageFrame frame = imgFrames[i];
             images[i] = com.sun.prism.Image.convertImageFrame(frame);
-            ImageMetadata metadata = frame.getMetadata();
-            if (metadata != null) {
-                Integer delay = metadata.delayTime;
-                if (delay != null) {
-                    delayTimes[i] = delay.intValue();
-                }
-                Integer loopCount = metadata.loopCount;
-                if (loopCount != null) {
-                    this.loopCount = loopCount;
-                }
-            }
+            setMetadata(i, frame.getMetadata());
             if (i == 0) {
                 width = frame.getWidth();
                 height = frame.getHeight();
@@ -190,6 +282,19 @@ class PrismImageLoader2 implements com.sun.javafx.tk.ImageLoader {
         }
     }
 
+    private void setMetadata(int index, ImageMetadata metadata) {
+        if (metadata != null) {
+            Integer delay = metadata.delayTime;
+            if (delay != null) {
+                delayTimes[index] = delay.intValue();
+            }
+            Integer loopCount = metadata.loopCount;
+            if (loopCount != null) {
+                this.loopCount = loopCount;
+            }
+        }
+    }
+
     /**
      * Returns the PlatformLogger for logging imageio-related activities.
      */
@@ -254,9 +359,25 @@ class PrismImageLoader2 implements com.sun.javafx.tk.ImageLoader {
 
         @Override
         public PrismImageLoader2 call() throws IOException {
+            DecodedImageCache cache = DecodedImageCache.getInstance();
+            DecodedImageCache.Key key = null;
+            if (cache != null) {
+                key = DecodedImageCache.createKey(
+                        url, width, height, preserveRatio, 1.0f, smooth);
+            }
+            if (key != null) {
+                PrismImageLoader2 loader = cache.get(key);
+                if (loader != null) {
+                    return loader;
+                }
+            }
             try {
-                return AccessController.doPrivileged(
+                PrismImageLoader2 loader = AccessController.doPrivileged(
                         (PrivilegedExceptionAction<PrismImageLoader2>) () -> AsyncImageLoader.super.call(), acc);
+                if (key != null) {
+                    cache.put(key, loader);
+                }
+                return loader;
             } catch (final PrivilegedActionException e) {
                 final Throwable cause = e.getCause();
 
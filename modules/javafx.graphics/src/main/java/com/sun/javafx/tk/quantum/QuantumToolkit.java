@@ -153,6 +153,23 @@ public final class QuantumToolkit extends Toolkit {
                 return result;
             });
 
+    /*
+     * When enabled, the FX thread only serializes with the render thread on
+     * the render lock while copying state to the render graph, rather than
+     * waiting for the previous frame to be fully presented. The render
+     * thread releases the lock as soon as it is done traversing the render
+     * graph, so the synchronization of pulse N+1 overlaps the present (and
+     * vsync wait) of pulse N. Only meaningful when multithreaded.
+     */
+    static final boolean concurrentSync =
+            AccessController.doPrivileged((PrivilegedAction<Boolean>) () -> {
+                final boolean result = multithreaded && Boolean.getBoolean("quantum.concurrentsync");
+                if (verbose && result) {
+                    System.out.println("Concurrent Scene Synchronization Enabled");
+                }
+                return result;
+            });
+
     private static boolean debug =
             AccessController.doPrivileged((PrivilegedAction<Boolean>) () -> Boolean.getBoolean("quantum.debug"));
 
@@ -732,7 +749,7 @@ public final class QuantumToolkit extends Toolkit {
     }
 
     @Override public ImageLoader loadImage(String url, double width, double height, boolean preserveRatio, boolean smooth) {
-        return new PrismImageLoader2(url, width, height, preserveRatio, getMaxRenderScale(), smooth);
+        return PrismImageLoader2.load(url, width, height, preserveRatio, getMaxRenderScale(), smooth);
     }
 
     @Override public ImageLoader loadImage(InputStream stream, double width, double height,
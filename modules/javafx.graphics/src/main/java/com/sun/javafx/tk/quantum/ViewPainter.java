@@ -28,13 +28,16 @@ package com.sun.javafx.tk.quantum;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
+import com.sun.javafx.font.GlyphPrefetcher;
 import com.sun.javafx.geom.DirtyRegionContainer;
 import com.sun.javafx.geom.DirtyRegionPool;
+import com.sun.javafx.geom.DirtyTileGrid;
 import com.sun.javafx.geom.RectBounds;
 import com.sun.javafx.geom.Rectangle;
 import com.sun.javafx.geom.transform.Affine3D;
 import com.sun.javafx.geom.transform.BaseTransform;
 import com.sun.javafx.geom.transform.GeneralTransform3D;
+import com.sun.javafx.sg.prism.BandRenderer;
 import com.sun.javafx.sg.prism.NGCamera;
 import com.sun.javafx.sg.prism.NGNode;
 import com.sun.javafx.sg.prism.NGPerspectiveCamera;
@@ -72,6 +75,39 @@ abstract class ViewPainter implements Runnable {
      */
     protected static final ReentrantLock renderLock = new ReentrantLock();
 
+    /*
+     * With QuantumToolkit.concurrentSync the render thread gives up the
+     * render lock before presenting a frame, so the FX thread may already
+     * synchronize the next pulse. The scene state and the platform view
+     * are still in use until the frame is presented and the view unlocked,
+     * so the render thread holds this lock instead until then, and anything
+     * that updates the scene state or closes the view must also hold it.
+     * It is always acquired after the render lock, never before it.
+     */
+    private static final ReentrantLock presentLock = new ReentrantLock();
+
+    /**
+     * Acquires the present lock and releases the render lock, which must be
+     * held by the calling thread.
+     */
+    static void releaseRenderLockForPresent() {
+        presentLock.lock();
+        renderLock.unlock();
+    }
+
+    static void presentCompleted() {
+        presentLock.unlock();
+    }
+
+    static void runWithPresentLock(Runnable runnable) {
+        presentLock.lock();
+        try {
+            runnable.run();
+        } finally {
+            presentLock.unlock();
+        }
+    }
+
     // Pen dimensions. Pen width and height are checked on every repaint
     // to match its scene width/height. If any difference is found, the
     // pen surface (Presentable or RTTexture) is recreated.
@@ -103,6 +139,7 @@ abstract class ViewPainter implements Runnable {
     private RectBounds dirtyRegionTemp;
     private DirtyRegionPool dirtyRegionPool;
     private DirtyRegionContainer dirtyRegionContainer;
+    private DirtyTileGrid dirtyTileGrid;
     private Affine3D tx;
     private Affine3D scaleTx;
     private GeneralTransform3D viewProjTx;
@@ -139,6 +176,9 @@ abstract class ViewPainter implements Runnable {
             dirtyRegionTemp = new RectBounds();
             dirtyRegionPool = new DirtyRegionPool(PrismSettings.dirtyRegionCount);
             dirtyRegionContainer = dirtyRegionPool.checkOut();
+            if (PrismSettings.dirtyTileSize > 0) {
+                dirtyTileGrid = new DirtyTileGrid(PrismSettings.dirtyTileSize);
+            }
         }
     }
 
@@ -178,6 +218,8 @@ abstract class ViewPainter implements Runnable {
         final float pixelScaleY = getPixelScaleFactorY();
         // Cache pixelScale in Graphics for use in 3D shaders such as camera and light positions.
         g.setPixelScaleFactors(pixelScaleX, pixelScaleY);
+        // Glyphs are prefetched from the strikes at this scale
+        GlyphPrefetcher.setRenderScale(pixelScaleX, pixelScaleY);
 
         // Initialize renderEverything based on various conditions that will cause us to render
         // the entire scene every time.
@@ -242,12 +284,22 @@ abstract class ViewPainter implements Runnable {
             clip.setBounds(0, 0, width, height);
             dirtyRegionTemp.makeEmpty();
             dirtyRegionContainer.reset();
+            if (dirtyTileGrid != null) {
+                dirtyTileGrid.reset(width, height);
+                dirtyRegionContainer.setTileGrid(dirtyTileGrid);
+            }
             tx.setToIdentity();
             projTx.setIdentity();
             adjustPerspective(sceneState.getCamera());
             status = root.accumulateDirtyRegions(clip, dirtyRegionTemp,
                                                      dirtyRegionPool, dirtyRegionContainer,
                                                      tx, projTx);
+            if (dirtyTileGrid != null) {
+                dirtyRegionContainer.setTileGrid(null);
+                if (status == DirtyRegionContainer.DTR_OK) {
+                    dirtyTileGrid.getRegions(dirtyRegionContainer);
+                }
+            }
             dirtyRegionContainer.roundOut();
             if (status == DirtyRegionContainer.DTR_OK) {
                 root.doPreCulling(dirtyRegionContainer, tx, projTx);
@@ -278,6 +330,7 @@ abstract class ViewPainter implements Runnable {
             // regions that are being used to render this pulse.
             if (PULSE_LOGGING_ENABLED) {
                 PulseLogger.addMessage(dirtyRegionSize + " different dirty regions to render");
+                logPaintedArea(dirtyRegionSize);
                 for (int i=0; i<dirtyRegionSize; i++) {
                     PulseLogger.addMessage("Dirty Region " + i + ": " + dirtyRegionContainer.getDirtyRegion(i));
                     PulseLogger.addMessage("Render Root Path " + i + ": " + getRootPath(i));
@@ -389,6 +442,28 @@ abstract class ViewPainter implements Runnable {
         }
     }
 
+    /**
+     * Reports to the pulse logger which fraction of the scene is repainted by
+     * the dirty regions and, if the regions were collected in tiles, how many
+     * of the tiles were dirty.
+     */
+    private void logPaintedArea(int dirtyRegionSize) {
+        double area = 0;
+        for (int i = 0; i < dirtyRegionSize; i++) {
+            final RectBounds region = dirtyRegionContainer.getDirtyRegion(i);
+            area += (double) region.getWidth() * region.getHeight();
+        }
+        final double sceneArea = (double) width * height;
+        if (sceneArea > 0) {
+            PulseLogger.addMessage(String.format("Painted area: %.1f%% of the scene",
+                                                 100 * area / sceneArea));
+        }
+        if (dirtyTileGrid != null) {
+            PulseLogger.addMessage("Dirty tiles: " + dirtyTileGrid.getDirtyTileCount() +
+                                   " of " + dirtyTileGrid.getTileCount());
+        }
+    }
+
     /**
      * Utility method for painting the overdraw rectangles. Right now we're using a computationally
      * intensive approach of having an array of integers (image data) that we then write to in the
@@ -476,6 +551,8 @@ abstract class ViewPainter implements Runnable {
         }
         g.setCamera(sceneState.getCamera());
         g.setRenderRoot(renderRootPath);
-        root.render(g);
+        if (!BandRenderer.render(root, g)) {
+            root.render(g);
+        }
     }
 }
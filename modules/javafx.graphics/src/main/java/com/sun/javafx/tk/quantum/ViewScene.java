@@ -96,9 +96,11 @@ class ViewScene extends GlassScene {
     public void dispose() {
         if (platformView != null) {
             QuantumToolkit.runWithRenderLock(() -> {
-                platformView.close();
-                platformView = null;
-                updateSceneState();
+                ViewPainter.runWithPresentLock(() -> {
+                    platformView.close();
+                    platformView = null;
+                    updateSceneState();
+                });
                 painter = null;
                 paintRenderJob = null;
                 return null;
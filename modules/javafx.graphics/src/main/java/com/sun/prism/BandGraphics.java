@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.prism;
+
+/**
+ * A Graphics which can create further Graphics objects rendering into the
+ * same render target, each with its own rendering state, so that disjoint
+ * areas of the target can be rendered concurrently from several threads.
+ */
+public interface BandGraphics extends Graphics {
+    /**
+     * Creates a new Graphics for the render target of this Graphics, with a
+     * default state and no clip. The returned Graphics shares no mutable
+     * state with Graphics created for any other band index, and may be used
+     * on any thread, provided that concurrent users only render into
+     * disjoint areas of the target. The caller is responsible for setting a
+     * clip for the area it renders into.
+     *
+     * @param band the index of the band, selects the per thread state
+     * used by the returned Graphics
+     */
+    public Graphics createBandGraphics(int band);
+}
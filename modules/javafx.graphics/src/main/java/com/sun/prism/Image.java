@@ -52,6 +52,7 @@ import com.sun.javafx.image.impl.ByteGrayAlpha;
 import com.sun.javafx.image.impl.ByteGrayAlphaPre;
 import com.sun.javafx.image.impl.ByteRgb;
 import com.sun.javafx.image.impl.ByteRgba;
+import com.sun.javafx.geom.Rectangle;
 import com.sun.javafx.tk.PlatformImage;
 import com.sun.prism.impl.BufferUtil;
 
@@ -72,6 +73,12 @@ public class Image implements PlatformImage {
     private final PixelFormat pixelFormat;
     private final float pixelScale;
     int serial[] = new int[1];
+    // The bounds changed by the last few increments of the serial, so that
+    // textures only a few changes behind can update just those bounds;
+    // allocated on the first change
+    private int dirtySerials[];
+    private int dirtyBounds[];
+    private static final int DIRTY_HISTORY = 8;
 
     public static Image fromIntArgbPreData(int[] pixels, int width, int height) {
         return new Image(PixelFormat.INT_ARGB_PRE, pixels, width, height);
@@ -576,6 +583,62 @@ public class Image implements PlatformImage {
         return serial[0];
     }
 
+    private void markDirty(int x, int y, int w, int h) {
+        int s = ++serial[0];
+        if (pixelScale != 1.0f) {
+            // the bounds would have to be scaled, the changes since older
+            // serials will not be found and the whole image is updated
+            return;
+        }
+        if (dirtySerials == null) {
+            dirtySerials = new int[DIRTY_HISTORY];
+            dirtyBounds = new int[DIRTY_HISTORY * 4];
+        }
+        int slot = s & (DIRTY_HISTORY - 1);
+        dirtySerials[slot] = s;
+        dirtyBounds[slot * 4    ] = x;
+        dirtyBounds[slot * 4 + 1] = y;
+        dirtyBounds[slot * 4 + 2] = x + w;
+        dirtyBounds[slot * 4 + 3] = y + h;
+    }
+
+    /**
+     * Stores in the given rectangle the bounds of the pixels changed since
+     * the image had the given serial. Returns false if those bounds are not
+     * known, in which case the whole image should be considered changed.
+     */
+    public boolean getDirtyBounds(int sinceSerial, Rectangle bounds) {
+        int s = serial[0];
+        if (dirtySerials == null || s - sinceSerial <= 0 ||
+            s - sinceSerial > DIRTY_HISTORY)
+        {
+            return false;
+        }
+        int x0 = width, y0 = height, x1 = 0, y1 = 0;
+        for (; s != sinceSerial; s--) {
+            int slot = s & (DIRTY_HISTORY - 1);
+            if (dirtySerials[slot] != s) {
+                // changed through a subimage or another image sharing
+                // the serial
+                return false;
+            }
+            x0 = Math.min(x0, dirtyBounds[slot * 4    ]);
+            y0 = Math.min(y0, dirtyBounds[slot * 4 + 1]);
+            x1 = Math.max(x1, dirtyBounds[slot * 4 + 2]);
+            y1 = Math.max(y1, dirtyBounds[slot * 4 + 3]);
+        }
+        x0 = Math.max(x0, 0);
+        y0 = Math.max(y0, 0);
+        x1 = Math.min(x1, width);
+        y1 = Math.min(y1, height);
+        if (x1 <= x0 || y1 <= y0) {
+            bounds.setBounds(0, 0, 0, 0);
+        } else {
+            bounds.setBounds(x0, y0, x1 - x0, y1 - y0);
+        }
+        return true;
+    }
+
     public Image promoteByteRgbToByteBgra() {
         ByteBuffer oldbuf = (ByteBuffer) pixelBuffer;
         ByteBuffer newbuf = ByteBuffer.allocate(width * height * 4);
@@ -645,7 +708,7 @@ public class Image implements PlatformImage {
     @Override
     public void setArgb(int x, int y, int argb) {
         getPixelAccessor().setArgb(x, y, argb);
-        serial[0]++;
+        markDirty(x, y, 1, 1);
     }
 
     @Override
@@ -684,7 +747,7 @@ public class Image implements PlatformImage {
     {
         getPixelAccessor().setPixels(x, y, w, h, pixelformat,
                                      pixels, scanlineBytes);
-        serial[0]++;
+        markDirty(x, y, w, h);
     }
 
     @Override
@@ -694,7 +757,7 @@ public class Image implements PlatformImage {
     {
         getPixelAccessor().setPixels(x, y, w, h, pixelformat,
                                      pixels, offset, scanlineBytes);
-        serial[0]++;
+        markDirty(x, y, w, h);
     }
 
     @Override
@@ -704,7 +767,7 @@ public class Image implements PlatformImage {
     {
         getPixelAccessor().setPixels(x, y, w, h, pixelformat,
                                      pixels, offset, scanlineInts);
-        serial[0]++;
+        markDirty(x, y, w, h);
     }
 
     @Override
@@ -712,7 +775,7 @@ public class Image implements PlatformImage {
                           PixelReader reader, int srcx, int srcy)
     {
         getPixelAccessor().setPixels(dstx, dsty, w, h, reader, srcx, srcy);
-        serial[0]++;
+        markDirty(dstx, dsty, w, h);
     }
 
     public boolean isOpaque() {
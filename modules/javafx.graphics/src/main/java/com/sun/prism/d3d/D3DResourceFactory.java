@@ -107,6 +107,7 @@ class D3DResourceFactory extends BaseShaderFactory {
                     System.err.println(frameStats.toDebugString(STATS_FREQUENCY));
                 }
             }
+            context.displayBatchStatistics();
         }
     }
 
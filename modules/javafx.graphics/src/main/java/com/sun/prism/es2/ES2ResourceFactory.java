@@ -101,6 +101,12 @@ public class ES2ResourceFactory extends BaseShaderFactory {
         return new ES2SwapChain(context, pState);
     }
 
+    @Override
+    public boolean isDeviceReady() {
+        context.displayBatchStatistics();
+        return super.isDeviceReady();
+    }
+
     @Override
     public boolean isCompatibleTexture(Texture tex) {
         return tex instanceof ES2Texture;
@@ -48,6 +48,25 @@ public class Coords {
                       u0, v0, u1, v1);
     }
 
+    /**
+     * Draws with the texture coordinates offset by (u, v), which is the
+     * location of the image in a texture shared with other images.
+     */
+    public void draw(Texture t, Graphics g, float x, float y, float u, float v) {
+        g.drawTexture(t,
+                      x + x0, y + y0, x + x1, y + y1,
+                      u + u0, v + v0, u + u1, v + v1);
+    }
+
+    /**
+     * Returns whether the texture coordinates lie within an image of the
+     * given size.
+     */
+    public boolean isInside(float w, float h) {
+        return Math.min(u0, u1) >= 0 && Math.min(v0, v1) >= 0 &&
+               Math.max(u0, u1) <= w && Math.max(v0, v1) <= h;
+    }
+
     // returns x corresponding for u
     public float getX(float u) {
         return (x0 * (u1 - u) + x1 * (u - u0)) / (u1 - u0);
@@ -75,6 +75,7 @@ public abstract class BaseContext {
         greyGlyphCaches = new HashMap<FontStrike, GlyphCache>();
     private final Map<FontStrike, GlyphCache>
         lcdGlyphCaches = new HashMap<FontStrike, GlyphCache>();
+    private DistanceFieldCache distanceFieldCache;
 
     protected BaseContext(Screen screen, ResourceFactory factory, int vbQuads) {
         this.screen = screen;
@@ -178,6 +179,13 @@ public abstract class BaseContext {
         return getGlyphCache(strike, glyphCaches);
     }
 
+    public DistanceFieldCache getDistanceFieldCache() {
+        if (distanceFieldCache == null) {
+            distanceFieldCache = new DistanceFieldCache(this);
+        }
+        return distanceFieldCache;
+    }
+
     public boolean isSuperShaderEnabled() {
         return false;
     }
@@ -25,6 +25,7 @@
 
 package com.sun.prism.impl;
 
+import com.sun.javafx.geom.Rectangle;
 import com.sun.prism.Image;
 import com.sun.prism.PixelFormat;
 import com.sun.prism.ResourceFactory;
@@ -32,6 +33,7 @@ import com.sun.prism.ResourceFactoryListener;
 import com.sun.prism.Texture;
 import com.sun.prism.Texture.Usage;
 import com.sun.prism.Texture.WrapMode;
+import java.nio.Buffer;
 import java.util.Map;
 import java.util.WeakHashMap;
 import java.util.Collection;
@@ -221,7 +223,22 @@ public abstract class BaseResourceFactory implements ResourceFactory {
                 texCache.put(image, tex);
             }
         } else if (tex.getLastImageSerial() != serial) {
-            tex.update(image, 0, 0, image.getWidth(), image.getHeight(), false);
+            Rectangle dirty = new Rectangle();
+            if (image.getDirtyBounds(tex.getLastImageSerial(), dirty)) {
+                // only upload the pixels changed since the last update
+                if (!dirty.isEmpty()) {
+                    Buffer pixels = image.getPixelBuffer();
+                    int pos = pixels.position();
+                    tex.update(pixels, image.getPixelFormat(),
+                               dirty.x, dirty.y,
+                               image.getMinX() + dirty.x, image.getMinY() + dirty.y,
+                               dirty.width, dirty.height,
+                               image.getScanlineStride(), false);
+                    pixels.position(pos);
+                }
+            } else {
+                tex.update(image, 0, 0, image.getWidth(), image.getHeight(), false);
+            }
             tex.setLastImageSerial(serial);
         }
         return tex;
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.prism.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import com.sun.javafx.font.CharToGlyphMapper;
+import com.sun.javafx.font.CompositeGlyphMapper;
+import com.sun.javafx.font.DistanceField;
+import com.sun.javafx.font.FontResource;
+import com.sun.javafx.font.GlyphPrefetcher;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.javafx.logging.PulseLogger;
+import com.sun.javafx.scene.text.GlyphList;
+import com.sun.prism.ResourceFactory;
+import com.sun.prism.Texture;
+import com.sun.prism.Texture.WrapMode;
+import com.sun.prism.impl.packrect.RectanglePacker;
+import com.sun.prism.impl.shape.MaskData;
+import com.sun.prism.paint.Color;
+
+import static com.sun.javafx.logging.PulseLogger.PULSE_LOGGING_ENABLED;
+
+/**
+ * Caches the signed distance fields of the glyphs of the fonts drawn with
+ * a context. Unlike GlyphCache, which holds the images of a strike, the
+ * glyphs are keyed by font only: the distance field of a glyph is drawn
+ * at any size and under any transform, filtered linearly and thresholded
+ * by the AlphaDistanceField mask shader.
+ */
+public final class DistanceFieldCache {
+
+    private static final int WIDTH = PrismSettings.glyphCacheWidth;
+    private static final int HEIGHT = PrismSettings.glyphCacheHeight;
+    private static final int BORDER = 1;
+
+    private final BaseContext context;
+    private RectanglePacker packer;
+    private final Map<FontResource, Map<Integer, Entry>> fontEntries =
+        new WeakHashMap<FontResource, Map<Integer, Entry>>();
+
+    /* The location of the field of a glyph on the texture, the rectangle
+     * is null for glyphs with no outline.
+     */
+    private static final class Entry {
+        final Rectangle rect;
+        final int originX;
+        final int originY;
+
+        Entry(Rectangle rect, int originX, int originY) {
+            this.rect = rect;
+            this.originX = originX;
+            this.originY = originY;
+        }
+    }
+
+    DistanceFieldCache(BaseContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Returns the texture holding the distance fields, or null if it could
+     * not be created.
+     */
+    public Texture getBackingStore() {
+        if (packer != null && packer.getBackingStore().isSurfaceLost()) {
+            clear();
+        }
+        if (packer == null) {
+            ResourceFactory factory = context.getResourceFactory();
+            Texture tex = factory.createMaskTexture(WIDTH, HEIGHT,
+                                                    WrapMode.CLAMP_NOT_NEEDED);
+            if (tex == null) {
+                return null;
+            }
+            tex.contentsUseful();
+            tex.makePermanent();
+            tex.setLinearFiltering(true);
+            packer = new RectanglePacker(tex, WIDTH, HEIGHT);
+        }
+        return packer.getBackingStore();
+    }
+
+    /**
+     * Returns the range of distances the mask shader must blend across to
+     * antialias the edges of glyphs drawn at the given size in device
+     * pixels.
+     */
+    public static float getSmoothing(float deviceSize) {
+        // The distances vary by 0.5 / SPREAD per pixel of the field, and
+        // one pixel of the field covers REFERENCE_SIZE / deviceSize pixels
+        // of the destination
+        float range = 0.5f / DistanceField.SPREAD *
+                      DistanceField.REFERENCE_SIZE / deviceSize;
+        return Math.min(range, 0.5f);
+    }
+
+    /**
+     * Adds the quads of the glyphs of the list to the vertex buffer, in
+     * user space, the glyph list being drawn at x, y with a font of the
+     * given size. The mask shader must have been validated with the
+     * backing store.
+     */
+    public void render(GlyphList gl, FontResource font, float size,
+                       float x, float y, int start, int end,
+                       Color rangeColor, Color textColor) {
+        Texture tex = getBackingStore();
+        if (tex == null) {
+            return;
+        }
+        VertexBuffer vb = context.getVertexBuffer();
+        float scale = size / DistanceField.REFERENCE_SIZE;
+        float tw = tex.getPhysicalWidth();
+        float th = tex.getPhysicalHeight();
+        Color currentColor = null;
+
+        int len = gl.getGlyphCount();
+        for (int gi = 0; gi < len; gi++) {
+            int gc = gl.getGlyphCode(gi);
+            if ((gc & CompositeGlyphMapper.GLYPHMASK) == CharToGlyphMapper.INVISIBLE_GLYPH_ID) {
+                continue;
+            }
+            Entry entry = getEntry(font, gc);
+            if (entry == null || entry.rect == null) {
+                continue;
+            }
+            if (rangeColor != null && textColor != null) {
+                int offset = gl.getCharOffset(gi);
+                Color color = (start <= offset && offset < end) ? rangeColor : textColor;
+                if (color != currentColor) {
+                    vb.setPerVertexColor(color, 1.0f);
+                    currentColor = color;
+                }
+            }
+            Rectangle rect = entry.rect;
+            int gw = rect.width - 2 * BORDER;
+            int gh = rect.height - 2 * BORDER;
+            float dx1 = x + gl.getPosX(gi) + entry.originX * scale;
+            float dy1 = y + gl.getPosY(gi) + entry.originY * scale;
+            float dx2 = dx1 + gw * scale;
+            float dy2 = dy1 + gh * scale;
+            float tx1 = (rect.x + BORDER) / tw;
+            float ty1 = (rect.y + BORDER) / th;
+            float tx2 = tx1 + gw / tw;
+            float ty2 = ty1 + gh / th;
+            vb.addQuad(dx1, dy1, dx2, dy2, tx1, ty1, tx2, ty2);
+        }
+    }
+
+    private Entry getEntry(FontResource font, int glyphCode) {
+        Map<Integer, Entry> entries = fontEntries.get(font);
+        if (entries == null) {
+            entries = new HashMap<Integer, Entry>();
+            fontEntries.put(font, entries);
+        }
+        Entry entry = entries.get(glyphCode);
+        if (entry != null) {
+            return entry;
+        }
+
+        DistanceField field;
+        // The outline is read from the native font shared with the
+        // glyph prefetcher
+        synchronized (GlyphPrefetcher.getRasterizerLock()) {
+            field = DistanceField.create(font, glyphCode);
+        }
+        if (field == null) {
+            entry = new Entry(null, 0, 0);
+            entries.put(glyphCode, entry);
+            return entry;
+        }
+        int w = field.getWidth();
+        int h = field.getHeight();
+        Rectangle rect = new Rectangle(0, 0, w + 2 * BORDER, h + 2 * BORDER);
+        if (!packer.add(rect)) {
+            if (rect.width > WIDTH || rect.height > HEIGHT) {
+                return null;
+            }
+            if (PULSE_LOGGING_ENABLED) {
+                PulseLogger.incrementCounter("Distance field cache cleared");
+            }
+            // The glyphs already queued must be drawn before their
+            // fields are overwritten
+            context.flushVertexBuffer();
+            packer.clear();
+            fontEntries.clear();
+            fontEntries.put(font, entries);
+            entries.clear();
+            if (!packer.add(rect)) {
+                return null;
+            }
+        }
+        if (PULSE_LOGGING_ENABLED) {
+            PulseLogger.incrementCounter("Distance fields generated");
+        }
+
+        // Upload the field together with a blank border
+        int pw = rect.width;
+        byte[] pixels = new byte[pw * rect.height];
+        byte[] src = field.getPixels();
+        for (int row = 0; row < h; row++) {
+            System.arraycopy(src, row * w, pixels, (row + BORDER) * pw + BORDER, w);
+        }
+        MaskData maskData = MaskData.create(pixels, 0, 0, pw, rect.height);
+        maskData.uploadToTexture(packer.getBackingStore(), rect.x, rect.y, true);
+
+        entry = new Entry(rect, field.getOriginX(), field.getOriginY());
+        entries.put(glyphCode, entry);
+        return entry;
+    }
+
+    private void clear() {
+        fontEntries.clear();
+        if (packer != null) {
+            packer.dispose();
+            packer = null;
+        }
+    }
+}
@@ -30,6 +30,7 @@ import com.sun.javafx.font.CompositeGlyphMapper;
 import com.sun.javafx.font.FontResource;
 import com.sun.javafx.font.FontStrike;
 import com.sun.javafx.font.Glyph;
+import com.sun.javafx.font.GlyphPrefetcher;
 import com.sun.javafx.geom.BaseBounds;
 import com.sun.javafx.geom.Rectangle;
 import com.sun.javafx.geom.Point2D;
@@ -41,6 +42,8 @@ import com.sun.prism.impl.shape.MaskData;
 import com.sun.prism.paint.Color;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.WeakHashMap;
 
@@ -76,47 +79,128 @@ public class GlyphCache {
     // Using them for subpixel
     private static final int SUBPIXEL_SHIFT = 27;
 
-    private RectanglePacker packer;
+    private GlyphPages pages;
 
     private boolean isLCDCache;
 
-    /* Share a RectanglePacker and its associated texture cache
-     * for all uses on a particular screen.
+    // The glyphs of the list being rendered which have been drawn since
+    // beginRender(), and the texture of the page being drawn
+    private final BitSet drawnGlyphs = new BitSet();
+    private Texture renderTexture;
+
+    /* Share the pages of texture cache for all uses on a particular screen.
      */
-    static WeakHashMap<BaseContext, RectanglePacker> greyPackerMap =
-        new WeakHashMap<BaseContext, RectanglePacker>();
+    static WeakHashMap<BaseContext, GlyphPages> greyPagesMap =
+        new WeakHashMap<BaseContext, GlyphPages>();
+
+    static WeakHashMap<BaseContext, GlyphPages> lcdPagesMap =
+        new WeakHashMap<BaseContext, GlyphPages>();
 
-    static WeakHashMap<BaseContext, RectanglePacker> lcdPackerMap =
-        new WeakHashMap<BaseContext, RectanglePacker>();
+    /* A texture of the cache and the packer placing glyphs on it.
+     * The generation changes every time the page is cleared, which
+     * invalidates all the glyphs that were placed on it.
+     */
+    static final class Page {
+        final RectanglePacker packer;
+        int generation;
+        long lastUsed;
+
+        Page(RectanglePacker packer) {
+            this.packer = packer;
+        }
+
+        Texture getTexture() {
+            return packer.getBackingStore();
+        }
+    }
+
+    /* The pages shared by all the glyph caches of a screen, the most
+     * recently used first. The clock advances for every glyph list
+     * rendered, clears counts how often all the pages were cleared.
+     */
+    static final class GlyphPages {
+        final ArrayList<Page> pages = new ArrayList<Page>();
+        final int width, height, maxPages;
+        long clock;
+        int clears;
+
+        GlyphPages(int width, int height, int maxPages) {
+            this.width = width;
+            this.height = height;
+            this.maxPages = maxPages;
+        }
+    }
 
     public GlyphCache(BaseContext context, FontStrike strike) {
+        this(context, strike, getPages(context, strike));
+    }
+
+    GlyphCache(BaseContext context, FontStrike strike, GlyphPages pages) {
         this.context = context;
         this.strike = strike;
         //numGlyphs = strike.getNumGlyphs();
         //int numSegments = (numGlyphs + SEGSIZE-1)/SEGSIZE;
         //this.glyphs = new GlyphData[numSegments][];
         isLCDCache = strike.getAAMode() == FontResource.AA_LCD;
-        WeakHashMap<BaseContext, RectanglePacker>
-            packerMap = isLCDCache ? lcdPackerMap : greyPackerMap;
-        packer = packerMap.get(context);
-        if (packer == null) {
-            ResourceFactory factory = context.getResourceFactory();
-            Texture tex = factory.createMaskTexture(WIDTH, HEIGHT,
-                                                    WrapMode.CLAMP_NOT_NEEDED);
-            tex.contentsUseful();
-            tex.makePermanent();
+        this.pages = pages;
+        if (pages.pages.isEmpty()) {
+            Page page = createPage();
             if (!isLCDCache) {
-                factory.setGlyphTexture(tex);
+                context.getResourceFactory().setGlyphTexture(page.getTexture());
             }
-            tex.setLinearFiltering(false);
-            packer = new RectanglePacker(tex, WIDTH, HEIGHT);
-            packerMap.put(context, packer);
+            pages.pages.add(page);
         }
     }
 
-    public void render(BaseContext ctx, GlyphList gl, float x, float y,
-                       int start, int end, Color rangeColor, Color textColor,
-                       BaseTransform xform, BaseBounds clip) {
+    private static GlyphPages getPages(BaseContext context, FontStrike strike) {
+        WeakHashMap<BaseContext, GlyphPages> pagesMap =
+            strike.getAAMode() == FontResource.AA_LCD ? lcdPagesMap : greyPagesMap;
+        GlyphPages pages = pagesMap.get(context);
+        if (pages == null) {
+            pages = new GlyphPages(WIDTH, HEIGHT, PrismSettings.glyphCachePages);
+            pagesMap.put(context, pages);
+        }
+        return pages;
+    }
+
+    private Page createPage() {
+        ResourceFactory factory = context.getResourceFactory();
+        Texture tex = factory.createMaskTexture(pages.width, pages.height,
+                                                WrapMode.CLAMP_NOT_NEEDED);
+        if (tex == null) {
+            return null;
+        }
+        tex.contentsUseful();
+        tex.makePermanent();
+        tex.setLinearFiltering(false);
+        return new Page(new RectanglePacker(tex, pages.width, pages.height));
+    }
+
+    /**
+     * Starts rendering a glyph list. The glyphs may be spread over several
+     * pages, each of them needs its own draw: render() is called with the
+     * texture returned here, and then again with the texture it returns
+     * until it returns null. Every glyph is drawn exactly once, and the
+     * pages holding glyphs of the list are not evicted while it is rendered.
+     *
+     * @return the texture of the page to render first
+     */
+    public Texture beginRender() {
+        pages.clock++;
+        drawnGlyphs.clear();
+        return getBackingStore();
+    }
+
+    /**
+     * Renders the glyphs of the list which are cached on the page of the
+     * given texture and have not been drawn since beginRender().
+     *
+     * @return the texture of a page holding glyphs of the list which still
+     * have to be drawn, or null if all the glyphs were rendered
+     */
+    public Texture render(BaseContext ctx, GlyphList gl, float x, float y,
+                          int start, int end, Color rangeColor, Color textColor,
+                          BaseTransform xform, BaseBounds clip, Texture tex) {
 
         int dstw, dsth;
         if (isLCDCache) {
@@ -126,14 +210,24 @@ public class GlyphCache {
             dstw = 1;
             dsth = 1;
         }
-        Texture tex = getBackingStore();
         VertexBuffer vb = ctx.getVertexBuffer();
+        Texture next = null;
+        // Glyphs left for another page are rasterized again if all the
+        // pages get cleared, there must be another pass for them even if
+        // none of the later glyphs is left
+        boolean left = false;
+        boolean retry = false;
+        int clears = pages.clears;
+        renderTexture = tex;
 
         int len = gl.getGlyphCount();
         Color currentColor = null;
         Point2D pt = new Point2D();
 
         for (int gi = 0; gi < len; gi++) {
+            if (drawnGlyphs.get(gi)) {
+                continue;
+            }
             int gc = gl.getGlyphCode(gi);
 
             // If we have a supplementary character, then a special
@@ -146,12 +240,27 @@ public class GlyphCache {
             xform.transform(pt, pt);
             int subPixel = strike.getQuantizedPosition(pt);
             GlyphData data = getCachedGlyph(gc, subPixel);
+            if (clears != pages.clears) {
+                clears = pages.clears;
+                retry |= left;
+                next = null;
+            }
             if (data != null) {
                 if (clip != null) {
                     // Always check clipping using user space.
                     if (x + gl.getPosX(gi) > clip.getMaxX()) break;
                     if (x + gl.getPosX(gi + 1) < clip.getMinX()) continue;
                 }
+                Page page = data.getPage();
+                if (page != null && page.getTexture() != tex) {
+                    // Rendered by another pass with the texture of its page
+                    if (next == null) {
+                        next = page.getTexture();
+                    }
+                    left = true;
+                    continue;
+                }
+                drawnGlyphs.set(gi);
                 /* Will not render selected text for complex
                  * paints such as gradient.
                  */
@@ -172,6 +281,12 @@ public class GlyphCache {
                 addDataToQuad(data, vb, tex, pt.x, pt.y, dstw, dsth);
             }
         }
+        renderTexture = null;
+        if (next == null && retry) {
+            // New glyphs are placed on the most recently used page first
+            next = getBackingStore();
+        }
+        return next;
     }
 
     private void addDataToQuad(GlyphData data, VertexBuffer vb,
@@ -222,7 +337,7 @@ public class GlyphCache {
     }
 
     public Texture getBackingStore() {
-        return packer.getBackingStore();
+        return pages.pages.get(0).getTexture();
     }
 
     public void clear() {
@@ -234,7 +349,80 @@ public class GlyphCache {
         // of the glyph cache texture.
         context.flushVertexBuffer();
         context.clearGlyphCaches();
-        packer.clear();
+        for (Page page : pages.pages) {
+            page.packer.clear();
+            page.generation++;
+        }
+        pages.clears++;
+        // The glyphs of the list rendered go to the page being drawn first,
+        // so that each pass draws some of them
+        if (renderTexture != null) {
+            for (int i = 0; i < pages.pages.size(); i++) {
+                Page page = pages.pages.get(i);
+                if (page.getTexture() == renderTexture) {
+                    pages.pages.remove(i);
+                    pages.pages.add(0, page);
+                    break;
+                }
+            }
+        }
+    }
+
+    /* Places the rectangle on one of the pages, clearing the least recently
+     * used page or all of them if there is no room left.
+     */
+    private Page add(Rectangle rect) {
+        if (rect.width > pages.width || rect.height > pages.height) {
+            return null;
+        }
+        ArrayList<Page> list = pages.pages;
+        for (int i = 0; i < list.size(); i++) {
+            Page page = list.get(i);
+            if (page.packer.add(rect)) {
+                if (i > 0) {
+                    list.remove(i);
+                    list.add(0, page);
+                }
+                return page;
+            }
+        }
+
+        Page page = null;
+        if (list.size() < pages.maxPages) {
+            page = createPage();
+        }
+        if (page == null) {
+            // The glyphs of the current glyph list must stay, the page
+            // with the oldest use is only cleared if it is not one of them
+            Page lru = list.get(list.size() - 1);
+            for (Page p : list) {
+                if (p.lastUsed < lru.lastUsed) {
+                    lru = p;
+                }
+            }
+            if (list.size() == 1 || lru.lastUsed == pages.clock) {
+                if (PULSE_LOGGING_ENABLED) {
+                    PulseLogger.incrementCounter("Font Glyph Cache Cleared");
+                }
+                // If add fails,clear up the cache. Try add again.
+                clearAll();
+                page = list.get(0);
+            } else {
+                if (PULSE_LOGGING_ENABLED) {
+                    PulseLogger.incrementCounter("Font Glyph Cache page evicted");
+                }
+                // flush any pending vertices that may use the glyphs
+                // of this page.
+                context.flushVertexBuffer();
+                lru.packer.clear();
+                lru.generation++;
+                page = lru;
+            }
+        }
+        list.remove(page);
+        list.add(0, page);
+        page.packer.add(rect);
+        return page;
     }
 
     private GlyphData getCachedGlyph(int glyphCode, int subPixel) {
@@ -243,8 +431,17 @@ public class GlyphCache {
         segIndex |= (subPixel << SUBPIXEL_SHIFT);
         GlyphData[] segment = glyphDataMap.get(segIndex);
         if (segment != null) {
-            if (segment[subIndex] != null) {
-                return segment[subIndex];
+            GlyphData data = segment[subIndex];
+            if (data != null) {
+                Page page = data.getPage();
+                if (page == null) {
+                    return data;
+                }
+                if (page.generation == data.getGeneration()) {
+                    page.lastUsed = pages.clock;
+                    return data;
+                }
+                // The page of the glyph was cleared
             }
         } else {
             segment = new GlyphData[SEGSIZE];
@@ -253,25 +450,33 @@ public class GlyphCache {
 
         // Render the glyph and insert it in the cache
         GlyphData data = null;
-        Glyph glyph = strike.getGlyph(glyphCode);
+        Glyph glyph;
+        float xAdvance = 0, yAdvance = 0;
+        MaskData maskData = null;
+        // The image may be produced concurrently by the prefetcher
+        synchronized (GlyphPrefetcher.getRasterizerLock()) {
+            glyph = strike.getGlyph(glyphCode);
+            if (glyph != null) {
+                byte[] glyphImage = glyph.getPixelData(subPixel);
+                xAdvance = glyph.getPixelXAdvance();
+                yAdvance = glyph.getPixelYAdvance();
+                if (glyphImage != null && glyphImage.length != 0) {
+                    // Rasterize the glyph
+                    // NOTE : if the MaskData can be stored back directly
+                    // in the glyph, even as an opaque type, it should save
+                    // repeated work next time the glyph is used.
+                    maskData = MaskData.create(glyphImage,
+                                               glyph.getOriginX(),
+                                               glyph.getOriginY(),
+                                               glyph.getWidth(),
+                                               glyph.getHeight());
+                }
+            }
+        }
         if (glyph != null) {
-            byte[] glyphImage = glyph.getPixelData(subPixel);
-            if (glyphImage == null || glyphImage.length == 0) {
-                data = new GlyphData(0, 0, 0,
-                                     glyph.getPixelXAdvance(),
-                                     glyph.getPixelYAdvance(),
-                                     null);
+            if (maskData == null) {
+                data = new GlyphData(0, 0, 0, xAdvance, yAdvance, null, null);
             } else {
-                // Rasterize the glyph
-                // NOTE : if the MaskData can be stored back directly
-                // in the glyph, even as an opaque type, it should save
-                // repeated work next time the glyph is used.
-                MaskData maskData = MaskData.create(glyphImage,
-                                                    glyph.getOriginX(),
-                                                    glyph.getOriginY(),
-                                                    glyph.getWidth(),
-                                                    glyph.getHeight());
-
                 // Make room for the rectangle on the backing store
                 int border = 1;
                 int rectW = maskData.getWidth()  + (2 * border);
@@ -279,18 +484,20 @@ public class GlyphCache {
                 int originX = maskData.getOriginX();
                 int originY = maskData.getOriginY();
                 Rectangle rect = new Rectangle(0, 0, rectW, rectH);
+                Page page = add(rect);
+                if (page == null) {
+                    // Larger than a page, can not be rendered
+                    data = new GlyphData(0, 0, 0, xAdvance, yAdvance,
+                                         null, null);
+                    segment[subIndex] = data;
+                    return data;
+                }
+                page.lastUsed = pages.clock;
                 data = new GlyphData(originX, originY, border,
-                                     glyph.getPixelXAdvance(),
-                                     glyph.getPixelYAdvance(),
-                                     rect);
-
-                if (!packer.add(rect)) {
-                    if (PULSE_LOGGING_ENABLED) {
-                        PulseLogger.incrementCounter("Font Glyph Cache Cleared");
-                    }
-                    // If add fails,clear up the cache. Try add again.
-                    clearAll();
-                    packer.add(rect);
+                                     xAdvance, yAdvance,
+                                     rect, page);
+                if (PULSE_LOGGING_ENABLED) {
+                    PulseLogger.incrementCounter("Glyphs rasterized");
                 }
 
                 // We always pass skipFlush=true to backingStore.update()
@@ -302,7 +509,7 @@ public class GlyphCache {
                 // Upload the an empty byte array to ensure the boundary
                 // area is filled with zeros. Note that the rectangle
                 // is already padded on each edge.
-                Texture backingStore = getBackingStore();
+                Texture backingStore = page.getTexture();
                 int emw = rect.width;
                 int emh = rect.height;
                 int bpp = backingStore.getPixelFormat().getBytesPerPixelUnit();
@@ -354,8 +561,13 @@ public class GlyphCache {
         // The rectangle on the backing store corresponding to this glyph
         private final Rectangle rect;
 
+        // The page holding the rectangle, and its generation when the
+        // glyph was placed on it
+        private final Page page;
+        private final int generation;
+
         GlyphData(int originX, int originY, int blankBoundary,
-                  float xAdvance, float yAdvance, Rectangle rect)
+                  float xAdvance, float yAdvance, Rectangle rect, Page page)
         {
             this.originX = originX;
             this.originY = originY;
@@ -363,6 +575,8 @@ public class GlyphCache {
             this.xAdvance = xAdvance;
             this.yAdvance = yAdvance;
             this.rect = rect;
+            this.page = page;
+            this.generation = page != null ? page.generation : 0;
         }
 
         int getOriginX() {
@@ -388,5 +602,13 @@ public class GlyphCache {
         Rectangle getRect() {
             return rect;
         }
+
+        Page getPage() {
+            return page;
+        }
+
+        int getGeneration() {
+            return generation;
+        }
     }
 }
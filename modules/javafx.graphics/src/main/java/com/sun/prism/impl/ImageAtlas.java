@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.prism.impl;
+
+import java.nio.Buffer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.javafx.logging.PulseLogger;
+import com.sun.prism.Image;
+import com.sun.prism.PixelFormat;
+import com.sun.prism.ResourceFactory;
+import com.sun.prism.ResourceFactoryListener;
+import com.sun.prism.Texture;
+import com.sun.prism.Texture.Usage;
+import com.sun.prism.Texture.WrapMode;
+import com.sun.prism.impl.packrect.RectanglePacker;
+
+import static com.sun.javafx.logging.PulseLogger.PULSE_LOGGING_ENABLED;
+
+/**
+ * Packs small images into a few large textures shared by all the images of
+ * the same pixel format, so that consecutive draws of different icons use
+ * the same texture and can be batched into a single draw call.
+ * <p>
+ * Each image is stored with a one pixel border replicating its edge pixels,
+ * so that sampling the image with linear filtering behaves as if the image
+ * had its own texture in CLAMP_TO_EDGE mode. Viewports which extend past the
+ * bounds of the image must not be drawn from the atlas.
+ * <p>
+ * When a page is full, a new page is created, up to MAX_PAGES pages per
+ * pixel format. Beyond that the least recently used page which is not
+ * locked is cleared and all the images on it have to be uploaded again the
+ * next time they are used.
+ */
+public final class ImageAtlas implements ResourceFactoryListener {
+
+    /**
+     * The largest width or height of an image which is put in the atlas.
+     */
+    public static final int MAX_IMAGE_SIZE = 64;
+
+    private static final int MAX_PAGES = 4;
+    private static final int BORDER = 1;
+
+    private static final WeakHashMap<ResourceFactory, ImageAtlas> atlasMap =
+        new WeakHashMap<ResourceFactory, ImageAtlas>();
+
+    private final int pageSize;
+    private final Map<PixelFormat, List<Page>> pages =
+        new EnumMap<PixelFormat, List<Page>>(PixelFormat.class);
+    private final EnumSet<PixelFormat> unsupportedFormats =
+        EnumSet.noneOf(PixelFormat.class);
+    private final Map<Image, Entry> entries = new WeakHashMap<Image, Entry>();
+    private long clock;
+
+    private static final class Page {
+        final RectanglePacker packer;
+        long lastUsed;
+
+        Page(RectanglePacker packer) {
+            this.packer = packer;
+        }
+
+        Texture getTexture() {
+            return packer.getBackingStore();
+        }
+    }
+
+    private static final class Entry {
+        final Page page;
+        final Rectangle rect;
+        int serial;
+
+        Entry(Page page, Rectangle rect, int serial) {
+            this.page = page;
+            this.rect = rect;
+            this.serial = serial;
+        }
+    }
+
+    private ImageAtlas(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Returns the atlas of the given factory, or null if image atlases are
+     * disabled.
+     */
+    public static ImageAtlas getAtlas(ResourceFactory factory) {
+        if (PrismSettings.imageAtlasSize <= 0) {
+            return null;
+        }
+        ImageAtlas atlas = atlasMap.get(factory);
+        if (atlas == null) {
+            int size = Math.min(PrismSettings.imageAtlasSize,
+                                factory.getMaximumTextureSize());
+            atlas = new ImageAtlas(size);
+            factory.addFactoryListener(atlas);
+            atlasMap.put(factory, atlas);
+        }
+        return atlas;
+    }
+
+    /**
+     * Returns the locked texture to use for drawing the given image in
+     * CLAMP_TO_EDGE mode, either a page of the atlas of the factory or the
+     * texture returned by ResourceFactory.getCachedTexture, and stores the
+     * location of the image in that texture in the given rectangle.
+     */
+    public static Texture getCachedTexture(ResourceFactory factory, Image image,
+                                           Rectangle location)
+    {
+        ImageAtlas atlas = getAtlas(factory);
+        if (atlas != null) {
+            Texture tex = atlas.getTexture(factory, image, location);
+            if (tex != null) {
+                return tex;
+            }
+        }
+        location.setBounds(0, 0, image.getWidth(), image.getHeight());
+        return factory.getCachedTexture(image, WrapMode.CLAMP_TO_EDGE);
+    }
+
+    /**
+     * Returns whether the given image is small enough to be put in an atlas.
+     */
+    public static boolean isCandidate(Image image) {
+        return image.getWidth() <= MAX_IMAGE_SIZE &&
+               image.getHeight() <= MAX_IMAGE_SIZE;
+    }
+
+    /**
+     * Returns the locked texture holding the given image, uploading the image
+     * if needed, and stores the location of the image in the texture in the
+     * given rectangle. The caller must unlock the texture when done with it,
+     * as with ResourceFactory.getCachedTexture. Returns null if the image
+     * cannot be put in the atlas, in which case the caller should fall back
+     * to the texture cache of the factory.
+     */
+    public Texture getTexture(ResourceFactory factory, Image image,
+                              Rectangle location)
+    {
+        if (!isCandidate(image)) {
+            return null;
+        }
+        Entry entry = entries.get(image);
+        if (entry != null && entry.page.getTexture().isSurfaceLost()) {
+            removePage(entry.page);
+            entry = null;
+        }
+        if (entry == null) {
+            entry = add(factory, image);
+            if (entry == null) {
+                return null;
+            }
+        } else if (entry.serial != image.getSerial()) {
+            upload(entry.page.getTexture(), image, entry.rect);
+            entry.serial = image.getSerial();
+        }
+        entry.page.lastUsed = ++clock;
+        location.setBounds(entry.rect.x + BORDER, entry.rect.y + BORDER,
+                           image.getWidth(), image.getHeight());
+        Texture tex = entry.page.getTexture();
+        tex.lock();
+        return tex;
+    }
+
+    private Entry add(ResourceFactory factory, Image image) {
+        PixelFormat format = image.getPixelFormat();
+        if (unsupportedFormats.contains(format)) {
+            return null;
+        }
+        if (!factory.isFormatSupported(format)) {
+            unsupportedFormats.add(format);
+            return null;
+        }
+        List<Page> formatPages = pages.get(format);
+        if (formatPages == null) {
+            formatPages = new ArrayList<Page>(MAX_PAGES);
+            pages.put(format, formatPages);
+        }
+        Rectangle rect = new Rectangle(0, 0,
+                                       image.getWidth() + 2 * BORDER,
+                                       image.getHeight() + 2 * BORDER);
+        Page page = null;
+        for (Page p : formatPages) {
+            if (p.packer.add(rect)) {
+                page = p;
+                break;
+            }
+        }
+        if (page == null) {
+            if (formatPages.size() < MAX_PAGES) {
+                page = createPage(factory, format);
+                if (page != null) {
+                    formatPages.add(page);
+                }
+            } else {
+                // Pages still locked by someone else than the atlas are
+                // about to be drawn from and cannot be cleared
+                for (Page p : formatPages) {
+                    if (p.getTexture().getLockCount() <= 1 &&
+                        (page == null || p.lastUsed < page.lastUsed))
+                    {
+                        page = p;
+                    }
+                }
+                if (page != null) {
+                    clearPage(page);
+                }
+            }
+            if (page == null || !page.packer.add(rect)) {
+                return null;
+            }
+        }
+        upload(page.getTexture(), image, rect);
+        Entry entry = new Entry(page, rect, image.getSerial());
+        entries.put(image, entry);
+        return entry;
+    }
+
+    private Page createPage(ResourceFactory factory, PixelFormat format) {
+        Texture tex = factory.createTexture(format, Usage.DEFAULT,
+                                            WrapMode.CLAMP_NOT_NEEDED,
+                                            pageSize, pageSize);
+        if (tex == null) {
+            return null;
+        }
+        if (tex.getPixelFormat() != format) {
+            // The factory substituted another format, the pixels of the
+            // images could not be uploaded as they are
+            tex.dispose();
+            unsupportedFormats.add(format);
+            return null;
+        }
+        tex.contentsUseful();
+        tex.makePermanent();
+        return new Page(new RectanglePacker(tex, pageSize, pageSize));
+    }
+
+    /**
+     * Uploads the image together with a border replicating its edge pixels.
+     * The vertex buffer is flushed by the first update, since pending draws
+     * may still use the previous contents of the area.
+     */
+    private static void upload(Texture tex, Image image, Rectangle rect) {
+        final int w = image.getWidth();
+        final int h = image.getHeight();
+        final int x = rect.x;
+        final int y = rect.y;
+        tex.update(image, x + BORDER, y + BORDER, w, h, false);
+
+        Buffer pixels = image.getPixelBuffer();
+        int pos = pixels.position();
+        PixelFormat format = image.getPixelFormat();
+        int scan = image.getScanlineStride();
+        int minX = image.getMinX();
+        int minY = image.getMinY();
+        // top and bottom rows
+        tex.update(pixels, format, x + 1, y, minX, minY, w, 1, scan, true);
+        tex.update(pixels, format, x + 1, y + h + 1, minX, minY + h - 1, w, 1, scan, true);
+        // left and right columns, including the corners
+        tex.update(pixels, format, x, y, minX, minY, 1, 1, scan, true);
+        tex.update(pixels, format, x, y + 1, minX, minY, 1, h, scan, true);
+        tex.update(pixels, format, x, y + h + 1, minX, minY + h - 1, 1, 1, scan, true);
+        tex.update(pixels, format, x + w + 1, y, minX + w - 1, minY, 1, 1, scan, true);
+        tex.update(pixels, format, x + w + 1, y + 1, minX + w - 1, minY, 1, h, scan, true);
+        tex.update(pixels, format, x + w + 1, y + h + 1, minX + w - 1, minY + h - 1, 1, 1, scan, true);
+        pixels.position(pos);
+    }
+
+    private void clearPage(Page page) {
+        if (PULSE_LOGGING_ENABLED) {
+            PulseLogger.incrementCounter("Image atlas page cleared");
+        }
+        removeEntries(page);
+        page.packer.clear();
+    }
+
+    private void removePage(Page page) {
+        removeEntries(page);
+        for (List<Page> formatPages : pages.values()) {
+            formatPages.remove(page);
+        }
+        page.packer.dispose();
+    }
+
+    private void removeEntries(Page page) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().page == page) {
+                it.remove();
+            }
+        }
+    }
+
+    private void clear() {
+        for (List<Page> formatPages : pages.values()) {
+            for (Page page : formatPages) {
+                page.packer.dispose();
+            }
+        }
+        pages.clear();
+        entries.clear();
+        unsupportedFormats.clear();
+    }
+
+    @Override
+    public void factoryReset() {
+        clear();
+    }
+
+    @Override
+    public void factoryReleased() {
+        clear();
+    }
+}
@@ -47,6 +47,10 @@ public final class PrismSettings {
     public static final boolean isVsyncEnabled;
     public static final boolean dirtyOptsEnabled;
     public static final boolean occlusionCullingEnabled;
+    public static final boolean siblingOcclusion;
+    public static final int spatialIndexThreshold;
+    public static final boolean displayListsEnabled;
+    public static final boolean batchSiblings;
     public static final boolean scrollCacheOpt;
     public static final boolean threadCheck;
     public static final boolean cacheSimpleShapes;
@@ -63,6 +67,7 @@ public final class PrismSettings {
     public static final boolean printRenderGraph;
     public static final int minRTTSize;
     public static final int dirtyRegionCount;
+    public static final int dirtyTileSize;
     public static final boolean disableBadDriverWarning;
     public static final boolean forceGPU;
     public static final int maxTextureSize;
@@ -79,6 +84,13 @@ public final class PrismSettings {
     public static final boolean disableEffects;
     public static final int glyphCacheWidth;
     public static final int glyphCacheHeight;
+    public static final int glyphCachePages;
+    public static final int imageAtlasSize;
+    public static final int distanceFieldTextSize;
+    public static final int decodedImageCacheSize;
+    public static final int animatedImageFrames;
+    public static final int effectCacheSize;
+    public static final int swRenderBands;
     public static final String perfLog;
     public static final boolean perfLogExitFlush;
     public static final boolean perfLogFirstPaintFlush;
@@ -135,10 +147,47 @@ public final class PrismSettings {
                                                "prism.occlusion.culling",
                                                true);
 
+        /*
+         * Children of a group which are entirely covered by the opaque
+         * region of a sibling in front of them are not rendered.
+         */
+        siblingOcclusion =
+                occlusionCullingEnabled && getBoolean(systemProperties,
+                                                      "prism.occlusion.siblings",
+                                                      false);
+
+        /*
+         * Parents with at least this many children maintain a spatial index
+         * of their children's bounds for picking and culling, <=0 disables.
+         */
+        spatialIndexThreshold =
+                getInt(systemProperties, "prism.spatialindex",
+                       0, 1024, "Try -Dprism.spatialindex=<true or number>");
+
+        /*
+         * Groups which stay unchanged retain the Graphics commands issued by
+         * their children and replay them instead of walking the subtree.
+         */
+        displayListsEnabled =
+                dirtyOptsEnabled && getBoolean(systemProperties,
+                                               "prism.displaylists",
+                                               false);
+
+        /*
+         * Siblings which do not overlap are rendered out of order so that
+         * those drawn with the same state are batched together.
+         */
+        batchSiblings = getBoolean(systemProperties, "prism.batchsiblings", false);
+
         // The maximum number of dirty regions to use. The absolute max that we can
         // support at present is 15.
         dirtyRegionCount = Utils.clamp(0, getInt(systemProperties, "prism.dirtyregioncount", 6, null), 15);
 
+        // Collect the dirty regions in a grid of tiles of this size (in scene
+        // coordinates) instead of merging them as they are added, <=0 disables.
+        dirtyTileSize = getInt(systemProperties, "prism.dirtytiles",
+                               0, 64, "Try -Dprism.dirtytiles=<true or number>");
+
         // Scrolling cache optimization
         // Disabled as a workaround for RT-39755.
         scrollCacheOpt = getBoolean(systemProperties, "prism.scrollcacheopt", false);
@@ -370,6 +419,64 @@ public final class PrismSettings {
         glyphCacheHeight = getInt(systemProperties, "prism.glyphCacheHeight", 1024,
                 "Try -Dprism.glyphCacheHeight=<number>");
 
+        /*
+         * Number of glyph cache textures per screen; when all of them are
+         * full the least recently used one is cleared instead of all glyphs.
+         */
+        glyphCachePages = Math.max(1, getInt(systemProperties, "prism.glyphCachePages", 1,
+                "Try -Dprism.glyphCachePages=<number>"));
+
+        /*
+         * Size of the textures into which small images are packed so that
+         * draws of different images can share a texture, 0 to disable.
+         */
+        imageAtlasSize = getInt(systemProperties, "prism.imageatlas",
+                                0, 1024, "Try -Dprism.imageatlas=<true or number>");
+
+        /*
+         * Smallest size in device pixels of the text drawn from signed
+         * distance field glyphs, which serve all sizes and rotations of a
+         * font, instead of glyph images rasterized for each strike. 0 to
+         * disable.
+         */
+        distanceFieldTextSize = getInt(systemProperties, "prism.distanceFieldText",
+                                       0, 24, "Try -Dprism.distanceFieldText=<true or number>");
+
+        /*
+         * Size in megabytes of the cache of images decoded from a URL, which
+         * lets images loaded again with the same URL and parameters reuse
+         * the decoded pixels. Only file: and jar: URLs of local files are
+         * cached, and a file is decoded again when its modification time
+         * changes. 0 to disable.
+         */
+        decodedImageCacheSize = getInt(systemProperties, "prism.imageCache",
+                                       0, 64, "Try -Dprism.imageCache=<true or megabytes>");
+
+        /*
+         * Largest number of frames of an animated image which are all kept
+         * decoded in memory; the frames of longer animations are decoded
+         * again each time they are shown. 0 to keep all the frames.
+         */
+        animatedImageFrames = getInt(systemProperties, "prism.animatedImageFrames",
+                                     0, 16, "Try -Dprism.animatedImageFrames=<true or number>");
+
+        /*
+         * Size in megabytes of the cache of effect outputs, which lets a node
+         * rendered again with unchanged content, effect and transform, up to
+         * an integer translation, draw its previous effect output. 0 to
+         * disable.
+         */
+        effectCacheSize = getInt(systemProperties, "prism.effectCache",
+                                 0, 32, "Try -Dprism.effectCache=<true or megabytes>");
+
+        /*
+         * Number of horizontal bands the software pipeline renders
+         * concurrently, 0 or 1 to render on the render thread only.
+         */
+        swRenderBands = getInt(systemProperties, "prism.sw.bands",
+                               0, Runtime.getRuntime().availableProcessors(),
+                               "Try -Dprism.sw.bands=<true or number>");
+
         /*
          * Performance Logger flags
          * Enable the performance logger, print on exit, print on first paint etc.
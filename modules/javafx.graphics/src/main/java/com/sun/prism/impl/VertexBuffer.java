@@ -100,6 +100,13 @@ public final class VertexBuffer {
         }
     }
 
+    /**
+     * Returns true if there are no pending vertices in the buffer.
+     */
+    public final boolean isEmpty() {
+        return index == 0;
+    }
+
     public final void rewind() {
         index = 0;
     }
@@ -38,6 +38,7 @@ import com.sun.prism.ResourceFactory;
 import com.sun.prism.Texture;
 import com.sun.prism.impl.BaseContext;
 import com.sun.prism.impl.BaseGraphics;
+import com.sun.prism.impl.PrismSettings;
 import com.sun.prism.paint.Color;
 import com.sun.prism.paint.Gradient;
 import com.sun.prism.paint.ImagePattern;
@@ -81,12 +82,32 @@ public abstract class BaseShaderContext extends BaseContext {
     private static final int CHECK_CLEAR_OP_MASK =
         (CHECK_CLIP);
 
+    // The reasons for which the vertex buffer is flushed before the batch
+    // it holds would otherwise be full, counted if prism.printStats is set
+    private static final int FLUSH_SHADER        = 0;
+    private static final int FLUSH_TRANSFORM     = 1;
+    private static final int FLUSH_CLIP          = 2;
+    private static final int FLUSH_COMPOSITE     = 3;
+    private static final int FLUSH_TEXTURE       = 4;
+    private static final int FLUSH_PAINT         = 5;
+    private static final int FLUSH_RENDER_TARGET = 6;
+    private static final String[] FLUSH_REASONS = {
+        "shader", "transform", "clip", "composite", "texture", "paint", "renderTarget"
+    };
+
+    private static final int STATS_FREQUENCY = PrismSettings.prismStatFrequency;
+    private final int[] flushCounts =
+        STATS_FREQUENCY > 0 ? new int[FLUSH_REASONS.length] : null;
+    private int numDrawCalls;
+    private int nStatsFrame;
+
     public enum MaskType {
         SOLID          ("Solid"),
         TEXTURE        ("Texture"),
         ALPHA_ONE           ("AlphaOne", true),
         ALPHA_TEXTURE       ("AlphaTexture", true),
         ALPHA_TEXTURE_DIFF  ("AlphaTextureDifference", true),
+        ALPHA_DISTANCE_FIELD("AlphaDistanceField", true),
         FILL_PGRAM     ("FillPgram"),
         DRAW_PGRAM     ("DrawPgram", FILL_PGRAM),
         FILL_CIRCLE    ("FillCircle"),
@@ -122,7 +143,7 @@ public abstract class BaseShaderContext extends BaseContext {
         }
     }
 
-    // mask type     4 bits (14 types)
+    // mask type     4 bits (15 types)
     // paint type    2 bits
     // paint opts    2 bits
     private static final int NUM_STOCK_SHADER_SLOTS =
@@ -193,6 +214,47 @@ public abstract class BaseShaderContext extends BaseContext {
         private boolean lastState3D = false;
     }
 
+    private void flushVertexBuffer(int reason) {
+        if (flushCounts != null && !getVertexBuffer().isEmpty()) {
+            flushCounts[reason]++;
+        }
+        flushVertexBuffer();
+    }
+
+    @Override
+    public void drawQuads(float coordArray[], byte colorArray[], int numVertices) {
+        if (STATS_FREQUENCY > 0) {
+            numDrawCalls++;
+        }
+        super.drawQuads(coordArray, colorArray, numVertices);
+    }
+
+    /**
+     * Prints the number of draw calls per frame, and the number of times a
+     * batch was cut short by each kind of state change, averaged over the
+     * last prism.printStats frames. Called once per frame by the factory.
+     */
+    public void displayBatchStatistics() {
+        if (STATS_FREQUENCY > 0 && ++nStatsFrame == STATS_FREQUENCY) {
+            nStatsFrame = 0;
+            StringBuilder sb = new StringBuilder("Batch statistics per last ")
+                    .append(STATS_FREQUENCY).append(" frame(s) :\n")
+                    .append("\tnumDrawCalls=").append(divr(numDrawCalls, STATS_FREQUENCY))
+                    .append("\n\tflushes:");
+            for (int i = 0; i < FLUSH_REASONS.length; i++) {
+                sb.append(i == 0 ? " " : ", ").append(FLUSH_REASONS[i])
+                  .append('=').append(divr(flushCounts[i], STATS_FREQUENCY));
+                flushCounts[i] = 0;
+            }
+            numDrawCalls = 0;
+            System.err.println(sb);
+        }
+    }
+
+    private static int divr(int x, int d) {
+        return (x + d / 2) / d;
+    }
+
     protected void resetLastClip(State state) {
         state.lastClip = null;
     }
@@ -361,7 +423,7 @@ public abstract class BaseShaderContext extends BaseContext {
             state.lastConst3 != k3 || state.lastConst4 != k4 ||
             state.lastConst5 != k5 || state.lastConst6 != k6)
         {
-            flushVertexBuffer();
+            flushVertexBuffer(FLUSH_PAINT);
 
             state.lastConst1 = k1;
             state.lastConst2 = k2;
@@ -387,7 +449,7 @@ public abstract class BaseShaderContext extends BaseContext {
             state.lastConst3 != k3 || state.lastConst4 != k4 ||
             state.lastConst5 != k5 || state.lastConst6 != k6)
         {
-            flushVertexBuffer();
+            flushVertexBuffer(FLUSH_PAINT);
 
             state.lastConst1 = k1;
             state.lastConst2 = k2;
@@ -429,7 +491,7 @@ public abstract class BaseShaderContext extends BaseContext {
                 // case of proportional gradients, but the case where the
                 // same paint parameters are used multiple times in a row
                 // is so rare that it's not worth optimizing this any further)
-                flushVertexBuffer();
+                flushVertexBuffer(FLUSH_PAINT);
                 // we have to fetch the texture containing the gradient
                 // colors in advance since checkState() is responsible for
                 // binding the texture(s)
@@ -440,7 +502,7 @@ public abstract class BaseShaderContext extends BaseContext {
                 }
             } else if (paint.getType() == Paint.Type.IMAGE_PATTERN) {
                 // We need to flush here. See comment above about paint parameters changing.
-                flushVertexBuffer();
+                flushVertexBuffer(FLUSH_PAINT);
                 ImagePattern texPaint = (ImagePattern)paint;
                 ResourceFactory rf = g.getResourceFactory();
                 paintTex = rf.getCachedTexture(texPaint.getImage(), Texture.WrapMode.REPEAT);
@@ -629,7 +691,7 @@ public abstract class BaseShaderContext extends BaseContext {
         // shader constants, and we set the externalShader instance variable.
         // Later in checkState(), we will set the externalShader and
         // update the current transform state "for real".
-        flushVertexBuffer();
+        flushVertexBuffer(FLUSH_SHADER);
         if (shader != null) {
             shader.enable();
         }
@@ -645,7 +707,7 @@ public abstract class BaseShaderContext extends BaseContext {
 
         if ((checkFlags & CHECK_SHADER) != 0) {
             if (shader != state.lastShader) {
-                flushVertexBuffer();
+                flushVertexBuffer(FLUSH_SHADER);
                 shader.enable();
                 state.lastShader = shader;
                 // the transform matrix is part of the state of each shader
@@ -658,7 +720,7 @@ public abstract class BaseShaderContext extends BaseContext {
 
         if ((checkFlags & CHECK_TRANSFORM) != 0) {
             if (!state.isXformValid || !xform.equals(state.lastTransform)) {
-                flushVertexBuffer();
+                flushVertexBuffer(FLUSH_TRANSFORM);
                 updateShaderTransform(shader, xform);
                 state.lastTransform.setTransform(xform);
                 state.isXformValid = true;
@@ -668,7 +730,7 @@ public abstract class BaseShaderContext extends BaseContext {
         if ((checkFlags & CHECK_CLIP) != 0) {
             Rectangle clip = g.getClipRectNoClone();
             if (clip != state.lastClip) {
-                flushVertexBuffer();
+                flushVertexBuffer(FLUSH_CLIP);
                 updateClipRect(clip);
                 state.lastClip = clip;
             }
@@ -677,7 +739,7 @@ public abstract class BaseShaderContext extends BaseContext {
         if ((checkFlags & CHECK_COMPOSITE) != 0) {
             CompositeMode mode = g.getCompositeMode();
             if (mode != state.lastComp) {
-                flushVertexBuffer();
+                flushVertexBuffer(FLUSH_COMPOSITE);
                 updateCompositeMode(mode);
                 state.lastComp = mode;
             }
@@ -687,7 +749,7 @@ public abstract class BaseShaderContext extends BaseContext {
     private void setTexture(int texUnit, Texture tex) {
         if (tex != null) tex.assertLocked();
         if (tex != state.lastTextures[texUnit]) {
-            flushVertexBuffer();
+            flushVertexBuffer(FLUSH_TEXTURE);
             updateTexture(texUnit, tex);
             state.lastTextures[texUnit] = tex;
         }
@@ -743,7 +805,7 @@ public abstract class BaseShaderContext extends BaseContext {
             camera != state.lastCamera ||
             depthTest != state.lastDepthTest)
         {
-            flushVertexBuffer();
+            flushVertexBuffer(FLUSH_RENDER_TARGET);
             state = updateRenderTarget(target, camera, depthTest);
             state.lastRenderTarget = target;
             state.lastCamera = camera;
@@ -54,6 +54,7 @@ import com.sun.prism.ReadbackRenderTarget;
 import com.sun.prism.RenderTarget;
 import com.sun.prism.Texture;
 import com.sun.prism.impl.BaseGraphics;
+import com.sun.prism.impl.DistanceFieldCache;
 import com.sun.prism.impl.GlyphCache;
 import com.sun.prism.impl.PrismSettings;
 import com.sun.prism.impl.VertexBuffer;
@@ -1966,6 +1967,13 @@ public abstract class BaseShaderGraphics
             return;
         }
 
+        if (PrismSettings.distanceFieldTextSize > 0 &&
+            drawDistanceFieldString(gl, strike, x, y,
+                                    selectColor, selectStart, selectEnd))
+        {
+            return;
+        }
+
         BaseTransform xform = getTransformNoClone();
 
         Paint textPaint = getPaint();
@@ -2033,10 +2041,11 @@ public abstract class BaseShaderGraphics
          * description.
          */
         GlyphCache glyphCache = context.getGlyphCache(strike);
-        Texture cacheTex = glyphCache.getBackingStore();
+        Texture cacheTex = glyphCache.beginRender();
 
         //Since we currently cannot support LCD text on transparant surfaces, we
         //verify that we are drawing to an opaque surface.
+        float gamma = 1, invgamma = 1;
         if (strike.getAAMode() == FontResource.AA_LCD) {
             if (nodeBounds == null) {
                 // If drawString is called directly without using
@@ -2058,8 +2067,8 @@ public abstract class BaseShaderGraphics
             } else {
                 initLCDSampleRT();
             }
-            float invgamma = PrismFontFactory.getLCDContrast();
-            float gamma = 1.0f/invgamma;
+            invgamma = PrismFontFactory.getLCDContrast();
+            gamma = 1.0f/invgamma;
             textColor = new Color((float)Math.pow(textColor.getRed(),   invgamma),
                                   (float)Math.pow(textColor.getGreen(), invgamma),
                                   (float)Math.pow(textColor.getBlue(),  invgamma),
@@ -2072,21 +2081,6 @@ public abstract class BaseShaderGraphics
                         (float)Math.pow(selectColor.getAlpha(), invgamma));
             }
 
-            // In order to handle transparency, the LCD shader need to manually
-            // composite source with destination. Thus, SRC_OVER compositing
-            // needs to be set to SRC, while shader is active.
-            setCompositeMode(CompositeMode.SRC);
-
-            //set our 2nd LCD shader.
-            Shader shader = context.validateLCDOp(this, IDENT,
-                                                context.getLCDBuffer(),
-                                                cacheTex, false, textColor);
-
-            float unitXCoord = 1.0f/((float)cacheTex.getPhysicalWidth());
-            shader.setConstant("gamma", gamma, invgamma, unitXCoord);
-            setCompositeMode(blendMode); // Restore composite mode
-        } else {
-            context.validatePaintOp(this, IDENT, cacheTex, bx, by, bw, bh);
         }
         if (isSimpleTranslate) {
             // Applying this rounding allows for smoother text animation,
@@ -2098,8 +2092,67 @@ public abstract class BaseShaderGraphics
             p2d.y = Math.round(p2d.y);
             p2d.x = Math.round(p2d.x);
         }
-        glyphCache.render(context, gl, p2d.x, p2d.y, selectStart, selectEnd,
-                          selectColor, textColor, xform, clip);
+
+        // The glyphs may be spread over several pages of the glyph cache,
+        // the ones of each page are rendered with its texture.
+        do {
+            if (strike.getAAMode() == FontResource.AA_LCD) {
+                // In order to handle transparency, the LCD shader need to manually
+                // composite source with destination. Thus, SRC_OVER compositing
+                // needs to be set to SRC, while shader is active.
+                setCompositeMode(CompositeMode.SRC);
+
+                //set our 2nd LCD shader.
+                Shader shader = context.validateLCDOp(this, IDENT,
+                                                    context.getLCDBuffer(),
+                                                    cacheTex, false, textColor);
+
+                float unitXCoord = 1.0f/((float)cacheTex.getPhysicalWidth());
+                shader.setConstant("gamma", gamma, invgamma, unitXCoord);
+                setCompositeMode(blendMode); // Restore composite mode
+            } else {
+                context.validatePaintOp(this, IDENT, cacheTex, bx, by, bw, bh);
+            }
+            cacheTex = glyphCache.render(context, gl, p2d.x, p2d.y, selectStart, selectEnd,
+                                         selectColor, textColor, xform, clip, cacheTex);
+        } while (cacheTex != null);
+    }
+
+    /* Draws the glyphs from their signed distance fields, which serve all
+     * the sizes and transforms of the font, when the text is large enough
+     * on the device. Returns false if the text must be drawn from the
+     * glyph images of the strike.
+     */
+    private boolean drawDistanceFieldString(GlyphList gl, FontStrike strike,
+                                            float x, float y, Color selectColor,
+                                            int selectStart, int selectEnd)
+    {
+        if (paint.getType() != Paint.Type.COLOR) {
+            return false;
+        }
+        BaseTransform xform = getTransformNoClone();
+        double det = xform.getMxx() * xform.getMyy() -
+                     xform.getMxy() * xform.getMyx();
+        float deviceSize = strike.getSize() * (float) Math.sqrt(Math.abs(det));
+        if (deviceSize < PrismSettings.distanceFieldTextSize) {
+            return false;
+        }
+        DistanceFieldCache cache = context.getDistanceFieldCache();
+        Texture tex = cache.getBackingStore();
+        if (tex == null) {
+            return false;
+        }
+        float smoothing = DistanceFieldCache.getSmoothing(deviceSize);
+        float lo = 0.5f - smoothing * 0.5f;
+        float hi = 0.5f + smoothing * 0.5f;
+        // The quads are in user space, the shader applies the transform
+        Shader shader =
+            context.validatePaintOp(this, xform, MaskType.ALPHA_DISTANCE_FIELD,
+                                    tex, 0, 0, 0, 0, lo, hi, 0, 0, 0, 0);
+        shader.setConstant("distanceRange", lo, hi);
+        cache.render(gl, strike.getFontResource(), strike.getSize(), x, y,
+                     selectStart, selectEnd, selectColor, (Color) paint);
+        return true;
     }
 
     //This function is used by the LCD path to render a quad into the
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.prism.impl.ps;
+
+import java.util.Arrays;
+
+/**
+ * Computes an order in which to issue a sequence of draws so that draws
+ * using the same graphics state end up next to each other and can share a
+ * batch of the vertex buffer, while any two draws whose bounds intersect
+ * keep their relative order.
+ * <p>
+ * Each draw is described by a batch key, which identifies the state it
+ * needs, and its bounds in device space. A draw is moved back right after
+ * the most recent previous draw with an equal key, provided it does not
+ * intersect any of the draws it would skip. Only the last LOOKBACK draws
+ * are examined, which bounds the cost to O(n * LOOKBACK).
+ * <p>
+ * Draws with a null key are never moved, but later draws may be moved
+ * ahead of them if they do not intersect.
+ */
+public final class DrawReorderer {
+
+    private static final int LOOKBACK = 16;
+
+    private Object[] keys = new Object[16];
+    private float[] bounds = new float[16 * 4];
+    private int[] order = new int[16];
+    private int count;
+    private int moved;
+
+    /**
+     * Forgets all the draws added so far.
+     */
+    public void reset() {
+        Arrays.fill(keys, 0, count, null);
+        count = 0;
+        moved = 0;
+    }
+
+    /**
+     * Adds the next draw and places it in the order. The bounds are
+     * inclusive of any pixel the draw may touch.
+     */
+    public void add(Object key, float x0, float y0, float x1, float y1) {
+        final int i = count;
+        if (i == keys.length) {
+            int newLength = i * 2;
+            keys = Arrays.copyOf(keys, newLength);
+            bounds = Arrays.copyOf(bounds, newLength * 4);
+            order = Arrays.copyOf(order, newLength);
+        }
+        keys[i] = key;
+        bounds[i * 4    ] = x0;
+        bounds[i * 4 + 1] = y0;
+        bounds[i * 4 + 2] = x1;
+        bounds[i * 4 + 3] = y1;
+        count++;
+
+        int pos = i;
+        if (key != null) {
+            final int stop = Math.max(0, i - LOOKBACK);
+            for (int j = i - 1; j >= stop; j--) {
+                int other = order[j];
+                if (key.equals(keys[other])) {
+                    pos = j + 1;
+                    break;
+                }
+                if (intersects(i, other)) {
+                    break;
+                }
+            }
+        }
+        if (pos < i) {
+            System.arraycopy(order, pos, order, pos + 1, i - pos);
+            moved++;
+        }
+        order[pos] = i;
+    }
+
+    private boolean intersects(int a, int b) {
+        final float[] bds = bounds;
+        a *= 4;
+        b *= 4;
+        return bds[a    ] <= bds[b + 2] && bds[b    ] <= bds[a + 2] &&
+               bds[a + 1] <= bds[b + 3] && bds[b + 1] <= bds[a + 3];
+    }
+
+    /**
+     * Returns the number of draws added since the last reset.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of draws which were moved ahead of other draws.
+     */
+    public int getMovedCount() {
+        return moved;
+    }
+
+    /**
+     * Returns the index, in the order they were added, of the draw to issue
+     * at the given position.
+     */
+    public int get(int position) {
+        if (position < 0 || position >= count) {
+            throw new IndexOutOfBoundsException("position: " + position);
+        }
+        return order[position];
+    }
+}
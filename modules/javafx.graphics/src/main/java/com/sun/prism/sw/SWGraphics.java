@@ -29,6 +29,7 @@ import com.sun.glass.ui.Screen;
 import com.sun.javafx.font.FontResource;
 import com.sun.javafx.font.FontStrike;
 import com.sun.javafx.font.Glyph;
+import com.sun.javafx.font.GlyphPrefetcher;
 import com.sun.javafx.font.Metrics;
 import com.sun.javafx.font.PrismFontFactory;
 import com.sun.javafx.geom.Ellipse2D;
@@ -49,6 +50,7 @@ import com.sun.pisces.GradientColorMap;
 import com.sun.pisces.PiscesRenderer;
 import com.sun.pisces.RendererBase;
 import com.sun.pisces.Transform6;
+import com.sun.prism.BandGraphics;
 import com.sun.prism.BasicStroke;
 import com.sun.prism.CompositeMode;
 import com.sun.prism.Graphics;
@@ -62,7 +64,7 @@ import com.sun.prism.paint.Color;
 import com.sun.prism.paint.ImagePattern;
 import com.sun.prism.paint.Paint;
 
-final class SWGraphics implements ReadbackGraphics {
+final class SWGraphics implements ReadbackGraphics, BandGraphics {
 
     private static final BasicStroke DEFAULT_STROKE =
         new BasicStroke(1.0f, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER, 10.0f);
@@ -119,6 +121,11 @@ final class SWGraphics implements ReadbackGraphics {
         return target;
     }
 
+    @Override
+    public Graphics createBandGraphics(int band) {
+        return target.createBandGraphics(band);
+    }
+
     public SWResourceFactory getResourceFactory() {
         return target.getResourceFactory();
     }
@@ -633,18 +640,27 @@ final class SWGraphics implements ReadbackGraphics {
             final Point2D pt = new Point2D((float)(x + tx.getMxt() + gl.getPosX(idx)),
                                            (float)(y + tx.getMyt() + gl.getPosY(idx)));
             int subPixel = strike.getQuantizedPosition(pt);
-            final byte pixelData[] = g.getPixelData(subPixel);
+            final byte pixelData[];
+            final int originX, originY, width, height;
+            // The image may be produced concurrently by the prefetcher
+            synchronized (GlyphPrefetcher.getRasterizerLock()) {
+                pixelData = g.getPixelData(subPixel);
+                originX = g.getOriginX();
+                originY = g.getOriginY();
+                width = g.getWidth();
+                height = g.getHeight();
+            }
             if (pixelData != null) {
-                final int intPosX = g.getOriginX() + (int)pt.x;
-                final int intPosY = g.getOriginY() + (int)pt.y;
+                final int intPosX = originX + (int)pt.x;
+                final int intPosY = originY + (int)pt.y;
                 if (g.isLCDGlyph()) {
                     this.pr.fillLCDAlphaMask(pixelData, intPosX, intPosY,
-                            g.getWidth(), g.getHeight(),
-                            0, g.getWidth());
+                            width, height,
+                            0, width);
                 } else {
                     this.pr.fillAlphaMask(pixelData, intPosX, intPosY,
-                            g.getWidth(), g.getHeight(),
-                            0, g.getWidth());
+                            width, height,
+                            0, width);
                 }
             }
         } else {
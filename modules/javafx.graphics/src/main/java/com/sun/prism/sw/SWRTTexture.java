@@ -41,6 +41,7 @@ import java.nio.IntBuffer;
 class SWRTTexture extends SWArgbPreTexture implements RTTexture {
 
     private PiscesRenderer pr;
+    private PiscesRenderer[] bandRenderers;
     private JavaSurface surface;
     private final Rectangle dimensions = new Rectangle();
     private boolean isOpaque;
@@ -119,6 +120,21 @@ class SWRTTexture extends SWArgbPreTexture implements RTTexture {
         return new SWGraphics(this, getResourceFactory().getContext(), pr);
     }
 
+    Graphics createBandGraphics(int band) {
+        if (bandRenderers == null || bandRenderers.length <= band) {
+            PiscesRenderer[] newRenderers = new PiscesRenderer[band + 1];
+            if (bandRenderers != null) {
+                System.arraycopy(bandRenderers, 0, newRenderers, 0, bandRenderers.length);
+            }
+            bandRenderers = newRenderers;
+        }
+        if (bandRenderers[band] == null) {
+            bandRenderers[band] = new PiscesRenderer(this.surface);
+        }
+        return new SWGraphics(this, getResourceFactory().getBandContext(band),
+                              bandRenderers[band]);
+    }
+
     public boolean isOpaque() {
         return isOpaque;
     }
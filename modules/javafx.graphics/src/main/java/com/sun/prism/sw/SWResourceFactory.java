@@ -61,6 +61,7 @@ final class SWResourceFactory
 
     private Screen screen;
     private final SWContext context;
+    private SWContext[] bandContexts;
 
     public SWResourceFactory(Screen screen) {
         super(clampTexCache, repeatTexCache, mipmapTexCache);
@@ -80,8 +81,35 @@ final class SWResourceFactory
         return context;
     }
 
+    /**
+     * Returns the context used by the Graphics of the given band, see
+     * BandGraphics. Band contexts are distinct from the main context so that
+     * bands can be rendered concurrently.
+     */
+    SWContext getBandContext(int band) {
+        if (bandContexts == null || bandContexts.length <= band) {
+            SWContext[] newContexts = new SWContext[band + 1];
+            if (bandContexts != null) {
+                System.arraycopy(bandContexts, 0, newContexts, 0, bandContexts.length);
+            }
+            bandContexts = newContexts;
+        }
+        if (bandContexts[band] == null) {
+            bandContexts[band] = new SWContext(this);
+        }
+        return bandContexts[band];
+    }
+
     @Override public void dispose() {
         context.dispose();
+        if (bandContexts != null) {
+            for (SWContext bandContext : bandContexts) {
+                if (bandContext != null) {
+                    bandContext.dispose();
+                }
+            }
+            bandContexts = null;
+        }
     }
 
     @Override public ShapeRep createArcRep() {
@@ -140,6 +140,37 @@ public class GaussianBlur extends LinearConvolveCoreEffect {
         state.setRadius(radius);
     }
 
+    /**
+     * Returns the largest radius, in device pixels, of the kernels applied
+     * to the pixels before the input is downsampled.
+     *
+     * @return the downsample radius, or 0 if only the largest supported
+     * kernel size limits the kernels
+     */
+    public float getDownsampleRadius() {
+        return state.getDownsampleRadius();
+    }
+
+    /**
+     * Sets the largest radius, in device pixels, of the kernels applied to
+     * the pixels. Larger blurs are applied to a downsampled input and then
+     * upsampled, which is much faster for large radii at the expense of
+     * some quality.
+     * <pre>
+     *       Min:  0.0
+     *   Default:  0.0 (or the value of decora.gaussianDownsampleRadius)
+     *  Identity:  0.0
+     * </pre>
+     *
+     * @param downsampleRadius the downsample radius, or 0 to only downsample
+     * blurs which exceed the largest supported kernel size
+     * @throws IllegalArgumentException if {@code downsampleRadius} is
+     * negative
+     */
+    public void setDownsampleRadius(float downsampleRadius) {
+        state.setDownsampleRadius(downsampleRadius);
+    }
+
     @Override
     public BaseBounds getBounds(BaseTransform transform, Effect defaultInput) {
         BaseBounds r = super.getBounds(null, defaultInput);
@@ -25,6 +25,8 @@
 
 package com.sun.scenario.effect.impl.state;
 
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 import com.sun.javafx.geom.transform.BaseTransform;
 import com.sun.scenario.effect.Color4f;
 
@@ -33,8 +35,23 @@ import com.sun.scenario.effect.Color4f;
  * linear convolution kernels for performing Gaussian blurs.
  */
 public class GaussianBlurState extends HVSeparableKernel {
+    /**
+     * The default downsample radius, set with
+     * {@code -Ddecora.gaussianDownsampleRadius=<pixels>}. The default of 0
+     * only downsamples blurs which exceed the largest supported kernel.
+     */
+    static final float DEFAULT_DOWNSAMPLE_RADIUS;
+
+    static {
+        int radius = AccessController.doPrivileged(
+                (PrivilegedAction<Integer>) () -> Integer.getInteger(
+                        "decora.gaussianDownsampleRadius", 0));
+        DEFAULT_DOWNSAMPLE_RADIUS = Math.max(0, radius);
+    }
+
     private float hradius;
     private float vradius;
+    private float downsampleRadius = DEFAULT_DOWNSAMPLE_RADIUS;
 
     void checkRadius(float radius) {
         if (radius < 0f || radius > 63f) {
@@ -70,6 +87,34 @@ public class GaussianBlurState extends HVSeparableKernel {
         this.vradius = vradius;
     }
 
+    /**
+     * Returns the largest radius, in device pixels, of the kernels applied
+     * to the pixels, or 0 if only the largest supported kernel size limits
+     * them.
+     */
+    public float getDownsampleRadius() {
+        return downsampleRadius;
+    }
+
+    /**
+     * Sets the largest radius, in device pixels, of the kernels applied to
+     * the pixels. Blurs of a larger radius are applied to a downsampled
+     * input with a kernel of this radius, and the result is upsampled.
+     * Smaller values are faster for large blurs at the expense of their
+     * quality, 0 only downsamples blurs which exceed the largest supported
+     * kernel. Values between 0 and 1 are treated as 1.
+     *
+     * @param downsampleRadius the largest radius of the kernels, or 0
+     * @throws IllegalArgumentException if {@code downsampleRadius} is
+     * negative
+     */
+    public void setDownsampleRadius(float downsampleRadius) {
+        if (downsampleRadius < 0f) {
+            throw new IllegalArgumentException("Downsample radius must be non-negative");
+        }
+        this.downsampleRadius = downsampleRadius;
+    }
+
     float getRadius(int pass) {
         return (pass == 0 ? hradius : vradius);
     }
@@ -100,6 +145,6 @@ public class GaussianBlurState extends HVSeparableKernel {
     public LinearConvolveRenderState getRenderState(BaseTransform filtertx) {
         return new GaussianRenderState(hradius, vradius, getSpread(),
                                        this instanceof GaussianShadowState, getShadowColor(),
-                                       filtertx);
+                                       filtertx, downsampleRadius);
     }
 }
@@ -39,6 +39,8 @@ import java.nio.FloatBuffer;
  */
 public class GaussianRenderState extends LinearConvolveRenderState {
     public static final float MAX_RADIUS = (MAX_KERNEL_SIZE - 1) / 2;
+    // Smaller kernels would downsample the input to almost nothing
+    static final float MIN_DOWNSAMPLE_RADIUS = 1.0f;
 
     // General variables representing the convolve operation
     private boolean isShadow;
@@ -110,6 +112,31 @@ public class GaussianRenderState extends LinearConvolveRenderState {
      */
     public GaussianRenderState(float xradius, float yradius, float spread,
                                boolean isShadow, Color4f shadowColor, BaseTransform filtertx)
+    {
+        this(xradius, yradius, spread, isShadow, shadowColor, filtertx, MAX_RADIUS);
+    }
+
+    /**
+     * Constructs a {@link RenderState} for a 2 dimensional Gaussian convolution
+     * which downsamples its input as soon as the radius of the convolution
+     * in device pixels would exceed the given maximum radius, rather than
+     * only when it would exceed {@link #MAX_RADIUS}. A smaller maximum
+     * radius trades the quality of the blur for smaller kernels applied to
+     * fewer pixels.
+     *
+     * @param xradius the Gaussian radius along the user space X axis
+     * @param yradius the Gaussian radius along the user space Y axis
+     * @param spread the spread amount
+     * @param isShadow true if this is a shadow operation
+     * @param shadowColor the color of the shadow operation
+     * @param filtertx the transform applied to the filter operation
+     * @param maxRadius the largest radius of the kernels applied to the
+     *                  pixels, clamped to the range [1, {@link #MAX_RADIUS}],
+     *                  or 0 for {@link #MAX_RADIUS}
+     */
+    public GaussianRenderState(float xradius, float yradius, float spread,
+                               boolean isShadow, Color4f shadowColor, BaseTransform filtertx,
+                               float maxRadius)
     {
         /*
          * The operation starts as a description of the size of a (pair of)
@@ -171,6 +198,11 @@ public class GaussianRenderState extends LinearConvolveRenderState {
         this.isShadow = isShadow;
         this.shadowColor = shadowColor;
         this.spread = spread;
+        if (!(maxRadius > 0f && maxRadius < MAX_RADIUS)) {
+            maxRadius = MAX_RADIUS;
+        } else if (maxRadius < MIN_DOWNSAMPLE_RADIUS) {
+            maxRadius = MIN_DOWNSAMPLE_RADIUS;
+        }
         if (filtertx == null) filtertx = BaseTransform.IDENTITY_TRANSFORM;
         double mxx = filtertx.getMxx();
         double mxy = filtertx.getMxy();
@@ -194,14 +226,14 @@ public class GaussianRenderState extends LinearConvolveRenderState {
             this.resulttx = BaseTransform.IDENTITY_TRANSFORM;
             this.samplevectors = new float[] { 1.0f, 0.0f, 0.0f, 1.0f, 0.0f, 0.0f };
         } else {
-            if (scaledRadiusX > MAX_RADIUS) {
-                scaledRadiusX = MAX_RADIUS;
-                txScaleX = MAX_RADIUS / xradius;
+            if (scaledRadiusX > maxRadius) {
+                scaledRadiusX = maxRadius;
+                txScaleX = maxRadius / xradius;
                 scaled = true;
             }
-            if (scaledRadiusY > MAX_RADIUS) {
-                scaledRadiusY = MAX_RADIUS;
-                txScaleY = MAX_RADIUS / yradius;
+            if (scaledRadiusY > maxRadius) {
+                scaledRadiusY = maxRadius;
+                txScaleY = maxRadius / yradius;
                 scaled = true;
             }
             this.inputRadiusX = scaledRadiusX;
@@ -87,15 +87,25 @@ public class JSWBoxBlurPeer extends JSWEffectPeer<BoxRenderState> {
             int newh = curh + vinc;
             if (neww > finalw) neww = finalw;
             if (newh > finalh) newh = finalh;
+            final int dstw = neww;
+            final int dsth = newh;
             HeapImage dst = (HeapImage)getRenderer().getCompatibleImage(neww, newh);
             int newscan = dst.getScanlineStride();
             int[] newPixels = dst.getPixelArray();
+            final int[] srcPixels = curPixels;
+            final int srcw = curw;
+            final int srch = curh;
+            final int srcscan = curscan;
             if (horizontal) {
-                filterHorizontal(newPixels, neww, newh, newscan,
-                                 curPixels, curw, curh, curscan);
+                filterRanges(dsth, dstw, (y0, y1) ->
+                    filterHorizontal(newPixels, dstw, dsth, newscan,
+                                     srcPixels, srcw, srch, srcscan,
+                                     y0, y1));
             } else {
-                filterVertical(newPixels, neww, newh, newscan,
-                               curPixels, curw, curh, curscan);
+                filterRanges(dstw, dsth, (x0, x1) ->
+                    filterVertical(newPixels, dstw, dsth, newscan,
+                                   srcPixels, srcw, srch, srcscan,
+                                   x0, x1));
             }
             if (cur != src) {
                 getRenderer().releaseCompatibleImage(cur);
@@ -113,13 +123,14 @@ public class JSWBoxBlurPeer extends JSWEffectPeer<BoxRenderState> {
     }
 
     protected void filterHorizontal(int dstPixels[], int dstw, int dsth, int dstscan,
-                                    int srcPixels[], int srcw, int srch, int srcscan)
+                                    int srcPixels[], int srcw, int srch, int srcscan,
+                                    int y0, int y1)
     {
         int hsize = dstw - srcw + 1;
         int kscale = 0x7fffffff / (hsize * 255);
-        int srcoff = 0;
-        int dstoff = 0;
-        for (int y = 0; y < dsth; y++) {
+        int srcoff = y0 * srcscan;
+        int dstoff = y0 * dstscan;
+        for (int y = y0; y < y1; y++) {
             int suma = 0;
             int sumr = 0;
             int sumg = 0;
@@ -150,12 +161,13 @@ public class JSWBoxBlurPeer extends JSWEffectPeer<BoxRenderState> {
     }
 
     protected void filterVertical(int dstPixels[], int dstw, int dsth, int dstscan,
-                                  int srcPixels[], int srcw, int srch, int srcscan)
+                                  int srcPixels[], int srcw, int srch, int srcscan,
+                                  int x0, int x1)
     {
         int vsize = dsth - srch + 1;
         int kscale = 0x7fffffff / (vsize * 255);
         int voff = vsize * srcscan;
-        for (int x = 0; x < dstw; x++) {
+        for (int x = x0; x < x1; x++) {
             int suma = 0;
             int sumr = 0;
             int sumg = 0;
@@ -92,6 +92,8 @@ public class JSWBoxShadowPeer extends JSWEffectPeer<BoxRenderState> {
             int newh = curh + vinc;
             if (neww > finalw) neww = finalw;
             if (newh > finalh) newh = finalh;
+            final int dstw = neww;
+            final int dsth = newh;
             HeapImage dst = (HeapImage)getRenderer().getCompatibleImage(neww, newh);
             int newscan = dst.getScanlineStride();
             int[] newPixels = dst.getPixelArray();
@@ -99,15 +101,22 @@ public class JSWBoxShadowPeer extends JSWEffectPeer<BoxRenderState> {
                 // The last "fixup" iteration of 2 should have no spread.
                 spread = 0f;
             }
+            final int[] srcPixels = curPixels;
+            final int srcw = curw;
+            final int srch = curh;
+            final int srcscan = curscan;
+            final float passSpread = spread;
             if (horizontal) {
-                filterHorizontalBlack(newPixels, neww, newh, newscan,
-                                      curPixels, curw, curh, curscan,
-                                      spread);
+                filterRanges(dsth, dstw, (y0, y1) ->
+                    filterHorizontalBlack(newPixels, dstw, dsth, newscan,
+                                          srcPixels, srcw, srch, srcscan,
+                                          passSpread, y0, y1));
             } else if (neww < finalw || newh < finalh) {
                 // Use BLACK for shadow color until very last pass
-                filterVerticalBlack(newPixels, neww, newh, newscan,
-                                    curPixels, curw, curh, curscan,
-                                    spread);
+                filterRanges(dstw, dsth, (x0, x1) ->
+                    filterVerticalBlack(newPixels, dstw, dsth, newscan,
+                                        srcPixels, srcw, srch, srcscan,
+                                        passSpread, x0, x1));
             } else {
                 float shadowColor[] =
                      brstate.getShadowColor().getPremultipliedRGBComponents();
@@ -116,13 +125,15 @@ public class JSWBoxShadowPeer extends JSWEffectPeer<BoxRenderState> {
                     shadowColor[1] == 0f &&
                     shadowColor[2] == 0f)
                 {
-                    filterVerticalBlack(newPixels, neww, newh, newscan,
-                                        curPixels, curw, curh, curscan,
-                                        spread);
+                    filterRanges(dstw, dsth, (x0, x1) ->
+                        filterVerticalBlack(newPixels, dstw, dsth, newscan,
+                                            srcPixels, srcw, srch, srcscan,
+                                            passSpread, x0, x1));
                 } else {
-                    filterVertical(newPixels, neww, newh, newscan,
-                                   curPixels, curw, curh, curscan,
-                                   spread, shadowColor);
+                    filterRanges(dstw, dsth, (x0, x1) ->
+                        filterVertical(newPixels, dstw, dsth, newscan,
+                                       srcPixels, srcw, srch, srcscan,
+                                       passSpread, shadowColor, x0, x1));
                 }
             }
             if (cur != src) {
@@ -144,7 +155,7 @@ public class JSWBoxShadowPeer extends JSWEffectPeer<BoxRenderState> {
 
     protected void filterHorizontalBlack(int dstPixels[], int dstw, int dsth, int dstscan,
                                          int srcPixels[], int srcw, int srch, int srcscan,
-                                         float spread)
+                                         float spread, int y0, int y1)
     {
         int hsize = dstw - srcw + 1;
         // amax goes from hsize*255 to 255 as spread goes from 0 to 1
@@ -152,9 +163,9 @@ public class JSWBoxShadowPeer extends JSWEffectPeer<BoxRenderState> {
         amax += (255 - amax) * spread;
         int kscale = 0x7fffffff / amax;
         int amin = (amax / 255);
-        int srcoff = 0;
-        int dstoff = 0;
-        for (int y = 0; y < dsth; y++) {
+        int srcoff = y0 * srcscan;
+        int dstoff = y0 * dstscan;
+        for (int y = y0; y < y1; y++) {
             int suma = 0;
             for (int x = 0; x < dstw; x++) {
                 int rgb;
@@ -177,7 +188,7 @@ public class JSWBoxShadowPeer extends JSWEffectPeer<BoxRenderState> {
 
     protected void filterVerticalBlack(int dstPixels[], int dstw, int dsth, int dstscan,
                                        int srcPixels[], int srcw, int srch, int srcscan,
-                                       float spread)
+                                       float spread, int x0, int x1)
     {
         int vsize = dsth - srch + 1;
         // amax goes from hsize*255 to 255 as spread goes from 0 to 1
@@ -186,7 +197,7 @@ public class JSWBoxShadowPeer extends JSWEffectPeer<BoxRenderState> {
         int kscale = 0x7fffffff / amax;
         int amin = (amax / 255);
         int voff = vsize * srcscan;
-        for (int x = 0; x < dstw; x++) {
+        for (int x = x0; x < x1; x++) {
             int suma = 0;
             int srcoff = x;
             int dstoff = x;
@@ -211,7 +222,8 @@ public class JSWBoxShadowPeer extends JSWEffectPeer<BoxRenderState> {
 
     protected void filterVertical(int dstPixels[], int dstw, int dsth, int dstscan,
                                   int srcPixels[], int srcw, int srch, int srcscan,
-                                  float spread, float shadowColor[])
+                                  float spread, float shadowColor[],
+                                  int x0, int x1)
     {
         int vsize = dsth - srch + 1;
         // amax goes from hsize*255 to 255 as spread goes from 0 to 1
@@ -229,7 +241,7 @@ public class JSWBoxShadowPeer extends JSWEffectPeer<BoxRenderState> {
             (((int) (shadowColor[1] * 255)) <<  8) |
             (((int) (shadowColor[2] * 255))      ) |
             (((int) (shadowColor[3] * 255)) << 24);
-        for (int x = 0; x < dstw; x++) {
+        for (int x = x0; x < x1; x++) {
             int suma = 0;
             int srcoff = x;
             int dstoff = x;
@@ -25,6 +25,13 @@
 
 package com.sun.scenario.effect.impl.sw.java;
 
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import com.sun.scenario.effect.FilterContext;
 import com.sun.scenario.effect.impl.EffectPeer;
 import com.sun.scenario.effect.impl.Renderer;
@@ -32,10 +39,134 @@ import com.sun.scenario.effect.impl.state.RenderState;
 
 public abstract class JSWEffectPeer<T extends RenderState> extends EffectPeer<T> {
 
+    /**
+     * The number of threads, including the render thread, which share the
+     * rows or columns of an image being filtered, set with
+     * {@code -Ddecora.sw.threads=<number>}. With the default of 1 all the
+     * filtering is done on the render thread.
+     */
+    static final int THREAD_COUNT;
+
+    /**
+     * The number of destination pixels below which a filter is not worth
+     * splitting across threads.
+     */
+    static final int MIN_PARALLEL_PIXELS = 128 * 128;
+
+    static {
+        int threads = AccessController.doPrivileged(
+                (PrivilegedAction<Integer>) () -> Integer.getInteger(
+                        "decora.sw.threads", 1));
+        THREAD_COUNT = Math.max(1, threads);
+    }
+
+    private static ExecutorService executor;
+
     protected JSWEffectPeer(FilterContext fctx, Renderer r, String uniqueName) {
         super(fctx, r, uniqueName);
     }
 
+    /**
+     * Filters a range of the independent rows or columns of an image.
+     */
+    @FunctionalInterface
+    protected interface RangeFilter {
+        /**
+         * Filters the rows or columns from {@code start} inclusive to
+         * {@code end} exclusive.
+         */
+        void filter(int start, int end);
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            final ThreadFactory threadFactory =
+                    runnable -> AccessController.doPrivileged(
+                            (PrivilegedAction<Thread>) () -> {
+                                final Thread newThread =
+                                        new Thread(runnable, "Decora Software Filter");
+                                newThread.setDaemon(true);
+                                return newThread;
+                            }
+                    );
+            executor = Executors.newFixedThreadPool(Math.max(1, THREAD_COUNT - 1),
+                                                    threadFactory);
+        }
+        return executor;
+    }
+
+    /**
+     * Runs the given filter over {@code count} rows or columns of
+     * {@code length} pixels each, splitting them into contiguous ranges
+     * filtered in parallel when there are enough pixels. The ranges must
+     * write to disjoint parts of the destination and only read pixels
+     * which none of them write. The first range is filtered on the calling
+     * thread and this method returns once all of them are done.
+     */
+    protected static void filterRanges(int count, int length, RangeFilter filter) {
+        runRanges(getRangeCount(THREAD_COUNT, count, length), count, filter);
+    }
+
+    static int getRangeCount(int threads, int count, int length) {
+        if (threads < 2 || count < 2 ||
+            (long) count * length < MIN_PARALLEL_PIXELS)
+        {
+            return 1;
+        }
+        return Math.min(threads, count);
+    }
+
+    static void runRanges(int rangeCount, int count, RangeFilter filter) {
+        if (rangeCount < 2) {
+            filter.filter(0, count);
+            return;
+        }
+        final Future<?>[] futures = new Future<?>[rangeCount];
+        for (int i = 1; i < rangeCount; i++) {
+            final int start = getRangeStart(count, rangeCount, i);
+            final int end = getRangeStart(count, rangeCount, i + 1);
+            futures[i] = getExecutor().submit(() -> filter.filter(start, end));
+        }
+
+        Throwable error = null;
+        try {
+            filter.filter(0, getRangeStart(count, rangeCount, 1));
+        } catch (RuntimeException | Error e) {
+            error = e;
+        }
+        // The other ranges must complete before the destination can be used
+        boolean interrupted = false;
+        for (int i = 1; i < rangeCount; i++) {
+            while (true) {
+                try {
+                    futures[i].get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (error == null) {
+                        error = e.getCause();
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        } else if (error instanceof Error) {
+            throw (Error) error;
+        } else if (error != null) {
+            throw new RuntimeException(error);
+        }
+    }
+
+    private static int getRangeStart(int count, int rangeCount, int range) {
+        return (int) ((long) count * range / rangeCount);
+    }
+
     protected final static int FVALS_A = 3;
     protected final static int FVALS_R = 0;
     protected final static int FVALS_G = 1;
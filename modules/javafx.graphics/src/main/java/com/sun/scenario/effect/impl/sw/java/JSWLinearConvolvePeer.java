@@ -112,17 +112,19 @@ public class JSWLinearConvolvePeer extends JSWEffectPeer<LinearConvolveRenderSta
             weights_buf.get(weights_arr, 0, count);
             weights_buf.rewind();
             weights_buf.get(weights_arr, count, count);
-            filterHV(dstPixels, dstw, dsth, 1, dstscan,
-                     srcPixels, srcw, srch, 1, srcscan,
-                     weights_arr);
+            filterRanges(dsth, dstw, (r0, r1) ->
+                filterHV(dstPixels, dstw, dsth, 1, dstscan,
+                         srcPixels, srcw, srch, 1, srcscan,
+                         weights_arr, r0, r1));
         } else if (type == PassType.VERTICAL_CENTERED) {
             float[] weights_arr = new float[count * 2];
             weights_buf.get(weights_arr, 0, count);
             weights_buf.rewind();
             weights_buf.get(weights_arr, count, count);
-            filterHV(dstPixels, dsth, dstw, dstscan, 1,
-                     srcPixels, srch, srcw, srcscan, 1,
-                     weights_arr);
+            filterRanges(dstw, dsth, (r0, r1) ->
+                filterHV(dstPixels, dsth, dstw, dstscan, 1,
+                         srcPixels, srch, srcw, srcscan, 1,
+                         weights_arr, r0, r1));
         } else {
             float[] weights_arr = new float[count];
             weights_buf.get(weights_arr, 0, count);
@@ -135,7 +137,7 @@ public class JSWLinearConvolvePeer extends JSWEffectPeer<LinearConvolveRenderSta
                                                 dstBounds, src0Transform);
             float srcx0 = srcRect[0] * srcw;
             float srcy0 = srcRect[1] * srch;
-            float dxcol, dycol, dxrow, dyrow;
+            final float dxcol, dycol, dxrow, dyrow;
             if (nCoords < 8) {
                 dxcol = (srcRect[2] - srcRect[0]) * srcw / dstBounds.width;
                 dycol = 0f;
@@ -154,13 +156,15 @@ public class JSWLinearConvolvePeer extends JSWEffectPeer<LinearConvolveRenderSta
             float offsetx = offset_arr[2] * srcw;
             float offsety = offset_arr[3] * srch;
 
-            filterVector(dstPixels, dstw, dsth, dstscan,
-                         srcPixels, srcw, srch, srcscan,
-                         weights_arr, count,
-                         srcx0, srcy0,
-                         offsetx, offsety,
-                         deltax, deltay,
-                         dxcol, dycol, dxrow, dyrow);
+            filterRanges(dsth, dstw, (y0, y1) ->
+                filterVector(dstPixels, dstw, dsth, dstscan,
+                             srcPixels, srcw, srch, srcscan,
+                             weights_arr, count,
+                             srcx0, srcy0,
+                             offsetx, offsety,
+                             deltax, deltay,
+                             dxcol, dycol, dxrow, dyrow,
+                             y0, y1));
         }
 
         return new ImageData(getFilterContext(), dst, dstBounds);
@@ -175,14 +179,21 @@ public class JSWLinearConvolvePeer extends JSWEffectPeer<LinearConvolveRenderSta
                                 float srcx0, float srcy0,
                                 float offsetx, float offsety,
                                 float deltax, float deltay,
-                                float dxcol, float dycol, float dxrow, float dyrow)
+                                float dxcol, float dycol, float dxrow, float dyrow,
+                                int y0, int y1)
     {
-        int dstrow = 0;
+        int dstrow = y0 * dstscan;
         float fvals[] = new float[4];
         // srcxy0 point at UL corner, shift them to center of 1st dest pixel:
         srcx0 += (dxrow + dxcol) * 0.5f;
         srcy0 += (dyrow + dycol) * 0.5f;
-        for (int dy = 0; dy < dsth; dy++) {
+        // step over the rows before y0 the same way the loop does, so that
+        // the result does not depend on how the rows are split
+        for (int dy = 0; dy < y0; dy++) {
+            srcx0 += dxrow;
+            srcy0 += dyrow;
+        }
+        for (int dy = y0; dy < y1; dy++) {
             float srcx = srcx0;
             float srcy = srcy0;
             for (int dx = 0; dx < dstw; dx++) {
@@ -220,15 +231,15 @@ public class JSWLinearConvolvePeer extends JSWEffectPeer<LinearConvolveRenderSta
      */
     protected void filterHV(int dstPixels[], int dstcols, int dstrows, int dcolinc, int drowinc,
                             int srcPixels[], int srccols, int srcrows, int scolinc, int srowinc,
-                            float weights[])
+                            float weights[], int r0, int r1)
     {
         // cvals stores the component values from the surrounding K pixels
         // from x-r to x+r
         int kernelSize = weights.length / 2;
         float cvals[] = new float[kernelSize * 4];
-        int dstrow = 0;
-        int srcrow = 0;
-        for (int r = 0; r < dstrows; r++) {
+        int dstrow = r0 * drowinc;
+        int srcrow = r0 * srowinc;
+        for (int r = r0; r < r1; r++) {
             int dstoff = dstrow;
             int srcoff = srcrow;
             // Must clear out the array at the start of every line
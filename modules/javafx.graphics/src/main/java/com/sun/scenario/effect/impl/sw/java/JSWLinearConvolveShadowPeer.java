@@ -49,15 +49,22 @@ public class JSWLinearConvolveShadowPeer extends JSWLinearConvolvePeer {
                                 float srcx0, float srcy0,
                                 float offsetx, float offsety,
                                 float deltax, float deltay,
-                                float dxcol, float dycol, float dxrow, float dyrow)
+                                float dxcol, float dycol, float dxrow, float dyrow,
+                                int y0, int y1)
     {
         float shadowColor[] = getShadowColor();
 
-        int dstrow = 0;
+        int dstrow = y0 * dstscan;
         // srcxy0 point at UL corner, shift them to center of 1st dest pixel:
         srcx0 += (dxrow + dxcol) * 0.5f;
         srcy0 += (dyrow + dycol) * 0.5f;
-        for (int dy = 0; dy < dsth; dy++) {
+        // step over the rows before y0 the same way the loop does, so that
+        // the result does not depend on how the rows are split
+        for (int dy = 0; dy < y0; dy++) {
+            srcx0 += dxrow;
+            srcy0 += dyrow;
+        }
+        for (int dy = y0; dy < y1; dy++) {
             float srcx = srcx0;
             float srcy = srcy0;
             for (int dx = 0; dx < dstw; dx++) {
@@ -102,7 +109,7 @@ public class JSWLinearConvolveShadowPeer extends JSWLinearConvolvePeer {
     @Override
     protected void filterHV(int dstPixels[], int dstcols, int dstrows, int dcolinc, int drowinc,
                             int srcPixels[], int srccols, int srcrows, int scolinc, int srowinc,
-                            float weights[])
+                            float weights[], int r0, int r1)
     {
         float shadowColor[] = getShadowColor();
 
@@ -110,8 +117,8 @@ public class JSWLinearConvolveShadowPeer extends JSWLinearConvolvePeer {
         // from x-r to x+r
         int kernelSize = weights.length / 2;
         float avals[] = new float[kernelSize];
-        int dstrow = 0;
-        int srcrow = 0;
+        int dstrow = r0 * drowinc;
+        int srcrow = r0 * srowinc;
         int shadowRGBs[] = new int[256];
         for (int i = 0; i < shadowRGBs.length; i++) {
             shadowRGBs[i] = ((int) (shadowColor[0] * i) << 16) |
@@ -119,7 +126,7 @@ public class JSWLinearConvolveShadowPeer extends JSWLinearConvolvePeer {
                             ((int) (shadowColor[2] * i)      ) |
                             ((int) (shadowColor[3] * i) << 24);
         }
-        for (int r = 0; r < dstrows; r++) {
+        for (int r = r0; r < r1; r++) {
             int dstoff = dstrow;
             int srcoff = srcrow;
             // Must clear out the array at the start of every line
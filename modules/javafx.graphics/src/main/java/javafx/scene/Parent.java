@@ -33,6 +33,7 @@ import javafx.collections.ListChangeListener.Change;
 import javafx.collections.ObservableList;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
 
@@ -43,9 +44,12 @@ import com.sun.javafx.collections.VetoableListDecorator;
 import javafx.css.Selector;
 import com.sun.javafx.css.StyleManager;
 import com.sun.javafx.geom.BaseBounds;
+import com.sun.javafx.geom.BoundsTree;
 import com.sun.javafx.geom.PickRay;
 import com.sun.javafx.geom.Point2D;
 import com.sun.javafx.geom.RectBounds;
+import com.sun.javafx.geom.SpatialGrid;
+import com.sun.javafx.geom.Vec3d;
 import com.sun.javafx.geom.transform.BaseTransform;
 import com.sun.javafx.geom.transform.NoninvertibleTransformException;
 import com.sun.javafx.jmx.MXNodeAlgorithm;
@@ -56,6 +60,7 @@ import com.sun.javafx.scene.input.PickResultChooser;
 import com.sun.javafx.sg.prism.NGGroup;
 import com.sun.javafx.sg.prism.NGNode;
 import com.sun.javafx.tk.Toolkit;
+import com.sun.prism.impl.PrismSettings;
 import com.sun.javafx.scene.LayoutFlags;
 import com.sun.javafx.scene.NodeHelper;
 import com.sun.javafx.scene.ParentHelper;
@@ -82,6 +87,11 @@ public abstract class Parent extends Node {
     // package private for testing
     static final int DIRTY_CHILDREN_THRESHOLD = 10;
 
+    // package private for testing
+    // Number of children from which the cached bounds are maintained in a
+    // BoundsTree rather than by tracking the edge nodes.
+    static final int BOUNDS_TREE_THRESHOLD = 256;
+
     // If set to true, generate a warning message whenever adding a node to a
     // parent if it is currently a child of another parent.
     private static final boolean warnOnAutoMove = PropertyHelper.getBooleanProperty("javafx.sg.warn");
@@ -294,6 +304,7 @@ public abstract class Parent extends Node {
 
         final NGGroup peer = getPeer();
         peer.setViewOrderChildren(viewOrderChildren);
+        invalidatePickIndex();
     }
 
     // Call this method if children view order is needed for picking.
@@ -325,6 +336,11 @@ public abstract class Parent extends Node {
         protected void onChanged(Change<Node> c) {
             // proceed with updating the scene graph
             unmodifiableManagedChildren = null;
+            invalidatePickIndex();
+            if (boundsTree != null && !isAppend(c)) {
+                boundsTreeInvalid = true;
+            }
+            c.reset();
             boolean relayout = false;
             boolean viewOrderChildrenDirty = false;
 
@@ -806,6 +822,23 @@ public abstract class Parent extends Node {
 
     boolean pickChildrenNode(PickRay pickRay, PickResultChooser result) {
         List<Node> orderedChildren = getOrderedChildren();
+        final Vec3d dir = pickRay.getDirectionNoClone();
+        if (dir.x == 0.0 && dir.y == 0.0 && updatePickIndex(orderedChildren)) {
+            // fast path for the usual 2D picking: only the children whose
+            // bounds contain the pick point can possibly be picked
+            final Vec3d origin = pickRay.getOriginNoClone();
+            final float x = (float) origin.x;
+            final float y = (float) origin.y;
+            final int count = pickIndex.query(x, y, x, y);
+            final int[] candidates = pickIndex.getResults();
+            for (int i = count - 1; i >= 0; i--) {
+                orderedChildren.get(candidates[i]).pickNode(pickRay, result);
+                if (result.isClosed()) {
+                    return false;
+                }
+            }
+            return true;
+        }
         for (int i = orderedChildren.size() - 1; i >= 0; i--) {
             orderedChildren.get(i).pickNode(pickRay, result);
             if (result.isClosed()) {
@@ -828,6 +861,81 @@ public abstract class Parent extends Node {
         }
     }
 
+    /**
+     * Spatial index of the bounds in parent of the ordered children. It is
+     * only maintained when this parent has at least
+     * PrismSettings.spatialIndexThreshold children, and is used to pick only
+     * the children whose bounds contain the pick point.
+     */
+    private SpatialGrid pickIndex;
+    private IdentityHashMap<Node, Integer> pickIndexPositions;
+    private List<Node> pickIndexUpdates;
+    private boolean pickIndexInvalid;
+
+    private void invalidatePickIndex() {
+        if (pickIndex != null) {
+            pickIndexInvalid = true;
+            pickIndexUpdates.clear();
+        }
+    }
+
+    private void childPickBoundsChanged(Node node) {
+        if (pickIndex != null && !pickIndexInvalid) {
+            if (pickIndexUpdates.size() > (pickIndex.size() >> 2)) {
+                // Cheaper to rebuild than to move that many children
+                invalidatePickIndex();
+            } else {
+                pickIndexUpdates.add(node);
+            }
+        }
+    }
+
+    /**
+     * Brings the pick index up to date, creating or discarding it depending
+     * on the number of children.
+     *
+     * @return whether the index can be used
+     */
+    private boolean updatePickIndex(List<Node> orderedChildren) {
+        final int size = orderedChildren.size();
+        if (PrismSettings.spatialIndexThreshold <= 0 ||
+                size < PrismSettings.spatialIndexThreshold) {
+            pickIndex = null;
+            pickIndexPositions = null;
+            pickIndexUpdates = null;
+            return false;
+        }
+        if (pickIndex == null) {
+            pickIndex = new SpatialGrid();
+            pickIndexUpdates = new ArrayList<>();
+            pickIndexInvalid = true;
+        }
+        if (pickIndexInvalid) {
+            pickIndexPositions = new IdentityHashMap<>(size);
+            pickIndex.reset(size);
+            for (int i = 0; i < size; i++) {
+                final Node node = orderedChildren.get(i);
+                pickIndexPositions.put(node, i);
+                tmp = getChildTransformedBounds(node, BaseTransform.IDENTITY_TRANSFORM, tmp);
+                pickIndex.set(i, tmp);
+            }
+            pickIndexInvalid = false;
+        } else {
+            // computing the bounds of a child may report further changes
+            for (int i = 0; i < pickIndexUpdates.size(); i++) {
+                final Node node = pickIndexUpdates.get(i);
+                final Integer index = pickIndexPositions.get(node);
+                if (index != null) {
+                    tmp = getChildTransformedBounds(node, BaseTransform.IDENTITY_TRANSFORM, tmp);
+                    pickIndex.set(index, tmp);
+                }
+            }
+        }
+        pickIndexUpdates.clear();
+        // a rebuild may have been requested while computing the bounds
+        return !pickIndexInvalid || updatePickIndex(orderedChildren);
+    }
+
     @Override boolean isConnected() {
         return super.isConnected() || sceneRoot;
     }
@@ -1491,6 +1599,18 @@ public abstract class Parent extends Node {
     private Node near;
     private Node far;
 
+    /**
+     * Holds the transformed bounds of every child once the number of children
+     * reaches BOUNDS_TREE_THRESHOLD. For very wide trees, tracking only the
+     * edge nodes degrades to a full recomputation whenever an edge node moves
+     * inwards, while the tree updates the cached bounds in O(log n) for each
+     * dirty child. The edge nodes above are not maintained while the tree is
+     * in use.
+     */
+    private BoundsTree boundsTree;
+    private IdentityHashMap<Node, Integer> boundsTreePositions;
+    private boolean boundsTreeInvalid;
+
     private BaseBounds doComputeGeomBounds(BaseBounds bounds, BaseTransform tx) {
         // If we have no children, our bounds are invalid
         if (children.isEmpty()) {
@@ -1595,6 +1715,13 @@ public abstract class Parent extends Node {
     // TOGGLED TO BE INVISIBLE. This is because in both cases it needs to be
     // cleared from the state which manages bounds.
     private void childExcluded(final Node node) {
+        if (boundsTree != null) {
+            final Integer pos = boundsTreePositions.get(node);
+            if (pos != null && pos < boundsTree.size()) {
+                boundsTree.setEmpty(pos);
+            }
+            cachedBoundsInvalid = true;
+        }
         if (node == left) {
             left = null;
             cachedBoundsInvalid = true;
@@ -1627,6 +1754,18 @@ public abstract class Parent extends Node {
      * Recomputes the bounds from scratch and saves the cached bounds.
      */
     private void recomputeBounds() {
+        if (children.size() >= BOUNDS_TREE_THRESHOLD) {
+            updateBoundsTree();
+            return;
+        }
+        if (boundsTree != null) {
+            // the edge nodes were not maintained while the tree was in use
+            boundsTree = null;
+            boundsTreePositions = null;
+            createCachedBounds(children);
+            return;
+        }
+
         // fast path for case of no children
         if (children.isEmpty()) {
             cachedBounds.makeEmpty();
@@ -1765,6 +1904,65 @@ public abstract class Parent extends Node {
         return true;
     }
 
+    private void updateBoundsTree() {
+        final int size = children.size();
+        if (boundsTree == null) {
+            boundsTree = new BoundsTree();
+            boundsTreeInvalid = true;
+        }
+        // Updating is O(log n) per dirty child, so when most of the children
+        // have moved it is cheaper to fill in the whole tree again
+        if (boundsTreeInvalid || dirtyChildren == null
+                || dirtyChildrenCount > size / 8) {
+            boundsTree.reset(size);
+            boundsTreePositions = new IdentityHashMap<>(size);
+            for (int i = 0; i < size; ++i) {
+                final Node node = children.get(i);
+                node.boundsChanged = false;
+                boundsTreePositions.put(node, i);
+                if (node.isVisible()) {
+                    tmp = getChildTransformedBounds(node, BaseTransform.IDENTITY_TRANSFORM, tmp);
+                    boundsTree.set(i, tmp);
+                }
+            }
+            boundsTreeInvalid = false;
+        } else {
+            // children appended since the last update; the visible ones
+            // are in dirtyChildren
+            for (int i = boundsTree.size(); i < size; ++i) {
+                boundsTreePositions.put(children.get(i), i);
+            }
+            boundsTree.grow(size);
+
+            for (int i = dirtyChildren.size() - 1; i >= 0; --i) {
+                final Node node = dirtyChildren.get(i);
+                if (node.boundsChanged) {
+                    // assert node.isVisible();
+                    node.boundsChanged = false;
+                    tmp = getChildTransformedBounds(node, BaseTransform.IDENTITY_TRANSFORM, tmp);
+                    boundsTree.set(boundsTreePositions.get(node), tmp);
+                }
+            }
+        }
+        cachedBounds = boundsTree.getBounds(cachedBounds);
+    }
+
+    /**
+     * Returns true if the change only appended children to the end of
+     * the list, which keeps the positions of the existing children.
+     */
+    private static boolean isAppend(Change<Node> c) {
+        boolean append = false;
+        while (c.next()) {
+            if (append || c.wasRemoved() || c.wasPermutated()
+                    || c.getTo() != c.getList().size()) {
+                return false;
+            }
+            append = c.wasAdded();
+        }
+        return append;
+    }
+
     private void createCachedBounds(final List<Node> fromNodes) {
         // These indicate the bounds of the Group as computed by this function
         float minX, minY, minZ;
@@ -1861,6 +2059,7 @@ public abstract class Parent extends Node {
         }
 
         cachedBoundsInvalid = true;
+        childPickBoundsChanged(node);
 
         // mark the node such that the parent knows that the child's bounds
         // are not in sync with this parent. In this way, when the bounds
@@ -1880,6 +2079,7 @@ public abstract class Parent extends Node {
     void childVisibilityChanged(Node node) {
         if (node.isVisible()) {
             childIncluded(node);
+            childPickBoundsChanged(node);
         } else {
             childExcluded(node);
         }
@@ -32,8 +32,10 @@ import java.net.URL;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.concurrent.CancellationException;
 import java.util.regex.Pattern;
 import javafx.animation.KeyFrame;
@@ -835,17 +837,13 @@ public class Image {
     private Animation animation;
     // We keep the animation frames associated with the Image rather than with
     // the animation, so most of the data can be garbage collected while
-    // the animation is still running.
-    private PlatformImage[] animFrames;
+    // the animation is still running. The frames are taken from the loader
+    // when they are shown, since it may decode them only then.
+    private ImageLoader animLoader;
 
     // Generates the animation Timeline for multiframe images.
     private void initializeAnimatedImage(ImageLoader loader) {
-        final int frameCount = loader.getFrameCount();
-        animFrames = new PlatformImage[frameCount];
-
-        for (int i = 0; i < frameCount; ++i) {
-            animFrames[i] = loader.getFrame(i);
-        }
+        animLoader = loader;
 
         PlatformImage zeroFrame = loader.getFrame(0);
 
@@ -898,7 +896,7 @@ public class Image {
             final Image image = imageRef.get();
             if (image != null) {
                 image.platformImagePropertyImpl().set(
-                        image.animFrames[frameIndex]);
+                        image.animLoader.getFrame(frameIndex));
             } else {
                 timeline.stop();
             }
@@ -912,33 +910,69 @@ public class Image {
         }
     }
 
-    private void cycleTasks() {
+    private static void cycleTasks(final ImageTask finishedTask) {
         synchronized (pendingTasks) {
+            if (!finishedTask.started) {
+                // cancelled while it was still waiting in the queue
+                return;
+            }
+            finishedTask.started = false;
             runningTasks--;
             // do we have any pending tasks to run ?
             // we can assume we are under the throttle limit because
             // one task just completed.
-            final ImageTask nextTask = pendingTasks.poll();
-            if (nextTask != null) {
+            startNextTask();
+        }
+    }
+
+    // Queued images are loaded in the order they were requested. With
+    // -Djavafx.image.newestFirst=true the most recently requested images
+    // are loaded first instead, since they are the most likely to be the
+    // ones currently shown, for example after scrolling through a list of
+    // thumbnails. The oldest queued image is still loaded once
+    // MAX_PASSED_OVER newer ones were started ahead of it, so it cannot
+    // starve. Images which have become unreachable while waiting are never
+    // loaded.
+    private static void startNextTask() {
+        PendingTask pendingTask;
+        while ((pendingTask = pollPendingTask()) != null) {
+            final ImageTask nextTask = pendingTask.get();
+            if (nextTask != null && !nextTask.peer.isDone()) {
                 runningTasks++;
+                startedPendingTasks++;
+                nextTask.started = true;
                 nextTask.start();
+                return;
             }
         }
     }
 
+    private static PendingTask pollPendingTask() {
+        if (!loadNewestFirst) {
+            return pendingTasks.pollFirst();
+        }
+        final PendingTask oldest = pendingTasks.peekFirst();
+        if (oldest != null
+                && startedPendingTasks - oldest.startedBefore >= MAX_PASSED_OVER) {
+            return pendingTasks.pollFirst();
+        }
+        return pendingTasks.pollLast();
+    }
+
     private void loadInBackground() {
         backgroundTask = new ImageTask();
         // This is an artificial throttle on background image loading tasks.
         // It has been shown that with large images, we can quickly use up the
         // heap loading images, even if they result in thumbnails.
-        // The limit of MAX_RUNNING_TASKS is arbitrary, and was based on initial
+        // The default limit of 4 tasks is arbitrary, and was based on initial
         // testing with
         // about 60 2-6 megapixel images.
         synchronized (pendingTasks) {
             if (runningTasks >= MAX_RUNNING_TASKS) {
-                pendingTasks.offer(backgroundTask);
+                pendingTasks.offerLast(new PendingTask(backgroundTask));
             } else {
                 runningTasks++;
+                backgroundTask.started = true;
                 backgroundTask.start();
             }
         }
@@ -989,15 +1023,38 @@ public class Image {
         platformImage.set(newPlatformImage);
     }
 
-    private static final int MAX_RUNNING_TASKS = 4;
+    private static final int MAX_RUNNING_TASKS =
+            AccessController.doPrivileged((PrivilegedAction<Integer>) () ->
+                    Math.max(1, Integer.getInteger(
+                            "javafx.image.maxBackgroundTasks", 4)));
+    // guarded by pendingTasks, can be changed by tests
+    static boolean loadNewestFirst =
+            AccessController.doPrivileged((PrivilegedAction<Boolean>) () ->
+                    Boolean.getBoolean("javafx.image.newestFirst"));
+    private static final int MAX_PASSED_OVER = 16;
     private static int runningTasks = 0;
-    private static final Queue<ImageTask> pendingTasks =
-            new LinkedList<ImageTask>();
+    private static long startedPendingTasks = 0;
+    private static final Deque<PendingTask> pendingTasks =
+            new ArrayDeque<PendingTask>();
+
+    // Only the images reference their tasks, so that an image which is
+    // dropped before its turn comes can be garbage collected
+    private static final class PendingTask extends WeakReference<ImageTask> {
+        // the number of queued tasks started before this one was queued
+        private final long startedBefore;
+
+        PendingTask(final ImageTask task) {
+            super(task);
+            startedBefore = startedPendingTasks;
+        }
+    }
 
     private final class ImageTask
             implements AsyncOperationListener<ImageLoader> {
 
         private final AsyncOperation peer;
+        // guarded by pendingTasks
+        private boolean started;
 
         public ImageTask() {
             peer = constructPeer();
@@ -1006,19 +1063,19 @@ public class Image {
         @Override
         public void onCancel() {
             finishImage(new CancellationException("Loading cancelled"));
-            cycleTasks();
+            cycleTasks(this);
         }
 
         @Override
         public void onException(Exception exception) {
             finishImage(exception);
-            cycleTasks();
+            cycleTasks(this);
         }
 
         @Override
         public void onCompletion(ImageLoader value) {
             finishImage(value);
-            cycleTasks();
+            cycleTasks(this);
         }
 
         @Override
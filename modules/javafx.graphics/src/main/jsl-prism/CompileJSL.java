@@ -127,7 +127,8 @@ public class CompileJSL {
     private static enum AlphaMaskType {
         ALPHA_ONE            ("AlphaOne"),
         ALPHA_TEXTURE        ("AlphaTexture",           InputParam.TEXCOORD0),
-        ALPHA_TEXTURE_DIFF   ("AlphaTextureDifference", InputParam.TEXCOORD0);
+        ALPHA_TEXTURE_DIFF   ("AlphaTextureDifference", InputParam.TEXCOORD0),
+        ALPHA_DISTANCE_FIELD ("AlphaDistanceField",     InputParam.TEXCOORD0);
 
         private String name;
         private InputParam[] inputParams;
@@ -58,6 +58,11 @@ static INLINE void blendSrc8888_pre(jint *intData, jint aval, jint raaval, jint
 static INLINE void blendSrc8888_pre_pre(jint *intData, jint aval, jint raaval, jint sred,
                              jint sgreen, jint sblue);
 
+static INLINE jint spanLength(jint *a, jint *am);
+static INLINE void fillSpan8888(jint *intData, jint count, jint pixelStride, jint pixel);
+static INLINE void blendSrcOverSpan8888_pre(jint *intData, jint count, jint pixelStride,
+                             jint aval, jint sred, jint sgreen, jint sblue);
+
 static INLINE jint div255(jint x) {
     return (x*257 + 257) >> 16;
 }
@@ -350,9 +355,9 @@ emitLinePTSourceOver8888_pre(Renderer *rdr, jint height, jint frac) {
 
 void
 blitSrc8888_pre(Renderer *rdr, jint height) {
-    jint j;
+    jint i, j, n;
     jint minX, maxX, w;
-    jint iidx, aval, acoverage;
+    jint aval, acoverage;
     jint aval_relative;
 
     jint *intData = rdr->_data;
@@ -360,15 +365,14 @@ blitSrc8888_pre(Renderer *rdr, jint height) {
     jint imageScanlineStride = rdr->_imageScanlineStride;
     jint imagePixelStride = rdr->_imagePixelStride;
     jint *alpha = rdr->_rowAAInt;
-    jint alphaOffset = 0;
-    jint alphaStride = rdr->_alphaWidth;
 
-    jint *a, *am;
+    jint *a, *am, *d;
 
     jint calpha = rdr->_calpha;
     jint cred = rdr->_cred;
     jint cgreen = rdr->_cgreen;
     jint cblue = rdr->_cblue;
+    jint solid_pixel = (calpha << 24) | (cred << 16) | (cgreen << 8) | cblue;
     jbyte *alphaMap = rdr->alphaMap;
 
     minX = rdr->_minTouched;
@@ -376,27 +380,32 @@ blitSrc8888_pre(Renderer *rdr, jint height) {
     w = (maxX >= minX) ? (maxX - minX + 1) : 0;
 
     for (j = 0; j < height; j++) {
-        iidx = imageOffset + minX * imagePixelStride;
+        d = intData + imageOffset + minX * imagePixelStride;
 
         aval_relative = 0;
         a = alpha;
         am = a + w;
         while (a < am) {
+            // the coverage only changes where the delta is not zero,
+            // so process the whole span up to the next change at once
             aval_relative += *a;
-            *a++ = 0;
+            *a = 0;
+            n = spanLength(a, am);
             acoverage = alphaMap[aval_relative] & 0xff;
             if (acoverage == MAX_ALPHA) {
-                intData[iidx] = (calpha << 24) | (cred << 16) | (cgreen << 8) | cblue;
+                fillSpan8888(d, n, imagePixelStride, solid_pixel);
             } else if (acoverage > 0) {
                 aval = ((acoverage+1) * calpha) >> 8;
-                blendSrc8888_pre(&intData[iidx], aval, 255 - acoverage,
-                    cred, cgreen, cblue);
+                for (i = 0; i < n; i++) {
+                    blendSrc8888_pre(d + i * imagePixelStride, aval, 255 - acoverage,
+                                     cred, cgreen, cblue);
+                }
             }
-            iidx += imagePixelStride;
+            a += n;
+            d += n * imagePixelStride;
         }
 
         imageOffset += imageScanlineStride;
-        alphaOffset += alphaStride;
     }
 }
 
@@ -450,9 +459,9 @@ blitSrcMask8888_pre(Renderer *rdr, jint height) {
 
 void
 blitPTSrc8888_pre(Renderer *rdr, jint height) {
-    jint j;
+    jint i, j, n;
     jint minX, maxX, w;
-    jint cval, aidx, iidx, aval, acoverage;
+    jint cval, aidx, aval, acoverage, raaval;
     jint aval_relative;
 
     jint *intData = rdr->_data;
@@ -461,12 +470,11 @@ blitPTSrc8888_pre(Renderer *rdr, jint height) {
     jint imagePixelStride = rdr->_imagePixelStride;
     jint *alpha = rdr->_rowAAInt;
 
-    jint *a, *am;
+    jint *a, *am, *d;
 
     jbyte *alphaMap = rdr->alphaMap;
 
     jint* paint = rdr->_paint;
-    jint palpha;
 
     minX = rdr->_minTouched;
     maxX = rdr->_maxTouched;
@@ -474,30 +482,39 @@ blitPTSrc8888_pre(Renderer *rdr, jint height) {
 
     for (j = 0; j < height; j++) {
         aidx = 0;
-        iidx = imageOffset + minX * imagePixelStride;
+        d = intData + imageOffset + minX * imagePixelStride;
 
         aval_relative = 0;
         a = alpha;
         am = a + w;
         while (a < am) {
+            aval_relative += *a;
+            *a = 0;
+            n = spanLength(a, am);
             assert(aidx >= 0);
-            assert(aidx < rdr->_paint_length);
+            assert(aidx + n <= rdr->_paint_length);
 
-            cval = paint[aidx];
-            palpha = A(cval);
-
-            aval_relative += *a;
-            *a++ = 0;
             acoverage = alphaMap[aval_relative] & 0xff;
-
             if (acoverage == MAX_ALPHA) {
-                intData[iidx] = cval;
+                if (imagePixelStride == 1) {
+                    memcpy(d, paint + aidx, n * sizeof(jint));
+                } else {
+                    for (i = 0; i < n; i++) {
+                        d[i * imagePixelStride] = paint[aidx + i];
+                    }
+                }
             } else if (acoverage > 0) {
-                aval = ((acoverage+1) * palpha) >> 8;
-                blendSrc8888_pre_pre(&intData[iidx], aval, 255 - acoverage, R(cval), G(cval), B(cval));
+                raaval = 255 - acoverage;
+                for (i = 0; i < n; i++) {
+                    cval = paint[aidx + i];
+                    aval = ((acoverage+1) * A(cval)) >> 8;
+                    blendSrc8888_pre_pre(d + i * imagePixelStride, aval, raaval,
+                                         R(cval), G(cval), B(cval));
+                }
             }
-            iidx += imagePixelStride;
-            ++aidx;
+            a += n;
+            d += n * imagePixelStride;
+            aidx += n;
         }
 
         imageOffset += imageScanlineStride;
@@ -554,9 +571,9 @@ blitPTSrcMask8888_pre(Renderer *rdr, jint height) {
 
 void
 blitSrcOver8888_pre(Renderer *rdr, jint height) {
-    jint j;
+    jint j, n;
     jint minX, maxX, w;
-    jint  iidx, aval;
+    jint aval;
     jint aval_relative;
 
     jint *intData = rdr->_data;
@@ -564,15 +581,14 @@ blitSrcOver8888_pre(Renderer *rdr, jint height) {
     jint imageScanlineStride = rdr->_imageScanlineStride;
     jint imagePixelStride = rdr->_imagePixelStride;
     jint *alpha = rdr->_rowAAInt;
-    jint alphaOffset = 0;
-    jint alphaStride = rdr->_alphaWidth;
 
-    jint *a, *am;
+    jint *a, *am, *d;
 
     jint calpha = rdr->_calpha;
     jint cred = rdr->_cred;
     jint cgreen = rdr->_cgreen;
     jint cblue = rdr->_cblue;
+    jint solid_pixel = 0xff000000 | (cred << 16) | (cgreen << 8) | cblue;
     jbyte *alphaMap = rdr->alphaMap;
 
     minX = rdr->_minTouched;
@@ -580,28 +596,31 @@ blitSrcOver8888_pre(Renderer *rdr, jint height) {
     w = (maxX >= minX) ? (maxX - minX + 1) : 0;
 
     for (j = 0; j < height; j++) {
-        iidx = imageOffset + minX * imagePixelStride;
+        d = intData + imageOffset + minX * imagePixelStride;
 
         aval_relative = 0;
         a = alpha;
         am = a + w;
         while (a < am) {
+            // the coverage only changes where the delta is not zero,
+            // so process the whole span up to the next change at once
             aval_relative += *a;
-            *a++ = 0;
+            *a = 0;
+            n = spanLength(a, am);
             if (aval_relative) {
                 aval = alphaMap[aval_relative] & 0xff;
                 aval = ((aval+1) * calpha) >> 8;
                 if (aval == MAX_ALPHA) {
-                    intData[iidx] = 0xff000000 | (cred << 16) | (cgreen << 8) | cblue;
+                    fillSpan8888(d, n, imagePixelStride, solid_pixel);
                 } else if (aval > 0) {
-                    blendSrcOver8888_pre(&intData[iidx], aval, cred, cgreen, cblue);
+                    blendSrcOverSpan8888_pre(d, n, imagePixelStride, aval, cred, cgreen, cblue);
                 }
             }
-            iidx += imagePixelStride;
+            a += n;
+            d += n * imagePixelStride;
         }
 
         imageOffset += imageScanlineStride;
-        alphaOffset += alphaStride;
     }
 }
 
@@ -711,9 +730,9 @@ blitSrcOverLCDMask8888_pre(Renderer *rdr, jint height) {
 
 void
 blitPTSrcOver8888_pre(Renderer *rdr, jint height) {
-    jint j;
+    jint i, j, n;
     jint minX, maxX, w;
-    jint cval, aidx, iidx, aval;
+    jint cval, aidx, aval;
     jint aval_relative;
 
     jint *intData = rdr->_data;
@@ -722,7 +741,7 @@ blitPTSrcOver8888_pre(Renderer *rdr, jint height) {
     jint imagePixelStride = rdr->_imagePixelStride;
     jint *alpha = rdr->_rowAAInt;
 
-    jint *a, *am;
+    jint *a, *am, *d;
 
     jbyte *alphaMap = rdr->alphaMap;
 
@@ -735,32 +754,48 @@ blitPTSrcOver8888_pre(Renderer *rdr, jint height) {
 
     for (j = 0; j < height; j++) {
         aidx = 0;
-        iidx = imageOffset + minX * imagePixelStride;
+        d = intData + imageOffset + minX * imagePixelStride;
 
         aval_relative = 0;
         a = alpha;
         am = a + w;
         while (a < am) {
+            aval_relative += *a;
+            *a = 0;
+            n = spanLength(a, am);
             assert(aidx >= 0);
-            assert(aidx < rdr->_paint_length);
-
-            cval = paint[aidx];
-            palpha = A(cval);
+            assert(aidx + n <= rdr->_paint_length);
 
-            aval_relative += *a;
-            *a++ = 0;
             if (aval_relative) {
                 malpha = alphaMap[aval_relative] & 0xff;
-                aval = ((malpha+1) * palpha) >> 8;
-
-                if (aval == MAX_ALPHA) {
-                    intData[iidx] = cval;
-                } else if (aval > 0) {
-                    blendSrcOver8888_pre_pre(&intData[iidx], malpha+1, palpha, R(cval), G(cval), B(cval));
+                if (malpha == MAX_ALPHA) {
+                    // full coverage, only the paint alpha matters
+                    for (i = 0; i < n; i++) {
+                        cval = paint[aidx + i];
+                        palpha = A(cval);
+                        if (palpha == MAX_ALPHA) {
+                            d[i * imagePixelStride] = cval;
+                        } else if (palpha > 0) {
+                            blendSrcOver8888_pre_pre_fullFrac(d + i * imagePixelStride,
+                                palpha, R(cval), G(cval), B(cval));
+                        }
+                    }
+                } else {
+                    // partial coverage never makes the result opaque
+                    for (i = 0; i < n; i++) {
+                        cval = paint[aidx + i];
+                        palpha = A(cval);
+                        aval = ((malpha+1) * palpha) >> 8;
+                        if (aval > 0) {
+                            blendSrcOver8888_pre_pre(d + i * imagePixelStride, malpha+1,
+                                palpha, R(cval), G(cval), B(cval));
+                        }
+                    }
                 }
             }
-            iidx += imagePixelStride;
-            ++aidx;
+            a += n;
+            d += n * imagePixelStride;
+            aidx += n;
         }
 
         imageOffset += imageScanlineStride;
@@ -860,6 +895,58 @@ clearRect8888_any(Renderer *rdr, jint x, jint y, jint w, jint h) {
     //fflush(stdout);
 }
 
+// Returns the number of pixels from a on which the coverage stays the same,
+// which is up to the next non zero delta
+static jint
+spanLength(jint *a, jint *am) {
+    jint *p = a + 1;
+    // long spans are common, skip over groups of zero deltas first
+    while (p + 4 <= am && (p[0] | p[1] | p[2] | p[3]) == 0) {
+        p += 4;
+    }
+    while (p < am && *p == 0) {
+        p++;
+    }
+    return (jint)(p - a);
+}
+
+static void
+fillSpan8888(jint *intData, jint count, jint pixelStride, jint pixel) {
+    jint *am = intData + count * pixelStride;
+    if (pixelStride == 1) {
+        while (intData < am) {
+            *intData++ = pixel;
+        }
+    } else {
+        for (; intData < am; intData += pixelStride) {
+            *intData = pixel;
+        }
+    }
+}
+
+// Same as blendSrcOver8888_pre for a span of pixels, the source terms are
+// computed once and the loop has no branches
+static void
+blendSrcOverSpan8888_pre(jint *intData, jint count, jint pixelStride,
+                             jint aval,
+                             jint sred, jint sgreen, jint sblue) {
+    jint *am = intData + count * pixelStride;
+    jint oneminusaval = (255 - aval);
+    jint salpha = 255 * aval;
+    jint sr = sred * aval;
+    jint sg = sgreen * aval;
+    jint sb = sblue * aval;
+
+    for (; intData < am; intData += pixelStride) {
+        jint ival = *intData;
+        jint oalpha  = div255(salpha + oneminusaval * ((ival >> 24) & 0xff));
+        jint ored    = div255(sr     + oneminusaval * ((ival >> 16) & 0xff));
+        jint ogreen  = div255(sg     + oneminusaval * ((ival >> 8) & 0xff));
+        jint oblue   = div255(sb     + oneminusaval * (ival & 0xff));
+        *intData = (oalpha << 24) | (ored << 16) | (ogreen << 8) | oblue;
+    }
+}
+
 // *intData are premultiplied, sred, sgreen, sblue are non-premultiplied
 static void
 blendSrcOver8888_pre(jint *intData,
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.font;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class FontIndexShim {
+
+    public static boolean write(File file, String key,
+                                Map<String,String> fontToFileMap,
+                                Map<String,String> fontToFamilyNameMap,
+                                Map<String,ArrayList<String>> familyToFontListMap) {
+        return write(file, key, fontToFileMap, fontToFamilyNameMap,
+                     familyToFontListMap, Collections.emptyList());
+    }
+
+    public static boolean write(File file, String key,
+                                Map<String,String> fontToFileMap,
+                                Map<String,String> fontToFamilyNameMap,
+                                Map<String,ArrayList<String>> familyToFontListMap,
+                                List<String> roots) {
+        FontIndex index = new FontIndex();
+        index.fontToFileMap.putAll(fontToFileMap);
+        index.fontToFamilyNameMap.putAll(fontToFamilyNameMap);
+        index.familyToFontListMap.putAll(familyToFontListMap);
+        return index.write(file, key, f -> f, roots);
+    }
+
+    public static boolean isValid(File file, String key) {
+        return FontIndex.read(file, key) != null;
+    }
+
+    public static Map<String,String> readFontToFileMap(File file, String key) {
+        FontIndex index = FontIndex.read(file, key);
+        return index == null ? null : index.fontToFileMap;
+    }
+
+    public static Map<String,String> readFontToFamilyNameMap(File file, String key) {
+        FontIndex index = FontIndex.read(file, key);
+        return index == null ? null : index.fontToFamilyNameMap;
+    }
+
+    public static Map<String,ArrayList<String>> readFamilyToFontListMap(File file, String key) {
+        FontIndex index = FontIndex.read(file, key);
+        return index == null ? null : index.familyToFontListMap;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.sg.prism;
+
+import com.sun.javafx.geom.Rectangle;
+import com.sun.prism.Graphics;
+
+public class DisplayListShim {
+
+    private final DisplayList list;
+
+    private DisplayListShim(DisplayList list) {
+        this.list = list;
+    }
+
+    public static boolean canRecord(Graphics g) {
+        return DisplayList.canRecord(g);
+    }
+
+    public static Graphics startRecording(Graphics g) {
+        return DisplayList.startRecording(g);
+    }
+
+    public static Graphics startDeferring(Graphics g) {
+        return DisplayList.startDeferring(g);
+    }
+
+    public static boolean isDeferring(Graphics g) {
+        return DisplayList.isDeferring(g);
+    }
+
+    public static boolean isRecording(Graphics g) {
+        return DisplayList.isRecording(g);
+    }
+
+    public static DisplayListShim finish(Graphics recorder) {
+        DisplayList list = ((DisplayList.Recorder) recorder).finish();
+        return list == null ? null : new DisplayListShim(list);
+    }
+
+    public int getCommandCount() {
+        return list.getCommandCount();
+    }
+
+    public boolean canReplay(Graphics g) {
+        return list.canReplay(g);
+    }
+
+    public void replay(Graphics g) {
+        list.replay(g);
+    }
+
+    public void prepareBands(int bandCount) {
+        list.prepareBands(bandCount);
+    }
+
+    public void replayBand(int band, Graphics g, Rectangle bandClip, Object textLock) {
+        list.replayBand(band, g, bandClip, textLock);
+    }
+
+    public void dispose() {
+        list.dispose();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.sg.prism;
+
+import com.sun.prism.Graphics;
+import com.sun.scenario.effect.Effect;
+
+public class EffectOutputCacheShim {
+
+    private final EffectOutputCache cache;
+
+    public EffectOutputCacheShim(long maxSize) {
+        cache = new EffectOutputCache(maxSize);
+    }
+
+    public static EffectFilter createEffectFilter(Effect effect, NGNode node) {
+        return new EffectFilter(effect, node);
+    }
+
+    public boolean render(EffectFilter filter, Graphics g) {
+        return cache.render(filter, g);
+    }
+
+    public void remove(EffectFilter filter) {
+        cache.remove(filter);
+    }
+
+    public long getSize() {
+        return cache.getSize();
+    }
+
+    public int getEntryCount() {
+        return cache.getEntryCount();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+}
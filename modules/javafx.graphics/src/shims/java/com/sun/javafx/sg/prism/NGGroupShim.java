@@ -25,11 +25,13 @@
 
 package com.sun.javafx.sg.prism;
 
+import java.util.BitSet;
 import com.sun.javafx.geom.DirtyRegionContainer;
 import com.sun.javafx.geom.DirtyRegionPool;
 import com.sun.javafx.geom.RectBounds;
 import com.sun.javafx.geom.transform.BaseTransform;
 import com.sun.javafx.geom.transform.GeneralTransform3D;
+import com.sun.prism.Graphics;
 
 public class NGGroupShim extends NGGroup {
 
@@ -55,4 +57,8 @@ public class NGGroupShim extends NGGroup {
                 dirtyRegionContainer, tx, pvTx);
     }
 
+    public static BitSet findOccludedChildren(NGGroup group, Graphics g) {
+        return group.findOccludedChildren(g, group.getChildren(), 0);
+    }
+
 }
@@ -52,6 +52,10 @@ public abstract class NGNodeShim extends NGNode {
         return node.cullingBits;
     }
 
+    public static int getRenderRevision(NGNode node) {
+        return node.getRenderRevision();
+    }
+
     public static boolean childDirty(NGNode node) {
         return node.childDirty;
     }
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.tk.quantum;
+
+import com.sun.javafx.tk.ImageLoader;
+
+public class DecodedImageCacheShim {
+
+    private final DecodedImageCache cache;
+
+    public DecodedImageCacheShim(long maxSize) {
+        cache = new DecodedImageCache(maxSize);
+    }
+
+    public ImageLoader load(String url, double width, double height,
+                            boolean preserveRatio, boolean smooth) {
+        return cache.load(url, width, height, preserveRatio, 1.0f, smooth);
+    }
+
+    public static boolean isCacheable(String url) {
+        return DecodedImageCache.createKey(url, 0, 0, false, 1.0f, false) != null;
+    }
+
+    public long getSize() {
+        return cache.getSize();
+    }
+
+    public int getImageCount() {
+        return cache.getImageCount();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+}
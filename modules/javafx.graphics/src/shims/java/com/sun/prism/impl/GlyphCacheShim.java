@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.prism.impl;
+
+import com.sun.javafx.font.FontStrike;
+import com.sun.javafx.geom.transform.BaseTransform;
+import com.sun.javafx.scene.text.GlyphList;
+import com.sun.prism.Texture;
+
+public class GlyphCacheShim {
+
+    private final GlyphCache cache;
+    private final GlyphCache.GlyphPages pages;
+
+    public GlyphCacheShim(BaseContext context, FontStrike strike,
+                          int pageWidth, int pageHeight, int maxPages) {
+        pages = new GlyphCache.GlyphPages(pageWidth, pageHeight, maxPages);
+        cache = new GlyphCache(context, strike, pages);
+    }
+
+    public Texture beginRender() {
+        return cache.beginRender();
+    }
+
+    public Texture render(BaseContext ctx, GlyphList gl, Texture tex) {
+        return cache.render(ctx, gl, 0, 0, 0, 0, null, null,
+                            BaseTransform.IDENTITY_TRANSFORM, null, tex);
+    }
+
+    public int getPageCount() {
+        return pages.pages.size();
+    }
+
+    public int getClearCount() {
+        return pages.clears;
+    }
+
+    /**
+     * Returns the number of times the page of the given texture was cleared,
+     * either on its own or with all the others.
+     */
+    public int getGeneration(Texture tex) {
+        for (GlyphCache.Page page : pages.pages) {
+            if (page.getTexture() == tex) {
+                return page.generation;
+            }
+        }
+        return -1;
+    }
+}
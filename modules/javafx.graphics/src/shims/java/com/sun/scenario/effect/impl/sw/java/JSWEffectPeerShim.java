@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.scenario.effect.impl.sw.java;
+
+import java.util.function.BiConsumer;
+import com.sun.scenario.effect.FilterContext;
+
+public class JSWEffectPeerShim {
+
+    private static final JSWBoxBlurPeer boxBlurPeer =
+        new JSWBoxBlurPeer(new FilterContext(JSWEffectPeerShim.class) {}, null, "BoxBlur");
+
+    private static final JSWLinearConvolvePeer convolvePeer =
+        new JSWLinearConvolvePeer(new FilterContext(JSWEffectPeerShim.class) {}, null, "LinearConvolve");
+
+    public static int getMinParallelPixels() {
+        return JSWEffectPeer.MIN_PARALLEL_PIXELS;
+    }
+
+    public static int getRangeCount(int threads, int count, int length) {
+        return JSWEffectPeer.getRangeCount(threads, count, length);
+    }
+
+    public static void runRanges(int rangeCount, int count,
+                                 BiConsumer<Integer, Integer> filter) {
+        JSWEffectPeer.runRanges(rangeCount, count, filter::accept);
+    }
+
+    /**
+     * Box blurs the given image horizontally then vertically by the given
+     * sizes, splitting each pass into the given number of ranges.
+     */
+    public static int[] boxBlur(int[] src, int w, int h, int hsize, int vsize,
+                                int rangeCount) {
+        final int hw = w + hsize - 1;
+        final int[] tmp = new int[hw * h];
+        JSWEffectPeer.runRanges(rangeCount, h, (y0, y1) ->
+            boxBlurPeer.filterHorizontal(tmp, hw, h, hw, src, w, h, w, y0, y1));
+        final int vh = h + vsize - 1;
+        final int[] dst = new int[hw * vh];
+        JSWEffectPeer.runRanges(rangeCount, hw, (x0, x1) ->
+            boxBlurPeer.filterVertical(dst, hw, vh, hw, tmp, hw, h, hw, x0, x1));
+        return dst;
+    }
+
+    /**
+     * Convolves the given image along a diagonal vector into an image of
+     * the same size rotated by the given angle, splitting the rows into the
+     * given number of ranges.
+     */
+    public static int[] rotatedConvolve(int[] src, int w, int h, double angle,
+                                        int rangeCount) {
+        final float[] weights = { 0.25f, 0.5f, 0.25f };
+        final float cos = (float) Math.cos(angle);
+        final float sin = (float) Math.sin(angle);
+        final int[] dst = new int[w * h];
+        JSWEffectPeer.runRanges(rangeCount, h, (y0, y1) ->
+            convolvePeer.filterVector(dst, w, h, w, src, w, h, w,
+                                      weights, weights.length,
+                                      w * 0.1f, h * 0.2f,
+                                      -0.7f, -0.7f, 0.7f, 0.7f,
+                                      cos, sin, -sin, cos,
+                                      y0, y1));
+        return dst;
+    }
+}
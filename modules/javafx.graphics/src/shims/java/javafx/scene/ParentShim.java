@@ -31,6 +31,7 @@ import javafx.collections.ObservableList;
 public class ParentShim extends Parent {
 
     public static final int DIRTY_CHILDREN_THRESHOLD = Parent.DIRTY_CHILDREN_THRESHOLD;
+    public static final int BOUNDS_TREE_THRESHOLD = Parent.BOUNDS_TREE_THRESHOLD;
 
     public ObservableList<Node> getChildren() {
         return super.getChildren();
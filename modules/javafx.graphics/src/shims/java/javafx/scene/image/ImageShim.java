@@ -68,4 +68,10 @@ public class ImageShim extends Image {
         image.setProgress(value);
     }
 
+    public static boolean setLoadNewestFirst(boolean newestFirst) {
+        boolean old = Image.loadNewestFirst;
+        Image.loadNewestFirst = newestFirst;
+        return old;
+    }
+
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.font;
+
+import com.sun.javafx.font.DistanceField;
+import com.sun.javafx.geom.Ellipse2D;
+import com.sun.javafx.geom.Path2D;
+import com.sun.javafx.geom.RoundRectangle2D;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DistanceFieldTest {
+
+    private static int get(DistanceField field, float x, float y) {
+        // x, y in the coordinates of the outline
+        int i = (int) Math.floor(x) - field.getOriginX();
+        int j = (int) Math.floor(y) - field.getOriginY();
+        return field.getPixels()[j * field.getWidth() + i] & 0xff;
+    }
+
+    private static Path2D square(float x, float y, float size) {
+        Path2D path = new Path2D();
+        path.moveTo(x, y);
+        path.lineTo(x + size, y);
+        path.lineTo(x + size, y + size);
+        path.lineTo(x, y + size);
+        path.closePath();
+        return path;
+    }
+
+    @Test
+    public void testEmptyOutline() {
+        assertNull(DistanceField.create(new Path2D()));
+        assertNull(DistanceField.create(null));
+    }
+
+    @Test
+    public void testBoundsArePadded() {
+        DistanceField field = DistanceField.create(square(0, -20, 20));
+        assertEquals(-DistanceField.SPREAD, field.getOriginX());
+        assertEquals(-20 - DistanceField.SPREAD, field.getOriginY());
+        assertEquals(20 + 2 * DistanceField.SPREAD, field.getWidth());
+        assertEquals(20 + 2 * DistanceField.SPREAD, field.getHeight());
+        assertEquals(field.getWidth() * field.getHeight(),
+                     field.getPixels().length);
+    }
+
+    @Test
+    public void testSquare() {
+        DistanceField field = DistanceField.create(square(0, -20, 20));
+        // deep inside the field saturates, and is close to 0 on the
+        // outer border
+        assertEquals(255, get(field, 10, -10));
+        assertTrue(get(field, -DistanceField.SPREAD, -10) < 16);
+        // half a pixel from the edge on each side
+        int inside = get(field, 0, -10);
+        int outside = get(field, -1, -10);
+        assertTrue(inside > 128);
+        assertTrue(outside < 128);
+        assertEquals(255 - outside, inside);
+    }
+
+    @Test
+    public void testDistanceIsLinear() {
+        DistanceField field = DistanceField.create(square(0, -20, 20));
+        int step = Math.round(255f / (2 * DistanceField.SPREAD));
+        for (int i = 1; i < DistanceField.SPREAD - 1; i++) {
+            int d = get(field, i, -10) - get(field, i - 1, -10);
+            assertTrue(Math.abs(d - step) <= 1);
+        }
+    }
+
+    @Test
+    public void testHole() {
+        // even-odd: the inner square is a hole
+        Path2D path = square(0, -30, 30);
+        path.append(square(10, -20, 10), false);
+        path.setWindingRule(Path2D.WIND_EVEN_ODD);
+        DistanceField field = DistanceField.create(path);
+        assertTrue(get(field, 15, -15) < 128);
+        assertTrue(get(field, 5, -15) > 128);
+    }
+
+    @Test
+    public void testCurves() {
+        DistanceField field =
+            DistanceField.create(new Ellipse2D(0, -20, 20, 20));
+        assertEquals(255, get(field, 10, -10));
+        // the corners of the bounds are outside of the circle
+        assertTrue(get(field, 0, -20) < 128);
+        field = DistanceField.create(
+            new RoundRectangle2D(0, -20, 20, 20, 8, 8));
+        assertTrue(get(field, 0, -20) < 128);
+        assertTrue(get(field, 1, -10) > 128);
+    }
+
+    @Test
+    public void testDistanceMatchesCircle() {
+        // compare every pixel with the exact distance to the circle
+        float cx = 12f, cy = -14f, r = 10f;
+        DistanceField field =
+            DistanceField.create(new Ellipse2D(cx - r, cy - r, 2 * r, 2 * r));
+        float scale = 255f * 0.5f / DistanceField.SPREAD;
+        for (int j = 0; j < field.getHeight(); j++) {
+            for (int i = 0; i < field.getWidth(); i++) {
+                float px = field.getOriginX() + i + 0.5f;
+                float py = field.getOriginY() + j + 0.5f;
+                float d = r - (float) Math.hypot(px - cx, py - cy);
+                float expected = Math.max(0f, Math.min(255f, 127.5f + d * scale));
+                int actual = field.getPixels()[j * field.getWidth() + i] & 0xff;
+                assertEquals("pixel " + i + ", " + j, expected, actual, 4f);
+            }
+        }
+    }
+}
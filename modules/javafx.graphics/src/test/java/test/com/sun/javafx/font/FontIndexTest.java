@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.font;
+
+import com.sun.javafx.font.FontIndexShim;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FontIndexTest {
+    private static final String KEY = "test";
+
+    private File dir;
+    private File cacheDir;
+    private File fontFile;
+    private File indexFile;
+    private Map<String,String> fontToFile;
+    private Map<String,String> fontToFamily;
+    private Map<String,ArrayList<String>> familyToFonts;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("fontindex").toFile();
+        fontFile = new File(dir, "test.ttf");
+        assertTrue(fontFile.createNewFile());
+        cacheDir = Files.createTempDirectory("fontcache").toFile();
+        indexFile = new File(new File(cacheDir, "cache"), "index");
+
+        fontToFile = new HashMap<>();
+        fontToFile.put("test regular", fontFile.getPath());
+        fontToFile.put("test bold", fontFile.getPath());
+        fontToFamily = new HashMap<>();
+        fontToFamily.put("test regular", "Test");
+        fontToFamily.put("test bold", "Test");
+        familyToFonts = new HashMap<>();
+        familyToFonts.put("test", new ArrayList<>(Arrays.asList("Test Regular", "Test Bold")));
+    }
+
+    @After
+    public void tearDown() {
+        indexFile.delete();
+        indexFile.getParentFile().delete();
+        cacheDir.delete();
+        fontFile.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void testRoundTrip() {
+        assertTrue(FontIndexShim.write(indexFile, KEY, fontToFile, fontToFamily, familyToFonts));
+        assertEquals(fontToFile, FontIndexShim.readFontToFileMap(indexFile, KEY));
+        assertEquals(fontToFamily, FontIndexShim.readFontToFamilyNameMap(indexFile, KEY));
+        assertEquals(familyToFonts, FontIndexShim.readFamilyToFontListMap(indexFile, KEY));
+    }
+
+    @Test
+    public void testMissingIndex() {
+        assertFalse(FontIndexShim.isValid(indexFile, KEY));
+    }
+
+    @Test
+    public void testDifferentKey() {
+        assertTrue(FontIndexShim.write(indexFile, KEY, fontToFile, fontToFamily, familyToFonts));
+        assertFalse(FontIndexShim.isValid(indexFile, "other"));
+    }
+
+    @Test
+    public void testModifiedFontFile() {
+        assertTrue(FontIndexShim.write(indexFile, KEY, fontToFile, fontToFamily, familyToFonts));
+        assertTrue(fontFile.setLastModified(fontFile.lastModified() - 10000));
+        assertFalse(FontIndexShim.isValid(indexFile, KEY));
+    }
+
+    @Test
+    public void testRemovedFontFile() {
+        assertTrue(FontIndexShim.write(indexFile, KEY, fontToFile, fontToFamily, familyToFonts));
+        assertTrue(fontFile.delete());
+        assertFalse(FontIndexShim.isValid(indexFile, KEY));
+    }
+
+    @Test
+    public void testModifiedFontDirectory() {
+        assertTrue(FontIndexShim.write(indexFile, KEY, fontToFile, fontToFamily, familyToFonts));
+        assertTrue(dir.setLastModified(dir.lastModified() - 10000));
+        assertFalse(FontIndexShim.isValid(indexFile, KEY));
+    }
+
+    @Test
+    public void testModifiedDirectoryBelowRoot() {
+        File sub = new File(dir, "sub");
+        assertTrue(sub.mkdir());
+        try {
+            List<String> roots = Arrays.asList(dir.getPath());
+            assertTrue(FontIndexShim.write(indexFile, KEY, fontToFile, fontToFamily, familyToFonts, roots));
+            assertTrue(FontIndexShim.isValid(indexFile, KEY));
+            // As if a font was added to a directory holding no indexed fonts
+            assertTrue(sub.setLastModified(sub.lastModified() - 10000));
+            assertFalse(FontIndexShim.isValid(indexFile, KEY));
+        } finally {
+            sub.delete();
+        }
+    }
+
+    @Test
+    public void testModifiedConfigurationFile() throws IOException {
+        File config = new File(cacheDir, "fonts.conf");
+        assertTrue(config.createNewFile());
+        try {
+            List<String> roots = Arrays.asList(config.getPath());
+            assertTrue(FontIndexShim.write(indexFile, KEY, fontToFile, fontToFamily, familyToFonts, roots));
+            assertTrue(FontIndexShim.isValid(indexFile, KEY));
+            assertTrue(config.setLastModified(config.lastModified() - 10000));
+            assertFalse(FontIndexShim.isValid(indexFile, KEY));
+        } finally {
+            config.delete();
+        }
+    }
+
+    @Test
+    public void testCreatedConfigurationFile() throws IOException {
+        File config = new File(cacheDir, "fonts.conf");
+        List<String> roots = Arrays.asList(config.getPath());
+        assertTrue(FontIndexShim.write(indexFile, KEY, fontToFile, fontToFamily, familyToFonts, roots));
+        assertTrue(FontIndexShim.isValid(indexFile, KEY));
+        assertTrue(config.createNewFile());
+        try {
+            assertFalse(FontIndexShim.isValid(indexFile, KEY));
+        } finally {
+            config.delete();
+        }
+    }
+
+    @Test
+    public void testRewrite() {
+        assertTrue(FontIndexShim.write(indexFile, KEY, fontToFile, fontToFamily, familyToFonts));
+        fontToFile.remove("test bold");
+        assertTrue(FontIndexShim.write(indexFile, KEY, fontToFile, fontToFamily, familyToFonts));
+        assertEquals(fontToFile, FontIndexShim.readFontToFileMap(indexFile, KEY));
+    }
+}
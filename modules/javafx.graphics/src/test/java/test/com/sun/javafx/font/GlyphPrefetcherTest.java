@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.font;
+
+import com.sun.javafx.font.CharToGlyphMapper;
+import com.sun.javafx.font.FontResource;
+import com.sun.javafx.font.FontStrike;
+import com.sun.javafx.font.Glyph;
+import com.sun.javafx.font.GlyphPrefetcher;
+import com.sun.javafx.font.GlyphPrefetcherShim;
+import com.sun.javafx.font.PGFont;
+import com.sun.javafx.geom.transform.BaseTransform;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GlyphPrefetcherTest {
+
+    private final List<BaseTransform> strikeTransforms = new ArrayList<>();
+    private final List<Integer> strikeModes = new ArrayList<>();
+    private final List<Integer> requestedGlyphs = new ArrayList<>();
+    private final AtomicInteger rasterizing = new AtomicInteger();
+    private volatile boolean overlapped;
+    private volatile boolean unlocked;
+    private volatile String rasterizerThread;
+    private volatile CountDownLatch rasterized = new CountDownLatch(0);
+
+    @After
+    public void resetRenderScale() {
+        GlyphPrefetcher.setRenderScale(1f, 1f);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(GlyphPrefetcherTest.class.getClassLoader(),
+                                          new Class<?>[] { type }, handler);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == float.class) return 0f;
+        return null;
+    }
+
+    private final Glyph glyph = proxy(Glyph.class, (p, m, args) -> {
+        if (m.getName().equals("getPixelData")) {
+            if (!Thread.holdsLock(GlyphPrefetcher.getRasterizerLock())) {
+                unlocked = true;
+            }
+            if (rasterizing.incrementAndGet() > 1) {
+                overlapped = true;
+            }
+            Thread.sleep(1);
+            rasterizing.decrementAndGet();
+            rasterizerThread = Thread.currentThread().getName();
+            rasterized.countDown();
+            return new byte[0];
+        }
+        return defaultValue(m.getReturnType());
+    });
+
+    private final FontStrike strike = proxy(FontStrike.class, (p, m, args) -> {
+        if (m.getName().equals("getGlyph")) {
+            if (!Thread.holdsLock(GlyphPrefetcher.getRasterizerLock())) {
+                unlocked = true;
+            }
+            synchronized (requestedGlyphs) {
+                requestedGlyphs.add((Integer)args[0]);
+            }
+            return glyph;
+        }
+        return defaultValue(m.getReturnType());
+    });
+
+    private final PGFont font = proxy(PGFont.class, (p, m, args) -> {
+        if (m.getName().equals("getStrike")) {
+            synchronized (strikeTransforms) {
+                strikeTransforms.add((BaseTransform)args[0]);
+                strikeModes.add(args.length > 1 ? (Integer)args[1] : -1);
+            }
+            return strike;
+        }
+        return defaultValue(m.getReturnType());
+    });
+
+    @Test
+    public void testRenderStrikeAtUnitScaleIsIdentity() {
+        assertSame(strike, GlyphPrefetcherShim.getRenderStrike(
+                font, FontResource.AA_LCD, 1f, 1f));
+        assertEquals(1, strikeTransforms.size());
+        assertTrue(strikeTransforms.get(0).isIdentity());
+        assertEquals(FontResource.AA_LCD, (int)strikeModes.get(0));
+    }
+
+    @Test
+    public void testRenderStrikeAtRenderScale() {
+        GlyphPrefetcherShim.getRenderStrike(font, FontResource.AA_GREYSCALE, 2f, 1.5f);
+        BaseTransform tx = strikeTransforms.get(0);
+        assertEquals(2.0, tx.getMxx(), 0);
+        assertEquals(1.5, tx.getMyy(), 0);
+        assertEquals(0.0, tx.getMxy(), 0);
+        assertEquals(0.0, tx.getMyx(), 0);
+        assertEquals(FontResource.AA_GREYSCALE, (int)strikeModes.get(0));
+    }
+
+    @Test
+    public void testRasterizeSkipsInvisibleGlyphs() {
+        GlyphPrefetcherShim.rasterize(strike,
+                new int[] { 3, CharToGlyphMapper.INVISIBLE_GLYPH_ID, 5 });
+        assertEquals(Arrays.asList(3, 5), requestedGlyphs);
+        assertFalse(unlocked);
+    }
+
+    @Test
+    public void testRasterizationIsSerialized() throws Exception {
+        int[] glyphCodes = { 1, 2, 3, 4, 5, 6, 7, 8 };
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> GlyphPrefetcherShim.rasterize(strike, glyphCodes));
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(threads.length * glyphCodes.length, requestedGlyphs.size());
+        assertFalse(unlocked);
+        assertFalse(overlapped);
+    }
+
+    @Test
+    public void testPrefetchUsesRenderScale() throws Exception {
+        rasterized = new CountDownLatch(2);
+        GlyphPrefetcher.setRenderScale(2f, 2f);
+        GlyphPrefetcher.prefetch(font, FontResource.AA_GREYSCALE, new int[] { 7, 9 });
+        assertTrue(rasterized.await(10, TimeUnit.SECONDS));
+
+        synchronized (strikeTransforms) {
+            assertEquals(1, strikeTransforms.size());
+            assertEquals(2.0, strikeTransforms.get(0).getMxx(), 0);
+            assertEquals(2.0, strikeTransforms.get(0).getMyy(), 0);
+        }
+        synchronized (requestedGlyphs) {
+            assertEquals(Arrays.asList(7, 9), requestedGlyphs);
+        }
+        assertEquals("Prism Glyph Prefetcher", rasterizerThread);
+        assertFalse(unlocked);
+    }
+}
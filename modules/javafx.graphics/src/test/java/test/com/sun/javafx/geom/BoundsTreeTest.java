@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.geom;
+
+import com.sun.javafx.geom.BaseBounds;
+import com.sun.javafx.geom.BoundsTree;
+import com.sun.javafx.geom.BoxBounds;
+import com.sun.javafx.geom.RectBounds;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BoundsTreeTest {
+
+    private static BaseBounds union(float[][] items) {
+        BaseBounds result = new RectBounds();
+        for (float[] b : items) {
+            if (b != null) {
+                BaseBounds item = new BoxBounds(b[0], b[1], b[2], b[3], b[4], b[5]);
+                result = result.isEmpty() ? result.deriveWithNewBounds(item)
+                                          : result.deriveWithUnion(item);
+            }
+        }
+        return result;
+    }
+
+    private static void assertBounds(BaseBounds expected, BaseBounds actual) {
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        if (!expected.isEmpty()) {
+            assertEquals(expected.getMinX(), actual.getMinX(), 0f);
+            assertEquals(expected.getMinY(), actual.getMinY(), 0f);
+            assertEquals(expected.getMinZ(), actual.getMinZ(), 0f);
+            assertEquals(expected.getMaxX(), actual.getMaxX(), 0f);
+            assertEquals(expected.getMaxY(), actual.getMaxY(), 0f);
+            assertEquals(expected.getMaxZ(), actual.getMaxZ(), 0f);
+        }
+    }
+
+    @Test
+    public void testEmptyTree() {
+        BoundsTree tree = new BoundsTree();
+        assertTrue(tree.getBounds(new RectBounds()).isEmpty());
+        tree.reset(5);
+        assertTrue(tree.getBounds(new RectBounds()).isEmpty());
+    }
+
+    @Test
+    public void testEdgeItemMovesInwards() {
+        BoundsTree tree = new BoundsTree();
+        tree.reset(3);
+        tree.set(0, new RectBounds(0, 0, 10, 10));
+        tree.set(1, new RectBounds(20, 20, 30, 30));
+        tree.set(2, new RectBounds(5, 5, 25, 25));
+        assertBounds(new RectBounds(0, 0, 30, 30), tree.getBounds(new RectBounds()));
+
+        tree.set(0, new RectBounds(10, 10, 12, 12));
+        assertBounds(new RectBounds(5, 5, 30, 30), tree.getBounds(new RectBounds()));
+
+        tree.setEmpty(2);
+        assertBounds(new RectBounds(10, 10, 30, 30), tree.getBounds(new RectBounds()));
+    }
+
+    @Test
+    public void testGrowKeepsItems() {
+        BoundsTree tree = new BoundsTree();
+        tree.reset(3);
+        tree.set(0, new RectBounds(0, 0, 10, 10));
+        tree.set(2, new RectBounds(20, 20, 30, 30));
+        assertBounds(new RectBounds(0, 0, 30, 30), tree.getBounds(new RectBounds()));
+
+        tree.grow(100);
+        assertEquals(100, tree.size());
+        assertBounds(new RectBounds(0, 0, 30, 30), tree.getBounds(new RectBounds()));
+
+        tree.set(99, new RectBounds(-5, 0, 0, 50));
+        tree.setEmpty(2);
+        assertBounds(new RectBounds(-5, 0, 10, 50), tree.getBounds(new RectBounds()));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSetOutOfRange() {
+        BoundsTree tree = new BoundsTree();
+        tree.reset(3);
+        tree.setEmpty(3);
+    }
+
+    @Test
+    public void testRandomUpdates() {
+        Random r = new Random(7);
+        int size = 1000;
+        float[][] items = new float[size][];
+        BoundsTree tree = new BoundsTree();
+        tree.reset(size);
+        for (int iter = 0; iter < 5000; iter++) {
+            int i = r.nextInt(size);
+            if (r.nextInt(10) == 0) {
+                items[i] = null;
+                tree.setEmpty(i);
+            } else {
+                float x = r.nextFloat() * 1000, y = r.nextFloat() * 1000, z = r.nextFloat() * 10;
+                items[i] = new float[] {x, y, z, x + r.nextFloat() * 50, y + r.nextFloat() * 50, z + 1};
+                tree.set(i, items[i][0], items[i][1], items[i][2],
+                            items[i][3], items[i][4], items[i][5]);
+            }
+            if (iter % 97 == 0) {
+                assertBounds(union(items), tree.getBounds(new RectBounds()));
+            }
+        }
+        assertBounds(union(items), tree.getBounds(new RectBounds()));
+    }
+}
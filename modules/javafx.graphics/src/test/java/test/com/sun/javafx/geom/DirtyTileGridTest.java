@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.geom;
+
+import com.sun.javafx.geom.DirtyRegionContainer;
+import com.sun.javafx.geom.DirtyTileGrid;
+import com.sun.javafx.geom.RectBounds;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DirtyTileGridTest {
+
+    @Test
+    public void testMarkDirty() {
+        DirtyTileGrid grid = new DirtyTileGrid(64);
+        grid.reset(300, 200);
+        assertEquals(5 * 4, grid.getTileCount());
+        assertTrue(grid.isEmpty());
+
+        grid.markDirty(new RectBounds(10, 10, 20, 20));
+        assertEquals(1, grid.getDirtyTileCount());
+        assertTrue(grid.isDirty(0, 0));
+
+        // spans the corner of four tiles
+        grid.markDirty(new RectBounds(120, 120, 140, 140));
+        assertEquals(5, grid.getDirtyTileCount());
+        assertTrue(grid.isDirty(1, 1));
+        assertTrue(grid.isDirty(2, 2));
+
+        // marking the same tiles again does not count them twice
+        grid.markDirty(new RectBounds(0, 0, 64, 64));
+        assertEquals(5, grid.getDirtyTileCount());
+    }
+
+    @Test
+    public void testMarkDirtyOutsideGrid() {
+        DirtyTileGrid grid = new DirtyTileGrid(64);
+        grid.reset(100, 100);
+        grid.markDirty(new RectBounds(-50, -50, -10, -10));
+        grid.markDirty(new RectBounds(200, 0, 300, 50));
+        grid.markDirty(new RectBounds());
+        assertTrue(grid.isEmpty());
+
+        grid.markDirty(new RectBounds(-50, -50, 500, 500));
+        assertEquals(4, grid.getDirtyTileCount());
+    }
+
+    @Test
+    public void testResetClears() {
+        DirtyTileGrid grid = new DirtyTileGrid(32);
+        grid.reset(100, 100);
+        grid.markDirty(new RectBounds(0, 0, 100, 100));
+        grid.reset(100, 100);
+        assertTrue(grid.isEmpty());
+        assertFalse(grid.isDirty(0, 0));
+    }
+
+    @Test
+    public void testRegionsCombineRows() {
+        DirtyTileGrid grid = new DirtyTileGrid(10);
+        grid.reset(95, 95);
+        grid.markDirty(new RectBounds(10, 10, 30, 40));
+        grid.markDirty(new RectBounds(85, 85, 93, 93));
+        DirtyRegionContainer drc = new DirtyRegionContainer(6);
+        grid.getRegions(drc);
+        assertEquals(2, drc.size());
+        assertEquals(new RectBounds(10, 10, 30, 40), drc.getDirtyRegion(0));
+        // clipped to the size of the grid
+        assertEquals(new RectBounds(80, 80, 95, 95), drc.getDirtyRegion(1));
+    }
+
+    @Test
+    public void testScatteredRegionsStaySmall() {
+        DirtyTileGrid grid = new DirtyTileGrid(64);
+        grid.reset(1024, 1024);
+        DirtyRegionContainer drc = new DirtyRegionContainer(6);
+        drc.setTileGrid(grid);
+        drc.addDirtyRegion(new RectBounds(0, 0, 10, 10));
+        drc.addDirtyRegion(new RectBounds(1000, 0, 1010, 10));
+        drc.addDirtyRegion(new RectBounds(0, 1000, 10, 1010));
+        drc.addDirtyRegion(new RectBounds(1000, 1000, 1010, 1010));
+        drc.addDirtyRegion(new RectBounds(500, 500, 510, 510));
+        assertEquals(0, drc.size());
+        assertEquals(5, grid.getDirtyTileCount());
+
+        drc.setTileGrid(null);
+        grid.getRegions(drc);
+        assertEquals(5, drc.size());
+        float area = 0;
+        for (int i = 0; i < drc.size(); i++) {
+            area += drc.getDirtyRegion(i).getWidth() * drc.getDirtyRegion(i).getHeight();
+        }
+        assertEquals(5 * 64 * 64, area, 0f);
+    }
+
+    @Test
+    public void testRegionsCoverDirtyTiles() {
+        Random r = new Random(3);
+        DirtyTileGrid grid = new DirtyTileGrid(16);
+        grid.reset(400, 300);
+        for (int i = 0; i < 12; i++) {
+            float x = r.nextFloat() * 400, y = r.nextFloat() * 300;
+            grid.markDirty(new RectBounds(x, y, x + r.nextFloat() * 60, y + r.nextFloat() * 60));
+        }
+        DirtyRegionContainer drc = new DirtyRegionContainer(15);
+        grid.getRegions(drc);
+        assertTrue(drc.size() > 0 && drc.size() <= 15);
+        for (int row = 0; row < 300 / 16 + 1; row++) {
+            for (int col = 0; col < 400 / 16; col++) {
+                if (grid.isDirty(col, row)) {
+                    float cx = Math.min(col * 16 + 8, 399), cy = Math.min(row * 16 + 8, 299);
+                    boolean covered = false;
+                    for (int i = 0; i < drc.size(); i++) {
+                        covered |= drc.getDirtyRegion(i).contains(cx, cy);
+                    }
+                    assertTrue("tile " + col + "," + row, covered);
+                }
+            }
+        }
+    }
+}
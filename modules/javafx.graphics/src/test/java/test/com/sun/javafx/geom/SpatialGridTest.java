@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.geom;
+
+import com.sun.javafx.geom.RectBounds;
+import com.sun.javafx.geom.SpatialGrid;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SpatialGridTest {
+
+    private static int[] query(SpatialGrid grid, float x0, float y0, float x1, float y1) {
+        int count = grid.query(x0, y0, x1, y1);
+        return Arrays.copyOf(grid.getResults(), count);
+    }
+
+    private static int[] bruteForce(float[][] items, float x0, float y0, float x1, float y1) {
+        int[] result = new int[items.length];
+        int count = 0;
+        for (int i = 0; i < items.length; i++) {
+            float[] b = items[i];
+            if (b != null && b[0] <= x1 && b[2] >= x0 && b[1] <= y1 && b[3] >= y0) {
+                result[count++] = i;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    @Test
+    public void testPointQueryIsInclusive() {
+        SpatialGrid grid = new SpatialGrid();
+        grid.reset(3);
+        grid.set(0, 0, 0, 10, 10);
+        grid.set(1, 10, 10, 20, 20);
+        grid.set(2, 30, 30, 40, 40);
+        assertArrayEquals(new int[] {0, 1}, query(grid, 10, 10, 10, 10));
+        assertArrayEquals(new int[] {2}, query(grid, 35, 35, 35, 35));
+        assertArrayEquals(new int[0], query(grid, 25, 25, 25, 25));
+    }
+
+    @Test
+    public void testEmptyItemsAreNotReported() {
+        SpatialGrid grid = new SpatialGrid();
+        grid.reset(2);
+        grid.set(0, new RectBounds());
+        grid.set(1, new RectBounds(0, 0, 5, 5));
+        assertArrayEquals(new int[] {1}, query(grid, -100, -100, 100, 100));
+        grid.setEmpty(1);
+        assertArrayEquals(new int[0], query(grid, -100, -100, 100, 100));
+    }
+
+    @Test
+    public void testResultsAreOrdered() {
+        SpatialGrid grid = new SpatialGrid();
+        grid.reset(100);
+        for (int i = 99; i >= 0; i--) {
+            grid.set(i, 0, 0, 100 - i, 100 - i);
+        }
+        int[] expected = new int[100];
+        for (int i = 0; i < 100; i++) {
+            expected[i] = i;
+        }
+        assertArrayEquals(expected, query(grid, 0, 0, 1, 1));
+    }
+
+    @Test
+    public void testItemsMovedOutsideOfGrid() {
+        SpatialGrid grid = new SpatialGrid();
+        grid.reset(64);
+        for (int i = 0; i < 64; i++) {
+            grid.set(i, i * 10, i * 10, i * 10 + 5, i * 10 + 5);
+        }
+        assertEquals(64, grid.query(0, 0, 1000, 1000));
+        grid.set(5, -500, -500, -490, -490);
+        grid.set(6, 2000, 10, 2010, 20);
+        assertArrayEquals(new int[] {5}, query(grid, -495, -495, -495, -495));
+        assertArrayEquals(new int[] {6}, query(grid, 2005, 15, 2005, 15));
+        assertArrayEquals(new int[0], query(grid, 55, 55, 55, 55));
+    }
+
+    @Test
+    public void testRandomQueriesMatchBruteForce() {
+        Random random = new Random(42);
+        int size = 2000;
+        float[][] items = new float[size][];
+        SpatialGrid grid = new SpatialGrid();
+        grid.reset(size);
+        for (int i = 0; i < size; i++) {
+            if (random.nextInt(10) == 0) {
+                continue;
+            }
+            float x = random.nextFloat() * 1000, y = random.nextFloat() * 1000;
+            float w = random.nextInt(20) == 0 ? 600 : random.nextFloat() * 20;
+            float h = random.nextFloat() * 20;
+            items[i] = new float[] {x, y, x + w, y + h};
+            grid.set(i, x, y, x + w, y + h);
+        }
+        for (int pass = 0; pass < 200; pass++) {
+            float x = random.nextFloat() * 1200 - 100, y = random.nextFloat() * 1200 - 100;
+            float w = pass % 2 == 0 ? 0 : random.nextFloat() * 100;
+            float h = pass % 2 == 0 ? 0 : random.nextFloat() * 100;
+            assertArrayEquals(bruteForce(items, x, y, x + w, y + h),
+                              query(grid, x, y, x + w, y + h));
+
+            // move a few items around, some of them outside the initial area
+            for (int k = 0; k < 5; k++) {
+                int i = random.nextInt(size);
+                float nx = random.nextFloat() * 1600 - 300, ny = random.nextFloat() * 1600 - 300;
+                items[i] = new float[] {nx, ny, nx + 10, ny + 10};
+                grid.set(i, nx, ny, nx + 10, ny + 10);
+            }
+        }
+    }
+}
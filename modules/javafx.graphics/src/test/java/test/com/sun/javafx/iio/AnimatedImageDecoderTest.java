@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.iio;
+
+import com.sun.javafx.iio.AnimatedImageDecoder;
+import com.sun.javafx.iio.AnimatedImageDecoderShim;
+import com.sun.javafx.iio.ImageFrame;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AnimatedImageDecoderTest {
+
+    private static final Color[] COLORS = {
+        Color.RED, Color.GREEN, Color.BLUE, Color.YELLOW, Color.CYAN
+    };
+
+    private byte[] createAnimatedGIF() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            writer.prepareWriteSequence(null);
+            for (Color color : COLORS) {
+                BufferedImage bImg = new BufferedImage(16, 8, BufferedImage.TYPE_INT_RGB);
+                Graphics2D g = bImg.createGraphics();
+                g.setColor(color);
+                g.fillRect(0, 0, 16, 8);
+                g.dispose();
+                writer.writeToSequence(new IIOImage(bImg, null, null), null);
+            }
+            writer.endWriteSequence();
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private AnimatedImageDecoder load(int maxFrames) throws IOException {
+        return AnimatedImageDecoder.load(
+                new ByteArrayInputStream(createAnimatedGIF()), null,
+                0, 0, true, 1.0f, true, maxFrames);
+    }
+
+    private void checkFrame(ImageFrame frame, int index) {
+        assertEquals(16, frame.getWidth());
+        assertEquals(8, frame.getHeight());
+        ByteBuffer pixels = (ByteBuffer) frame.getImageData();
+        Color color = COLORS[index];
+        int pos = (3 * frame.getWidth() + 5) * 4;
+        assertEquals(color.getRed(), pixels.get(pos) & 0xff);
+        assertEquals(color.getGreen(), pixels.get(pos + 1) & 0xff);
+        assertEquals(color.getBlue(), pixels.get(pos + 2) & 0xff);
+    }
+
+    @Test
+    public void shortAnimationIsKept() throws IOException {
+        AnimatedImageDecoder decoder = load(COLORS.length);
+        assertFalse(decoder.isDecodedOnDemand());
+        assertEquals(COLORS.length, decoder.getFrameCount());
+        assertEquals(COLORS.length, decoder.getFrames().length);
+        for (int i = 0; i < COLORS.length; i++) {
+            checkFrame(decoder.getFrame(i), i);
+        }
+    }
+
+    @Test
+    public void longAnimationIsDecodedOnDemand() throws IOException {
+        AnimatedImageDecoder decoder = load(2);
+        assertTrue(decoder.isDecodedOnDemand());
+        assertNull(decoder.getFrames());
+        assertEquals(COLORS.length, decoder.getFrameCount());
+        for (int i = 0; i < COLORS.length; i++) {
+            assertNotNull(decoder.getMetadata(i).delayTime);
+        }
+        // two loops of the animation
+        for (int loop = 0; loop < 2; loop++) {
+            for (int i = 0; i < COLORS.length; i++) {
+                checkFrame(decoder.getFrame(i), i);
+            }
+        }
+        decoder.dispose();
+    }
+
+    @Test
+    public void framesCanBeDecodedInAnyOrder() throws IOException {
+        AnimatedImageDecoder decoder = load(0);
+        checkFrame(decoder.getFrame(3), 3);
+        checkFrame(decoder.getFrame(3), 3);
+        checkFrame(decoder.getFrame(1), 1);
+        checkFrame(decoder.getFrame(4), 4);
+        checkFrame(decoder.getFrame(0), 0);
+        checkFrame(decoder.getFrame(2), 2);
+    }
+
+    @Test
+    public void nextFrameIsPrefetched() throws Exception {
+        AnimatedImageDecoder decoder = load(0);
+        checkFrame(decoder.getFrame(1), 1);
+        assertFalse(AnimatedImageDecoderShim.isDecoded(decoder, 2));
+        decoder.prefetch(2);
+        for (int i = 0; !AnimatedImageDecoderShim.isDecoded(decoder, 2); i++) {
+            assertTrue("frame was not prefetched", i < 1000);
+            Thread.sleep(10);
+        }
+        checkFrame(decoder.getFrame(2), 2);
+    }
+
+    @Test
+    public void stillImageIsLoadedDirectly() throws IOException {
+        BufferedImage bImg = new BufferedImage(16, 8, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(bImg, "png", out);
+        AnimatedImageDecoder decoder = AnimatedImageDecoder.load(
+                new ByteArrayInputStream(out.toByteArray()), null,
+                0, 0, true, 1.0f, true, 0);
+        assertFalse(decoder.isDecodedOnDemand());
+        assertEquals(1, decoder.getFrameCount());
+        assertEquals(16, decoder.getFrame(0).getWidth());
+        // nothing to prefetch
+        decoder.prefetch(1);
+        assertTrue(AnimatedImageDecoderShim.isDecoded(decoder, 1));
+    }
+}
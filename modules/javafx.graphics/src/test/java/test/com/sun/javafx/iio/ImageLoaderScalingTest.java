@@ -41,7 +41,11 @@ public class ImageLoaderScalingTest {
     private static final boolean writeFiles = false;
 
     private BufferedImage createImage(int w, int h) {
-        BufferedImage bImg = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        return createImage(w, h, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private BufferedImage createImage(int w, int h, int type) {
+        BufferedImage bImg = new BufferedImage(w, h, type);
         ImageTestHelper.drawImageRandom(bImg);
         return bImg;
     }
@@ -149,6 +153,21 @@ public class ImageLoaderScalingTest {
         testAllTheScales("png");
     }
 
+    @Test
+    public void testAllTheScalesIndexedPNG() throws Exception {
+        testAllTheScales("png", BufferedImage.TYPE_BYTE_INDEXED);
+    }
+
+    @Test
+    public void testAllTheScalesGrayPNG() throws Exception {
+        testAllTheScales("png", BufferedImage.TYPE_BYTE_GRAY);
+    }
+
+    @Test
+    public void testAllTheScales16BitGrayPNG() throws Exception {
+        testAllTheScales("png", BufferedImage.TYPE_USHORT_GRAY);
+    }
+
     @Test
     public void testAllTheScalesBMP() throws Exception {
         testAllTheScales("bmp");
@@ -166,7 +185,11 @@ public class ImageLoaderScalingTest {
     }
 
     public void testAllTheScales(String format) throws Exception {
-        BufferedImage bImg = createImage(10, 10);
+        testAllTheScales(format, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private void testAllTheScales(String format, int type) throws Exception {
+        BufferedImage bImg = createImage(10, 10, type);
         for (int h = 2; h < 20; h++) {
             for (int w = 2; w < 20; w++) {
                 scaleAndCompareImage(bImg, format, w, h);
@@ -25,13 +25,19 @@
 
 package test.com.sun.javafx.iio.png;
 
+import com.sun.javafx.iio.ImageFrame;
 import com.sun.javafx.iio.png.PNGImageLoader2;
 import test.com.sun.javafx.iio.ImageTestHelper;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
 import org.junit.Test;
 
+import static org.junit.Assert.*;
+
 public class PNGImageLoaderTest {
 
     private void testImage(InputStream stream) throws IOException {
@@ -39,6 +45,55 @@ public class PNGImageLoaderTest {
         loader.load(0, 0, 0, true, true);
     }
 
+    private void testDecodedPixels(int type) throws IOException {
+        BufferedImage bImg = new BufferedImage(67, 41, type);
+        // smooth areas and noise, so that the writer uses all the filters
+        ImageTestHelper.drawImageHue(bImg);
+        Random r = new Random(1);
+        for (int y = 20; y < bImg.getHeight(); y++) {
+            for (int x = 0; x < bImg.getWidth(); x++) {
+                bImg.setRGB(x, y, r.nextInt());
+            }
+        }
+
+        InputStream stream = ImageTestHelper.writeImageToStream(bImg, "png", null);
+        ImageFrame frame = new PNGImageLoader2(stream).load(0, 0, 0, true, true);
+        ByteBuffer pixels = (ByteBuffer) frame.getImageData();
+        int bpp = frame.getStride() / frame.getWidth();
+        for (int y = 0; y < bImg.getHeight(); y++) {
+            for (int x = 0; x < bImg.getWidth(); x++) {
+                int pos = y * frame.getStride() + x * bpp;
+                int argb = bImg.getRGB(x, y);
+                if (bpp == 1) {
+                    int gray = bImg.getRaster().getSample(x, y, 0);
+                    assertEquals(gray, pixels.get(pos) & 0xff);
+                } else {
+                    assertEquals((argb >> 16) & 0xff, pixels.get(pos) & 0xff);
+                    assertEquals((argb >> 8) & 0xff, pixels.get(pos + 1) & 0xff);
+                    assertEquals(argb & 0xff, pixels.get(pos + 2) & 0xff);
+                    if (bpp == 4) {
+                        assertEquals(argb >>> 24, pixels.get(pos + 3) & 0xff);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDecodedPixelsRGB() throws IOException {
+        testDecodedPixels(BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Test
+    public void testDecodedPixelsRGBA() throws IOException {
+        testDecodedPixels(BufferedImage.TYPE_4BYTE_ABGR);
+    }
+
+    @Test
+    public void testDecodedPixelsGray() throws IOException {
+        testDecodedPixels(BufferedImage.TYPE_BYTE_GRAY);
+    }
+
     @Test
     public void testRT35133() throws IOException {
         InputStream stream = ImageTestHelper.createTestImageStream("png");
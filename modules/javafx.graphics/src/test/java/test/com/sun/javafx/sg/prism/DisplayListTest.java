@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.sg.prism;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.javafx.geom.transform.BaseTransform;
+import com.sun.javafx.sg.prism.DisplayListShim;
+import com.sun.prism.Graphics;
+import com.sun.prism.RTTexture;
+import com.sun.prism.ReadbackGraphics;
+import com.sun.prism.RectShadowGraphics;
+import com.sun.prism.Texture;
+import com.sun.prism.paint.Color;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DisplayListTest {
+
+    /**
+     * A graphics which logs the filled rectangles in device space.
+     */
+    static class LoggingGraphics extends TestGraphics
+            implements ReadbackGraphics, RectShadowGraphics {
+        final List<float[]> rects = new ArrayList<>();
+        final List<Object> paints = new ArrayList<>();
+        final List<Rectangle> clips = new ArrayList<>();
+
+        @Override
+        public void fillRect(float x, float y, float width, float height) {
+            rects.add(new float[] {
+                x + (float) getTransformNoClone().getMxt(),
+                y + (float) getTransformNoClone().getMyt(),
+                width, height
+            });
+            paints.add(getPaint());
+            clips.add(getClipRect());
+        }
+
+        @Override public boolean canReadBack() { return false; }
+        @Override public RTTexture readBack(Rectangle view) { return null; }
+        @Override public void releaseReadBackBuffer(RTTexture view) { }
+    }
+
+    private static void renderContent(Graphics g) {
+        g.setPaint(Color.RED);
+        g.fillRect(0, 0, 10, 10);
+        g.translate(20, 0);
+        g.setPaint(Color.BLUE);
+        g.fillRect(0, 0, 5, 5);
+    }
+
+    private static DisplayListShim record(LoggingGraphics g) {
+        assertTrue(DisplayListShim.canRecord(g));
+        Graphics recorder = DisplayListShim.startRecording(g);
+        renderContent(recorder);
+        return DisplayListShim.finish(recorder);
+    }
+
+    @Test
+    public void testRecordingForwardsCommands() {
+        LoggingGraphics g = new LoggingGraphics();
+        DisplayListShim list = record(g);
+        assertNotNull(list);
+        assertEquals(2, g.rects.size());
+        assertTrue(list.getCommandCount() > 0);
+        list.dispose();
+    }
+
+    @Test
+    public void testReplayRendersSameCommands() {
+        LoggingGraphics g = new LoggingGraphics();
+        DisplayListShim list = record(g);
+
+        LoggingGraphics g2 = new LoggingGraphics();
+        assertTrue(list.canReplay(g2));
+        list.replay(g2);
+        assertEquals(g.rects.size(), g2.rects.size());
+        for (int i = 0; i < g.rects.size(); i++) {
+            assertEquals(g.rects.get(i)[0], g2.rects.get(i)[0], 0f);
+            assertEquals(g.rects.get(i)[1], g2.rects.get(i)[1], 0f);
+            assertEquals(g.rects.get(i)[2], g2.rects.get(i)[2], 0f);
+            assertSame(g.paints.get(i), g2.paints.get(i));
+        }
+        list.dispose();
+    }
+
+    @Test
+    public void testReplayUnderTranslation() {
+        LoggingGraphics g = new LoggingGraphics();
+        DisplayListShim list = record(g);
+
+        LoggingGraphics g2 = new LoggingGraphics();
+        g2.translate(100, 50);
+        assertTrue(list.canReplay(g2));
+        list.replay(g2);
+        assertEquals(2, g2.rects.size());
+        assertEquals(100f, g2.rects.get(0)[0], 0f);
+        assertEquals(50f, g2.rects.get(0)[1], 0f);
+        assertEquals(120f, g2.rects.get(1)[0], 0f);
+        assertEquals(50f, g2.rects.get(1)[1], 0f);
+        list.dispose();
+    }
+
+    @Test
+    public void testNoReplayUnderScale() {
+        LoggingGraphics g = new LoggingGraphics();
+        DisplayListShim list = record(g);
+
+        LoggingGraphics g2 = new LoggingGraphics();
+        g2.scale(2, 2);
+        assertFalse(list.canReplay(g2));
+        list.dispose();
+    }
+
+    @Test
+    public void testNoReplayWithDifferentAlpha() {
+        LoggingGraphics g = new LoggingGraphics();
+        DisplayListShim list = record(g);
+
+        LoggingGraphics g2 = new LoggingGraphics();
+        g2.setExtraAlpha(0.5f);
+        assertFalse(list.canReplay(g2));
+        list.dispose();
+    }
+
+    @Test
+    public void testTextureDrawFailsRecording() {
+        LoggingGraphics g = new LoggingGraphics();
+        Graphics recorder = DisplayListShim.startRecording(g);
+        renderContent(recorder);
+        recorder.drawTexture((Texture) null, 0, 0, 10, 10);
+        assertNull(DisplayListShim.finish(recorder));
+    }
+
+    @Test
+    public void testNoReplayWithPreCullingBits() {
+        LoggingGraphics g = new LoggingGraphics();
+        g.setHasPreCullingBits(true);
+        assertTrue(DisplayListShim.canRecord(g));
+        g.setHasPreCullingBits(false);
+        DisplayListShim list = record(g);
+
+        LoggingGraphics g2 = new LoggingGraphics();
+        g2.setHasPreCullingBits(true);
+        assertFalse(list.canReplay(g2));
+        g2.setHasPreCullingBits(false);
+        assertTrue(list.canReplay(g2));
+        list.dispose();
+    }
+
+    @Test
+    public void testIsRecording() {
+        LoggingGraphics g = new LoggingGraphics();
+        assertFalse(DisplayListShim.isRecording(g));
+        assertFalse(DisplayListShim.isRecording(DisplayListShim.startDeferring(g)));
+
+        Graphics recorder = DisplayListShim.startRecording(g);
+        assertTrue(DisplayListShim.isRecording(recorder));
+        recorder.drawTexture((Texture) null, 0, 0, 10, 10);
+        assertFalse(DisplayListShim.isRecording(recorder));
+    }
+
+    @Test
+    public void testCannotRecordOnPlainGraphics() {
+        assertFalse(DisplayListShim.canRecord(new TestGraphics()));
+    }
+
+    /**
+     * A graphics which can read back but cannot render shadows directly,
+     * like the software pipeline.
+     */
+    private static Graphics createReadbackOnlyGraphics() {
+        return (Graphics) Proxy.newProxyInstance(DisplayListTest.class.getClassLoader(),
+                new Class<?>[] { ReadbackGraphics.class }, (proxy, method, args) -> {
+                    Class<?> type = method.getReturnType();
+                    if (type == BaseTransform.class) {
+                        return BaseTransform.IDENTITY_TRANSFORM;
+                    } else if (type == boolean.class) {
+                        return false;
+                    } else if (type == float.class) {
+                        return 1f;
+                    } else if (type == int.class) {
+                        return 0;
+                    }
+                    return null;
+                });
+    }
+
+    @Test
+    public void testRecorderHasMarkerInterfacesOfGraphics() {
+        Graphics recorder = DisplayListShim.startRecording(new LoggingGraphics());
+        assertTrue(recorder instanceof ReadbackGraphics);
+        assertTrue(recorder instanceof RectShadowGraphics);
+
+        recorder = DisplayListShim.startDeferring(createReadbackOnlyGraphics());
+        assertTrue(recorder instanceof ReadbackGraphics);
+        assertFalse(recorder instanceof RectShadowGraphics);
+
+        recorder = DisplayListShim.startDeferring(new TestGraphics());
+        assertFalse(recorder instanceof ReadbackGraphics);
+        assertTrue(recorder instanceof RectShadowGraphics);
+    }
+
+    @Test
+    public void testDeferringDoesNotRender() {
+        LoggingGraphics g = new LoggingGraphics();
+        Graphics recorder = DisplayListShim.startDeferring(g);
+        assertTrue(DisplayListShim.isDeferring(recorder));
+        assertFalse(DisplayListShim.isDeferring(DisplayListShim.startRecording(g)));
+        renderContent(recorder);
+        assertEquals(0, g.rects.size());
+        DisplayListShim list = DisplayListShim.finish(recorder);
+        assertNotNull(list);
+        list.dispose();
+    }
+
+    @Test
+    public void testDeferringRecordsClip() {
+        LoggingGraphics g = new LoggingGraphics();
+        Graphics recorder = DisplayListShim.startDeferring(g);
+        recorder.setClipRect(new Rectangle(0, 0, 15, 15));
+        renderContent(recorder);
+        assertNotNull(DisplayListShim.finish(recorder));
+    }
+
+    @Test
+    public void testReplayBandsClipToBand() {
+        LoggingGraphics g = new LoggingGraphics();
+        g.setClipRect(new Rectangle(0, 0, 100, 100));
+        Graphics recorder = DisplayListShim.startDeferring(g);
+        renderContent(recorder);
+        recorder.setClipRect(new Rectangle(0, 0, 10, 100));
+        recorder.fillRect(0, 0, 1, 1);
+        DisplayListShim list = DisplayListShim.finish(recorder);
+        list.prepareBands(2);
+
+        Object lock = new Object();
+        LoggingGraphics band0 = new LoggingGraphics();
+        LoggingGraphics band1 = new LoggingGraphics();
+        list.replayBand(0, band0, new Rectangle(0, 0, 100, 50), lock);
+        list.replayBand(1, band1, new Rectangle(0, 50, 100, 50), lock);
+        for (LoggingGraphics bg : new LoggingGraphics[] { band0, band1 }) {
+            assertEquals(3, bg.rects.size());
+            assertEquals(0f, bg.rects.get(0)[0], 0f);
+            assertEquals(20f, bg.rects.get(1)[0], 0f);
+            assertSame(Color.BLUE, bg.paints.get(1));
+        }
+        assertEquals(new Rectangle(0, 0, 100, 50), band0.clips.get(0));
+        assertEquals(new Rectangle(0, 50, 100, 50), band1.clips.get(0));
+        assertEquals(new Rectangle(0, 0, 10, 50), band0.clips.get(2));
+        assertEquals(new Rectangle(0, 50, 10, 50), band1.clips.get(2));
+        list.dispose();
+    }
+
+    @Test
+    public void testFailedDeferringRendersRecordedCommands() {
+        LoggingGraphics g = new LoggingGraphics();
+        Graphics recorder = DisplayListShim.startDeferring(g);
+        renderContent(recorder);
+        assertEquals(0, g.rects.size());
+        recorder.clear();
+        assertEquals(2, g.rects.size());
+        assertEquals(0f, g.rects.get(0)[0], 0f);
+        assertEquals(20f, g.rects.get(1)[0], 0f);
+        assertFalse(DisplayListShim.isDeferring(recorder));
+        recorder.fillRect(0, 0, 1, 1);
+        assertEquals(3, g.rects.size());
+        assertNull(DisplayListShim.finish(recorder));
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.sg.prism;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import com.sun.javafx.geom.BaseBounds;
+import com.sun.javafx.geom.RectBounds;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.javafx.geom.transform.BaseTransform;
+import com.sun.javafx.sg.prism.EffectFilter;
+import com.sun.javafx.sg.prism.EffectOutputCacheShim;
+import com.sun.javafx.sg.prism.NGRectangle;
+import com.sun.prism.Graphics;
+import com.sun.prism.RTTexture;
+import com.sun.prism.RenderTarget;
+import com.sun.prism.paint.Color;
+import com.sun.scenario.effect.Effect;
+import com.sun.scenario.effect.FilterContext;
+import com.sun.scenario.effect.ImageData;
+import com.sun.scenario.effect.impl.prism.PrDrawable;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EffectOutputCacheTest extends NGTestBase {
+
+    private static final int OUTPUT_SIZE = 10;
+    private static final long ENTRY_SIZE = 4L * OUTPUT_SIZE * OUTPUT_SIZE;
+
+    private EffectOutputCacheShim cache;
+    private Graphics g;
+
+    @Before
+    public void setup() {
+        cache = new EffectOutputCacheShim(1024 * 1024);
+        g = createGraphics();
+    }
+
+    @Test
+    public void outputIsCachedOnSecondRender() {
+        CountingEffect effect = new CountingEffect();
+        EffectFilter filter = createFilter(effect);
+        assertFalse(cache.render(filter, g));
+        assertEquals(0, effect.filterCount);
+        assertEquals(0, cache.getEntryCount());
+
+        assertTrue(cache.render(filter, g));
+        assertEquals(1, effect.filterCount);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(ENTRY_SIZE, cache.getSize());
+
+        assertTrue(cache.render(filter, g));
+        assertEquals(1, effect.filterCount);
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void outputIsReusedAfterIntegerTranslation() {
+        CountingEffect effect = new CountingEffect();
+        EffectFilter filter = createCachedFilter(effect);
+        g.setTransform(BaseTransform.getTranslateInstance(3, -2));
+        assertTrue(cache.render(filter, g));
+        assertEquals(1, effect.filterCount);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0, effect.releasedCount);
+    }
+
+    @Test
+    public void outputIsNotReusedAfterFractionalTranslation() {
+        CountingEffect effect = new CountingEffect();
+        EffectFilter filter = createCachedFilter(effect);
+        g.setTransform(BaseTransform.getTranslateInstance(0.5, 0));
+        assertTrue(cache.render(filter, g));
+        assertEquals(2, effect.filterCount);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, effect.releasedCount);
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(ENTRY_SIZE, cache.getSize());
+    }
+
+    @Test
+    public void outputIsNotReusedAfterContentChange() {
+        CountingEffect effect = new CountingEffect();
+        NGRectangle r = createRectangle(0, 0, OUTPUT_SIZE, OUTPUT_SIZE);
+        EffectFilter filter = EffectOutputCacheShim.createEffectFilter(effect, r);
+        cache.render(filter, g);
+        cache.render(filter, g);
+        r.setFillPaint(Color.RED);
+        assertFalse(cache.render(filter, g));
+        assertEquals(1, effect.filterCount);
+        assertEquals(1, effect.releasedCount);
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void outputIsNotReusedAfterEffectChange() {
+        CountingEffect effect = new CountingEffect();
+        NGRectangle r = createRectangle(0, 0, OUTPUT_SIZE, OUTPUT_SIZE);
+        EffectFilter filter = EffectOutputCacheShim.createEffectFilter(effect, r);
+        cache.render(filter, g);
+        cache.render(filter, g);
+
+        // As done by EffectFilter.dispose() when the effect is replaced
+        cache.remove(filter);
+        assertEquals(1, effect.releasedCount);
+        assertEquals(0, cache.getSize());
+
+        CountingEffect newEffect = new CountingEffect();
+        EffectFilter newFilter = EffectOutputCacheShim.createEffectFilter(newEffect, r);
+        assertFalse(cache.render(newFilter, g));
+        assertTrue(cache.render(newFilter, g));
+        assertEquals(1, newEffect.filterCount);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedOutputIsEvicted() {
+        cache = new EffectOutputCacheShim(2 * ENTRY_SIZE + 1);
+        CountingEffect a = new CountingEffect();
+        CountingEffect b = new CountingEffect();
+        CountingEffect c = new CountingEffect();
+        EffectFilter filterA = createCachedFilter(a);
+        EffectFilter filterB = createCachedFilter(b);
+        assertTrue(cache.render(filterA, g));
+        EffectFilter filterC = createCachedFilter(c);
+
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(2 * ENTRY_SIZE, cache.getSize());
+        assertEquals(0, a.releasedCount);
+        assertEquals(1, b.releasedCount);
+        assertEquals(0, c.releasedCount);
+
+        assertTrue(cache.render(filterA, g));
+        assertTrue(cache.render(filterC, g));
+        assertEquals(1, a.filterCount);
+        assertEquals(1, c.filterCount);
+        assertEquals(3, cache.getHitCount());
+    }
+
+    @Test
+    public void outputLargerThanCacheIsNotKept() {
+        cache = new EffectOutputCacheShim(ENTRY_SIZE - 1);
+        CountingEffect effect = new CountingEffect();
+        EffectFilter filter = createCachedFilter(effect);
+        assertEquals(1, effect.releasedCount);
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    private static EffectFilter createFilter(Effect effect) {
+        NGRectangle r = createRectangle(0, 0, OUTPUT_SIZE, OUTPUT_SIZE);
+        return EffectOutputCacheShim.createEffectFilter(effect, r);
+    }
+
+    private EffectFilter createCachedFilter(Effect effect) {
+        EffectFilter filter = createFilter(effect);
+        assertFalse(cache.render(filter, g));
+        assertTrue(cache.render(filter, g));
+        return filter;
+    }
+
+    private static Graphics createGraphics() {
+        RenderTarget rt = proxy(RenderTarget.class, (p, m, args) -> {
+            switch (m.getName()) {
+                case "getPhysicalWidth":
+                case "getPhysicalHeight":
+                case "getContentWidth":
+                case "getContentHeight": return 100;
+                case "getContentX":
+                case "getContentY": return 0;
+                case "isOpaque":
+                case "isMSAA": return false;
+                default: return null;
+            }
+        });
+        return new TestGraphics() {
+            @Override
+            public RenderTarget getRenderTarget() {
+                return rt;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(EffectOutputCacheTest.class.getClassLoader(),
+                                          new Class<?>[] { type }, handler);
+    }
+
+    private static RTTexture createTexture() {
+        return proxy(RTTexture.class, (p, m, args) -> {
+            switch (m.getName()) {
+                case "getPhysicalWidth":
+                case "getPhysicalHeight":
+                case "getContentWidth":
+                case "getContentHeight": return OUTPUT_SIZE;
+                case "isSurfaceLost": return false;
+                case "hashCode": return System.identityHashCode(p);
+                case "equals": return p == args[0];
+                default: return null;
+            }
+        });
+    }
+
+    /**
+     * An effect whose outputs are textures of OUTPUT_SIZE pixels, which
+     * counts how many outputs it filtered and how many were released.
+     */
+    static final class CountingEffect extends Effect {
+        int filterCount;
+        int releasedCount;
+
+        @Override
+        public ImageData filter(FilterContext fctx, BaseTransform transform,
+                                Rectangle outputClip, Object renderHelper,
+                                Effect defaultInput)
+        {
+            filterCount++;
+            // A null context keeps the output away from the image pool
+            PrDrawable image = new PrDrawable(createTexture()) {
+                @Override
+                public Graphics createGraphics() {
+                    return null;
+                }
+
+                @Override
+                public void flush() {
+                }
+
+                @Override
+                public Object getData() {
+                    return this;
+                }
+
+                @Override
+                public int getContentWidth() {
+                    return OUTPUT_SIZE;
+                }
+
+                @Override
+                public int getContentHeight() {
+                    return OUTPUT_SIZE;
+                }
+
+                @Override
+                public int getPhysicalWidth() {
+                    return OUTPUT_SIZE;
+                }
+
+                @Override
+                public int getPhysicalHeight() {
+                    return OUTPUT_SIZE;
+                }
+            };
+            return new ImageData(null, image, new Rectangle(OUTPUT_SIZE, OUTPUT_SIZE)) {
+                @Override
+                public boolean validate(FilterContext fctx) {
+                    return true;
+                }
+
+                @Override
+                public void unref() {
+                    releasedCount++;
+                    super.unref();
+                }
+            };
+        }
+
+        @Override
+        public BaseBounds getBounds(BaseTransform transform, Effect defaultInput) {
+            return transform.transform(new RectBounds(0, 0, OUTPUT_SIZE, OUTPUT_SIZE),
+                                       new RectBounds());
+        }
+
+        @Override
+        public AccelType getAccelType(FilterContext fctx) {
+            return AccelType.OPENGL;
+        }
+
+        @Override
+        public boolean reducesOpaquePixels() {
+            return true;
+        }
+    }
+}
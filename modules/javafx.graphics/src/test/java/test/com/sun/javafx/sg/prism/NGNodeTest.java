@@ -43,6 +43,7 @@ import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
@@ -615,6 +616,49 @@ public class NGNodeTest extends NGTestBase {
         }
     }
 
+    /**************************************************************************
+     *                                                                        *
+     * Render revision, used to reuse the output of effects                   *
+     *                                                                        *
+     *************************************************************************/
+
+    @Test
+    public void renderRevisionChangesWhenVisualsChange() {
+        NGRectangle r = createRectangle(0, 0, 10, 10);
+        int revision = NGNodeShim.getRenderRevision(r);
+        r.setFillPaint(Color.RED);
+        assertNotEquals(revision, NGNodeShim.getRenderRevision(r));
+    }
+
+    @Test
+    public void renderRevisionOfGroupChangesWhenChildChanges() {
+        NGRectangle r = createRectangle(0, 0, 10, 10);
+        NGNode g = createGroup(r);
+        g.clearDirtyTree();
+        int revision = NGNodeShim.getRenderRevision(g);
+        r.setFillPaint(Color.RED);
+        assertNotEquals(revision, NGNodeShim.getRenderRevision(g));
+    }
+
+    @Test
+    public void renderRevisionOfGroupChangesWhenChildMoves() {
+        NGRectangle r = createRectangle(0, 0, 10, 10);
+        NGNode g = createGroup(r);
+        g.clearDirtyTree();
+        int revision = NGNodeShim.getRenderRevision(g);
+        r.setTransformMatrix(BaseTransform.getTranslateInstance(5, 0));
+        assertNotEquals(revision, NGNodeShim.getRenderRevision(g));
+    }
+
+    @Test
+    public void renderRevisionDoesNotChangeWithOwnTransformOrOpacity() {
+        NGRectangle r = createRectangle(0, 0, 10, 10);
+        int revision = NGNodeShim.getRenderRevision(r);
+        r.setTransformMatrix(BaseTransform.getTranslateInstance(5, 0));
+        r.setOpacity(.5f);
+        assertEquals(revision, NGNodeShim.getRenderRevision(r));
+    }
+
     static abstract class MockEffect extends Effect {
 
         @Override
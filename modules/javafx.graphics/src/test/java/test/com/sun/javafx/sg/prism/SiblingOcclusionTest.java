@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.sg.prism;
+
+import java.util.BitSet;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.javafx.geom.transform.BaseTransform;
+import com.sun.javafx.sg.prism.NGGroup;
+import com.sun.javafx.sg.prism.NGGroupShim;
+import com.sun.javafx.sg.prism.NGNode;
+import com.sun.prism.Graphics;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the children of a group which are skipped during rendering
+ * because an opaque sibling in front of them covers them.
+ */
+public class SiblingOcclusionTest extends NGTestBase {
+
+    private static BitSet findOccluded(NGGroup group, Graphics g) {
+        return NGGroupShim.findOccludedChildren(group, g);
+    }
+
+    private static BitSet findOccluded(NGGroup group) {
+        return findOccluded(group, new TestGraphics());
+    }
+
+    @Test
+    public void testChildCoveredByOpaqueRegionIsOccluded() {
+        NGNode back = createRectangle(10, 10, 20, 20);
+        NGNode front = createOpaqueRegion(0, 0, 100, 100);
+        BitSet occluded = findOccluded(createGroup(back, front));
+        assertNotNull(occluded);
+        assertTrue(occluded.get(0));
+        assertFalse(occluded.get(1));
+    }
+
+    @Test
+    public void testChildInFrontIsNotOccluded() {
+        NGNode back = createOpaqueRegion(0, 0, 100, 100);
+        NGNode front = createRectangle(10, 10, 20, 20);
+        assertNull(findOccluded(createGroup(back, front)));
+    }
+
+    @Test
+    public void testPartiallyCoveredChildIsNotOccluded() {
+        NGNode back = createRectangle(90, 10, 20, 20);
+        NGNode front = createOpaqueRegion(0, 0, 100, 100);
+        assertNull(findOccluded(createGroup(back, front)));
+    }
+
+    @Test
+    public void testAntialiasedEdgesAreNotOccluded() {
+        // The edges of the back rectangle could bleed into the pixels
+        // along the edges of a region of exactly the same bounds
+        NGNode back = createRectangle(10, 10, 20, 20);
+        NGNode front = createOpaqueRegion(10, 10, 20, 20);
+        assertNull(findOccluded(createGroup(back, front)));
+    }
+
+    @Test
+    public void testOnlyClipNeedsToBeCovered() {
+        NGNode back = createRectangle(40, 10, 70, 20);
+        NGNode front = createOpaqueRegion(0, 0, 100, 100);
+        Graphics g = new TestGraphics();
+        g.setClipRect(new Rectangle(0, 0, 50, 50));
+        BitSet occluded = findOccluded(createGroup(back, front), g);
+        assertNotNull(occluded);
+        assertTrue(occluded.get(0));
+    }
+
+    @Test
+    public void testTransparentRegionDoesNotOcclude() {
+        NGNode back = createRectangle(10, 10, 20, 20);
+        NGNode front = createTransparentRegion(0, 0, 100, 100);
+        assertNull(findOccluded(createGroup(back, front)));
+    }
+
+    @Test
+    public void testInvisibleRegionDoesNotOcclude() {
+        NGNode back = createRectangle(10, 10, 20, 20);
+        NGNode front = createOpaqueRegion(0, 0, 100, 100);
+        front.setVisible(false);
+        assertNull(findOccluded(createGroup(back, front)));
+    }
+
+    @Test
+    public void testTranslucentRegionDoesNotOcclude() {
+        NGNode back = createRectangle(10, 10, 20, 20);
+        NGNode front = createOpaqueRegion(0, 0, 100, 100);
+        front.setOpacity(0.5f);
+        assertNull(findOccluded(createGroup(back, front)));
+    }
+
+    @Test
+    public void testRotatedRegionDoesNotOcclude() {
+        NGNode back = createRectangle(10, 10, 20, 20);
+        NGNode front = createOpaqueRegion(0, 0, 100, 100);
+        Graphics g = new TestGraphics();
+        g.transform(BaseTransform.getRotateInstance(Math.PI / 6, 50, 50));
+        assertNull(findOccluded(createGroup(back, front), g));
+    }
+
+    @Test
+    public void testScaledRegionOccludes() {
+        NGNode back = createRectangle(10, 10, 20, 20);
+        NGNode front = createOpaqueRegion(0, 0, 100, 100);
+        Graphics g = new TestGraphics();
+        g.scale(2, 2);
+        BitSet occluded = findOccluded(createGroup(back, front), g);
+        assertNotNull(occluded);
+        assertEquals(1, occluded.cardinality());
+    }
+
+    @Test
+    public void testEveryCoveredChildIsOccluded() {
+        NGNode back1 = createRectangle(10, 10, 20, 20);
+        NGNode back2 = createRectangle(50, 50, 20, 20);
+        NGNode back3 = createRectangle(150, 50, 20, 20);
+        NGNode front = createOpaqueRegion(0, 0, 100, 100);
+        BitSet occluded = findOccluded(createGroup(back1, back2, back3, front));
+        assertNotNull(occluded);
+        assertTrue(occluded.get(0));
+        assertTrue(occluded.get(1));
+        assertFalse(occluded.get(2));
+    }
+}
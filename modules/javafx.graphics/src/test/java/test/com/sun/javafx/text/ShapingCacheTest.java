@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.text;
+
+import com.sun.javafx.text.ShapingCache;
+import com.sun.javafx.text.TextRun;
+import test.com.sun.javafx.pgstub.StubFontLoader.StubFont;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ShapingCacheTest {
+    private final char[] chars = "Hello World Hello".toCharArray();
+    private StubFont font;
+    private ShapingCache cache;
+
+    @Before
+    public void setUp() {
+        font = new StubFont();
+        cache = new ShapingCache(100);
+    }
+
+    private TextRun createRun(int start, int length) {
+        return new TextRun(start, length, (byte)0, true, 0, null, 0, false);
+    }
+
+    private void shapeRun(TextRun run) {
+        int count = run.getLength();
+        int[] glyphs = new int[count];
+        float[] pos = new float[(count + 1) << 1];
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            glyphs[i] = chars[run.getStart() + i];
+            pos[(i + 1) << 1] = (i + 1) * 10;
+            indices[i] = i;
+        }
+        run.shape(count, glyphs, pos, indices);
+    }
+
+    @Test
+    public void testMissThenHit() {
+        TextRun run = createRun(0, 5);
+        assertFalse(cache.shape(run, font, chars));
+        shapeRun(run);
+        cache.put(run, font, chars);
+
+        /* Same text at a different offset */
+        TextRun other = createRun(12, 5);
+        assertTrue(cache.shape(other, font, chars));
+        assertEquals(5, other.getGlyphCount());
+        assertEquals('H', other.getGlyphCode(0));
+        assertEquals(50, other.getWidth(), 0);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5f, cache.getHitRate(), 0);
+    }
+
+    @Test
+    public void testKeyIncludesTextFontAndLevel() {
+        TextRun run = createRun(0, 5);
+        shapeRun(run);
+        cache.put(run, font, chars);
+
+        assertFalse(cache.shape(createRun(6, 5), font, chars));
+        assertFalse(cache.shape(createRun(0, 5), new StubFont(), chars));
+        TextRun rtl = new TextRun(0, 5, (byte)1, true, 0, null, 0, false);
+        assertFalse(cache.shape(rtl, font, chars));
+        assertTrue(cache.shape(createRun(0, 5), font, chars));
+    }
+
+    @Test
+    public void testCachedPositionsAreNotShared() {
+        TextRun run = createRun(0, 5);
+        shapeRun(run);
+        cache.put(run, font, chars);
+        run.justify(0, 100);
+
+        TextRun other = createRun(12, 5);
+        assertTrue(cache.shape(other, font, chars));
+        assertEquals(50, other.getWidth(), 0);
+        other.justify(0, 100);
+
+        TextRun third = createRun(0, 5);
+        assertTrue(cache.shape(third, font, chars));
+        assertEquals(50, third.getWidth(), 0);
+    }
+
+    @Test
+    public void testBoundedByGlyphCount() {
+        cache = new ShapingCache(12);
+        TextRun a = createRun(0, 5);
+        shapeRun(a);
+        cache.put(a, font, chars);
+        TextRun b = createRun(6, 5);
+        shapeRun(b);
+        cache.put(b, font, chars);
+        assertEquals(10, cache.getGlyphCount());
+
+        /* Touch a so b is the least recently used */
+        assertTrue(cache.shape(createRun(0, 5), font, chars));
+        TextRun c = createRun(2, 4);
+        shapeRun(c);
+        cache.put(c, font, chars);
+        assertEquals(2, cache.size());
+        assertEquals(9, cache.getGlyphCount());
+        assertTrue(cache.shape(createRun(0, 5), font, chars));
+        assertFalse(cache.shape(createRun(6, 5), font, chars));
+    }
+
+    @Test
+    public void testUnshapedRunsAreNotCached() {
+        TextRun run = createRun(0, 5);
+        cache.put(run, font, chars);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testClear() {
+        TextRun run = createRun(0, 5);
+        shapeRun(run);
+        cache.put(run, font, chars);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getGlyphCount());
+        assertFalse(cache.shape(createRun(0, 5), font, chars));
+    }
+}
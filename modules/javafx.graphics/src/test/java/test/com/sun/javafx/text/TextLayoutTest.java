@@ -226,4 +226,83 @@ public class TextLayoutTest {
 
     }
 
+    private void verifySameLayout(PrismTextLayout expected, PrismTextLayout layout) {
+        TextLine[] expectedLines = expected.getLines();
+        TextLine[] lines = layout.getLines();
+        assertEquals("lineCount", expectedLines.length, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals("line " + i, expectedLines[i].getStart(), lines[i].getStart());
+            assertEquals("line " + i, expectedLines[i].getLength(), lines[i].getLength());
+            assertEquals("line " + i, expectedLines[i].getBounds(), lines[i].getBounds());
+        }
+        GlyphList[] expectedRuns = expected.getRuns();
+        GlyphList[] runs = layout.getRuns();
+        assertEquals("runCount", expectedRuns.length, runs.length);
+        for (int i = 0; i < runs.length; i++) {
+            int glyphCount = expectedRuns[i].getGlyphCount();
+            assertEquals("run " + i, glyphCount, runs[i].getGlyphCount());
+            assertEquals("run " + i, expectedRuns[i].getLocation(), runs[i].getLocation());
+            for (int j = 0; j < glyphCount; j++) {
+                assertEquals("run " + i, expectedRuns[i].getGlyphCode(j), runs[i].getGlyphCode(j));
+                assertEquals("run " + i, expectedRuns[i].getPosX(j), runs[i].getPosX(j), 0);
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test public void incrementalLayout() {
+        PGFont font = (PGFont) FontHelper.getNativeFont(Font.font("System", 12));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            sb.append("word").append(i).append(i % 50 == 49 ? "\n" : " ");
+        }
+        String text = sb.toString();
+        int middle = text.length() / 2;
+        String[] edits = {
+            text + "x",
+            text.substring(0, text.length() - 20),
+            text.substring(0, middle) + "inserted " + text.substring(middle),
+            text.substring(0, middle) + text.substring(middle + 30),
+            text.substring(0, middle) + "\n" + text.substring(middle),
+            "x" + text,
+        };
+        for (float wrapWidth : new float[] {0, 150}) {
+            for (String edit : edits) {
+                PrismTextLayout layout = new PrismTextLayout();
+                layout.setWrapWidth(wrapWidth);
+                layout.setContent(text, font);
+                layout.getLines();
+                layout.setContent(edit, font);
+
+                PrismTextLayout expected = new PrismTextLayout();
+                expected.setWrapWidth(wrapWidth);
+                expected.setContent(edit, font);
+                verifySameLayout(expected, layout);
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test public void incrementalLayoutAfterBreakIterator() {
+        PGFont font = (PGFont) FontHelper.getNativeFont(Font.font("System", 12));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            sb.append("well-known-word").append(i).append(' ');
+        }
+        int cjk = sb.length() - 10;
+        String text = sb.substring(0, cjk) + J + sb.substring(cjk);
+        String edit = sb.toString();
+
+        PrismTextLayout layout = new PrismTextLayout();
+        layout.setWrapWidth(100);
+        layout.setContent(text, font);
+        assertTrue(layout.getLines().length > 2);
+        layout.setContent(edit, font);
+
+        PrismTextLayout expected = new PrismTextLayout();
+        expected.setWrapWidth(100);
+        expected.setContent(edit, font);
+        verifySameLayout(expected, layout);
+    }
+
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.tk.quantum;
+
+import com.sun.javafx.tk.ImageLoader;
+import com.sun.javafx.tk.quantum.DecodedImageCacheShim;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import javax.imageio.ImageIO;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class DecodedImageCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String createImage(String name, int width, int height) throws IOException {
+        BufferedImage bImg = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        File file = folder.newFile(name);
+        ImageIO.write(bImg, "png", file);
+        return file.toURI().toString();
+    }
+
+    @Test
+    public void sameParametersReuseDecodedImage() throws IOException {
+        String url = createImage("a.png", 20, 10);
+        DecodedImageCacheShim cache = new DecodedImageCacheShim(1 << 20);
+
+        ImageLoader first = cache.load(url, 0, 0, false, false);
+        assertNull(first.getException());
+        assertSame(first, cache.load(url, 0, 0, false, false));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(20 * 10 * 4, cache.getSize());
+    }
+
+    @Test
+    public void differentParametersDecodeAgain() throws IOException {
+        String url = createImage("a.png", 20, 10);
+        DecodedImageCacheShim cache = new DecodedImageCacheShim(1 << 20);
+
+        ImageLoader full = cache.load(url, 0, 0, false, false);
+        ImageLoader scaled = cache.load(url, 10, 5, false, false);
+        ImageLoader smooth = cache.load(url, 10, 5, false, true);
+        assertNotSame(full, scaled);
+        assertNotSame(scaled, smooth);
+        assertEquals(10, scaled.getWidth(), 0);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(3, cache.getImageCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedImageIsEvicted() throws IOException {
+        String url1 = createImage("a.png", 10, 10);
+        String url2 = createImage("b.png", 10, 10);
+        String url3 = createImage("c.png", 10, 10);
+        DecodedImageCacheShim cache = new DecodedImageCacheShim(2 * 10 * 10 * 4);
+
+        ImageLoader loader1 = cache.load(url1, 0, 0, false, false);
+        ImageLoader loader2 = cache.load(url2, 0, 0, false, false);
+        assertSame(loader1, cache.load(url1, 0, 0, false, false));
+        cache.load(url3, 0, 0, false, false);
+
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.getImageCount());
+        assertSame(loader1, cache.load(url1, 0, 0, false, false));
+        assertNotSame(loader2, cache.load(url2, 0, 0, false, false));
+    }
+
+    @Test
+    public void failedLoadIsNotCached() throws IOException {
+        String url = new File(folder.getRoot(), "missing.png").toURI().toString();
+        DecodedImageCacheShim cache = new DecodedImageCacheShim(1 << 20);
+
+        assertNotNull(cache.load(url, 0, 0, false, false).getException());
+        assertEquals(0, cache.getImageCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void modifiedFileIsDecodedAgain() throws IOException {
+        String url = createImage("a.png", 20, 10);
+        DecodedImageCacheShim cache = new DecodedImageCacheShim(1 << 20);
+
+        ImageLoader first = cache.load(url, 0, 0, false, false);
+        File file = new File(folder.getRoot(), "a.png");
+        ImageIO.write(new BufferedImage(30, 10, BufferedImage.TYPE_INT_ARGB),
+                      "png", file);
+        // the modification time may have a coarse granularity
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+
+        ImageLoader second = cache.load(url, 0, 0, false, false);
+        assertNotSame(first, second);
+        assertEquals(30, second.getWidth(), 0);
+        assertSame(second, cache.load(url, 0, 0, false, false));
+    }
+
+    @Test
+    public void jarEntryIsCached() throws IOException {
+        createImage("a.png", 20, 10);
+        File jar = folder.newFile("images.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("a.png"));
+            Files.copy(new File(folder.getRoot(), "a.png").toPath(), out);
+            out.closeEntry();
+        }
+        String url = "jar:" + jar.toURI() + "!/a.png";
+        DecodedImageCacheShim cache = new DecodedImageCacheShim(1 << 20);
+
+        ImageLoader first = cache.load(url, 0, 0, false, false);
+        assertNull(first.getException());
+        assertSame(first, cache.load(url, 0, 0, false, false));
+        assertEquals(1, cache.getImageCount());
+    }
+
+    @Test
+    public void onlyLocalFilesAreCached() throws IOException {
+        String url = createImage("a.png", 20, 10);
+        assertTrue(DecodedImageCacheShim.isCacheable(url));
+        assertTrue(DecodedImageCacheShim.isCacheable("jar:" + url + "!/a.png"));
+        assertFalse(DecodedImageCacheShim.isCacheable("http://localhost/a.png"));
+        assertFalse(DecodedImageCacheShim.isCacheable("https://localhost/a.png"));
+        assertFalse(DecodedImageCacheShim.isCacheable(
+                "jar:http://localhost/images.jar!/a.png"));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.tk.quantum;
+
+import com.sun.javafx.tk.quantum.ViewPainterShim;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ViewPainterTest {
+
+    @Test(timeout = 10000)
+    public void syncWhilePresentingWaitsToUpdateSceneState() throws Exception {
+        CountDownLatch presenting = new CountDownLatch(1);
+        CountDownLatch presented = new CountDownLatch(1);
+        AtomicBoolean stillPresenting = new AtomicBoolean();
+
+        Thread renderThread = new Thread(() -> {
+            ViewPainterShim.lockRender();
+            ViewPainterShim.releaseRenderLockForPresent();
+            try {
+                stillPresenting.set(true);
+                presenting.countDown();
+                presented.await();
+                stillPresenting.set(false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                ViewPainterShim.presentCompleted();
+            }
+        });
+        renderThread.start();
+        presenting.await();
+
+        // The next pulse can be synchronized while the frame is presented
+        assertTrue(ViewPainterShim.tryLockRender());
+        try {
+            AtomicBoolean updatedWhilePresenting = new AtomicBoolean(true);
+            Thread release = new Thread(() -> {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                presented.countDown();
+            });
+            release.start();
+
+            // ... but the scene state is only updated once it is presented
+            ViewPainterShim.runWithPresentLock(() -> {
+                updatedWhilePresenting.set(stillPresenting.get());
+            });
+            assertFalse(updatedWhilePresenting.get());
+            release.join();
+        } finally {
+            ViewPainterShim.unlockRender();
+        }
+        renderThread.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(renderThread.isAlive());
+    }
+
+    @Test
+    public void presentLockIsReentrantForTheRenderLockHolder() {
+        ViewPainterShim.lockRender();
+        try {
+            AtomicBoolean ran = new AtomicBoolean();
+            ViewPainterShim.runWithPresentLock(() -> {
+                ViewPainterShim.runWithPresentLock(() -> ran.set(true));
+            });
+            assertTrue(ran.get());
+        } finally {
+            ViewPainterShim.unlockRender();
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.prism;
+
+import com.sun.javafx.geom.Rectangle;
+import com.sun.prism.Image;
+import javafx.scene.image.PixelFormat;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ImageDirtyBoundsTest {
+
+    private static Image createImage() {
+        return Image.fromIntArgbPreData(new int[100 * 50], 100, 50);
+    }
+
+    @Test
+    public void unchangedImageHasEmptyBounds() {
+        Image image = createImage();
+        Rectangle bounds = new Rectangle();
+        assertFalse(image.getDirtyBounds(image.getSerial(), bounds));
+    }
+
+    @Test
+    public void boundsOfSingleChange() {
+        Image image = createImage();
+        int serial = image.getSerial();
+        image.setArgb(10, 20, 0xff00ff00);
+        Rectangle bounds = new Rectangle();
+        assertTrue(image.getDirtyBounds(serial, bounds));
+        assertEquals(new Rectangle(10, 20, 1, 1), bounds);
+    }
+
+    @Test
+    public void boundsOfSeveralChangesAreMerged() {
+        Image image = createImage();
+        int serial = image.getSerial();
+        image.setArgb(10, 20, 0xff00ff00);
+        image.setPixels(30, 5, 4, 3, PixelFormat.getIntArgbPreInstance(),
+                        new int[12], 0, 4);
+        Rectangle bounds = new Rectangle();
+        assertTrue(image.getDirtyBounds(serial, bounds));
+        assertEquals(new Rectangle(10, 5, 24, 16), bounds);
+
+        // only the changes made after the given serial are included
+        assertTrue(image.getDirtyBounds(serial + 1, bounds));
+        assertEquals(new Rectangle(30, 5, 4, 3), bounds);
+    }
+
+    @Test
+    public void tooManyChangesAreUnknown() {
+        Image image = createImage();
+        int serial = image.getSerial();
+        for (int i = 0; i < 20; i++) {
+            image.setArgb(i, 0, 0xffffffff);
+        }
+        assertFalse(image.getDirtyBounds(serial, new Rectangle()));
+        assertTrue(image.getDirtyBounds(image.getSerial() - 2, new Rectangle()));
+    }
+
+    @Test
+    public void changesThroughSubImageAreUnknown() {
+        Image image = createImage();
+        Image subImage = image.createSubImage(10, 10, 20, 20);
+        int serial = image.getSerial();
+        subImage.setArgb(1, 1, 0xffffffff);
+        assertFalse(image.getDirtyBounds(serial, new Rectangle()));
+        Rectangle bounds = new Rectangle();
+        assertTrue(subImage.getDirtyBounds(serial, bounds));
+        assertEquals(new Rectangle(1, 1, 1, 1), bounds);
+    }
+}
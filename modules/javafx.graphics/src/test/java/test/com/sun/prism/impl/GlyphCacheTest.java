@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.prism.impl;
+
+import com.sun.javafx.font.FontResource;
+import com.sun.javafx.font.FontStrike;
+import com.sun.javafx.font.Glyph;
+import com.sun.javafx.font.GlyphPrefetcher;
+import com.sun.javafx.geom.transform.BaseTransform;
+import com.sun.javafx.scene.text.GlyphList;
+import com.sun.javafx.sg.prism.NGCamera;
+import com.sun.prism.Image;
+import com.sun.prism.MediaFrame;
+import com.sun.prism.Mesh;
+import com.sun.prism.MeshView;
+import com.sun.prism.PhongMaterial;
+import com.sun.prism.PixelFormat;
+import com.sun.prism.Presentable;
+import com.sun.prism.PresentableState;
+import com.sun.prism.RTTexture;
+import com.sun.prism.RenderTarget;
+import com.sun.prism.ResourceFactory;
+import com.sun.prism.ResourceFactoryListener;
+import com.sun.prism.Texture;
+import com.sun.prism.Texture.WrapMode;
+import com.sun.prism.impl.BaseContext;
+import com.sun.prism.impl.BaseGraphics;
+import com.sun.prism.impl.GlyphCacheShim;
+import com.sun.prism.impl.TextureResourcePool;
+import com.sun.prism.shape.ShapeRep;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GlyphCacheTest {
+
+    // Pages holding 4 glyphs each, the glyphs are 14x14 plus their border
+    private static final int PAGE_SIZE = 32;
+    private static final int GLYPH_SIZE = 14;
+    private static final int MAX_PAGES = 3;
+    private static final float GLYPH_SPACING = 20f;
+
+    private TestContext context;
+    private GlyphCacheShim cache;
+    private int rasterized;
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        if (type == long.class) return 0L;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(GlyphCacheTest.class.getClassLoader(),
+                                          new Class<?>[] { type }, handler);
+    }
+
+    private static Texture createTexture() {
+        return proxy(Texture.class, (p, m, args) -> {
+            switch (m.getName()) {
+                case "getPixelFormat": return PixelFormat.BYTE_ALPHA;
+                case "getPhysicalWidth":
+                case "getPhysicalHeight":
+                case "getContentWidth":
+                case "getContentHeight": return PAGE_SIZE;
+                case "hashCode": return System.identityHashCode(p);
+                case "equals": return p == args[0];
+                default: return defaultValue(m.getReturnType());
+            }
+        });
+    }
+
+    private final Glyph glyph = proxy(Glyph.class, (p, m, args) -> {
+        switch (m.getName()) {
+            case "getPixelData":
+                // The prefetcher may produce the same image concurrently
+                assertTrue(Thread.holdsLock(GlyphPrefetcher.getRasterizerLock()));
+                return new byte[GLYPH_SIZE * GLYPH_SIZE];
+            case "getWidth":
+            case "getHeight": return GLYPH_SIZE;
+            case "getPixelXAdvance": return GLYPH_SPACING;
+            default: return defaultValue(m.getReturnType());
+        }
+    });
+
+    private final FontStrike strike = proxy(FontStrike.class, (p, m, args) -> {
+        switch (m.getName()) {
+            case "getAAMode": return FontResource.AA_GREYSCALE;
+            case "getGlyph": rasterized++; return glyph;
+            case "hashCode": return System.identityHashCode(p);
+            case "equals": return p == args[0];
+            default: return defaultValue(m.getReturnType());
+        }
+    });
+
+    private static GlyphList createGlyphList(int... codes) {
+        return proxy(GlyphList.class, (p, m, args) -> {
+            switch (m.getName()) {
+                case "getGlyphCount": return codes.length;
+                case "getGlyphCode": return codes[(Integer) args[0]];
+                case "getPosX": return (Integer) args[0] * GLYPH_SPACING;
+                case "getCharOffset": return args[0];
+                default: return defaultValue(m.getReturnType());
+            }
+        });
+    }
+
+    private static int[] range(int from, int to) {
+        int[] codes = new int[to - from];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = from + i;
+        }
+        return codes;
+    }
+
+    /* Records the positions of the glyphs drawn, a quad per glyph */
+    private static final class TestContext extends BaseContext {
+        final List<Integer> drawn = new ArrayList<>();
+
+        TestContext(ResourceFactory factory) {
+            super(null, factory, 16);
+        }
+
+        @Override
+        protected void renderQuads(float[] coordArray, byte[] colorArray, int numVertices) {
+            // 7 floats per vertex, 4 vertices per quad
+            for (int v = 0; v < numVertices; v += 4) {
+                drawn.add(Math.round(coordArray[v * 7] / GLYPH_SPACING));
+            }
+        }
+
+        @Override
+        protected void setRenderTarget(RenderTarget target, NGCamera camera,
+                                       boolean depthTest, boolean state3D) {
+        }
+
+        @Override public void validateClearOp(BaseGraphics g) { }
+
+        @Override
+        public void validatePaintOp(BaseGraphics g, BaseTransform xform, Texture maskTex,
+                                    float bx, float by, float bw, float bh) {
+        }
+
+        @Override
+        public void validateTextureOp(BaseGraphics g, BaseTransform xform,
+                                      Texture src, PixelFormat format) {
+        }
+
+        @Override public RTTexture getLCDBuffer() { return null; }
+    }
+
+    private static final class TestResourceFactory implements ResourceFactory {
+        @Override public boolean isDeviceReady() { return true; }
+        @Override public TextureResourcePool getTextureResourcePool() { return null; }
+        @Override public Texture createTexture(Image image, Texture.Usage usageHint, WrapMode wrapMode) { return null; }
+        @Override public Texture createTexture(Image image, Texture.Usage usageHint, WrapMode wrapMode, boolean useMipmap) { return null; }
+        @Override public Texture createTexture(PixelFormat formatHint, Texture.Usage usageHint, WrapMode wrapMode, int w, int h) { return null; }
+        @Override public Texture createTexture(PixelFormat formatHint, Texture.Usage usageHint, WrapMode wrapMode, int w, int h, boolean useMipmap) { return null; }
+        @Override public Texture createTexture(MediaFrame frame) { return null; }
+        @Override public boolean isCompatibleTexture(Texture tex) { return true; }
+        @Override public boolean isWrapModeSupported(WrapMode mode) { return true; }
+        @Override public Texture getCachedTexture(Image image, WrapMode wrapMode) { return null; }
+        @Override public Texture getCachedTexture(Image image, WrapMode wrapMode, boolean useMipmap) { return null; }
+        @Override public boolean isFormatSupported(PixelFormat format) { return false; }
+        @Override public int getMaximumTextureSize() { return 0; }
+        @Override public Texture createMaskTexture(int width, int height, WrapMode wrapMode) { return GlyphCacheTest.createTexture(); }
+        @Override public Texture createFloatTexture(int width, int height) { return null; }
+        @Override public int getRTTWidth(int w, WrapMode wrapMode) { return w; }
+        @Override public int getRTTHeight(int h, WrapMode wrapMode) { return h; }
+        @Override public RTTexture createRTTexture(int width, int height, WrapMode wrapMode) { return null; }
+        @Override public RTTexture createRTTexture(int width, int height, WrapMode wrapMode, boolean msaa) { return null; }
+        @Override public Presentable createPresentable(PresentableState pstate) { return null; }
+        @Override public ShapeRep createPathRep() { return null; }
+        @Override public ShapeRep createRoundRectRep() { return null; }
+        @Override public ShapeRep createEllipseRep() { return null; }
+        @Override public ShapeRep createArcRep() { return null; }
+        @Override public void addFactoryListener(ResourceFactoryListener l) { }
+        @Override public void removeFactoryListener(ResourceFactoryListener l) { }
+        @Override public void dispose() { }
+        @Override public PhongMaterial createPhongMaterial() { return null; }
+        @Override public MeshView createMeshView(Mesh mesh) { return null; }
+        @Override public Mesh createMesh() { return null; }
+        @Override public void setRegionTexture(Texture texture) { }
+        @Override public Texture getRegionTexture() { return null; }
+        @Override public void setGlyphTexture(Texture texture) { }
+        @Override public Texture getGlyphTexture() { return null; }
+        @Override public boolean isSuperShaderAllowed() { return false; }
+    }
+
+    @Before
+    public void setUp() {
+        context = new TestContext(new TestResourceFactory());
+        cache = new GlyphCacheShim(context, strike, PAGE_SIZE, PAGE_SIZE, MAX_PAGES);
+    }
+
+    /**
+     * Renders the list the way BaseShaderGraphics does, and returns the
+     * textures of the passes.
+     */
+    private List<Texture> render(GlyphList gl) {
+        List<Texture> passes = new ArrayList<>();
+        context.drawn.clear();
+        Texture tex = cache.beginRender();
+        int limit = 100;
+        do {
+            passes.add(tex);
+            tex = cache.render(context, gl, tex);
+            context.flushVertexBuffer();
+            assertTrue("too many passes", --limit > 0);
+        } while (tex != null);
+        return passes;
+    }
+
+    private void assertAllDrawnOnce(int count) {
+        assertEquals(count, context.drawn.size());
+        assertEquals(count, new HashSet<>(context.drawn).size());
+    }
+
+    @Test
+    public void testGlyphsOnOnePage() {
+        List<Texture> passes = render(createGlyphList(range(0, 4)));
+        assertEquals(1, passes.size());
+        assertEquals(1, cache.getPageCount());
+        assertAllDrawnOnce(4);
+    }
+
+    @Test
+    public void testEachPageIsDrawnOnce() {
+        List<Texture> passes = render(createGlyphList(range(0, 10)));
+        assertEquals(MAX_PAGES, cache.getPageCount());
+        assertEquals(MAX_PAGES, passes.size());
+        assertEquals(MAX_PAGES, new HashSet<>(passes).size());
+        assertAllDrawnOnce(10);
+        assertEquals(0, cache.getClearCount());
+    }
+
+    @Test
+    public void testCachedGlyphsAreNotRasterizedAgain() {
+        render(createGlyphList(range(0, 10)));
+        rasterized = 0;
+        List<Texture> passes = render(createGlyphList(range(0, 10)));
+        assertEquals(0, rasterized);
+        assertEquals(MAX_PAGES, passes.size());
+        assertAllDrawnOnce(10);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedPageIsEvicted() {
+        List<Texture> pages = render(createGlyphList(range(0, 12)));
+        assertEquals(MAX_PAGES, new HashSet<>(pages).size());
+        // The page of the first glyphs is used again
+        render(createGlyphList(range(0, 4)));
+        Texture used = pages.get(0);
+
+        rasterized = 0;
+        render(createGlyphList(range(100, 104)));
+        assertEquals(4, rasterized);
+        assertAllDrawnOnce(4);
+        assertEquals(0, cache.getClearCount());
+        assertEquals(0, cache.getGeneration(used));
+        int evicted = 0;
+        for (Texture tex : pages) {
+            evicted += cache.getGeneration(tex);
+        }
+        assertEquals(1, evicted);
+
+        rasterized = 0;
+        render(createGlyphList(range(0, 4)));
+        assertEquals(0, rasterized);
+    }
+
+    @Test
+    public void testPagesOfCurrentListAreNotEvicted() {
+        render(createGlyphList(range(0, 12)));
+        // The second page needed by the new glyphs must not be the one
+        // their first four were just placed on
+        rasterized = 0;
+        render(createGlyphList(range(100, 108)));
+        assertEquals(8, rasterized);
+        assertAllDrawnOnce(8);
+        assertEquals(0, cache.getClearCount());
+
+        rasterized = 0;
+        render(createGlyphList(range(100, 108)));
+        assertEquals(0, rasterized);
+    }
+
+    @Test
+    public void testListLargerThanCacheIsDrawnOnce() {
+        int count = 4 * MAX_PAGES + 6;
+        List<Texture> passes = render(createGlyphList(range(0, count)));
+        assertTrue(cache.getClearCount() > 0);
+        assertAllDrawnOnce(count);
+        assertTrue(passes.size() > MAX_PAGES);
+    }
+
+    @Test
+    public void testRepeatedGlyphsAreAllDrawn() {
+        int[] codes = new int[20];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = i % 10;
+        }
+        render(createGlyphList(codes));
+        assertAllDrawnOnce(codes.length);
+        Set<Integer> positions = new HashSet<>(context.drawn);
+        for (int i = 0; i < codes.length; i++) {
+            assertTrue(positions.contains(i));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.prism.impl.ps;
+
+import com.sun.prism.impl.ps.DrawReorderer;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DrawReordererTest {
+
+    private static final String A = "A";
+    private static final String B = "B";
+
+    private DrawReorderer reorderer;
+
+    @Before
+    public void setUp() {
+        reorderer = new DrawReorderer();
+    }
+
+    private void addCell(Object key, int column) {
+        reorderer.add(key, column * 10, 0, column * 10 + 5, 5);
+    }
+
+    private void assertOrder(int... expected) {
+        assertEquals(expected.length, reorderer.getCount());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("position " + i, expected[i], reorderer.get(i));
+        }
+    }
+
+    @Test
+    public void testDisjointDrawsAreGroupedByKey() {
+        addCell(A, 0);
+        addCell(B, 1);
+        addCell(A, 2);
+        addCell(B, 3);
+        assertOrder(0, 2, 1, 3);
+        assertEquals(1, reorderer.getMovedCount());
+    }
+
+    @Test
+    public void testOverlappingDrawsKeepTheirOrder() {
+        reorderer.add(A, 0, 0, 10, 10);
+        reorderer.add(B, 5, 5, 15, 15);
+        reorderer.add(A, 12, 12, 20, 20);
+        assertOrder(0, 1, 2);
+        assertEquals(0, reorderer.getMovedCount());
+    }
+
+    @Test
+    public void testDrawMovesPastDisjointDrawsOnly() {
+        reorderer.add(A, 0, 0, 10, 10);
+        reorderer.add(B, 100, 100, 110, 110);
+        reorderer.add(B, 20, 20, 30, 30);
+        // intersects the second B but not the first one
+        reorderer.add(A, 25, 25, 35, 35);
+        assertOrder(0, 1, 2, 3);
+    }
+
+    @Test
+    public void testNullKeysAreNeverMerged() {
+        addCell(null, 0);
+        addCell(B, 1);
+        addCell(null, 2);
+        assertOrder(0, 1, 2);
+        assertEquals(0, reorderer.getMovedCount());
+    }
+
+    @Test
+    public void testDrawMovesPastDisjointNullKey() {
+        addCell(A, 0);
+        addCell(null, 1);
+        addCell(A, 2);
+        assertOrder(0, 2, 1);
+    }
+
+    @Test
+    public void testRunsStayTogether() {
+        addCell(A, 0);
+        addCell(A, 1);
+        addCell(B, 2);
+        addCell(A, 3);
+        addCell(B, 4);
+        assertOrder(0, 1, 3, 2, 4);
+    }
+
+    @Test
+    public void testLookbackIsBounded() {
+        addCell(A, 0);
+        for (int i = 1; i <= 100; i++) {
+            addCell(B, i);
+        }
+        addCell(A, 101);
+        // B draws are grouped, but the last A is too far from the first one
+        assertEquals(101, reorderer.get(101));
+        assertEquals(0, reorderer.get(0));
+    }
+
+    @Test
+    public void testReset() {
+        addCell(A, 0);
+        addCell(B, 1);
+        addCell(A, 2);
+        reorderer.reset();
+        assertEquals(0, reorderer.getCount());
+        assertEquals(0, reorderer.getMovedCount());
+        addCell(B, 0);
+        addCell(A, 1);
+        assertOrder(0, 1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfRange() {
+        addCell(A, 0);
+        reorderer.get(1);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.scenario.effect.impl.state;
+
+import com.sun.javafx.geom.transform.BaseTransform;
+import com.sun.scenario.effect.impl.state.GaussianBlurState;
+import com.sun.scenario.effect.impl.state.LinearConvolveRenderState;
+import com.sun.scenario.effect.impl.state.RenderState.EffectCoordinateSpace;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GaussianBlurStateTest {
+
+    private static LinearConvolveRenderState getRenderState(float radius,
+                                                            float downsampleRadius,
+                                                            BaseTransform filtertx) {
+        GaussianBlurState state = new GaussianBlurState();
+        state.setRadius(radius);
+        state.setDownsampleRadius(downsampleRadius);
+        return state.getRenderState(filtertx);
+    }
+
+    @Test
+    public void largeRadiusIsNotDownsampledByDefault() {
+        LinearConvolveRenderState rstate =
+            getRenderState(40f, 0f, BaseTransform.IDENTITY_TRANSFORM);
+        assertEquals(EffectCoordinateSpace.RenderSpace,
+                     rstate.getEffectTransformSpace());
+        assertEquals(81, rstate.getInputKernelSize(0));
+        assertEquals(81, rstate.getInputKernelSize(1));
+    }
+
+    @Test
+    public void largeRadiusIsDownsampledToDownsampleRadius() {
+        LinearConvolveRenderState rstate =
+            getRenderState(40f, 8f, BaseTransform.IDENTITY_TRANSFORM);
+        assertEquals(EffectCoordinateSpace.CustomSpace,
+                     rstate.getEffectTransformSpace());
+        assertEquals(17, rstate.getInputKernelSize(0));
+        assertEquals(17, rstate.getInputKernelSize(1));
+        BaseTransform inputtx = rstate.getInputTransform(BaseTransform.IDENTITY_TRANSFORM);
+        assertEquals(0.2, inputtx.getMxx(), 1e-6);
+        assertEquals(0.2, inputtx.getMyy(), 1e-6);
+        BaseTransform resulttx = rstate.getResultTransform(BaseTransform.IDENTITY_TRANSFORM);
+        assertEquals(5.0, resulttx.getMxx(), 1e-5);
+        assertEquals(5.0, resulttx.getMyy(), 1e-5);
+    }
+
+    @Test
+    public void downsampleRadiusAppliesToDeviceRadius() {
+        LinearConvolveRenderState rstate =
+            getRenderState(6f, 8f, BaseTransform.IDENTITY_TRANSFORM);
+        assertEquals(EffectCoordinateSpace.RenderSpace,
+                     rstate.getEffectTransformSpace());
+        assertEquals(13, rstate.getInputKernelSize(0));
+
+        rstate = getRenderState(6f, 8f, BaseTransform.getScaleInstance(2, 2));
+        assertEquals(EffectCoordinateSpace.CustomSpace,
+                     rstate.getEffectTransformSpace());
+        assertEquals(17, rstate.getInputKernelSize(0));
+    }
+
+    @Test
+    public void subPixelDownsampleRadiusIsClampedToOnePixel() {
+        LinearConvolveRenderState rstate =
+            getRenderState(40f, 0.01f, BaseTransform.IDENTITY_TRANSFORM);
+        assertEquals(EffectCoordinateSpace.CustomSpace,
+                     rstate.getEffectTransformSpace());
+        assertEquals(3, rstate.getInputKernelSize(0));
+        assertEquals(3, rstate.getInputKernelSize(1));
+        BaseTransform inputtx = rstate.getInputTransform(BaseTransform.IDENTITY_TRANSFORM);
+        assertEquals(1.0 / 40.0, inputtx.getMxx(), 1e-6);
+        assertEquals(1.0 / 40.0, inputtx.getMyy(), 1e-6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeDownsampleRadiusIsRejected() {
+        new GaussianBlurState().setDownsampleRadius(-1f);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.scenario.effect.impl.sw.java;
+
+import com.sun.scenario.effect.impl.sw.java.JSWEffectPeerShim;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JSWEffectPeerTest {
+
+    @Test
+    public void smallImagesAreNotSplit() {
+        int min = JSWEffectPeerShim.getMinParallelPixels();
+        assertEquals(1, JSWEffectPeerShim.getRangeCount(1, 1000, 1000));
+        assertEquals(1, JSWEffectPeerShim.getRangeCount(4, 1, min));
+        assertEquals(1, JSWEffectPeerShim.getRangeCount(4, 16, min / 16 - 1));
+        assertEquals(4, JSWEffectPeerShim.getRangeCount(4, 16, min / 16));
+        assertEquals(3, JSWEffectPeerShim.getRangeCount(4, 3, min));
+    }
+
+    @Test
+    public void rangesCoverEveryRowOnce() {
+        for (int rangeCount = 1; rangeCount <= 5; rangeCount++) {
+            AtomicIntegerArray rows = new AtomicIntegerArray(37);
+            JSWEffectPeerShim.runRanges(rangeCount, rows.length(), (start, end) -> {
+                assertTrue(start < end);
+                for (int i = start; i < end; i++) {
+                    rows.incrementAndGet(i);
+                }
+            });
+            for (int i = 0; i < rows.length(); i++) {
+                assertEquals(1, rows.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void errorsOfOtherThreadsAreRethrown() {
+        try {
+            JSWEffectPeerShim.runRanges(3, 30, (start, end) -> {
+                if (start > 0) {
+                    throw new IllegalStateException("range " + start);
+                }
+            });
+            fail("Expected an exception");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith("range "));
+        }
+    }
+
+    private static int[] createImage(int w, int h) {
+        int[] src = new int[w * h];
+        Random random = new Random(42);
+        for (int i = 0; i < src.length; i++) {
+            int a = random.nextInt(256);
+            int c = random.nextInt(a + 1);
+            src[i] = (a << 24) | (c << 16) | (c << 8) | c;
+        }
+        return src;
+    }
+
+    @Test
+    public void splitBoxBlurMatchesSingleThreaded() {
+        int w = 150;
+        int h = 130;
+        int[] src = createImage(w, h);
+        int[] expected = JSWEffectPeerShim.boxBlur(src, w, h, 5, 7, 1);
+        for (int rangeCount = 2; rangeCount <= 4; rangeCount++) {
+            int[] actual = JSWEffectPeerShim.boxBlur(src, w, h, 5, 7, rangeCount);
+            assertTrue(Arrays.equals(expected, actual));
+        }
+    }
+
+    @Test
+    public void splitRotatedConvolveMatchesSingleThreaded() {
+        int w = 150;
+        int h = 130;
+        int[] src = createImage(w, h);
+        int[] expected = JSWEffectPeerShim.rotatedConvolve(src, w, h, 0.3, 1);
+        for (int rangeCount = 2; rangeCount <= 7; rangeCount++) {
+            int[] actual = JSWEffectPeerShim.rotatedConvolve(src, w, h, 0.3, rangeCount);
+            assertTrue(Arrays.equals(expected, actual));
+        }
+    }
+}
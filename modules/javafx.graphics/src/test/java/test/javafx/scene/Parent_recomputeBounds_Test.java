@@ -33,6 +33,7 @@ import static org.junit.Assert.assertTrue;
 import javafx.geometry.Bounds;
 import javafx.geometry.Point2D;
 import javafx.scene.Group;
+import javafx.scene.Node;
 import javafx.scene.NodeShim;
 import javafx.scene.ParentShim;
 import javafx.scene.shape.Rectangle;
@@ -563,6 +564,103 @@ public class Parent_recomputeBounds_Test {
                 parent.getBoundsInParent());
     }
 
+    private static Group createWideGroup(final int count) {
+        final Group g = new Group();
+        for (int i = 0; i < count; i++) {
+            g.getChildren().add(new Rectangle(100 + i % 16, 100 + i / 16, 10, 10));
+        }
+        return g;
+    }
+
+    private static void assertBounds(final Bounds b,
+                                     final double minX, final double minY,
+                                     final double maxX, final double maxY) {
+        assertEquals(minX, b.getMinX(), 0.0001);
+        assertEquals(minY, b.getMinY(), 0.0001);
+        assertEquals(maxX, b.getMaxX(), 0.0001);
+        assertEquals(maxY, b.getMaxY(), 0.0001);
+    }
+
+    @Test
+    public void wideGroupShouldRecomputeBoundsWhenEdgeNodeMovesInwards() {
+        final int count = ParentShim.BOUNDS_TREE_THRESHOLD * 2;
+        final Group g = createWideGroup(count);
+        final Rectangle edge = new Rectangle(0, 0, 10, 10);
+        g.getChildren().add(count / 2, edge);
+
+        assertBounds(g.getBoundsInLocal(), 0, 0, 125, 100 + (count - 1) / 16 + 10);
+
+        edge.setX(1000);
+        assertBounds(g.getBoundsInLocal(), 100, 0, 1010, 100 + (count - 1) / 16 + 10);
+
+        edge.setX(110);
+        edge.setY(110);
+        assertBounds(g.getBoundsInLocal(), 100, 100, 125, 100 + (count - 1) / 16 + 10);
+    }
+
+    @Test
+    public void wideGroupShouldRecomputeBoundsWhenNodeHiddenOrShown() {
+        final int count = ParentShim.BOUNDS_TREE_THRESHOLD;
+        final Group g = createWideGroup(count);
+        final Rectangle edge = new Rectangle(-50, -50, 10, 10);
+        g.getChildren().add(edge);
+
+        assertBounds(g.getBoundsInLocal(), -50, -50, 125, 100 + (count - 1) / 16 + 10);
+
+        edge.setVisible(false);
+        assertBounds(g.getBoundsInLocal(), 100, 100, 125, 100 + (count - 1) / 16 + 10);
+
+        edge.setX(-60);
+        assertBounds(g.getBoundsInLocal(), 100, 100, 125, 100 + (count - 1) / 16 + 10);
+
+        edge.setVisible(true);
+        assertBounds(g.getBoundsInLocal(), -60, -50, 125, 100 + (count - 1) / 16 + 10);
+    }
+
+    @Test
+    public void wideGroupShouldRecomputeBoundsWhenNodesAddedOrRemoved() {
+        final int count = ParentShim.BOUNDS_TREE_THRESHOLD;
+        final Group g = createWideGroup(count);
+        final Rectangle edge = new Rectangle(500, 500, 10, 10);
+
+        assertBounds(g.getBoundsInLocal(), 100, 100, 125, 100 + (count - 1) / 16 + 10);
+
+        g.getChildren().add(edge);
+        assertBounds(g.getBoundsInLocal(), 100, 100, 510, 510);
+
+        edge.setX(0);
+        assertBounds(g.getBoundsInLocal(), 0, 100, 125, 510);
+
+        edge.toBack();
+        edge.setY(0);
+        assertBounds(g.getBoundsInLocal(), 0, 0, 125, 100 + (count - 1) / 16 + 10);
+
+        g.getChildren().remove(edge);
+        assertBounds(g.getBoundsInLocal(), 100, 100, 125, 100 + (count - 1) / 16 + 10);
+
+        g.getChildren().remove(1, count);
+        assertBounds(g.getBoundsInLocal(), 100, 100, 110, 110);
+
+        g.getChildren().add(edge);
+        assertBounds(g.getBoundsInLocal(), 0, 0, 110, 110);
+    }
+
+    @Test
+    public void wideGroupShouldRecomputeBoundsWhenManyNodesMove() {
+        final int count = ParentShim.BOUNDS_TREE_THRESHOLD * 4;
+        final Group g = createWideGroup(count);
+
+        assertBounds(g.getBoundsInLocal(), 100, 100, 125, 100 + (count - 1) / 16 + 10);
+
+        for (Node n : g.getChildren()) {
+            n.setTranslateX(-100);
+        }
+        assertBounds(g.getBoundsInLocal(), 0, 100, 25, 100 + (count - 1) / 16 + 10);
+
+        g.getChildren().get(count - 1).setTranslateY(200);
+        assertBounds(g.getBoundsInLocal(), 0, 100, 25, 100 + (count - 1) / 16 + 210);
+    }
+
     private static Bounds boundsOfRotatedRect(
             final double x, final double y,
             final double width, final double height,
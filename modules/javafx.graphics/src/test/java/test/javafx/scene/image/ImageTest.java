@@ -39,7 +39,10 @@ import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageShim;
@@ -311,6 +314,144 @@ public final class ImageTest {
         }
     }
 
+    @Test
+    public void loadQueuedImagesAsyncInOrderTest() {
+        final StubAsyncImageLoader[] runningLoaders = startRunningImages("fifo");
+
+        final StubAsyncImageLoader olderLoader =
+                createAsyncImage("file:fifo_older.png");
+        final StubAsyncImageLoader newerLoader =
+                createAsyncImage("file:fifo_newer.png");
+
+        runningLoaders[0].finish();
+        assertTrue(olderLoader.isStarted());
+        assertFalse(newerLoader.isStarted());
+
+        runningLoaders[1].finish();
+        assertTrue(newerLoader.isStarted());
+
+        for (int i = 2; i < runningLoaders.length; i++) {
+            runningLoaders[i].finish();
+        }
+        olderLoader.finish();
+        newerLoader.finish();
+    }
+
+    @Test
+    public void loadQueuedImagesAsyncNewestFirstTest() {
+        final boolean newestFirst = ImageShim.setLoadNewestFirst(true);
+        try {
+            final StubAsyncImageLoader[] runningLoaders =
+                    startRunningImages("lifo");
+
+            final StubAsyncImageLoader olderLoader =
+                    createAsyncImage("file:lifo_older.png");
+            final StubAsyncImageLoader newerLoader =
+                    createAsyncImage("file:lifo_newer.png");
+            assertFalse(olderLoader.isStarted());
+            assertFalse(newerLoader.isStarted());
+
+            runningLoaders[0].finish();
+            assertTrue(newerLoader.isStarted());
+            assertFalse(olderLoader.isStarted());
+
+            runningLoaders[1].finish();
+            assertTrue(olderLoader.isStarted());
+
+            for (int i = 2; i < runningLoaders.length; i++) {
+                runningLoaders[i].finish();
+            }
+            newerLoader.finish();
+            olderLoader.finish();
+        } finally {
+            ImageShim.setLoadNewestFirst(newestFirst);
+        }
+    }
+
+    @Test
+    public void queuedImageLoadsUnderContinuousRequestsTest() {
+        final boolean newestFirst = ImageShim.setLoadNewestFirst(true);
+        try {
+            final List<StubAsyncImageLoader> loaders =
+                    new ArrayList<StubAsyncImageLoader>(
+                            Arrays.asList(startRunningImages("aging")));
+            final StubAsyncImageLoader oldLoader =
+                    createAsyncImage("file:aging_old.png");
+
+            // every finished image is replaced by a newer request
+            for (int i = 0; !oldLoader.isStarted(); i++) {
+                assertTrue("queued image starved", i < 100);
+                loaders.add(createAsyncImage("file:aging" + i + ".png"));
+                finishFirstRunning(loaders);
+            }
+
+            loaders.add(oldLoader);
+            while (finishFirstRunning(loaders)) {
+            }
+            for (StubAsyncImageLoader loader : loaders) {
+                assertTrue(loader.isDone());
+            }
+        } finally {
+            ImageShim.setLoadNewestFirst(newestFirst);
+        }
+    }
+
+    private static boolean finishFirstRunning(
+            final List<StubAsyncImageLoader> loaders) {
+        for (StubAsyncImageLoader loader : loaders) {
+            if (loader.isStarted() && !loader.isDone()) {
+                loader.finish();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void cancelQueuedImageAsyncTest() {
+        final StubAsyncImageLoader[] runningLoaders = startRunningImages("skip");
+
+        final StubAsyncImageLoader queuedLoader =
+                createAsyncImage("file:skip_queued.png");
+        final String cancelledUrl = "file:skip_cancelled.png";
+        registerImage(cancelledUrl, 100, 100);
+        final Image cancelledImage = new Image(cancelledUrl, true);
+        final StubAsyncImageLoader cancelledLoader =
+                imageLoaderFactory.getLastAsyncImageLoader();
+
+        cancelledImage.cancel();
+        assertTrue(cancelledImage.isError());
+        // cancelling a queued image must not start another one
+        assertFalse(queuedLoader.isStarted());
+
+        runningLoaders[0].finish();
+        assertTrue(queuedLoader.isStarted());
+        assertFalse(cancelledLoader.isStarted());
+
+        for (int i = 1; i < runningLoaders.length; i++) {
+            runningLoaders[i].finish();
+        }
+        queuedLoader.finish();
+    }
+
+    // keeps the queued images reachable until they are started
+    private final Queue<Image> asyncImages = new LinkedList<Image>();
+
+    private StubAsyncImageLoader[] startRunningImages(final String prefix) {
+        final StubAsyncImageLoader[] loaders = new StubAsyncImageLoader[4];
+        for (int i = 0; i < loaders.length; i++) {
+            loaders[i] = createAsyncImage("file:" + prefix + i + ".png");
+            assertTrue(loaders[i].isStarted());
+        }
+        return loaders;
+    }
+
+    private StubAsyncImageLoader createAsyncImage(final String url) {
+        registerImage(url, 100, 100);
+        asyncImages.add(new Image(url, true));
+        return imageLoaderFactory.getLastAsyncImageLoader();
+    }
+
     @Test
     public void animatedImageTest() {
         // reset time